@@ -1,9 +1,11 @@
 package iscteiul.ista;
 
-import iscteiul.ista.battleship.Fleet;
 import iscteiul.ista.battleship.Tasks;
 
 /**
+ * Ponto de entrada da aplicação: executa a tarefa indicada no primeiro argumento
+ * ({@code a}, {@code b}, {@code c} ou {@code d}; por omissão, {@code b}).
+ *
  * @author britoeabreu
  * @author adrianolopes
  * @author miguelgoulao
@@ -15,9 +17,24 @@ public class App
 
         System.out.printf("\n***  Battleship Game ***\n");
 
-        // Tasks.taskA();
-        Tasks.taskB();
-        //	Tasks.taskC();
-        //	Tasks.taskD();
+        String task = args.length > 0 ? args[0].toLowerCase() : "b";
+        switch (task)
+        {
+            case "a":
+                Tasks.taskA();
+                break;
+            case "b":
+                Tasks.taskB();
+                break;
+            case "c":
+                Tasks.taskC();
+                break;
+            case "d":
+                Tasks.taskD();
+                break;
+            default:
+                System.err.println("Tarefa desconhecida: " + task + " (a, b, c ou d)");
+                System.exit(2);
+        }
     }
 }
@@ -0,0 +1,145 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Base para atiradores que decidem a partir do tabuleiro observado.
+ * <p>
+ * Mantém a {@link Observation} do jogo corrente, as células já escolhidas na rajada em curso
+ * (pendentes, cujo resultado ainda não é conhecido) e um gerador aleatório reiniciado em cada
+ * jogo. As subclasses apenas têm de implementar {@link #choose()}.
+ * </p>
+ */
+public abstract class AbstractShooter implements IShooter {
+
+    /**
+     * Tabuleiro adversário observado no jogo corrente.
+     */
+    protected Observation view;
+
+    /**
+     * Gerador aleatório do jogo corrente.
+     */
+    protected Random rnd;
+
+    /**
+     * Células escolhidas cujo resultado ainda não foi recebido.
+     */
+    private final boolean[] pending = new boolean[Observation.CELLS];
+
+    private final String name;
+
+    /**
+     * Construtor base dos atiradores.
+     *
+     * @param name nome da estratégia
+     */
+    protected AbstractShooter(String name) {
+        this.name = name;
+        newGame(0);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void newGame(long seed) {
+        view = new Observation();
+        rnd = new Random(seed);
+        for (int i = 0; i < pending.length; i++)
+            pending[i] = false;
+    }
+
+    @Override
+    public IPosition nextShot() {
+        int cell = choose();
+        if (cell < 0)
+            return null;
+        assert isAvailable(cell);
+        pending[cell] = true;
+        return Observation.toPosition(cell);
+    }
+
+    @Override
+    public List<IPosition> nextSalvo(int size) {
+        List<IPosition> salvo = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            IPosition target = nextShot();
+            if (target == null)
+                break;
+            salvo.add(target);
+        }
+        return salvo;
+    }
+
+    @Override
+    public void observe(IPosition target, ShotResult result, IShip sunk) {
+        if (!Observation.isInside(target.getRow(), target.getColumn()))
+            return;
+        int cell = Observation.cell(target);
+        pending[cell] = false;
+        if (result != ShotResult.INVALID && result != ShotResult.REPEATED)
+            view.record(target, result.isHit(), sunk);
+    }
+
+    /**
+     * Verifica se uma célula pode ser escolhida: ainda desconhecida e não pendente.
+     *
+     * @param cell índice linear da célula
+     * @return {@code true} se a célula puder ser escolhida
+     */
+    protected boolean isAvailable(int cell) {
+        return view.isUnknown(cell) && !pending[cell];
+    }
+
+    /**
+     * Escolhe uma célula disponível ao acaso, de entre as que satisfazem {@link #isPromising(int)};
+     * se não existir nenhuma, escolhe de entre as que ainda podem conter um navio
+     * ({@link Observation#couldHoldShip(int)}) e, em último caso, de entre todas as disponíveis.
+     *
+     * @return o índice linear da célula escolhida, ou -1 se não houver células disponíveis
+     */
+    protected int randomAvailable() {
+        int[] candidates = new int[Observation.CELLS];
+        int count = 0;
+        for (int c = 0; c < Observation.CELLS; c++)
+            if (isAvailable(c) && isPromising(c))
+                candidates[count++] = c;
+        if (count == 0)
+            for (int c = 0; c < Observation.CELLS; c++)
+                if (isAvailable(c) && view.couldHoldShip(c))
+                    candidates[count++] = c;
+        if (count == 0)
+            for (int c = 0; c < Observation.CELLS; c++)
+                if (isAvailable(c))
+                    candidates[count++] = c;
+        return count == 0 ? -1 : candidates[rnd.nextInt(count)];
+    }
+
+    /**
+     * Indica se vale a pena disparar sobre uma célula disponível quando se escolhe ao acaso.
+     * Por omissão, todas as células disponíveis são promissoras.
+     *
+     * @param cell índice linear da célula
+     * @return {@code true} se a célula for promissora
+     */
+    protected boolean isPromising(int cell) {
+        return true;
+    }
+
+    /**
+     * Escolhe a próxima célula a alvejar, de entre as disponíveis ({@link #isAvailable(int)}).
+     *
+     * @return o índice linear da célula escolhida, ou -1 se não houver células disponíveis
+     */
+    protected abstract int choose();
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
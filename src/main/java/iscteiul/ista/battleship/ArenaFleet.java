@@ -0,0 +1,101 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vista {@link IFleet} sobre a frota de uma ranhura de um {@link GameArena}.
+ * <p>
+ * {@link #addShip(IShip)} escreve diretamente na ranhura. Os métodos de consulta devolvem navios
+ * construídos a pedido ({@link GameArena#toShip(int, int)}): são cópias, e disparar sobre eles
+ * não altera o jogo.
+ * </p>
+ */
+public class ArenaFleet implements IFleet {
+
+    private final GameArena arena;
+    private int slot;
+    private IOutputSink output = ConsoleOutput.INSTANCE;
+
+    /**
+     * Constrói uma vista sobre a frota de uma ranhura.
+     *
+     * @param arena armazém de jogos
+     * @param slot  ranhura
+     */
+    public ArenaFleet(GameArena arena, int slot) {
+        this.arena = arena;
+        this.slot = slot;
+    }
+
+    /**
+     * Passa a mostrar outra ranhura do mesmo armazém.
+     *
+     * @param slot nova ranhura
+     * @return esta vista
+     */
+    public ArenaFleet moveTo(int slot) {
+        this.slot = slot;
+        return this;
+    }
+
+    @Override
+    public List<IShip> getShips() {
+        List<IShip> ships = new ArrayList<>();
+        for (int i = 0, n = arena.getShipCount(slot); i < n; i++)
+            ships.add(arena.toShip(slot, i));
+        return ships;
+    }
+
+    @Override
+    public boolean addShip(IShip s) {
+        return arena.addShip(slot, s.getCategory().toLowerCase(), s.getBearing(), s.getPosition().getRow(),
+                s.getPosition().getColumn());
+    }
+
+    @Override
+    public List<IShip> getShipsLike(String category) {
+        List<IShip> shipsLike = new ArrayList<>();
+        for (IShip s : getShips())
+            if (s.getCategory().equals(category))
+                shipsLike.add(s);
+        return shipsLike;
+    }
+
+    @Override
+    public List<IShip> getFloatingShips() {
+        List<IShip> floatingShips = new ArrayList<>();
+        for (IShip s : getShips())
+            if (s.stillFloating())
+                floatingShips.add(s);
+        return floatingShips;
+    }
+
+    @Override
+    public IShip shipAt(IPosition pos) {
+        if (!Observation.isInside(pos.getRow(), pos.getColumn()))
+            return null;
+        int index = arena.shipIndexAt(slot, Observation.cell(pos));
+        return index < 0 ? null : arena.toShip(slot, index);
+    }
+
+    @Override
+    public void printStatus() {
+        if (!output.isEnabled())
+            return;
+        Fleet copy = arena.toFleet(slot);
+        copy.setOutput(output);
+        copy.printStatus();
+    }
+
+    @Override
+    public IOutputSink getOutput() {
+        return output;
+    }
+
+    @Override
+    public void setOutput(IOutputSink out) {
+        assert out != null;
+        output = out;
+    }
+}
@@ -0,0 +1,159 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vista {@link IGame} sobre uma ranhura de um {@link GameArena}.
+ * <p>
+ * A vista não guarda estado próprio: todas as operações leem e escrevem diretamente na ranhura,
+ * e {@link #moveTo(int)} permite reutilizar o mesmo objeto para percorrer muitos jogos.
+ * Os métodos que devolvem objetos ({@link #fire(IPosition)} quando afunda um navio, {@link #getShots()})
+ * constroem-nos a pedido; os restantes não reservam memória.
+ * </p>
+ */
+public class ArenaGame implements IGame {
+
+    private final GameArena arena;
+    private int slot;
+    private IOutputSink output = ConsoleOutput.INSTANCE;
+
+    /**
+     * Constrói uma vista sobre uma ranhura.
+     *
+     * @param arena armazém de jogos
+     * @param slot  ranhura
+     */
+    public ArenaGame(GameArena arena, int slot) {
+        this.arena = arena;
+        this.slot = slot;
+    }
+
+    /**
+     * Passa a mostrar outra ranhura do mesmo armazém.
+     *
+     * @param slot nova ranhura
+     * @return esta vista
+     */
+    public ArenaGame moveTo(int slot) {
+        this.slot = slot;
+        return this;
+    }
+
+    /**
+     * Devolve a ranhura mostrada por esta vista.
+     *
+     * @return o índice da ranhura
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Devolve a frota do jogo, como vista sobre a mesma ranhura.
+     *
+     * @return a frota
+     */
+    public IFleet getFleet() {
+        return new ArenaFleet(arena, slot);
+    }
+
+    /**
+     * Efetua um disparo (ver {@link GameArena#fire(int, int, int)}).
+     *
+     * @param pos posição alvo do disparo
+     * @return o navio afundado por este tiro, ou {@code null} caso não tenha sido afundado nenhum navio
+     */
+    @Override
+    public IShip fire(IPosition pos) {
+        if (arena.fire(slot, pos.getRow(), pos.getColumn()) != ShotResult.SUNK)
+            return null;
+        return arena.toShip(slot, arena.shipIndexAt(slot, Observation.cell(pos)));
+    }
+
+    /**
+     * Devolve os tiros válidos não repetidos, por ordem das células (e não pela ordem em que foram efetuados).
+     *
+     * @return lista nova com as posições atingidas
+     */
+    @Override
+    public List<IPosition> getShots() {
+        List<IPosition> shots = new ArrayList<>();
+        for (int cell = 0; cell < Observation.CELLS; cell++)
+            if (arena.isShot(slot, cell))
+                shots.add(Observation.toPosition(cell));
+        return shots;
+    }
+
+    @Override
+    public ShotResult getLastResult() {
+        return arena.getLastResult(slot);
+    }
+
+    @Override
+    public int getRepeatedShots() {
+        return arena.getRepeatedShots(slot);
+    }
+
+    @Override
+    public int getInvalidShots() {
+        return arena.getInvalidShots(slot);
+    }
+
+    @Override
+    public int getHits() {
+        return arena.getHits(slot);
+    }
+
+    @Override
+    public int getSunkShips() {
+        return arena.getSunkShips(slot);
+    }
+
+    @Override
+    public int getRemainingShips() {
+        return arena.getRemainingShips(slot);
+    }
+
+    @Override
+    public void printValidShots() {
+        printBoard(true);
+    }
+
+    @Override
+    public void printFleet() {
+        printBoard(false);
+    }
+
+    /**
+     * Imprime o tabuleiro da ranhura, com os tiros ({@code 'X'}) ou com a frota ({@code '#'}).
+     */
+    private void printBoard(boolean shots) {
+        if (!output.isEnabled())
+            return;
+        String nl = System.lineSeparator();
+        StringBuilder board = new StringBuilder(Fleet.BOARD_SIZE * (Fleet.BOARD_SIZE + nl.length()));
+        for (int row = 0; row < Fleet.BOARD_SIZE; row++) {
+            for (int col = 0; col < Fleet.BOARD_SIZE; col++) {
+                int cell = Observation.cell(row, col);
+                if (shots)
+                    board.append(arena.isShot(slot, cell) ? 'X' : '.');
+                else
+                    board.append(arena.isOccupied(slot, cell) ? '#' : '.');
+            }
+            board.append(nl);
+        }
+        output.print(board);
+    }
+
+    @Override
+    public IOutputSink getOutput() {
+        return output;
+    }
+
+    @Override
+    public void setOutput(IOutputSink out) {
+        assert out != null;
+        output = out;
+    }
+}
@@ -0,0 +1,277 @@
+package iscteiul.ista.battleship;
+
+import java.util.List;
+
+/**
+ * Motor que faz avançar muitos jogos independentes em simultâneo, um tiro por jogo em cada passo.
+ * <p>
+ * O estado de todos os jogos é guardado em arrays primitivos paralelos (um elemento por jogo), em
+ * vez de um {@link Game} com a sua frota, navios e posições por jogo. Cada passo
+ * ({@link #step(int[], int[], byte[])}) é resolvido em duas passagens:
+ * </p>
+ * <ol>
+ *   <li>uma passagem sem ramificações sobre todos os jogos, que testa o tiro contra os planos de tiros e
+ *   de ocupação (duas palavras de 64 bits por jogo), atualiza o plano de tiros e os contadores, e
+ *   recolhe os jogos em que houve acerto;</li>
+ *   <li>uma passagem apenas pelos jogos com acerto, que desconta a célula ao navio atingido e
+ *   deteta os afundamentos.</li>
+ * </ol>
+ *
+ * <p>
+ * A primeira passagem só usa aritmética sobre arrays, de forma a poder ser vetorizada pelo compilador JIT.
+ * Os resultados (tiro inválido, repetido, água, acerto ou afundamento) são os mesmos de
+ * {@link Game#fire(IPosition)}: um tiro só é válido se estiver dentro do tabuleiro. As instâncias não
+ * são seguras entre threads.
+ * </p>
+ */
+public class BatchGameEngine {
+
+    private static final int CELLS = Observation.CELLS;
+    private static final int MAX_SHIPS = GameArena.MAX_SHIPS;
+
+    private static final byte INVALID = (byte) ShotResult.INVALID.ordinal();
+    private static final byte REPEATED = (byte) ShotResult.REPEATED.ordinal();
+    private static final byte MISS = (byte) ShotResult.MISS.ordinal();
+    private static final byte HIT = (byte) ShotResult.HIT.ordinal();
+    private static final byte SUNK = (byte) ShotResult.SUNK.ordinal();
+
+    private static final ShotResult[] RESULTS = ShotResult.values();
+
+    private final int games;
+
+    private final long[] occupied0;
+    private final long[] occupied1;
+    private final long[] shots0;
+    private final long[] shots1;
+
+    /**
+     * Índice (mais um) do navio que ocupa cada célula: {@code shipAt[jogo * CELLS + célula]}.
+     */
+    private final byte[] shipAt;
+
+    /**
+     * Células ainda intactas de cada navio: {@code remaining[jogo * MAX_SHIPS + navio]}.
+     */
+    private final byte[] remaining;
+
+    private final int[] ships;
+    private final int[] hits;
+    private final int[] sunk;
+    private final int[] invalid;
+    private final int[] repeated;
+
+    /**
+     * Jogos com acerto no passo corrente (segunda passagem).
+     */
+    private final int[] hitGames;
+
+    /**
+     * Célula visada por cada jogo no passo corrente.
+     */
+    private final int[] targets;
+
+    private int finished;
+
+    /**
+     * Constrói o motor com um jogo por frota, todas ainda sem danos.
+     *
+     * @param layouts frotas dos jogos (só a disposição é usada; as frotas não são alteradas)
+     */
+    public BatchGameEngine(List<IFleet> layouts) {
+        games = layouts.size();
+        occupied0 = new long[games];
+        occupied1 = new long[games];
+        shots0 = new long[games];
+        shots1 = new long[games];
+        shipAt = new byte[games * CELLS];
+        remaining = new byte[games * MAX_SHIPS];
+        ships = new int[games];
+        hits = new int[games];
+        sunk = new int[games];
+        invalid = new int[games];
+        repeated = new int[games];
+        hitGames = new int[games];
+        targets = new int[games];
+
+        for (int g = 0; g < games; g++) {
+            List<IShip> fleet = layouts.get(g).getShips();
+            assert fleet.size() <= MAX_SHIPS;
+
+            ships[g] = fleet.size();
+            for (int k = 0; k < fleet.size(); k++) {
+                IShip s = fleet.get(k);
+                remaining[g * MAX_SHIPS + k] = (byte) s.getSize().intValue();
+                for (IPosition p : s.getPositions()) {
+                    int cell = Observation.cell(p);
+                    shipAt[g * CELLS + cell] = (byte) (k + 1);
+                    if (cell < 64)
+                        occupied0[g] |= 1L << cell;
+                    else
+                        occupied1[g] |= 1L << cell;
+                }
+            }
+            if (ships[g] == 0)
+                finished++;
+        }
+    }
+
+    /**
+     * Devolve o número de jogos.
+     *
+     * @return número de jogos
+     */
+    public int size() {
+        return games;
+    }
+
+    /**
+     * Efetua um tiro em cada jogo.
+     *
+     * @param rows    linha do alvo de cada jogo
+     * @param columns coluna do alvo de cada jogo
+     * @param results array onde é escrito o resultado de cada tiro (ordinal de {@link ShotResult}),
+     *                ou {@code null} se os resultados não forem necessários
+     */
+    public void step(int[] rows, int[] columns, byte[] results) {
+        assert rows.length >= games && columns.length >= games;
+        assert results == null || results.length >= games;
+
+        int hitCount = 0;
+        for (int g = 0; g < games; g++) {
+            int r = rows[g];
+            int c = columns[g];
+            int inside = (r >= 0 & r < Fleet.BOARD_SIZE & c >= 0 & c < Fleet.BOARD_SIZE) ? 1 : 0;
+            int cell = (r * Fleet.BOARD_SIZE + c) * inside;
+            long bit = (1L << cell) & -(long) inside;
+            long low = cell < 64 ? bit : 0L;
+            long high = bit ^ low;
+
+            long fresh = (low & ~shots0[g]) | (high & ~shots1[g]);
+            long hit = (low & ~shots0[g] & occupied0[g]) | (high & ~shots1[g] & occupied1[g]);
+            shots0[g] |= low;
+            shots1[g] |= high;
+
+            int isFresh = fresh != 0 ? 1 : 0;
+            int isHit = hit != 0 ? 1 : 0;
+            invalid[g] += 1 - inside;
+            repeated[g] += inside - isFresh;
+            hits[g] += isHit;
+            targets[g] = cell;
+            hitGames[hitCount] = g;
+            hitCount += isHit;
+            if (results != null)
+                results[g] = inside == 0 ? INVALID : isFresh == 0 ? REPEATED : isHit == 0 ? MISS : HIT;
+        }
+
+        for (int i = 0; i < hitCount; i++) {
+            int g = hitGames[i];
+            int ship = g * MAX_SHIPS + shipAt[g * CELLS + targets[g]] - 1;
+            if (--remaining[ship] == 0) {
+                if (++sunk[g] == ships[g])
+                    finished++;
+                if (results != null)
+                    results[g] = SUNK;
+            }
+        }
+    }
+
+    /**
+     * Converte um resultado escrito por {@link #step(int[], int[], byte[])} no respetivo {@link ShotResult}.
+     *
+     * @param result ordinal do resultado
+     * @return o resultado
+     */
+    public static ShotResult result(byte result) {
+        return RESULTS[result];
+    }
+
+    /**
+     * Indica se todos os navios de um jogo já foram afundados.
+     *
+     * @param game índice do jogo
+     * @return {@code true} se o jogo terminou
+     */
+    public boolean isFinished(int game) {
+        return sunk[game] == ships[game];
+    }
+
+    /**
+     * Devolve o número de jogos terminados.
+     *
+     * @return número de jogos com todos os navios afundados
+     */
+    public int getFinishedGames() {
+        return finished;
+    }
+
+    /**
+     * Indica se uma célula de um jogo já foi alvo de um tiro válido.
+     *
+     * @param game índice do jogo
+     * @param cell índice da célula ({@code linha * BOARD_SIZE + coluna})
+     * @return {@code true} se a célula já foi atingida por um tiro
+     */
+    public boolean isShot(int game, int cell) {
+        return ((cell < 64 ? shots0[game] : shots1[game]) & 1L << cell) != 0;
+    }
+
+    /**
+     * Devolve o número de tiros válidos não repetidos de um jogo.
+     *
+     * @param game índice do jogo
+     * @return número de tiros registados
+     */
+    public int getShots(int game) {
+        return Long.bitCount(shots0[game]) + Long.bitCount(shots1[game]);
+    }
+
+    /**
+     * Devolve o número de acertos de um jogo.
+     *
+     * @param game índice do jogo
+     * @return número de acertos
+     */
+    public int getHits(int game) {
+        return hits[game];
+    }
+
+    /**
+     * Devolve o número de navios afundados de um jogo.
+     *
+     * @param game índice do jogo
+     * @return número de navios afundados
+     */
+    public int getSunkShips(int game) {
+        return sunk[game];
+    }
+
+    /**
+     * Devolve o número de navios ainda a flutuar de um jogo.
+     *
+     * @param game índice do jogo
+     * @return número de navios restantes
+     */
+    public int getRemainingShips(int game) {
+        return ships[game] - sunk[game];
+    }
+
+    /**
+     * Devolve o número de tiros inválidos de um jogo.
+     *
+     * @param game índice do jogo
+     * @return número de tiros inválidos
+     */
+    public int getInvalidShots(int game) {
+        return invalid[game];
+    }
+
+    /**
+     * Devolve o número de tiros repetidos de um jogo.
+     *
+     * @param game índice do jogo
+     * @return número de tiros repetidos
+     */
+    public int getRepeatedShots(int game) {
+        return repeated[game];
+    }
+}
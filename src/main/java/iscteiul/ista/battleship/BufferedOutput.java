@@ -0,0 +1,91 @@
+package iscteiul.ista.battleship;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Destino que acumula o texto e o escreve noutro canal ({@link Appendable}: um {@link java.io.Writer},
+ * um {@link java.io.PrintStream}, ...) em blocos, quando o texto retido atinge a capacidade ou em
+ * {@link #flush()}.
+ * <p>
+ * Útil quando o canal final é lento ou sincronizado (como o output padrão) e se escrevem muitas linhas
+ * curtas. Não é seguro entre threads; o texto retido só chega ao canal depois de {@link #flush()}.
+ * </p>
+ */
+public class BufferedOutput implements IOutputSink {
+
+    /**
+     * Capacidade por omissão, em caracteres.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private final Appendable target;
+    private final int capacity;
+    private final StringBuilder buffer;
+
+    /**
+     * Constrói um destino com a capacidade por omissão.
+     *
+     * @param target canal final
+     */
+    public BufferedOutput(Appendable target) {
+        this(target, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constrói um destino.
+     *
+     * @param target   canal final
+     * @param capacity número de caracteres retidos antes de escrever no canal
+     */
+    public BufferedOutput(Appendable target, int capacity) {
+        if (target == null || capacity <= 0)
+            throw new IllegalArgumentException("Canal ou capacidade inválidos");
+        this.target = target;
+        this.capacity = capacity;
+        buffer = new StringBuilder(Math.min(capacity, DEFAULT_CAPACITY));
+    }
+
+    @Override
+    public void print(CharSequence text) {
+        buffer.append(text);
+        if (buffer.length() >= capacity)
+            drain();
+    }
+
+    @Override
+    public void println(CharSequence line) {
+        buffer.append(line).append(System.lineSeparator());
+        if (buffer.length() >= capacity)
+            drain();
+    }
+
+    /**
+     * Escreve o texto retido no canal final e esvazia o canal, se este o permitir.
+     *
+     * @throws UncheckedIOException se a escrita falhar
+     */
+    @Override
+    public void flush() {
+        drain();
+        if (target instanceof Flushable) {
+            try {
+                ((Flushable) target).flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void drain() {
+        if (buffer.length() == 0)
+            return;
+        try {
+            target.append(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.setLength(0);
+    }
+}
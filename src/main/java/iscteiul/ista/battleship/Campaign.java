@@ -0,0 +1,357 @@
+package iscteiul.ista.battleship;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Campanha de simulação: uma estratégia de tiro joga um número muito grande de jogos contra frotas
+ * aleatórias, e o número de disparos de cada jogo é acumulado num histograma.
+ * <p>
+ * Os jogos estão divididos em unidades de trabalho, cada uma com {@code gamesPerUnit} jogos. Cada
+ * unidade tem o seu próprio gerador aleatório ({@link SplittableRandom}), cuja semente depende apenas
+ * da semente da campanha e do número da unidade, e o histograma final é a soma dos histogramas das
+ * unidades. Os resultados são por isso os mesmos com qualquer número de threads, ordem de execução
+ * ou número de interrupções.
+ * </p>
+ *
+ * <p>
+ * Com um ponto de controlo ({@link #setCheckpoint(Path, long)}), as unidades concluídas e o histograma
+ * parcial são guardados periodicamente num ficheiro, que é substituído atomicamente (escrito num
+ * ficheiro temporário e depois renomeado): se o processo for terminado, o ficheiro tem sempre o último
+ * ponto de controlo completo. Uma nova campanha com os mesmos parâmetros retoma a partir desse ficheiro,
+ * repetindo apenas as unidades que estavam em curso.
+ * </p>
+ */
+public class Campaign {
+
+    /**
+     * Número mágico no início de cada ponto de controlo ({@code "BSC1"}).
+     */
+    public static final int MAGIC = 0x42534331;
+
+    /**
+     * Maior número de disparos distinguido no histograma; jogos mais longos contam neste valor.
+     */
+    public static final int MAX_SHOTS = 4 * Observation.CELLS;
+
+    /**
+     * Progresso de uma campanha: as unidades concluídas e o histograma do número de disparos por jogo.
+     */
+    public static final class Result {
+        private final int units;
+        private final int gamesPerUnit;
+        private final BitSet completed;
+        private final long[] histogram;
+
+        private Result(int units, int gamesPerUnit, BitSet completed, long[] histogram) {
+            this.units = units;
+            this.gamesPerUnit = gamesPerUnit;
+            this.completed = completed;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Indica se todas as unidades da campanha foram concluídas.
+         *
+         * @return {@code true} se a campanha terminou
+         */
+        public boolean isFinished() {
+            return completed.cardinality() == units;
+        }
+
+        /**
+         * Devolve o número de unidades concluídas.
+         *
+         * @return número de unidades concluídas
+         */
+        public int getCompletedUnits() {
+            return completed.cardinality();
+        }
+
+        /**
+         * Devolve o número de jogos jogados nas unidades concluídas.
+         *
+         * @return número de jogos
+         */
+        public long getGames() {
+            return (long) completed.cardinality() * gamesPerUnit;
+        }
+
+        /**
+         * Devolve o histograma do número de disparos por jogo.
+         *
+         * @return uma cópia do histograma, indexado pelo número de disparos (até {@value #MAX_SHOTS})
+         */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        /**
+         * Devolve o número médio de disparos por jogo.
+         *
+         * @return a média, ou 0 se ainda não houver jogos
+         */
+        public double mean() {
+            long games = 0;
+            long shots = 0;
+            for (int n = 0; n < histogram.length; n++) {
+                games += histogram[n];
+                shots += n * histogram[n];
+            }
+            return games == 0 ? 0 : (double) shots / games;
+        }
+
+        /**
+         * Devolve a distribuição do número de disparos, com peso igual ao número de jogos.
+         *
+         * @return a distribuição
+         */
+        public ShotDistribution distribution() {
+            ShotDistribution d = ShotDistribution.EMPTY;
+            for (int n = 0; n < histogram.length; n++)
+                if (histogram[n] > 0)
+                    d = d.plus(ShotDistribution.point(n, histogram[n]));
+            return d;
+        }
+
+        /**
+         * Retorna o progresso e a média numa linha.
+         *
+         * @return uma string com as unidades concluídas, os jogos e a média de disparos
+         */
+        @Override
+        public String toString() {
+            return String.format("%d/%d unidades, %d jogos, media %.3f tiros", getCompletedUnits(), units, getGames(),
+                    mean());
+        }
+    }
+
+    private final Supplier<? extends IShooter> strategy;
+    private final long seed;
+    private final int units;
+    private final int gamesPerUnit;
+    private int salvoSize = Tasks.NUMBER_SHOTS;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path checkpoint;
+    private long checkpointMillis;
+
+    /**
+     * Número de unidades concluídas no último ponto de controlo escrito.
+     */
+    private int savedUnits;
+
+    /**
+     * Constrói uma campanha.
+     *
+     * @param strategy     fábrica de atiradores (é criado um por thread)
+     * @param seed         semente da campanha
+     * @param units        número de unidades de trabalho
+     * @param gamesPerUnit número de jogos de cada unidade
+     */
+    public Campaign(Supplier<? extends IShooter> strategy, long seed, int units, int gamesPerUnit) {
+        if (units <= 0 || gamesPerUnit <= 0)
+            throw new IllegalArgumentException("Número de unidades ou de jogos inválido");
+        this.strategy = strategy;
+        this.seed = seed;
+        this.units = units;
+        this.gamesPerUnit = gamesPerUnit;
+    }
+
+    /**
+     * Define o número de disparos por rajada.
+     *
+     * @param salvoSize número de disparos por rajada (pelo menos 1)
+     */
+    public void setSalvoSize(int salvoSize) {
+        assert salvoSize > 0;
+        this.salvoSize = salvoSize;
+    }
+
+    /**
+     * Define o número de threads usadas para jogar.
+     *
+     * @param threads número de threads (pelo menos 1)
+     */
+    public void setThreads(int threads) {
+        assert threads > 0;
+        this.threads = threads;
+    }
+
+    /**
+     * Define o ficheiro do ponto de controlo. Se já existir, a campanha retoma a partir dele.
+     *
+     * @param file     ficheiro do ponto de controlo
+     * @param interval tempo mínimo entre pontos de controlo, em milissegundos (o último é sempre escrito)
+     */
+    public void setCheckpoint(Path file, long interval) {
+        assert interval >= 0;
+        checkpoint = file;
+        checkpointMillis = interval;
+    }
+
+    /**
+     * Joga todas as unidades que faltam.
+     *
+     * @return o progresso final
+     * @throws IOException se o ponto de controlo não puder ser lido ou escrito
+     * @throws IllegalStateException se algum jogo falhar (depois de guardar o ponto de controlo)
+     */
+    public Result run() throws IOException {
+        return run(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Joga, no máximo, o número de unidades indicado das que faltam (as de número mais baixo). Permite
+     * dividir uma campanha em sessões de duração limitada.
+     *
+     * @param maxUnits número máximo de unidades a jogar nesta sessão
+     * @return o progresso no fim da sessão
+     * @throws IOException se o ponto de controlo não puder ser lido ou escrito
+     * @throws IllegalStateException se algum jogo falhar (depois de guardar o ponto de controlo)
+     */
+    public Result run(int maxUnits) throws IOException {
+        String name = strategy.get().getName();
+        BitSet completed = new BitSet(units);
+        long[] histogram = new long[MAX_SHOTS + 1];
+        if (checkpoint != null && Files.exists(checkpoint))
+            load(name, completed, histogram);
+
+        int[] pending = new int[Math.min(maxUnits, units - completed.cardinality())];
+        for (int i = 0, u = completed.nextClearBit(0); i < pending.length; i++, u = completed.nextClearBit(u + 1))
+            pending[i] = u;
+
+        savedUnits = 0;
+        AtomicInteger next = new AtomicInteger();
+        long[] lastCheckpoint = { System.currentTimeMillis() };
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+                futures.add(executor.submit(() -> {
+                    IShooter shooter = strategy.get();
+                    long[] local = new long[MAX_SHOTS + 1];
+                    for (int i = next.getAndIncrement(); i < pending.length; i = next.getAndIncrement()) {
+                        playUnit(shooter, pending[i], local);
+                        Result snapshot = null;
+                        synchronized (completed) {
+                            for (int n = 0; n < local.length; n++)
+                                histogram[n] += local[n];
+                            completed.set(pending[i]);
+                            long now = System.currentTimeMillis();
+                            if (checkpoint != null && now - lastCheckpoint[0] >= checkpointMillis) {
+                                lastCheckpoint[0] = now;
+                                snapshot = new Result(units, gamesPerUnit, (BitSet) completed.clone(),
+                                        histogram.clone());
+                            }
+                        }
+                        Arrays.fill(local, 0);
+                        if (snapshot != null)
+                            save(name, snapshot);
+                    }
+                    return null;
+                }));
+            for (Future<?> f : futures)
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Campanha interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha num jogo da campanha", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            if (checkpoint != null) {
+                synchronized (completed) {
+                    save(name, new Result(units, gamesPerUnit, (BitSet) completed.clone(), histogram.clone()));
+                }
+            }
+        }
+        return new Result(units, gamesPerUnit, completed, histogram);
+    }
+
+    /**
+     * Joga os jogos de uma unidade e acrescenta o número de disparos de cada jogo ao histograma.
+     */
+    private void playUnit(IShooter shooter, int unit, long[] histogram) {
+        SplittableRandom rnd = new SplittableRandom(Tournament.gameSeed(seed, unit));
+        for (int g = 0; g < gamesPerUnit; g++) {
+            IFleet fleet = FleetGenerator.randomFleet(new Random(rnd.nextLong()));
+            int shots = Tournament.play(shooter, fleet, rnd.nextLong(), salvoSize);
+            histogram[Math.min(shots, MAX_SHOTS)]++;
+        }
+    }
+
+    /**
+     * Escreve um ponto de controlo num ficheiro temporário e substitui o anterior, a menos que o
+     * anterior já seja mais recente (pontos de controlo tirados por threads diferentes). O ficheiro
+     * temporário é forçado para o disco antes da substituição, para que uma falha de energia não deixe
+     * um ponto de controlo vazio ou truncado no lugar do anterior.
+     */
+    private synchronized void save(String name, Result result) throws IOException {
+        if (result.getCompletedUnits() < savedUnits)
+            return;
+        savedUnits = result.getCompletedUnits();
+        Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeLong(seed);
+            out.writeInt(units);
+            out.writeInt(gamesPerUnit);
+            out.writeInt(salvoSize);
+            out.writeUTF(name);
+            out.writeInt(result.histogram.length);
+            for (long n : result.histogram)
+                out.writeLong(n);
+            long[] words = result.completed.toLongArray();
+            out.writeInt(words.length);
+            for (long w : words)
+                out.writeLong(w);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lê o ponto de controlo, verificando que é desta campanha.
+     */
+    private void load(String name, BitSet completed, long[] histogram) throws IOException {
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(checkpoint))) {
+            DataInputStream in = new DataInputStream(is);
+            if (in.readInt() != MAGIC)
+                throw new IOException("Não é um ponto de controlo: " + checkpoint);
+            if (in.readLong() != seed || in.readInt() != units || in.readInt() != gamesPerUnit
+                    || in.readInt() != salvoSize || !in.readUTF().equals(name) || in.readInt() != histogram.length)
+                throw new IOException("O ponto de controlo é de outra campanha: " + checkpoint);
+            for (int n = 0; n < histogram.length; n++)
+                histogram[n] = in.readLong();
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++)
+                words[i] = in.readLong();
+            completed.or(BitSet.valueOf(words));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Categorias de navios e a composição regulamentar da frota.
+ * <ul>
+ * <li><strong>GALLEON</strong>: Galeão, 5 células, 1 navio</li>
+ * <li><strong>FRIGATE</strong>: Fragata, 4 células, 1 navio</li>
+ * <li><strong>CARRACK</strong>: Nau, 3 células, 2 navios</li>
+ * <li><strong>CARAVEL</strong>: Caravela, 2 células, 3 navios</li>
+ * <li><strong>BARGE</strong>: Barca, 1 célula, 4 navios</li>
+ * </ul>
+ * A ordem das categorias é a dos índices de tipo de {@link ShipShapes} e a da listagem
+ * por categoria de {@link Fleet#printStatus()}.
+ */
+public enum Category {
+    GALLEON("Galeao", 5, 1),
+    FRIGATE("Fragata", 4, 1),
+    CARRACK("Nau", 3, 2),
+    CARAVEL("Caravela", 2, 3),
+    BARGE("Barca", 1, 4);
+
+    private final String name;
+    private final String kind;
+    private final int size;
+    private final int limit;
+
+    /**
+     * Construtor da categoria.
+     *
+     * @param name  nome da categoria, tal como devolvido por {@link IShip#getCategory()}
+     * @param size  número de células de um navio da categoria
+     * @param limit número de navios da categoria numa frota completa
+     */
+    Category(String name, int size, int limit) {
+        this.name = name;
+        this.kind = name.toLowerCase();
+        this.size = size;
+        this.limit = limit;
+    }
+
+    /**
+     * Obtém o nome da categoria (ex: {@code "Galeao"}).
+     *
+     * @return o nome, tal como devolvido por {@link IShip#getCategory()}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Obtém o tipo de navio usado na construção de navios (ex: {@code "galeao"}).
+     *
+     * @return o tipo, tal como aceite por {@link Tasks#readShip(java.util.Scanner)}
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    /**
+     * Obtém o número de células de um navio da categoria.
+     *
+     * @return a dimensão dos navios da categoria
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Obtém o número máximo de navios da categoria numa frota.
+     *
+     * @return o limite regulamentar
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Converte o nome de uma categoria na categoria correspondente.
+     *
+     * @param name nome da categoria (ex: {@code "Galeao"}, {@code "Barca"})
+     * @return a categoria, ou {@code null} se o nome for desconhecido
+     */
+    public static Category byName(String name) {
+        Category category;
+        switch (name) {
+            case "Galeao":
+                category = GALLEON;
+                break;
+            case "Fragata":
+                category = FRIGATE;
+                break;
+            case "Nau":
+                category = CARRACK;
+                break;
+            case "Caravela":
+                category = CARAVEL;
+                break;
+            case "Barca":
+                category = BARGE;
+                break;
+            default:
+                category = null;
+        }
+        return category;
+    }
+
+    /**
+     * Obtém a categoria de um navio.
+     *
+     * @param s navio
+     * @return a categoria do navio, ou {@code null} se for desconhecida
+     */
+    public static Category of(IShip s) {
+        return byName(s.getCategory());
+    }
+}
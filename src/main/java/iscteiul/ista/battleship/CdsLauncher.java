@@ -0,0 +1,339 @@
+package iscteiul.ista.battleship;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Arranque rápido da aplicação com um arquivo de classes partilhadas (AppCDS).
+ * <p>
+ * Numa execução curta da aplicação, a maior parte do tempo é gasta a carregar e verificar as classes
+ * da JVM, do Log4j e do jogo. Este lançador:
+ * </p>
+ * <ol>
+ *   <li>cria um arquivo dinâmico ({@code -XX:ArchiveClassesAtExit}) a partir de uma execução de treino
+ *   da Tarefa D com um guião ({@code /scripts/treino.txt} por omissão);</li>
+ *   <li>arranca a aplicação com esse arquivo ({@code -XX:SharedArchiveFile}), numa nova JVM;</li>
+ *   <li>mede o tempo até à resposta ao primeiro comando e até ao fim, com e sem o arquivo.</li>
+ * </ol>
+ *
+ * <p>
+ * A JVM só arquiva classes lidas de ficheiros JAR, pelo que as pastas de classes do class path
+ * (por exemplo, {@code target/classes}) são copiadas para um JAR ao lado do arquivo, usado no treino
+ * e nos arranques seguintes. O arquivo deve ser recriado sempre que as classes mudem.
+ * </p>
+ *
+ * <p>
+ * Utilização: {@code CdsLauncher criar <arquivo> [guião]}, {@code CdsLauncher arrancar <arquivo> [tarefa]}
+ * ou {@code CdsLauncher medir <arquivo> [execuções] [guião]}.
+ * </p>
+ */
+public class CdsLauncher {
+
+    /**
+     * Guião de treino usado por omissão (recurso do class path).
+     */
+    public static final String TRAINING_SCRIPT = "/scripts/treino.txt";
+
+    private static final String MAIN_CLASS = "iscteiul.ista.App";
+    private static final String BANNER = "Battleship Game";
+
+    private CdsLauncher() {
+    }
+
+    /**
+     * Tempos de arranque medidos por {@link #benchmark(Path, Path, int)}, em nanossegundos.
+     */
+    public static final class StartupTimes {
+        private final LatencyHistogram firstCommand = new LatencyHistogram();
+        private final LatencyHistogram exit = new LatencyHistogram();
+
+        /**
+         * Devolve os tempos até à primeira resposta da tarefa.
+         *
+         * @return histograma dos tempos até ao primeiro comando
+         */
+        public LatencyHistogram getFirstCommand() {
+            return firstCommand;
+        }
+
+        /**
+         * Devolve os tempos até ao fim da JVM.
+         *
+         * @return histograma dos tempos até ao fim
+         */
+        public LatencyHistogram getExit() {
+            return exit;
+        }
+
+        /**
+         * Retorna as medianas e médias dos tempos, em milissegundos.
+         *
+         * @return uma string com os tempos até ao primeiro comando e até ao fim
+         */
+        @Override
+        public String toString() {
+            return String.format("primeiro comando: mediana %.1f ms, media %.1f ms; fim: mediana %.1f ms, media %.1f ms",
+                    firstCommand.percentile(50) / 1e6, firstCommand.mean() / 1e6, exit.percentile(50) / 1e6,
+                    exit.mean() / 1e6);
+        }
+    }
+
+    /**
+     * Cria o arquivo de classes partilhadas com uma execução de treino da Tarefa D.
+     *
+     * @param archive ficheiro do arquivo a criar
+     * @param script  guião de treino, ou {@code null} para o guião por omissão
+     * @throws IOException se a execução de treino falhar ou não produzir o arquivo
+     */
+    public static void createArchive(Path archive, Path script) throws IOException {
+        Files.deleteIfExists(archive);
+        String classPath = packClassPath(archive);
+        Path input = script != null ? script : defaultScript();
+        try {
+            ProcessBuilder pb = new ProcessBuilder(trainingCommand(archive, classPath)).redirectInput(input.toFile())
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).redirectError(ProcessBuilder.Redirect.INHERIT);
+            int status = waitFor(pb.start());
+            if (status != 0 || !Files.exists(archive))
+                throw new IOException("A execução de treino falhou (código " + status + ")");
+        } finally {
+            if (script == null)
+                Files.deleteIfExists(input);
+        }
+    }
+
+    /**
+     * Constrói o comando da execução de treino, que cria o arquivo ao terminar.
+     *
+     * @param archive   ficheiro do arquivo a criar
+     * @param classPath class path da execução (ver {@link #archivedClassPath(Path, String)})
+     * @return o comando
+     */
+    static List<String> trainingCommand(Path archive, String classPath) {
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable());
+        command.add("-XX:ArchiveClassesAtExit=" + archive);
+        command.add("-cp");
+        command.add(classPath);
+        command.add(MAIN_CLASS);
+        command.add("d");
+        return command;
+    }
+
+    /**
+     * Constrói o comando que arranca a aplicação numa nova JVM.
+     *
+     * @param archive arquivo de classes partilhadas, ou {@code null} para arrancar sem arquivo
+     * @param args    argumentos da aplicação (por exemplo, a tarefa)
+     * @return o comando
+     */
+    public static List<String> command(Path archive, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable());
+        if (archive != null && Files.exists(archive) && Files.exists(jarFor(archive))) {
+            command.add("-XX:SharedArchiveFile=" + archive);
+            command.add("-cp");
+            command.add(archivedClassPath(archive, System.getProperty("java.class.path")));
+        } else {
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+        }
+        command.add(MAIN_CLASS);
+        command.addAll(Arrays.asList(args));
+        return command;
+    }
+
+    /**
+     * Mede o arranque da aplicação, com a Tarefa D e um guião, com e sem o arquivo.
+     *
+     * @param archive arquivo de classes partilhadas (criado por {@link #createArchive(Path, Path)})
+     * @param script  guião, ou {@code null} para o guião por omissão
+     * @param runs    número de execuções de cada variante
+     * @return os tempos sem arquivo (posição 0) e com arquivo (posição 1)
+     * @throws IOException se alguma execução falhar
+     */
+    public static StartupTimes[] benchmark(Path archive, Path script, int runs) throws IOException {
+        Path input = script != null ? script : defaultScript();
+        StartupTimes[] times = { new StartupTimes(), new StartupTimes() };
+        try {
+            for (int i = 0; i < runs; i++)
+                for (int variant = 0; variant < 2; variant++)
+                    time(command(variant == 0 ? null : archive, "d"), input, times[variant]);
+        } finally {
+            if (script == null)
+                Files.deleteIfExists(input);
+        }
+        return times;
+    }
+
+    /**
+     * Executa a aplicação uma vez e regista o tempo até à primeira linha escrita pela tarefa (depois do
+     * título e das mensagens de estado do Log4j) e até ao fim da JVM.
+     */
+    private static void time(List<String> command, Path input, StartupTimes times) throws IOException {
+        long start = System.nanoTime();
+        Process p = new ProcessBuilder(command).redirectInput(input.toFile())
+                .redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        long first = -1;
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null)
+                if (first < 0 && !line.isBlank() && !line.contains(BANNER) && !isStatusLine(line))
+                    first = System.nanoTime() - start;
+        }
+        int status = waitFor(p);
+        long end = System.nanoTime() - start;
+        if (status != 0)
+            throw new IOException("A aplicação terminou com o código " + status);
+        times.getFirstCommand().record(first < 0 ? end : first);
+        times.getExit().record(end);
+    }
+
+    /**
+     * Indica se uma linha é uma mensagem de estado do Log4j (começa por uma data ISO).
+     */
+    private static boolean isStatusLine(String line) {
+        return line.length() > 10 && Character.isDigit(line.charAt(0)) && line.charAt(4) == '-'
+                && line.charAt(10) == 'T';
+    }
+
+    /**
+     * Copia as pastas do class path para um JAR ao lado do arquivo.
+     *
+     * @return o class path com as pastas substituídas pelo JAR
+     */
+    private static String packClassPath(Path archive) throws IOException {
+        Path jar = jarFor(archive);
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                Path dir = Path.of(entry);
+                if (!Files.isDirectory(dir))
+                    continue;
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(dir)) {
+                    files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                for (Path f : files) {
+                    String name = dir.relativize(f).toString().replace(File.separatorChar, '/');
+                    out.putNextEntry(new JarEntry(name));
+                    Files.copy(f, out);
+                    out.closeEntry();
+                }
+            }
+        }
+        return archivedClassPath(archive, System.getProperty("java.class.path"));
+    }
+
+    /**
+     * Class path usado com o arquivo: o JAR das pastas seguido dos JAR do class path original.
+     *
+     * @param archive   ficheiro do arquivo
+     * @param classPath class path original
+     * @return o class path com as pastas substituídas pelo JAR ao lado do arquivo
+     */
+    static String archivedClassPath(Path archive, String classPath) {
+        StringBuilder sb = new StringBuilder(jarFor(archive).toString());
+        for (String entry : classPath.split(File.pathSeparator))
+            if (!entry.isEmpty() && !Files.isDirectory(Path.of(entry)))
+                sb.append(File.pathSeparator).append(entry);
+        return sb.toString();
+    }
+
+    /**
+     * Devolve o JAR com as pastas do class path, ao lado do arquivo.
+     *
+     * @param archive ficheiro do arquivo
+     * @return o ficheiro do JAR
+     */
+    static Path jarFor(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + ".classes.jar");
+    }
+
+    private static Path defaultScript() throws IOException {
+        Path file = Files.createTempFile("treino", ".txt");
+        try (InputStream in = CdsLauncher.class.getResourceAsStream(TRAINING_SCRIPT)) {
+            if (in == null)
+                throw new IOException("Falta o recurso " + TRAINING_SCRIPT);
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    private static String javaExecutable() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static int waitFor(Process p) throws IOException {
+        try {
+            return p.waitFor();
+        } catch (InterruptedException e) {
+            p.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompido à espera da JVM", e);
+        }
+    }
+
+    /**
+     * Ponto de entrada do lançador.
+     *
+     * @param args {@code criar <arquivo> [guião]}, {@code arrancar <arquivo> [tarefa]} ou
+     *             {@code medir <arquivo> [execuções] [guião]}
+     * @throws IOException se a criação, o arranque ou a medição falharem
+     */
+    public static void main(String[] args) throws IOException {
+        int status = run(args);
+        if (status != 0)
+            System.exit(status);
+    }
+
+    /**
+     * Executa um modo do lançador.
+     *
+     * @param args argumentos de {@link #main(String[])}
+     * @return o código de saída: o da aplicação no modo {@code arrancar}, 2 se os argumentos forem
+     *         inválidos e 0 nos restantes casos
+     * @throws IOException se a criação, o arranque ou a medição falharem
+     */
+    static int run(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Utilizacao: CdsLauncher criar|arrancar|medir <arquivo> [...]");
+            return 2;
+        }
+        Path archive = Path.of(args[1]).toAbsolutePath();
+        switch (args[0]) {
+            case "criar":
+                createArchive(archive, args.length > 2 ? Path.of(args[2]) : null);
+                System.out.println("Arquivo criado: " + archive);
+                return 0;
+            case "arrancar":
+                Process p = new ProcessBuilder(command(archive, Arrays.copyOfRange(args, 2, args.length)))
+                        .inheritIO().start();
+                return waitFor(p);
+            case "medir":
+                int runs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+                if (!Files.exists(archive))
+                    createArchive(archive, null);
+                StartupTimes[] times = benchmark(archive, args.length > 3 ? Path.of(args[3]) : null, runs);
+                System.out.println("Sem arquivo: " + times[0]);
+                System.out.println("Com arquivo: " + times[1]);
+                return 0;
+            default:
+                System.err.println("Modo desconhecido: " + args[0]);
+                return 2;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Enumeração que representa o que o atacante sabe sobre uma célula do tabuleiro adversário.
+ * <ul>
+ * <li><strong>UNKNOWN</strong>: ainda não foi alvo de nenhum tiro ('.')</li>
+ * <li><strong>MISS</strong>: tiro na água ('o')</li>
+ * <li><strong>HIT</strong>: tiro que acertou num navio ainda a flutuar ('*')</li>
+ * <li><strong>SUNK</strong>: célula de um navio já afundado ('#')</li>
+ * </ul>
+ */
+public enum CellState {
+    UNKNOWN('.'),
+    MISS('o'),
+    HIT('*'),
+    SUNK('#');
+
+    private final char marker;
+
+    /**
+     * Construtor do estado.
+     *
+     * @param marker o carácter usado para desenhar o estado num tabuleiro
+     */
+    CellState(char marker) {
+        this.marker = marker;
+    }
+
+    /**
+     * Obtém o carácter usado para desenhar este estado num tabuleiro.
+     *
+     * @return o carácter associado ao estado
+     */
+    public char getMarker() {
+        return marker;
+    }
+}
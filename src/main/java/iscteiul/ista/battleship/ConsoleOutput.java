@@ -0,0 +1,44 @@
+package iscteiul.ista.battleship;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Destino das tarefas interativas: os tabuleiros e listas vão para o output padrão e as mensagens
+ * ({@link #info(String, Object...)}) para o logger de {@link Tasks}.
+ */
+public final class ConsoleOutput implements IOutputSink {
+
+    /**
+     * A única instância (o output padrão é partilhado por toda a JVM).
+     */
+    public static final ConsoleOutput INSTANCE = new ConsoleOutput();
+
+    /**
+     * Logger usado para apresentar mensagens ao utilizador.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(Tasks.class);
+
+    private ConsoleOutput() {
+    }
+
+    @Override
+    public void print(CharSequence text) {
+        System.out.print(text);
+    }
+
+    @Override
+    public void println(CharSequence line) {
+        System.out.println(line);
+    }
+
+    @Override
+    public void info(String pattern, Object... args) {
+        LOGGER.info(pattern, args);
+    }
+
+    @Override
+    public void flush() {
+        System.out.flush();
+    }
+}
@@ -0,0 +1,325 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Avaliador exato do número de tiros que uma {@link ITargetingPolicy} precisa para afundar uma frota.
+ * <p>
+ * Em vez de jogar cada frota de forma independente, o avaliador percorre a árvore de decisão
+ * da política: em cada nó, todas as frotas ainda compatíveis com a observação atual recebem o
+ * mesmo tiro (a política é determinística) e são repartidas pelo resultado desse tiro (água,
+ * acerto, ou afundamento de um navio com determinadas células). O resultado é a distribuição
+ * exata do número de tiros sobre o conjunto de frotas fornecido, com os respetivos pesos.
+ * </p>
+ *
+ * <p>
+ * Os ramos da árvore são avaliados em paralelo num {@link ForkJoinPool}. As decisões da política
+ * são memorizadas pelo hash de Zobrist da observação ({@link Observation#getHash()}): numa única
+ * avaliação cada observação surge uma só vez, mas avaliações seguintes da mesma política (por
+ * exemplo, com mais frotas ou outros pesos) reutilizam as decisões já tomadas. A memória é limitada
+ * a {@link #MAX_CACHED_DECISIONS} decisões; depois disso, as decisões novas deixam de ser guardadas.
+ * </p>
+ *
+ * <p>
+ * O resultado de cada tiro segue a semântica de {@link Game#fire(IPosition)}: um tiro numa célula
+ * de um navio conta como acerto, e afunda o navio quando todas as suas células foram atingidas.
+ * </p>
+ */
+public class ExpectedShotsEvaluator {
+
+    /**
+     * Número mínimo de frotas num nó para que os seus ramos sejam avaliados em paralelo.
+     */
+    private static final int FORK_THRESHOLD = 64;
+
+    /**
+     * Número máximo de decisões memorizadas por omissão (algumas dezenas de MB).
+     */
+    public static final int MAX_CACHED_DECISIONS = 1 << 20;
+
+    /**
+     * Política de pontaria avaliada.
+     */
+    private final ITargetingPolicy policy;
+
+    /**
+     * Pool onde são avaliados os ramos da árvore de decisão.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Decisões já tomadas pela política, pelo hash da observação.
+     */
+    private final Map<Long, Integer> decisions = new ConcurrentHashMap<>();
+
+    /**
+     * Número máximo de decisões memorizadas.
+     */
+    private final int maxDecisions;
+
+    /**
+     * Constrói um avaliador que usa o pool comum do {@link ForkJoinPool}.
+     *
+     * @param policy política de pontaria a avaliar
+     */
+    public ExpectedShotsEvaluator(ITargetingPolicy policy) {
+        this(policy, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constrói um avaliador que usa o pool indicado.
+     *
+     * @param policy política de pontaria a avaliar
+     * @param pool   pool onde correm as avaliações
+     */
+    public ExpectedShotsEvaluator(ITargetingPolicy policy, ForkJoinPool pool) {
+        this(policy, pool, MAX_CACHED_DECISIONS);
+    }
+
+    /**
+     * Constrói um avaliador que usa o pool indicado e memoriza no máximo o número de decisões indicado.
+     *
+     * @param policy       política de pontaria a avaliar
+     * @param pool         pool onde correm as avaliações
+     * @param maxDecisions número máximo de decisões memorizadas
+     */
+    ExpectedShotsEvaluator(ITargetingPolicy policy, ForkJoinPool pool, int maxDecisions) {
+        assert policy != null;
+        assert pool != null;
+        assert maxDecisions >= 0;
+
+        this.policy = policy;
+        this.pool = pool;
+        this.maxDecisions = maxDecisions;
+    }
+
+    /**
+     * Calcula a distribuição exata do número de tiros, atribuindo o mesmo peso a todas as frotas.
+     *
+     * @param layouts frotas sobre as quais a política é avaliada
+     * @return a distribuição do número de tiros necessários para afundar cada frota
+     */
+    public ShotDistribution evaluate(List<? extends IFleet> layouts) {
+        double[] weights = new double[layouts.size()];
+        Arrays.fill(weights, 1.0);
+        return evaluate(layouts, weights);
+    }
+
+    /**
+     * Calcula a distribuição exata do número de tiros sobre um conjunto pesado de frotas.
+     *
+     * @param layouts frotas sobre as quais a política é avaliada
+     * @param weights peso de cada frota (por exemplo, a sua probabilidade)
+     * @return a distribuição pesada do número de tiros necessários para afundar cada frota
+     * @throws IllegalArgumentException se o número de pesos for diferente do número de frotas
+     * @throws IllegalStateException    se a política escolher uma célula fora do tabuleiro ou já alvejada
+     */
+    public ShotDistribution evaluate(List<? extends IFleet> layouts, double[] weights) {
+        if (layouts.size() != weights.length)
+            throw new IllegalArgumentException("Numero de pesos diferente do numero de frotas");
+
+        Layout[] compiled = new Layout[layouts.size()];
+        int[] members = new int[compiled.length];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = new Layout(layouts.get(i), weights[i]);
+            members[i] = i;
+        }
+        return pool.invoke(new Node(compiled, new Observation(), members));
+    }
+
+    /**
+     * Joga um jogo completo contra uma frota, disparando com {@link Game#fire(IPosition)}.
+     * <p>
+     * A frota indicada não é alterada: o jogo decorre sobre uma cópia sem danos.
+     * </p>
+     *
+     * @param layout frota a afundar
+     * @return o número de tiros necessários para afundar toda a frota
+     * @throws IllegalStateException se a política escolher uma célula fora do tabuleiro ou já alvejada
+     */
+    public int play(IFleet layout) {
+        IGame game = new Game(FleetGenerator.copyOf(layout));
+        Observation view = new Observation();
+        int shots = 0;
+        while (game.getRemainingShips() > 0) {
+            Position target = Observation.toPosition(decide(view));
+            IShip sunk = game.fire(target);
+            view.record(target, game.getLastResult().isHit(), sunk);
+            shots++;
+        }
+        return shots;
+    }
+
+    /**
+     * Devolve o número de decisões da política atualmente memorizadas.
+     *
+     * @return número de observações com decisão memorizada
+     */
+    public int getCachedDecisions() {
+        return decisions.size();
+    }
+
+    /**
+     * Obtém a decisão da política para uma observação, consultando primeiro as decisões memorizadas.
+     *
+     * @param view observação atual
+     * @return a célula a alvejar
+     * @throws IllegalStateException se a política escolher uma célula fora do tabuleiro ou já alvejada
+     */
+    private int decide(Observation view) {
+        Integer cached = decisions.get(view.getHash());
+        if (cached != null)
+            return cached;
+
+        int target = policy.target(view);
+        if (target < 0 || target >= Observation.CELLS || !view.isUnknown(target))
+            throw new IllegalStateException("Alvo invalido escolhido pela politica: " + target);
+        if (decisions.size() < maxDecisions)
+            decisions.put(view.getHash(), target);
+        return target;
+    }
+
+    /**
+     * Frota compilada em tabelas de células, para testar tiros sem criar objetos.
+     */
+    private static class Layout {
+        /**
+         * Índice do navio que ocupa cada célula, ou -1 se a célula estiver livre.
+         */
+        final int[] shipOf = new int[Observation.CELLS];
+
+        /**
+         * Células ocupadas por cada navio, por ordem crescente.
+         */
+        final int[][] shipCells;
+
+        /**
+         * Peso da frota na distribuição.
+         */
+        final double weight;
+
+        Layout(IFleet fleet, double weight) {
+            this.weight = weight;
+            Arrays.fill(shipOf, -1);
+            List<IShip> ships = fleet.getShips();
+            shipCells = new int[ships.size()][];
+            for (int s = 0; s < ships.size(); s++) {
+                List<IPosition> positions = ships.get(s).getPositions();
+                shipCells[s] = new int[positions.size()];
+                for (int i = 0; i < positions.size(); i++) {
+                    shipCells[s][i] = Observation.cell(positions.get(i));
+                    shipOf[shipCells[s][i]] = s;
+                }
+                Arrays.sort(shipCells[s]);
+            }
+        }
+
+        /**
+         * Verifica se um tiro na célula indicada afunda o navio que a ocupa, dado o que já foi observado.
+         */
+        boolean sinks(int ship, int target, Observation view) {
+            for (int c : shipCells[ship])
+                if (c != target && view.get(c) != CellState.HIT)
+                    return false;
+            return true;
+        }
+    }
+
+    /**
+     * Nó da árvore de decisão: uma observação e as frotas compatíveis com ela.
+     */
+    private class Node extends RecursiveTask<ShotDistribution> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Layout[] layouts;
+        private final transient Observation view;
+        private final int[] members;
+
+        Node(Layout[] layouts, Observation view, int[] members) {
+            this.layouts = layouts;
+            this.view = view;
+            this.members = members;
+        }
+
+        @Override
+        protected ShotDistribution compute() {
+            ShotDistribution result = ShotDistribution.EMPTY;
+            int[] pending = new int[members.length];
+            int count = 0;
+            double finished = 0;
+            for (int m : members) {
+                if (layouts[m].shipCells.length == view.getSunkShips())
+                    finished += layouts[m].weight;
+                else
+                    pending[count++] = m;
+            }
+            if (finished > 0)
+                result = ShotDistribution.point(0, finished);
+            if (count == 0)
+                return result;
+
+            int target = decide(view);
+            List<Integer> misses = new ArrayList<>();
+            List<Integer> hits = new ArrayList<>();
+            Map<BitSet, List<Integer>> sinks = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                Layout layout = layouts[pending[i]];
+                int ship = layout.shipOf[target];
+                if (ship < 0)
+                    misses.add(pending[i]);
+                else if (!layout.sinks(ship, target, view))
+                    hits.add(pending[i]);
+                else {
+                    BitSet cells = new BitSet(Observation.CELLS);
+                    for (int c : layout.shipCells[ship])
+                        cells.set(c);
+                    sinks.computeIfAbsent(cells, k -> new ArrayList<>()).add(pending[i]);
+                }
+            }
+
+            List<Node> children = new ArrayList<>();
+            if (!misses.isEmpty())
+                children.add(child(target, CellState.MISS, misses));
+            if (!hits.isEmpty())
+                children.add(child(target, CellState.HIT, hits));
+            for (Map.Entry<BitSet, List<Integer>> e : sinks.entrySet()) {
+                Observation next = new Observation(view);
+                next.markSunk(e.getKey().stream().toArray());
+                children.add(new Node(layouts, next, toArray(e.getValue())));
+            }
+
+            if (count >= FORK_THRESHOLD && children.size() > 1) {
+                for (int i = 1; i < children.size(); i++)
+                    children.get(i).fork();
+                result = result.plus(children.get(0).compute().shift(1));
+                for (int i = 1; i < children.size(); i++)
+                    result = result.plus(children.get(i).join().shift(1));
+            } else {
+                for (Node child : children)
+                    result = result.plus(child.compute().shift(1));
+            }
+            return result;
+        }
+
+        private Node child(int target, CellState state, List<Integer> group) {
+            Observation next = new Observation(view);
+            next.set(target, state);
+            return new Node(layouts, next, toArray(group));
+        }
+
+        private int[] toArray(List<Integer> group) {
+            int[] result = new int[group.size()];
+            for (int i = 0; i < result.length; i++)
+                result[i] = group.get(i);
+            return result;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package iscteiul.ista.battleship;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 
 /**
@@ -9,10 +12,11 @@ import java.util.List;
  * A frota mantém uma lista de {@link IShip} e disponibiliza operações para:
  * </p>
  * <ul>
- *   <li>adicionar navios respeitando regras (limite, tabuleiro e colisões);</li>
- *   <li>consultar navios por categoria;</li>
+ *   <li>adicionar navios respeitando regras (limites da frota e de cada categoria, tabuleiro e colisões);</li>
+ *   <li>consultar navios por categoria (em tempo constante, através de um índice por {@link Category});</li>
  *   <li>obter navios ainda a flutuar;</li>
- *   <li>descobrir que navio ocupa uma determinada posição.</li>
+ *   <li>descobrir que navio ocupa uma determinada posição;</li>
+ *   <li>consultar as posições onde cada tipo de navio ainda pode ser colocado.</li>
  * </ul>
  *
  * <p><strong>Nota:</strong> A validação inclui verificar se o navio cabe no tabuleiro
@@ -21,14 +25,17 @@ import java.util.List;
 public class Fleet implements IFleet {
 
     /**
-     * Imprime para a consola a representação textual de todos os navios recebidos.
+     * Imprime no destino indicado a representação textual de todos os navios recebidos.
      *
      * @param ships lista de navios a imprimir
+     * @param out   destino
      * @throws NullPointerException se {@code ships} for {@code null}
      */
-    static void printShips(List<IShip> ships) {
+    static void printShips(List<IShip> ships, IOutputSink out) {
+        if (!out.isEnabled())
+            return;
         for (IShip ship : ships)
-            System.out.println(ship);
+            out.println(ship.toString());
     }
 
     // -----------------------------------------------------
@@ -38,18 +45,45 @@ public class Fleet implements IFleet {
      */
     private List<IShip> ships;
 
+    /**
+     * Para cada forma de navio (tipo e orientação, ver {@link ShipShapes}), máscara das posições
+     * iniciais em que um navio dessa forma seria aceite por {@link #addShip(IShip)}: dentro do
+     * tabuleiro e fora da zona de exclusão dos navios já colocados. Atualizada em cada inserção.
+     */
+    private final long[][] legalAnchors;
+
+    /**
+     * Navios da frota agrupados por categoria, pela ordem de inserção. Atualizado em cada inserção.
+     */
+    private final EnumMap<Category, List<IShip>> byCategory;
+
+    /**
+     * Publicador dos eventos da construção da frota, criado quando é pedido pela primeira vez.
+     */
+    private GameEventPublisher events;
+
+    /**
+     * Destino onde são impressos o estado e as listas de navios.
+     */
+    private IOutputSink output;
+
     /**
      * Constrói uma frota vazia.
      */
     public Fleet() {
         ships = new ArrayList<>();
+        legalAnchors = ShipShapes.inBoardMasks();
+        byCategory = new EnumMap<>(Category.class);
+        for (Category c : Category.values())
+            byCategory.put(c, new ArrayList<>(c.getLimit()));
+        output = ConsoleOutput.INSTANCE;
     }
 
     /**
      * Devolve a lista de navios da frota.
      * <p>
      * Atenção: devolve a lista interna (não é uma cópia). Alterações externas
-     * à lista podem afetar o estado da frota.
+     * à lista podem afetar o estado da frota e deixá-la incoerente com o índice por categoria.
      * </p>
      *
      * @return lista de navios da frota
@@ -63,6 +97,7 @@ public class Fleet implements IFleet {
      * Adiciona um navio à frota, se cumprir as regras:
      * <ul>
      *   <li>não ultrapassar o tamanho máximo da frota ({@link #FLEET_SIZE});</li>
+     *   <li>não ultrapassar o número de navios da sua categoria ({@link Category#getLimit()});</li>
      *   <li>o navio tem de estar totalmente dentro do tabuleiro;</li>
      *   <li>não pode haver risco de colisão/proximidade com navios já existentes.</li>
      * </ul>
@@ -72,28 +107,191 @@ public class Fleet implements IFleet {
      */
     @Override
     public boolean addShip(IShip s) {
+        FlightEvents.AddShip flight = new FlightEvents.AddShip();
+        flight.begin();
         boolean result = false;
-        if ((ships.size() <= FLEET_SIZE) && (isInsideBoard(s)) && (!colisionRisk(s))) {
+        RejectionReason reason = rejectionReason(s);
+        if (events != null && events.hasSubscribers())
+            events.publish(new GameEvent(events.nextSequence(),
+                    reason == null ? GameEvent.Type.SHIP_ADDED : GameEvent.Type.SHIP_REJECTED, s.getPosition(), null,
+                    s, reason, null));
+        if (reason == null) {
             ships.add(s);
+            Category category = Category.of(s);
+            if (category != null)
+                byCategory.get(category).add(s);
+            excludeZone(s);
             result = true;
         }
+        if (flight.shouldCommit()) {
+            flight.ship = s.getCategory();
+            flight.row = s.getPosition().getRow();
+            flight.column = s.getPosition().getColumn();
+            flight.bearing = String.valueOf(s.getBearing());
+            flight.accepted = result;
+            flight.reason = reason == null ? null : reason.name();
+            flight.commit();
+        }
         return result;
     }
 
+    /**
+     * Devolve o publicador dos eventos da construção da frota: um evento
+     * {@link GameEvent.Type#SHIP_ADDED} ou {@link GameEvent.Type#SHIP_REJECTED} (com o motivo) por
+     * cada chamada de {@link #addShip(IShip)}. A frota não tem tabuleiro, pelo que a política
+     * {@link OverflowPolicy#LATEST} mantém os eventos mais recentes.
+     *
+     * @return o publicador
+     */
+    public GameEventPublisher getEvents() {
+        if (events == null)
+            events = new GameEventPublisher(null);
+        return events;
+    }
+
+    /**
+     * Indica se um navio seria aceite por {@link #addShip(IShip)} e, se não, porquê.
+     * <p>
+     * As regras são verificadas pela ordem: frota completa, categoria completa, navio fora do
+     * tabuleiro, navio demasiado perto de outro.
+     * </p>
+     *
+     * @param s navio candidato
+     * @return o motivo da rejeição, ou {@code null} se o navio seria aceite
+     */
+    public RejectionReason rejectionReason(IShip s) {
+        if (ships.size() > FLEET_SIZE)
+            return RejectionReason.FLEET_FULL;
+        Category category = Category.of(s);
+        if (category != null && isFull(category))
+            return RejectionReason.CATEGORY_FULL;
+        if (!isInsideBoard(s))
+            return RejectionReason.OUTSIDE_BOARD;
+        if (colisionRisk(s))
+            return RejectionReason.TOO_CLOSE;
+        return null;
+    }
+
+    /**
+     * Devolve as posições iniciais em que um navio do tipo e orientação indicados seria aceite
+     * por {@link #addShip(IShip)}.
+     * <p>
+     * O resultado é uma máscara sobre as células do tabuleiro: o bit {@code linha * BOARD_SIZE + coluna}
+     * está ativo se o navio, com essa posição inicial, ficar dentro do tabuleiro e fora da zona
+     * de exclusão (células ocupadas e adjacentes, incluindo diagonais) dos navios já colocados.
+     * As máscaras são mantidas incrementalmente, pelo que a consulta tem custo constante.
+     * Se a frota ou a categoria do tipo já estiverem completas, a máscara é vazia.
+     * </p>
+     *
+     * @param shipKind tipo de navio (ex: {@code "galeao"}, {@code "barca"})
+     * @param bearing  orientação do navio
+     * @return uma cópia da máscara de posições iniciais legais (vazia se o tipo for desconhecido)
+     */
+    public BitSet getLegalAnchors(String shipKind, Compass bearing) {
+        int kind = ShipShapes.kindIndex(shipKind);
+        if (kind < 0 || ships.size() > FLEET_SIZE || isFull(ShipShapes.CATEGORIES[kind]))
+            return new BitSet(BOARD_SIZE * BOARD_SIZE);
+        return BitSet.valueOf(legalAnchors[ShipShapes.shapeIndex(kind, bearing)]);
+    }
+
+    /**
+     * Verifica, em tempo constante, se um navio do tipo, orientação e posição indicados seria
+     * aceite por {@link #addShip(IShip)}.
+     *
+     * @param shipKind tipo de navio (ex: {@code "galeao"}, {@code "barca"})
+     * @param bearing  orientação do navio
+     * @param row      linha da posição inicial
+     * @param column   coluna da posição inicial
+     * @return {@code true} se o navio seria aceite; {@code false} caso contrário
+     */
+    public boolean isLegalPlacement(String shipKind, Compass bearing, int row, int column) {
+        int kind = ShipShapes.kindIndex(shipKind);
+        if (kind < 0 || ships.size() > FLEET_SIZE || isFull(ShipShapes.CATEGORIES[kind]))
+            return false;
+        if (row < 0 || row >= BOARD_SIZE || column < 0 || column >= BOARD_SIZE)
+            return false;
+        int cell = row * BOARD_SIZE + column;
+        return (legalAnchors[ShipShapes.shapeIndex(kind, bearing)][cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Remove das máscaras de posições legais todas as posições iniciais cujo navio tocaria a
+     * zona de exclusão do navio acabado de inserir.
+     *
+     * @param s navio acabado de inserir
+     */
+    private void excludeZone(IShip s) {
+        boolean[] zone = new boolean[BOARD_SIZE * BOARD_SIZE];
+        for (IPosition p : s.getPositions())
+            for (int dr = -1; dr <= 1; dr++)
+                for (int dc = -1; dc <= 1; dc++) {
+                    int r = p.getRow() + dr;
+                    int c = p.getColumn() + dc;
+                    if (r >= 0 && r < BOARD_SIZE && c >= 0 && c < BOARD_SIZE)
+                        zone[r * BOARD_SIZE + c] = true;
+                }
+
+        for (int cell = 0; cell < zone.length; cell++) {
+            if (!zone[cell])
+                continue;
+            int r = cell / BOARD_SIZE;
+            int c = cell % BOARD_SIZE;
+            for (int shape = 0; shape < ShipShapes.SHAPES; shape++) {
+                int[][] offsets = ShipShapes.offsets(shape);
+                if (offsets == null)
+                    continue;
+                for (int[] o : offsets) {
+                    int ar = r - o[0];
+                    int ac = c - o[1];
+                    if (ar >= 0 && ar < BOARD_SIZE && ac >= 0 && ac < BOARD_SIZE) {
+                        int anchor = ar * BOARD_SIZE + ac;
+                        legalAnchors[shape][anchor >>> 6] &= ~(1L << anchor);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Indica se a frota já tem o número máximo de navios de uma categoria.
+     *
+     * @param category categoria
+     * @return {@code true} se não puderem ser acrescentados mais navios da categoria
+     */
+    public boolean isFull(Category category) {
+        return byCategory.get(category).size() >= category.getLimit();
+    }
+
+    /**
+     * Obtém o número de navios da frota de uma categoria.
+     *
+     * @param category categoria
+     * @return número de navios dessa categoria
+     */
+    public int count(Category category) {
+        return byCategory.get(category).size();
+    }
+
+    /**
+     * Obtém todos os navios da frota de uma categoria, em tempo constante.
+     *
+     * @param category categoria
+     * @return vista só de leitura dos navios dessa categoria (pode ser vazia)
+     */
+    public List<IShip> getShipsLike(Category category) {
+        return Collections.unmodifiableList(byCategory.get(category));
+    }
+
     /**
      * Obtém todos os navios da frota cuja categoria coincide com a indicada.
      *
      * @param category categoria a filtrar (por exemplo: "Galeao", "Fragata", ...)
-     * @return lista de navios dessa categoria (pode ser vazia)
+     * @return vista só de leitura dos navios dessa categoria (vazia se a categoria for desconhecida)
      */
     @Override
     public List<IShip> getShipsLike(String category) {
-        List<IShip> shipsLike = new ArrayList<>();
-        for (IShip s : ships)
-            if (s.getCategory().equals(category))
-                shipsLike.add(s);
-
-        return shipsLike;
+        Category c = Category.byName(category);
+        return c == null ? Collections.emptyList() : getShipsLike(c);
     }
 
     /**
@@ -150,6 +348,17 @@ public class Fleet implements IFleet {
         return false;
     }
 
+    @Override
+    public IOutputSink getOutput() {
+        return output;
+    }
+
+    @Override
+    public void setOutput(IOutputSink out) {
+        assert out != null;
+        output = out;
+    }
+
     /**
      * Imprime um resumo do estado da frota:
      * <ul>
@@ -157,15 +366,35 @@ public class Fleet implements IFleet {
      *   <li>navios ainda a flutuar;</li>
      *   <li>navios agrupados por categoria (por ordem predefinida).</li>
      * </ul>
+     * <p>
+     * O resumo é composto numa única passagem pelos navios, com uma secção por parte do resumo,
+     * e escrito de uma só vez; se o destino não estiver ativo, não é composto.
+     * </p>
      */
+    @Override
     public void printStatus() {
-        printAllShips();
-        printFloatingShips();
-        printShipsByCategory("Galeao");
-        printShipsByCategory("Fragata");
-        printShipsByCategory("Nau");
-        printShipsByCategory("Caravela");
-        printShipsByCategory("Barca");
+        if (!output.isEnabled())
+            return;
+        String nl = System.lineSeparator();
+        StringBuilder all = new StringBuilder();
+        StringBuilder floating = new StringBuilder();
+        StringBuilder[] byKind = new StringBuilder[ShipShapes.CATEGORIES.length];
+        for (int k = 0; k < byKind.length; k++)
+            byKind[k] = new StringBuilder();
+
+        for (IShip s : ships) {
+            String text = s.toString();
+            all.append(text).append(nl);
+            if (s.stillFloating())
+                floating.append(text).append(nl);
+            Category category = Category.of(s);
+            if (category != null)
+                byKind[category.ordinal()].append(text).append(nl);
+        }
+
+        for (StringBuilder section : byKind)
+            floating.append(section);
+        output.print(all.append(floating));
     }
 
     /**
@@ -176,21 +405,21 @@ public class Fleet implements IFleet {
     public void printShipsByCategory(String category) {
         assert category != null;
 
-        printShips(getShipsLike(category));
+        printShips(getShipsLike(category), output);
     }
 
     /**
      * Imprime todos os navios da frota que ainda estão a flutuar.
      */
     public void printFloatingShips() {
-        printShips(getFloatingShips());
+        printShips(getFloatingShips(), output);
     }
 
     /**
      * Imprime todos os navios existentes na frota.
      */
     void printAllShips() {
-        printShips(ships);
+        printShips(ships, output);
     }
 
 }
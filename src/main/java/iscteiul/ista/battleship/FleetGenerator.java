@@ -0,0 +1,303 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Gerador de frotas legais, isto é, frotas cujos navios foram todos aceites por
+ * {@link Fleet#addShip(IShip)}.
+ * <p>
+ * Disponibiliza duas formas de obter frotas:
+ * </p>
+ * <ul>
+ *   <li>amostragem aleatória com a composição do regulamento ({@link #COMPOSITION});</li>
+ *   <li>enumeração exaustiva de todas as disposições legais de uma lista (pequena) de navios.</li>
+ * </ul>
+ */
+public class FleetGenerator {
+
+    /**
+     * Composição regulamentar da frota: 1 galeão, 1 fragata, 2 naus, 3 caravelas e 4 barcas.
+     */
+    public static final List<String> COMPOSITION = List.of("galeao", "fragata", "nau", "nau", "caravela", "caravela",
+            "caravela", "barca", "barca", "barca", "barca");
+
+    /**
+     * Orientações válidas para a colocação de navios.
+     */
+    static final Compass[] BEARINGS = { Compass.NORTH, Compass.SOUTH, Compass.EAST, Compass.WEST };
+
+    private FleetGenerator() {
+    }
+
+    /**
+     * Gera uma frota aleatória com a composição regulamentar.
+     *
+     * @param rnd gerador de números aleatórios a usar
+     * @return uma frota legal com todos os navios de {@link #COMPOSITION}
+     */
+    public static Fleet randomFleet(Random rnd) {
+        return randomFleet(COMPOSITION, rnd);
+    }
+
+    /**
+     * Gera uma frota aleatória com os navios indicados.
+     * <p>
+     * Cada navio é colocado numa posição e orientação escolhidas ao acaso de entre as legais
+     * ({@link Fleet#getLegalAnchors(String, Compass)}); se algum navio deixar de ter colocações
+     * legais, a frota é recomeçada do zero.
+     * </p>
+     *
+     * @param kinds tipos de navio a colocar (ex: {@code "galeao"}, {@code "barca"})
+     * @param rnd   gerador de números aleatórios a usar
+     * @return uma frota legal com os navios indicados
+     * @throws IllegalArgumentException se algum tipo de navio for desconhecido
+     */
+    public static Fleet randomFleet(List<String> kinds, Random rnd) {
+        FlightEvents.FleetBuild flight = new FlightEvents.FleetBuild();
+        flight.begin();
+        for (int attempts = 1;; attempts++) {
+            Fleet fleet = new Fleet();
+            boolean complete = true;
+            for (String kind : kinds) {
+                if (!placeRandomly(fleet, kind, rnd)) {
+                    complete = false;
+                    break;
+                }
+            }
+            if (complete) {
+                if (flight.shouldCommit()) {
+                    flight.source = "gerador";
+                    flight.ships = kinds.size();
+                    flight.attempts = attempts;
+                    flight.commit();
+                }
+                return fleet;
+            }
+        }
+    }
+
+    /**
+     * Coloca um navio do tipo indicado numa colocação legal escolhida ao acaso.
+     *
+     * @param fleet frota onde colocar o navio
+     * @param kind  tipo de navio
+     * @param rnd   gerador de números aleatórios a usar
+     * @return {@code true} se o navio foi colocado; {@code false} se não existir nenhuma colocação legal
+     * @throws IllegalArgumentException se o tipo de navio for desconhecido
+     */
+    static boolean placeRandomly(Fleet fleet, String kind, Random rnd) {
+        Ship s = randomPlacement(fleet, kind, rnd);
+        return s != null && fleet.addShip(s);
+    }
+
+    /**
+     * Escolhe uniformemente ao acaso uma colocação legal (orientação e posição inicial) de um navio,
+     * sem o acrescentar à frota.
+     *
+     * @param fleet frota onde o navio seria colocado
+     * @param kind  tipo de navio
+     * @param rnd   gerador de números aleatórios a usar
+     * @return o navio na colocação escolhida, ou {@code null} se não existir nenhuma colocação legal
+     * @throws IllegalArgumentException se o tipo de navio for desconhecido
+     */
+    static Ship randomPlacement(Fleet fleet, String kind, Random rnd) {
+        if (ShipShapes.kindIndex(kind) < 0)
+            throw new IllegalArgumentException("Navio desconhecido: " + kind);
+        BitSet[] anchors = new BitSet[BEARINGS.length];
+        int total = 0;
+        for (int b = 0; b < BEARINGS.length; b++) {
+            anchors[b] = fleet.getLegalAnchors(kind, BEARINGS[b]);
+            total += anchors[b].cardinality();
+        }
+        if (total == 0)
+            return null;
+        int pick = rnd.nextInt(total);
+        for (int b = 0; b < BEARINGS.length; b++) {
+            int count = anchors[b].cardinality();
+            if (pick >= count) {
+                pick -= count;
+                continue;
+            }
+            int cell = anchors[b].nextSetBit(0);
+            for (int i = 0; i < pick; i++)
+                cell = anchors[b].nextSetBit(cell + 1);
+            return Ship.buildShip(kind, BEARINGS[b], Observation.toPosition(cell));
+        }
+        return null;
+    }
+
+    /**
+     * Gera uma amostra reprodutível de frotas aleatórias com a composição regulamentar.
+     *
+     * @param count número de frotas a gerar
+     * @param seed  semente do gerador de números aleatórios
+     * @return lista com {@code count} frotas legais
+     */
+    public static List<IFleet> sample(int count, long seed) {
+        Random rnd = new Random(seed);
+        List<IFleet> fleets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            fleets.add(randomFleet(rnd));
+        return fleets;
+    }
+
+    /**
+     * Constrói uma frota nova, sem danos, com navios do mesmo tipo, orientação e posição
+     * que os da frota indicada.
+     * <p>
+     * Como os navios guardam os tiros sofridos, cada jogo precisa da sua própria frota;
+     * este método permite reutilizar a mesma disposição em vários jogos.
+     * </p>
+     *
+     * @param layout frota a copiar
+     * @return uma cópia sem danos da frota
+     */
+    public static Fleet copyOf(IFleet layout) {
+        Fleet fleet = new Fleet();
+        for (IShip s : layout.getShips()) {
+            IPosition p = s.getPosition();
+            Ship copy = Ship.buildShip(s.getCategory().toLowerCase(), s.getBearing(), new Position(p.getRow(), p.getColumn()));
+            boolean added = fleet.addShip(copy);
+            assert added;
+        }
+        return fleet;
+    }
+
+    /**
+     * Enumera todas as disposições legais distintas dos navios indicados.
+     * <p>
+     * Duas colocações de um mesmo navio que ocupem exatamente as mesmas células (por exemplo,
+     * uma barca em qualquer orientação) contam como uma só, e navios do mesmo tipo são
+     * considerados indistinguíveis. A enumeração só é viável para frotas pequenas: a frota
+     * regulamentar completa tem um número astronómico de disposições.
+     * </p>
+     *
+     * @param kinds tipos de navio a colocar
+     * @param limit número máximo de frotas a devolver
+     * @return lista com as disposições encontradas (no máximo {@code limit})
+     * @throws IllegalArgumentException se algum tipo de navio for desconhecido
+     */
+    public static List<IFleet> enumerate(List<String> kinds, int limit) {
+        Map<String, List<Ship>> placements = new HashMap<>();
+        for (String kind : kinds)
+            placements.computeIfAbsent(kind, FleetGenerator::distinctPlacements);
+
+        List<IFleet> result = new ArrayList<>();
+        enumerate(kinds, 0, placements, new int[kinds.size()], new int[Observation.CELLS], result, limit);
+        return result;
+    }
+
+    /**
+     * Passo recursivo da enumeração: coloca o navio {@code index} em todas as colocações livres.
+     *
+     * @param kinds      tipos de navio a colocar
+     * @param index      índice do navio a colocar
+     * @param placements colocações distintas de cada tipo de navio
+     * @param chosen     índice da colocação escolhida para cada navio já colocado
+     * @param blocked    número de navios cuja zona de exclusão cobre cada célula
+     * @param result     lista onde são acumuladas as frotas completas
+     * @param limit      número máximo de frotas a devolver
+     */
+    private static void enumerate(List<String> kinds, int index, Map<String, List<Ship>> placements, int[] chosen,
+            int[] blocked, List<IFleet> result, int limit) {
+        if (result.size() >= limit)
+            return;
+        if (index == kinds.size()) {
+            Fleet fleet = new Fleet();
+            for (int i = 0; i < kinds.size(); i++) {
+                Ship s = placements.get(kinds.get(i)).get(chosen[i]);
+                boolean added = fleet.addShip(Ship.buildShip(kinds.get(i), s.getBearing(), (Position) s.getPosition()));
+                assert added;
+            }
+            result.add(fleet);
+            return;
+        }
+
+        String kind = kinds.get(index);
+        List<Ship> options = placements.get(kind);
+        int first = 0;
+        for (int i = index - 1; i >= 0; i--)
+            if (kinds.get(i).equals(kind)) { // navios iguais: evita permutações da mesma disposição
+                first = chosen[i] + 1;
+                break;
+            }
+
+        for (int p = first; p < options.size() && result.size() < limit; p++) {
+            Ship s = options.get(p);
+            if (isBlocked(s, blocked))
+                continue;
+            chosen[index] = p;
+            updateZone(s, blocked, 1);
+            enumerate(kinds, index + 1, placements, chosen, blocked, result, limit);
+            updateZone(s, blocked, -1);
+        }
+    }
+
+    /**
+     * Calcula todas as colocações de um tipo de navio dentro do tabuleiro, descartando as
+     * que ocupam exatamente as mesmas células que uma colocação anterior.
+     *
+     * @param kind tipo de navio
+     * @return lista de navios, um por colocação distinta
+     * @throws IllegalArgumentException se o tipo de navio for desconhecido
+     */
+    static List<Ship> distinctPlacements(String kind) {
+        List<Ship> result = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int row = 0; row < Fleet.BOARD_SIZE; row++)
+            for (int col = 0; col < Fleet.BOARD_SIZE; col++)
+                for (Compass bearing : BEARINGS) {
+                    Ship s = Ship.buildShip(kind, bearing, new Position(row, col));
+                    if (s == null)
+                        throw new IllegalArgumentException("Navio desconhecido: " + kind);
+                    if (s.getTopMostPos() < 0 || s.getLeftMostPos() < 0 || s.getBottomMostPos() >= Fleet.BOARD_SIZE
+                            || s.getRightMostPos() >= Fleet.BOARD_SIZE)
+                        continue;
+                    int[] cells = new int[s.getSize()];
+                    for (int i = 0; i < cells.length; i++)
+                        cells[i] = Observation.cell(s.getPositions().get(i));
+                    Arrays.sort(cells);
+                    if (seen.add(Arrays.toString(cells)))
+                        result.add(s);
+                }
+        return result;
+    }
+
+    private static boolean isBlocked(Ship s, int[] blocked) {
+        for (IPosition p : s.getPositions())
+            if (blocked[Observation.cell(p)] > 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Acrescenta (ou retira) um navio à contagem da zona de exclusão: as suas células e todas as
+     * células adjacentes, incluindo as diagonais.
+     *
+     * @param s       navio
+     * @param blocked contagem da zona de exclusão por célula
+     * @param delta   {@code 1} para acrescentar o navio, {@code -1} para o retirar
+     */
+    private static void updateZone(Ship s, int[] blocked, int delta) {
+        boolean[] zone = new boolean[Observation.CELLS];
+        for (IPosition p : s.getPositions())
+            for (int dr = -1; dr <= 1; dr++)
+                for (int dc = -1; dc <= 1; dc++) {
+                    int r = p.getRow() + dr;
+                    int c = p.getColumn() + dc;
+                    if (Observation.isInside(r, c))
+                        zone[Observation.cell(r, c)] = true;
+                }
+        for (int i = 0; i < zone.length; i++)
+            if (zone[i])
+                blocked[i] += delta;
+    }
+}
@@ -0,0 +1,228 @@
+package iscteiul.ista.battleship;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Genoma de uma frota: para cada navio, o tipo, a posição inicial e a orientação.
+ * <p>
+ * O genoma é usado pelo {@link PlacementOptimizer}. Os genes seguem sempre a mesma ordem de
+ * tipos, pelo que o gene {@code i} de dois genomas diferentes descreve o mesmo tipo de navio.
+ * A legalidade de um genoma é decidida por {@link Fleet#addShip(IShip)}: os navios são
+ * acrescentados pela ordem dos genes e o genoma é legal se todos forem aceites.
+ * </p>
+ *
+ * <p>
+ * As operações de mutação e cruzamento reparam o resultado: um gene que torne a frota ilegal
+ * é recolocado numa das colocações legais indicadas por {@link Fleet#getLegalAnchors(String, Compass)},
+ * pelo que os genomas produzidos são sempre legais.
+ * </p>
+ */
+public class FleetGenome {
+
+    private final String[] kinds;
+    private final int[] rows;
+    private final int[] columns;
+    private final Compass[] bearings;
+
+    private FleetGenome(String[] kinds) {
+        this.kinds = kinds;
+        rows = new int[kinds.length];
+        columns = new int[kinds.length];
+        bearings = new Compass[kinds.length];
+    }
+
+    private FleetGenome(FleetGenome other) {
+        kinds = other.kinds;
+        rows = other.rows.clone();
+        columns = other.columns.clone();
+        bearings = other.bearings.clone();
+    }
+
+    /**
+     * Constrói um genoma aleatório legal com os navios indicados.
+     *
+     * @param kinds tipos de navio, pela ordem dos genes
+     * @param rnd   gerador aleatório
+     * @return um genoma legal
+     */
+    public static FleetGenome random(List<String> kinds, Random rnd) {
+        return of(FleetGenerator.randomFleet(kinds, rnd));
+    }
+
+    /**
+     * Constrói o genoma que descreve uma frota.
+     *
+     * @param fleet frota a descrever
+     * @return o genoma com um gene por navio, pela ordem dos navios na frota
+     */
+    public static FleetGenome of(IFleet fleet) {
+        return of(fleet.getShips());
+    }
+
+    /**
+     * Constrói o genoma que descreve uma lista de navios, sem verificar se formam uma frota legal
+     * (ver {@link #toFleet()}).
+     *
+     * @param ships navios a descrever
+     * @return o genoma com um gene por navio, pela ordem da lista
+     */
+    static FleetGenome of(List<? extends IShip> ships) {
+        String[] kinds = new String[ships.size()];
+        for (int i = 0; i < kinds.length; i++)
+            kinds[i] = ships.get(i).getCategory().toLowerCase();
+        FleetGenome g = new FleetGenome(kinds);
+        for (int i = 0; i < kinds.length; i++) {
+            IShip s = ships.get(i);
+            g.rows[i] = s.getPosition().getRow();
+            g.columns[i] = s.getPosition().getColumn();
+            g.bearings[i] = s.getBearing();
+        }
+        return g;
+    }
+
+    /**
+     * Devolve o número de genes (navios).
+     *
+     * @return número de genes
+     */
+    public int size() {
+        return kinds.length;
+    }
+
+    /**
+     * Constrói o navio descrito por um gene.
+     *
+     * @param i índice do gene
+     * @return o navio correspondente
+     */
+    public Ship ship(int i) {
+        return Ship.buildShip(kinds[i], bearings[i], new Position(rows[i], columns[i]));
+    }
+
+    /**
+     * Constrói a frota descrita pelo genoma.
+     *
+     * @return a frota, ou {@code null} se algum navio for rejeitado por {@link Fleet#addShip(IShip)}
+     */
+    public Fleet toFleet() {
+        Fleet fleet = new Fleet();
+        for (int i = 0; i < kinds.length; i++)
+            if (!fleet.addShip(ship(i)))
+                return null;
+        return fleet;
+    }
+
+    /**
+     * Produz uma cópia mutada do genoma.
+     * <p>
+     * Cada gene é mutado com probabilidade {@code rate}: a mutação desloca o navio uma célula,
+     * roda-o, ou recoloca-o ao acaso. O resultado é reparado.
+     * </p>
+     *
+     * @param rate probabilidade de mutação de cada gene
+     * @param rnd  gerador aleatório
+     * @return um novo genoma legal
+     */
+    public FleetGenome mutate(double rate, Random rnd) {
+        FleetGenome child = new FleetGenome(this);
+        for (int i = 0; i < kinds.length; i++) {
+            if (rnd.nextDouble() >= rate)
+                continue;
+            switch (rnd.nextInt(3)) {
+                case 0:
+                    child.rows[i] = clamp(rows[i] + rnd.nextInt(3) - 1);
+                    child.columns[i] = clamp(columns[i] + rnd.nextInt(3) - 1);
+                    break;
+                case 1:
+                    child.bearings[i] = FleetGenerator.BEARINGS[rnd.nextInt(FleetGenerator.BEARINGS.length)];
+                    break;
+                default:
+                    child.relocate(i, rnd);
+            }
+        }
+        return child.repair(null, rnd);
+    }
+
+    /**
+     * Cruza este genoma com outro, escolhendo cada gene de um dos progenitores ao acaso.
+     * <p>
+     * Na reparação, um gene rejeitado tenta primeiro a colocação do outro progenitor e só
+     * depois uma recolocação aleatória.
+     * </p>
+     *
+     * @param other outro progenitor, com os mesmos tipos de navio pela mesma ordem
+     * @param rnd   gerador aleatório
+     * @return um novo genoma legal
+     */
+    public FleetGenome crossover(FleetGenome other, Random rnd) {
+        assert other.kinds.length == kinds.length;
+
+        FleetGenome child = new FleetGenome(this);
+        FleetGenome alternative = new FleetGenome(other);
+        for (int i = 0; i < kinds.length; i++)
+            if (rnd.nextBoolean()) {
+                child.copyGene(i, other);
+                alternative.copyGene(i, this);
+            }
+        return child.repair(alternative, rnd);
+    }
+
+    /**
+     * Torna o genoma legal, acrescentando os navios pela ordem dos genes e recolocando os rejeitados.
+     *
+     * @param alternative genoma com colocações alternativas a experimentar primeiro, ou {@code null}
+     * @param rnd         gerador aleatório
+     * @return este genoma, já legal (ou um genoma aleatório se um navio deixar de ter colocações legais)
+     */
+    private FleetGenome repair(FleetGenome alternative, Random rnd) {
+        Fleet fleet = new Fleet();
+        for (int i = 0; i < kinds.length; i++) {
+            if (fleet.addShip(ship(i)))
+                continue;
+            if (alternative != null) {
+                copyGene(i, alternative);
+                if (fleet.addShip(ship(i)))
+                    continue;
+            }
+            Ship s = FleetGenerator.randomPlacement(fleet, kinds[i], rnd);
+            if (s == null)
+                return random(List.of(kinds), rnd);
+            rows[i] = s.getPosition().getRow();
+            columns[i] = s.getPosition().getColumn();
+            bearings[i] = s.getBearing();
+            fleet.addShip(s);
+        }
+        return this;
+    }
+
+    private void relocate(int i, Random rnd) {
+        rows[i] = rnd.nextInt(Fleet.BOARD_SIZE);
+        columns[i] = rnd.nextInt(Fleet.BOARD_SIZE);
+        bearings[i] = FleetGenerator.BEARINGS[rnd.nextInt(FleetGenerator.BEARINGS.length)];
+    }
+
+    private void copyGene(int i, FleetGenome from) {
+        rows[i] = from.rows[i];
+        columns[i] = from.columns[i];
+        bearings[i] = from.bearings[i];
+    }
+
+    private static int clamp(int v) {
+        return Math.max(0, Math.min(Fleet.BOARD_SIZE - 1, v));
+    }
+
+    /**
+     * Retorna os genes no formato aceite por {@link Tasks#readShip(java.util.Scanner)}, um navio por linha.
+     *
+     * @return uma string com uma linha {@code "tipo linha coluna orientação"} por navio
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < kinds.length; i++)
+            sb.append(kinds[i]).append(' ').append(rows[i]).append(' ').append(columns[i]).append(' ')
+                    .append(bearings[i]).append('\n');
+        return sb.toString();
+    }
+}
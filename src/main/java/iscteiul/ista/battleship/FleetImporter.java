@@ -0,0 +1,266 @@
+package iscteiul.ista.battleship;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Importação em massa de frotas a partir de ficheiros de texto.
+ * <p>
+ * Cada navio ocupa uma linha no formato aceite por {@link Tasks#readShip(java.util.Scanner)}
+ * ({@code tipo linha coluna orientação}) e as frotas são separadas por linhas em branco; as linhas
+ * começadas por {@code #} são ignoradas. Uma frota é aceite se todos os seus navios forem aceites
+ * por {@link Fleet#addShip(IShip)} e tiver o número de navios do regulamento; caso contrário é
+ * rejeitada com o motivo ({@link RejectionReason}) e a linha do primeiro problema.
+ * </p>
+ *
+ * <p>
+ * O ficheiro é lido em sequência e as frotas são agrupadas em lotes, validados em paralelo. Os lotes
+ * são escritos pela ordem do ficheiro, à medida que ficam prontos, e o número de lotes em curso é
+ * limitado, pelo que a memória usada não depende do tamanho do ficheiro. As frotas aceites são gravadas
+ * no formato de {@link FleetStore}.
+ * </p>
+ */
+public class FleetImporter {
+
+    /**
+     * Número de navios de uma frota completa (o que {@link Tasks#buildFleet(java.util.Scanner)} exige).
+     */
+    private static final int SHIPS_PER_FLEET = Fleet.FLEET_SIZE + 1;
+
+    /**
+     * Frota lida do ficheiro, ainda por validar.
+     */
+    private static final class Block {
+        final long fleet;
+        final List<String> lines = new ArrayList<>(SHIPS_PER_FLEET);
+
+        /**
+         * Número da linha do ficheiro de cada navio (os comentários dentro do bloco não contam como navios).
+         */
+        final List<Long> lineNumbers = new ArrayList<>(SHIPS_PER_FLEET);
+
+        Block(long fleet) {
+            this.fleet = fleet;
+        }
+    }
+
+    /**
+     * Resultado da validação de uma frota: os navios codificados, ou a rejeição.
+     */
+    private static final class Outcome {
+        final int[] ships;
+        final ImportReport.Rejection rejection;
+
+        Outcome(int[] ships, ImportReport.Rejection rejection) {
+            this.ships = ships;
+            this.rejection = rejection;
+        }
+    }
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 1024;
+
+    /**
+     * Define o número de threads de validação.
+     *
+     * @param threads número de threads
+     * @return este importador
+     */
+    public FleetImporter setThreads(int threads) {
+        assert threads > 0;
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Define o número de frotas de cada lote de validação.
+     *
+     * @param batchSize número de frotas por lote
+     * @return este importador
+     */
+    public FleetImporter setBatchSize(int batchSize) {
+        assert batchSize > 0;
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Importa as frotas de um ficheiro de texto.
+     *
+     * @param input      ficheiro com as frotas
+     * @param store      ficheiro onde são gravadas as frotas aceites
+     * @param rejections ficheiro onde é escrita uma linha por frota rejeitada, ou {@code null}
+     * @return o relatório da importação
+     * @throws IOException se a leitura ou a escrita falharem
+     */
+    public ImportReport importFleets(Path input, Path store, Path rejections) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+                OutputStream out = new BufferedOutputStream(Files.newOutputStream(store));
+                Writer log = rejections == null ? Writer.nullWriter()
+                        : new BufferedWriter(Files.newBufferedWriter(rejections, StandardCharsets.UTF_8))) {
+            return importFleets(in, out, log);
+        }
+    }
+
+    /**
+     * Importa as frotas lidas de um canal de texto.
+     *
+     * @param in         origem das frotas
+     * @param store      destino das frotas aceites (formato de {@link FleetStore})
+     * @param rejections destino das linhas de rejeição
+     * @return o relatório da importação
+     * @throws IOException se a leitura ou a escrita falharem
+     */
+    public ImportReport importFleets(BufferedReader in, OutputStream store, Writer rejections) throws IOException {
+        DataOutputStream out = new DataOutputStream(store);
+        FleetStore.writeHeader(out);
+        ImportReport report = new ImportReport();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "fleet-import");
+            t.setDaemon(true);
+            return t;
+        });
+        Deque<Future<List<Outcome>>> inFlight = new ArrayDeque<>();
+        try {
+            List<Block> batch = new ArrayList<>(batchSize);
+            Block block = null;
+            long lineNumber = 0;
+            long fleets = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.startsWith("#"))
+                    continue;
+                if (trimmed.isEmpty()) {
+                    block = null;
+                    continue;
+                }
+                if (block == null) {
+                    block = new Block(++fleets);
+                    batch.add(block);
+                    if (batch.size() > batchSize) {
+                        batch.remove(batch.size() - 1);
+                        submit(pool, inFlight, batch, out, rejections, report);
+                        batch = new ArrayList<>(batchSize);
+                        batch.add(block);
+                    }
+                }
+                block.lines.add(trimmed);
+                block.lineNumbers.add(lineNumber);
+            }
+            submit(pool, inFlight, batch, out, rejections, report);
+            while (!inFlight.isEmpty())
+                drain(inFlight.poll(), out, rejections, report);
+        } finally {
+            pool.shutdownNow();
+        }
+        out.flush();
+        rejections.flush();
+        return report;
+    }
+
+    /**
+     * Submete um lote para validação, esperando pelo lote mais antigo se houver demasiados em curso.
+     */
+    private void submit(ExecutorService pool, Deque<Future<List<Outcome>>> inFlight, List<Block> batch,
+            DataOutputStream out, Writer rejections, ImportReport report) throws IOException {
+        if (batch.isEmpty())
+            return;
+        inFlight.add(pool.submit(() -> {
+            List<Outcome> outcomes = new ArrayList<>(batch.size());
+            for (Block b : batch)
+                outcomes.add(validate(b));
+            return outcomes;
+        }));
+        while (inFlight.size() > 2 * threads)
+            drain(inFlight.poll(), out, rejections, report);
+    }
+
+    /**
+     * Escreve o resultado de um lote: as frotas aceites no armazém e as rejeições no relatório.
+     */
+    private static void drain(Future<List<Outcome>> future, DataOutputStream out, Writer rejections,
+            ImportReport report) throws IOException {
+        List<Outcome> outcomes;
+        try {
+            outcomes = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Importação interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Falha na validação", e.getCause());
+        }
+        for (Outcome o : outcomes) {
+            if (o.rejection == null) {
+                FleetStore.write(out, o.ships);
+                report.accept();
+            } else {
+                rejections.write(o.rejection.toString());
+                rejections.write(System.lineSeparator());
+                report.reject(o.rejection);
+            }
+        }
+    }
+
+    /**
+     * Valida uma frota, navio a navio, com as regras de {@link Fleet#addShip(IShip)}.
+     */
+    private static Outcome validate(Block block) {
+        Fleet fleet = new Fleet();
+        int[] packed = new int[block.lines.size()];
+        for (int i = 0; i < block.lines.size(); i++) {
+            String line = block.lines.get(i);
+            long lineNumber = block.lineNumbers.get(i);
+            String[] tokens = line.split("\\s+");
+            if (tokens.length != 4 || tokens[3].length() != 1)
+                return reject(block, lineNumber, RejectionReason.MALFORMED_LINE, line);
+            int row;
+            int column;
+            try {
+                row = Integer.parseInt(tokens[1]);
+                column = Integer.parseInt(tokens[2]);
+            } catch (NumberFormatException e) {
+                return reject(block, lineNumber, RejectionReason.MALFORMED_LINE, line);
+            }
+            Compass bearing = Compass.charToCompass(tokens[3].charAt(0));
+            Ship s;
+            try {
+                s = Ship.buildShip(tokens[0], bearing, new Position(row, column));
+            } catch (IllegalArgumentException e) {
+                return reject(block, lineNumber, RejectionReason.INVALID_BEARING, line);
+            }
+            if (s == null)
+                return reject(block, lineNumber, RejectionReason.UNKNOWN_SHIP, line);
+            RejectionReason reason = fleet.rejectionReason(s);
+            if (reason != null)
+                return reject(block, lineNumber, reason, line);
+            fleet.addShip(s);
+            packed[i] = ShipShapes.pack(s);
+        }
+        if (packed.length < SHIPS_PER_FLEET)
+            return reject(block, block.lineNumbers.get(packed.length - 1), RejectionReason.INCOMPLETE_FLEET,
+                    packed.length + " de " + SHIPS_PER_FLEET + " navios");
+        return new Outcome(packed, null);
+    }
+
+    private static Outcome reject(Block block, long line, RejectionReason reason, String detail) {
+        return new Outcome(null, new ImportReport.Rejection(block.fleet, line, reason, detail));
+    }
+}
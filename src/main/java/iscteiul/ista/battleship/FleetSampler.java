@@ -0,0 +1,142 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gerador de frotas aleatórias coerentes com o que um atacante já observou.
+ * <p>
+ * Uma frota é coerente com a observação se contiver os navios já afundados nas posições conhecidas,
+ * nenhum outro navio ocupar células de água, todos os acertos por afundar estiverem cobertos por
+ * navios, e nenhum navio ficar com todas as células atingidas (porque estaria afundado).
+ * </p>
+ *
+ * <p>
+ * Os navios por afundar são colocados um a um, pela ordem de {@link FleetGenerator#COMPOSITION},
+ * de entre as colocações legais indicadas por {@link Fleet#getLegalAnchors(String, Compass)}, com
+ * preferência pelas que cobrem acertos ainda não cobertos. As frotas que no fim deixam algum acerto
+ * por cobrir são rejeitadas. A amostragem não é uniforme sobre as frotas coerentes, mas é rápida o
+ * suficiente para ser repetida milhares de vezes por jogada.
+ * </p>
+ */
+final class FleetSampler {
+
+    /**
+     * Peso adicional de uma colocação por cada acerto por cobrir que passa a cobrir.
+     */
+    private static final int HIT_WEIGHT = 40;
+
+    private final Observation view;
+    private final List<IShip> sunk;
+    private final List<String> kinds;
+    private final int hits;
+
+    /**
+     * Constrói um gerador para o estado de jogo indicado.
+     *
+     * @param view tabuleiro observado
+     * @param sunk navios já afundados
+     */
+    FleetSampler(Observation view, List<IShip> sunk) {
+        this.view = view;
+        this.sunk = sunk;
+        kinds = new ArrayList<>(FleetGenerator.COMPOSITION);
+        for (IShip s : sunk)
+            kinds.remove(s.getCategory().toLowerCase());
+        int n = 0;
+        for (int c = 0; c < Observation.CELLS; c++)
+            if (view.get(c) == CellState.HIT)
+                n++;
+        hits = n;
+    }
+
+    /**
+     * Sorteia uma frota coerente com a observação.
+     *
+     * @param rnd gerador aleatório
+     * @return as células de cada navio ainda por afundar, ou {@code null} se a tentativa falhar
+     */
+    int[][] sample(Random rnd) {
+        Fleet fleet = new Fleet();
+        for (IShip s : sunk) {
+            IPosition p = s.getPosition();
+            fleet.addShip(Ship.buildShip(s.getCategory().toLowerCase(), s.getBearing(), new Position(p.getRow(), p.getColumn())));
+        }
+
+        int uncovered = hits;
+        int[][] ships = new int[kinds.size()][];
+        int[] shapes = new int[4 * Observation.CELLS];
+        int[] anchors = new int[shapes.length];
+        int[] weights = new int[shapes.length];
+        for (int k = 0; k < kinds.size(); k++) {
+            String kind = kinds.get(k);
+            int kindIndex = ShipShapes.kindIndex(kind);
+            int options = 0;
+            long total = 0;
+            for (Compass bearing : FleetGenerator.BEARINGS) {
+                int shape = ShipShapes.shapeIndex(kindIndex, bearing);
+                int[][] offsets = ShipShapes.offsets(shape);
+                BitSet legal = fleet.getLegalAnchors(kind, bearing);
+                for (int a = legal.nextSetBit(0); a >= 0; a = legal.nextSetBit(a + 1)) {
+                    int weight = weight(a, offsets);
+                    if (weight == 0)
+                        continue;
+                    shapes[options] = shape;
+                    anchors[options] = a;
+                    weights[options++] = weight;
+                    total += weight;
+                }
+            }
+            if (options == 0)
+                return null;
+
+            long pick = (long) (rnd.nextDouble() * total);
+            int chosen = 0;
+            while (pick >= weights[chosen])
+                pick -= weights[chosen++];
+
+            int[][] offsets = ShipShapes.offsets(shapes[chosen]);
+            int row = anchors[chosen] / Fleet.BOARD_SIZE;
+            int column = anchors[chosen] % Fleet.BOARD_SIZE;
+            ships[k] = new int[offsets.length];
+            for (int i = 0; i < offsets.length; i++) {
+                int cell = Observation.cell(row + offsets[i][0], column + offsets[i][1]);
+                ships[k][i] = cell;
+                if (view.get(cell) == CellState.HIT)
+                    uncovered--;
+            }
+            Compass bearing = ShipShapes.BEARINGS[shapes[chosen] % ShipShapes.BEARINGS.length];
+            fleet.addShip(Ship.buildShip(kind, bearing, new Position(row, column)));
+        }
+        return uncovered == 0 ? ships : null;
+    }
+
+    /**
+     * Calcula o peso de uma colocação legal, ou 0 se não for coerente com a observação.
+     * <p>
+     * Como as colocações legais não tocam nos navios já colocados, todos os acertos cobertos por
+     * uma colocação legal estão ainda por cobrir.
+     * </p>
+     *
+     * @param anchor  célula da posição inicial
+     * @param offsets deslocamentos das células da forma
+     * @return o peso da colocação
+     */
+    private int weight(int anchor, int[][] offsets) {
+        int row = anchor / Fleet.BOARD_SIZE;
+        int column = anchor % Fleet.BOARD_SIZE;
+        int hitCells = 0;
+        for (int[] o : offsets) {
+            CellState state = view.get(row + o[0], column + o[1]);
+            if (state == CellState.MISS || state == CellState.SUNK)
+                return 0;
+            if (state == CellState.HIT)
+                hitCells++;
+        }
+        if (hitCells == offsets.length)
+            return 0; // estaria afundado
+        return 1 + HIT_WEIGHT * hitCells;
+    }
+}
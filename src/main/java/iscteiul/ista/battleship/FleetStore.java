@@ -0,0 +1,111 @@
+package iscteiul.ista.battleship;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formato binário compacto para guardar frotas.
+ * <p>
+ * O ficheiro começa pelo número mágico {@link #MAGIC}, seguido das frotas, cada uma com um byte com o
+ * número de navios e um {@code int} por navio (forma e célula da posição inicial). Uma frota regulamentar
+ * ocupa assim 45 bytes. Só os navios são guardados: as frotas lidas não têm danos.
+ * </p>
+ */
+public final class FleetStore {
+
+    /**
+     * Número mágico no início de cada ficheiro ({@code "BSF1"}).
+     */
+    public static final int MAGIC = 0x42534631;
+
+    private FleetStore() {
+    }
+
+    /**
+     * Escreve o cabeçalho de um ficheiro de frotas.
+     *
+     * @param out destino
+     * @throws IOException se a escrita falhar
+     */
+    public static void writeHeader(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+    }
+
+    /**
+     * Escreve uma frota.
+     *
+     * @param out   destino
+     * @param fleet frota a escrever
+     * @throws IOException se a escrita falhar
+     */
+    public static void write(DataOutput out, IFleet fleet) throws IOException {
+        List<IShip> ships = fleet.getShips();
+        int[] packed = new int[ships.size()];
+        for (int i = 0; i < packed.length; i++)
+            packed[i] = ShipShapes.pack(ships.get(i));
+        write(out, packed);
+    }
+
+    /**
+     * Escreve uma frota já codificada.
+     *
+     * @param out   destino
+     * @param ships navios codificados
+     * @throws IOException se a escrita falhar
+     */
+    static void write(DataOutput out, int[] ships) throws IOException {
+        out.writeByte(ships.length);
+        for (int s : ships)
+            out.writeInt(s);
+    }
+
+    /**
+     * Lê a próxima frota.
+     *
+     * @param in origem, posicionada no início de uma frota
+     * @return a frota lida, ou {@code null} se a origem tiver terminado
+     * @throws IOException se a leitura falhar ou a frota estiver truncada
+     */
+    public static Fleet read(DataInput in) throws IOException {
+        int count;
+        try {
+            count = in.readUnsignedByte();
+        } catch (EOFException e) {
+            return null;
+        }
+        Fleet fleet = new Fleet();
+        for (int i = 0; i < count; i++)
+            if (!fleet.addShip(ShipShapes.toShip(in.readInt())))
+                throw new IOException("Frota ilegal no ficheiro");
+        return fleet;
+    }
+
+    /**
+     * Lê todas as frotas de um ficheiro.
+     *
+     * @param file ficheiro de frotas
+     * @return as frotas, pela ordem do ficheiro
+     * @throws IOException se a leitura falhar ou o ficheiro não tiver o formato esperado
+     */
+    public static List<IFleet> readAll(Path file) throws IOException {
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(file))) {
+            DataInputStream in = new DataInputStream(is);
+            if (in.readInt() != MAGIC)
+                throw new IOException("Não é um ficheiro de frotas: " + file);
+            List<IFleet> fleets = new ArrayList<>();
+            Fleet fleet;
+            while ((fleet = read(in)) != null)
+                fleets.add(fleet);
+            return fleets;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package iscteiul.ista.battleship;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Eventos do JDK Flight Recorder emitidos pelo motor do jogo.
+ * <p>
+ * Os eventos são criados e iniciados ({@code begin()}) em cada operação, mas só são preenchidos e
+ * registados se {@code shouldCommit()} o indicar, isto é, se houver uma gravação ativa com o evento
+ * ligado e a duração ultrapassar o limiar configurado. Com o evento desligado, o compilador elimina
+ * a criação do objeto, pelo que o custo é praticamente nulo e não é preciso uma versão instrumentada
+ * da aplicação: basta iniciar uma gravação no processo em execução, por exemplo com
+ * {@code jcmd <pid> JFR.start settings=/caminho/battleship.jfc duration=5m filename=jogo.jfr}.
+ * </p>
+ *
+ * <p>
+ * O perfil {@code /jfr/battleship.jfc} (recurso do class path) liga estes eventos com limiares
+ * adequados, juntamente com a amostragem de execução e os eventos da JVM mais úteis para encontrar
+ * os caminhos quentes e os valores atípicos.
+ * </p>
+ */
+public final class FlightEvents {
+
+    /**
+     * Categoria dos eventos nas ferramentas de análise.
+     */
+    static final String CATEGORY = "Battleship";
+
+    private FlightEvents() {
+    }
+
+    /**
+     * Um disparo ({@link Game#fire(IPosition)}).
+     */
+    @Name("iscteiul.battleship.Fire")
+    @Label("Disparo")
+    @Category(CATEGORY)
+    @Description("Um disparo sobre um jogo, com o resultado")
+    @StackTrace(false)
+    static final class Fire extends Event {
+        @Label("Linha")
+        int row;
+
+        @Label("Coluna")
+        int column;
+
+        @Label("Resultado")
+        String result;
+
+        @Label("Navio")
+        String ship;
+    }
+
+    /**
+     * Uma tentativa de acrescentar um navio a uma frota ({@link Fleet#addShip(IShip)}).
+     */
+    @Name("iscteiul.battleship.AddShip")
+    @Label("Navio acrescentado")
+    @Category(CATEGORY)
+    @Description("Uma tentativa de acrescentar um navio a uma frota, aceite ou rejeitada (com o motivo)")
+    @StackTrace(false)
+    static final class AddShip extends Event {
+        @Label("Navio")
+        String ship;
+
+        @Label("Linha")
+        int row;
+
+        @Label("Coluna")
+        int column;
+
+        @Label("Orientação")
+        String bearing;
+
+        @Label("Aceite")
+        boolean accepted;
+
+        @Label("Motivo")
+        String reason;
+    }
+
+    /**
+     * A construção de uma frota completa (lida pelas tarefas ou gerada ao acaso).
+     */
+    @Name("iscteiul.battleship.FleetBuild")
+    @Label("Construção de frota")
+    @Category(CATEGORY)
+    @Description("A construção de uma frota completa")
+    @StackTrace(false)
+    static final class FleetBuild extends Event {
+        @Label("Origem")
+        String source;
+
+        @Label("Navios")
+        int ships;
+
+        @Label("Tentativas")
+        int attempts;
+    }
+
+    /**
+     * Uma rajada de disparos.
+     */
+    @Name("iscteiul.battleship.Salvo")
+    @Label("Rajada")
+    @Category(CATEGORY)
+    @Description("O processamento de uma rajada de disparos")
+    @StackTrace(false)
+    static final class Salvo extends Event {
+        @Label("Disparos")
+        int shots;
+
+        @Label("Acertos")
+        int hits;
+
+        @Label("Navios afundados")
+        int sunk;
+    }
+
+    /**
+     * O fim de um jogo: o último navio foi afundado.
+     */
+    @Name("iscteiul.battleship.GameOver")
+    @Label("Fim de jogo")
+    @Category(CATEGORY)
+    @Description("O último navio de um jogo foi afundado")
+    @StackTrace(false)
+    static final class GameOver extends Event {
+        @Label("Tiros válidos")
+        int shots;
+
+        @Label("Acertos")
+        int hits;
+
+        @Label("Tiros inválidos")
+        int invalid;
+
+        @Label("Tiros repetidos")
+        int repeated;
+    }
+}
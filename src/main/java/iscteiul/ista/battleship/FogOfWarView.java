@@ -0,0 +1,278 @@
+package iscteiul.ista.battleship;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Vista do tabuleiro adversário tal como é vista pelo atacante (nevoeiro de guerra), para enviar a
+ * clientes remotos: jogadores e espectadores.
+ * <p>
+ * Cada célula tem um {@link CellState} e o número de ordem da última atualização que a alterou.
+ * O servidor atualiza a vista uma vez por turno ({@link #update(Observation)}), o que incrementa o
+ * número de ordem se alguma célula mudou. Cada cliente confirma o último número de ordem que recebeu,
+ * e recebe apenas as células alteradas desde então ({@link #encodeSince(long)}). Uma só vista serve
+ * qualquer número de clientes: por cliente basta guardar o número de ordem confirmado.
+ * </p>
+ *
+ * <p>
+ * Há dois formatos de mensagem, ambos começados por um byte com o tipo:
+ * </p>
+ * <ul>
+ *   <li>{@link #FULL}: o número de ordem ({@code long}), o número de células ({@code short}) e o estado
+ *   de cada célula em 2 bits, quatro células por byte (36 bytes num tabuleiro de 10x10);</li>
+ *   <li>{@link #DELTA}: o número de ordem de base e o novo ({@code long}), o número de células
+ *   alteradas ({@code short}) e, por cada uma, um {@code short} com o índice da célula e o estado nos
+ *   2 bits menos significativos.</li>
+ * </ul>
+ *
+ * <p>
+ * Do lado do cliente, {@link #apply(byte[])} aplica uma mensagem de qualquer dos tipos a uma vista
+ * local (que pode, por sua vez, servir outros clientes). Desfazer disparos é suportado: as células
+ * voltam a {@link CellState#UNKNOWN} e são enviadas como qualquer outra alteração. A vista não é
+ * segura entre threads.
+ * </p>
+ */
+public class FogOfWarView {
+
+    /**
+     * Tipo das mensagens com o estado completo.
+     */
+    public static final byte FULL = 0;
+
+    /**
+     * Tipo das mensagens com as alterações desde um número de ordem.
+     */
+    public static final byte DELTA = 1;
+
+    /**
+     * Maior número de células suportado pelo formato {@link #DELTA} (14 bits por índice).
+     */
+    public static final int MAX_CELLS = 1 << 14;
+
+    private static final CellState[] STATES = CellState.values();
+    private static final int FULL_HEADER = 1 + 8 + 2;
+    private static final int DELTA_HEADER = 1 + 8 + 8 + 2;
+
+    private final byte[] states;
+    private final long[] changedAt;
+    private long sequence;
+
+    /**
+     * Constrói uma vista de um tabuleiro de 10x10, com todas as células desconhecidas.
+     */
+    public FogOfWarView() {
+        this(Observation.CELLS);
+    }
+
+    /**
+     * Constrói uma vista com todas as células desconhecidas.
+     *
+     * @param cells número de células do tabuleiro
+     */
+    public FogOfWarView(int cells) {
+        if (cells <= 0 || cells > MAX_CELLS)
+            throw new IllegalArgumentException("Número de células inválido: " + cells);
+        states = new byte[cells];
+        changedAt = new long[cells];
+    }
+
+    /**
+     * Devolve o número de células.
+     *
+     * @return número de células
+     */
+    public int getCells() {
+        return states.length;
+    }
+
+    /**
+     * Devolve o número de ordem da última atualização que alterou alguma célula.
+     *
+     * @return o número de ordem, ou 0 se nenhuma célula foi alterada
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Obtém o estado de uma célula.
+     *
+     * @param cell índice da célula
+     * @return o estado da célula
+     */
+    public CellState get(int cell) {
+        return STATES[states[cell]];
+    }
+
+    /**
+     * Atualiza a vista com o tabuleiro visto pelo atacante (por exemplo, {@link Game#getObservation()}).
+     *
+     * @param observation tabuleiro visto pelo atacante
+     * @return o número de células alteradas
+     */
+    public int update(Observation observation) {
+        if (states.length != Observation.CELLS)
+            throw new IllegalArgumentException("A vista tem " + states.length + " células");
+        CellState[] current = new CellState[Observation.CELLS];
+        for (int cell = 0; cell < current.length; cell++)
+            current[cell] = observation.get(cell);
+        return update(current);
+    }
+
+    /**
+     * Atualiza a vista com o estado de todas as células. Se alguma célula mudar, o número de ordem é
+     * incrementado e as células alteradas ficam associadas ao novo número.
+     *
+     * @param current estado de cada célula
+     * @return o número de células alteradas
+     */
+    public int update(CellState[] current) {
+        if (current.length != states.length)
+            throw new IllegalArgumentException("Esperadas " + states.length + " células, recebidas " + current.length);
+        int changed = 0;
+        long next = sequence + 1;
+        for (int cell = 0; cell < states.length; cell++) {
+            byte state = (byte) current[cell].ordinal();
+            if (states[cell] != state) {
+                states[cell] = state;
+                changedAt[cell] = next;
+                changed++;
+            }
+        }
+        if (changed > 0)
+            sequence = next;
+        return changed;
+    }
+
+    /**
+     * Codifica o estado completo.
+     *
+     * @return a mensagem {@link #FULL}
+     */
+    public byte[] encodeFull() {
+        ByteBuffer out = ByteBuffer.allocate(FULL_HEADER + (states.length + 3) / 4);
+        out.put(FULL).putLong(sequence).putShort((short) states.length);
+        for (int cell = 0; cell < states.length; cell += 4) {
+            int packed = 0;
+            for (int i = 0; i < 4 && cell + i < states.length; i++)
+                packed |= states[cell + i] << (2 * i);
+            out.put((byte) packed);
+        }
+        return out.array();
+    }
+
+    /**
+     * Codifica as células alteradas depois de um número de ordem.
+     *
+     * @param since último número de ordem recebido pelo cliente
+     * @return a mensagem {@link #DELTA}
+     * @throws IllegalArgumentException se {@code since} for maior do que o número de ordem da vista
+     */
+    public byte[] encodeDelta(long since) {
+        if (since < 0 || since > sequence)
+            throw new IllegalArgumentException("Número de ordem desconhecido: " + since);
+        int count = changedSince(since);
+        ByteBuffer out = ByteBuffer.allocate(DELTA_HEADER + 2 * count);
+        out.put(DELTA).putLong(since).putLong(sequence).putShort((short) count);
+        for (int cell = 0; cell < states.length; cell++)
+            if (changedAt[cell] > since)
+                out.putShort((short) (cell << 2 | states[cell]));
+        return out.array();
+    }
+
+    /**
+     * Codifica a mensagem mais pequena que leva um cliente ao estado atual: as alterações desde o
+     * número de ordem confirmado ou, se forem maiores (ou o número for desconhecido), o estado completo.
+     *
+     * @param acked último número de ordem confirmado pelo cliente, ou -1 se o cliente não tiver estado
+     * @return a mensagem {@link #DELTA} ou {@link #FULL}
+     */
+    public byte[] encodeSince(long acked) {
+        if (acked < 0 || acked > sequence)
+            return encodeFull();
+        int deltaSize = DELTA_HEADER + 2 * changedSince(acked);
+        return deltaSize <= FULL_HEADER + (states.length + 3) / 4 ? encodeDelta(acked) : encodeFull();
+    }
+
+    /**
+     * Aplica uma mensagem recebida do servidor a esta vista (do lado do cliente).
+     *
+     * @param message mensagem {@link #FULL} ou {@link #DELTA}
+     * @return o novo número de ordem, a confirmar ao servidor
+     * @throws IllegalStateException    se a mensagem for um {@link #DELTA} a partir de um número de
+     *                                  ordem posterior ao desta vista (perderam-se mensagens: é preciso
+     *                                  pedir o estado completo)
+     * @throws IllegalArgumentException se a mensagem estiver mal formada ou for de outro tabuleiro
+     */
+    public long apply(byte[] message) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(message);
+            byte type = in.get();
+            if (type == FULL) {
+                long seq = in.getLong();
+                if (Short.toUnsignedInt(in.getShort()) != states.length)
+                    throw new IllegalArgumentException("Mensagem de outro tabuleiro");
+                for (int cell = 0; cell < states.length; cell += 4) {
+                    int packed = in.get();
+                    for (int i = 0; i < 4 && cell + i < states.length; i++)
+                        set(cell + i, (byte) (packed >>> (2 * i) & 3), seq);
+                }
+                sequence = seq;
+            } else if (type == DELTA) {
+                long base = in.getLong();
+                long seq = in.getLong();
+                if (base > sequence)
+                    throw new IllegalStateException("Faltam as alterações de " + sequence + " a " + base);
+                int count = Short.toUnsignedInt(in.getShort());
+                for (int i = 0; i < count; i++) {
+                    int entry = Short.toUnsignedInt(in.getShort());
+                    int cell = entry >>> 2;
+                    if (cell >= states.length)
+                        throw new IllegalArgumentException("Célula fora do tabuleiro: " + cell);
+                    set(cell, (byte) (entry & 3), seq);
+                }
+                sequence = Math.max(sequence, seq);
+            } else {
+                throw new IllegalArgumentException("Tipo de mensagem desconhecido: " + type);
+            }
+            return sequence;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Mensagem truncada", e);
+        }
+    }
+
+    /**
+     * Imprime a vista como um tabuleiro, com os símbolos de {@link CellState#getMarker()}.
+     *
+     * @param out destino
+     */
+    public void print(IOutputSink out) {
+        if (!out.isEnabled())
+            return;
+        if (states.length != Observation.CELLS)
+            throw new IllegalStateException("Só é possível imprimir tabuleiros de 10x10");
+        char[][] map = new char[Fleet.BOARD_SIZE][Fleet.BOARD_SIZE];
+        for (int cell = 0; cell < states.length; cell++)
+            map[cell / Fleet.BOARD_SIZE][cell % Fleet.BOARD_SIZE] = STATES[states[cell]].getMarker();
+        Game.printBoard(map, out);
+    }
+
+    /**
+     * Altera o estado de uma célula recebido do servidor, para que a vista do cliente possa também
+     * servir outros clientes.
+     */
+    private void set(int cell, byte state, long seq) {
+        if (states[cell] != state) {
+            states[cell] = state;
+            changedAt[cell] = seq;
+        }
+    }
+
+    private int changedSince(long since) {
+        int count = 0;
+        for (long at : changedAt)
+            if (at > since)
+                count++;
+        return count;
+    }
+}
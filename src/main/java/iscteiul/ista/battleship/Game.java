@@ -1,6 +1,9 @@
 package iscteiul.ista.battleship;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
 /**
@@ -23,19 +26,88 @@ import java.util.List;
  *     <li>Se o disparo afundar o navio, incrementa o contador de afundamentos e devolve esse navio</li>
  * </ul>
  * </p>
+ *
+ * <p>
+ * Cada disparo fica registado num histórico de jogadas, o que permite desfazer ({@link #undo()}) e
+ * refazer ({@link #redo()}) disparos, e criar ramos alternativos do jogo ({@link #fork()}).
+ * O histórico é persistente: cada jogada aponta para a anterior e nunca é alterada, pelo que um
+ * ramo partilha com o jogo original o histórico comum, a frota e os navios. Como os navios guardam
+ * os tiros sofridos, a frota partilhada reflete em cada momento o ramo que a usou por último; antes
+ * de cada operação, o jogo desfaz na frota as jogadas do outro ramo e reaplica as suas, até ao
+ * antecessor comum. Criar um ramo custa O(1) e mudar de ramo custa O(jogadas que diferem).
+ * </p>
  */
 public class Game implements IGame {
 
+    /**
+     * Jogada registada no histórico. Imutável, e partilhada entre os ramos de um jogo.
+     */
+    private static final class Move {
+        final Move parent;
+        final IPosition pos;
+        final ShotResult result;
+        final IShip ship;
+        final long hashChange;
+        final int depth;
+
+        Move(Move parent, IPosition pos, ShotResult result, IShip ship, long hashChange) {
+            this.parent = parent;
+            this.pos = pos;
+            this.result = result;
+            this.ship = ship;
+            this.hashChange = hashChange;
+            depth = parent == null ? 1 : parent.depth + 1;
+        }
+
+        void apply() {
+            if (ship != null)
+                ship.shoot(pos);
+        }
+
+        void unapply() {
+            if (ship != null)
+                ship.repair(pos);
+        }
+    }
+
+    /**
+     * Estado partilhado pelos ramos de um jogo: a última jogada aplicada aos navios da frota.
+     */
+    private static final class Checkout {
+        Move applied;
+    }
+
     /**
      * Frota associada ao jogo.
      */
     private IFleet fleet;
 
     /**
-     * Lista de posições correspondentes a tiros válidos não repetidos já efetuados.
+     * Lista de posições correspondentes a tiros válidos não repetidos já efetuados, reconstruída a
+     * partir do histórico quando necessário ({@code null} se estiver desatualizada).
      */
     private List<IPosition> shots;
 
+    /**
+     * Hash de Zobrist do tabuleiro tal como é visto pelo atacante (ver {@link Zobrist}).
+     */
+    private long hash;
+
+    /**
+     * Última jogada do histórico deste jogo, ou {@code null} se ainda não foi efetuado nenhum disparo.
+     */
+    private Move head;
+
+    /**
+     * Jogadas desfeitas que podem ser refeitas, a mais recente no topo.
+     */
+    private Deque<Move> undone;
+
+    /**
+     * Jogada aplicada aos navios da frota, partilhada entre os ramos.
+     */
+    private Checkout checkout;
+
     /**
      * Número de tiros inválidos efetuados.
      */
@@ -56,6 +128,32 @@ public class Game implements IGame {
      */
     private Integer countSinks;
 
+    /**
+     * Resultado do último disparo efetuado.
+     */
+    private ShotResult lastResult;
+
+    /**
+     * Publicador dos eventos do jogo, criado quando é pedido pela primeira vez ({@link #getEvents()}).
+     */
+    private GameEventPublisher events;
+
+    /**
+     * Tabuleiro visto pelo atacante, mantido a cada disparo depois de criado o publicador de eventos,
+     * para os retratos de {@link OverflowPolicy#LATEST} não terem de percorrer o histórico; ou {@code null}.
+     */
+    private Observation board;
+
+    /**
+     * Destino onde são impressos os tabuleiros.
+     */
+    private IOutputSink output;
+
+    /**
+     * Mapa de calor onde são registados os disparos, ou {@code null}.
+     */
+    private ShotHeatmap heatmap;
+
     /**
      * Constrói uma nova instância de jogo para a frota indicada, inicializando o
      * histórico de tiros e os contadores estatísticos.
@@ -66,7 +164,33 @@ public class Game implements IGame {
         shots = new ArrayList<>();
         countInvalidShots = 0;
         countRepeatedShots = 0;
+        countHits = 0;
+        countSinks = 0;
         this.fleet = fleet;
+        undone = new ArrayDeque<>();
+        checkout = new Checkout();
+        output = ConsoleOutput.INSTANCE;
+        heatmap = ShotHeatmap.getDefault();
+    }
+
+    /**
+     * Constrói um ramo de outro jogo, com a mesma frota e o mesmo histórico.
+     *
+     * @param other jogo original
+     */
+    private Game(Game other) {
+        fleet = other.fleet;
+        shots = null;
+        countInvalidShots = other.countInvalidShots;
+        countRepeatedShots = other.countRepeatedShots;
+        countHits = other.countHits;
+        countSinks = other.countSinks;
+        lastResult = other.lastResult;
+        hash = other.hash;
+        head = other.head;
+        undone = new ArrayDeque<>();
+        checkout = other.checkout;
+        output = other.output;
     }
 
     /**
@@ -84,23 +208,111 @@ public class Game implements IGame {
      */
     @Override
     public IShip fire(IPosition pos) {
-        if (!validShot(pos))
+        FlightEvents.Fire flight = new FlightEvents.Fire();
+        flight.begin();
+        sync();
+        undone.clear();
+        long before = hash;
+        IShip s = shoot(pos);
+        head = new Move(head, pos, lastResult, s, before ^ hash);
+        checkout.applied = head;
+        IShip sunk = lastResult == ShotResult.SUNK ? s : null;
+        boolean over = sunk != null && countSinks == fleet.getShips().size();
+        if (heatmap != null)
+            heatmap.record(pos, lastResult);
+        if (events != null && events.hasSubscribers()) {
+            events.publish(GameEvent.shot(events.nextSequence(), pos, lastResult, sunk));
+            if (over)
+                events.publish(GameEvent.Type.GAME_OVER);
+        }
+        if (flight.shouldCommit()) {
+            flight.row = pos.getRow();
+            flight.column = pos.getColumn();
+            flight.result = lastResult.name();
+            flight.ship = s == null ? null : s.getCategory();
+            flight.commit();
+        }
+        if (over) {
+            FlightEvents.GameOver end = new FlightEvents.GameOver();
+            if (end.shouldCommit()) {
+                end.shots = getShots().size();
+                end.hits = countHits;
+                end.invalid = countInvalidShots;
+                end.repeated = countRepeatedShots;
+                end.commit();
+            }
+        }
+        return sunk;
+    }
+
+    /**
+     * Devolve o publicador dos eventos dos disparos deste jogo: um evento por disparo
+     * ({@link GameEvent.Type#SHOT}, {@link GameEvent.Type#HIT} ou {@link GameEvent.Type#SUNK}) e
+     * {@link GameEvent.Type#GAME_OVER} quando o último navio é afundado. Desfazer e refazer disparos
+     * não gera eventos, e os ramos ({@link #fork()}) têm o seu próprio publicador.
+     * <p>
+     * Enquanto não houver subscritores, os disparos não constroem eventos.
+     * </p>
+     *
+     * @return o publicador
+     */
+    public GameEventPublisher getEvents() {
+        if (events == null) {
+            board = getObservation();
+            events = new GameEventPublisher(() -> new Observation(board));
+        }
+        return events;
+    }
+
+    /**
+     * Constrói o tabuleiro visto pelo atacante a partir do histórico de disparos (ver também
+     * {@link FogOfWarView}, para o enviar a clientes remotos).
+     *
+     * @return um novo {@link Observation} com os tiros deste jogo
+     */
+    public Observation getObservation() {
+        Deque<Move> moves = new ArrayDeque<>();
+        for (Move m = head; m != null; m = m.parent)
+            if (m.result != ShotResult.INVALID && m.result != ShotResult.REPEATED
+                    && Observation.isInside(m.pos.getRow(), m.pos.getColumn()))
+                moves.push(m);
+        Observation view = new Observation();
+        for (Move m : moves)
+            view.record(m.pos, m.result.isHit(), m.result == ShotResult.SUNK ? m.ship : null);
+        return view;
+    }
+
+    /**
+     * Aplica um disparo ao jogo e à frota, sem o registar no histórico (ver {@link #fire(IPosition)}).
+     *
+     * @param pos posição alvo do disparo
+     * @return o navio atingido por este tiro, ou {@code null} se o tiro não atingiu nenhum navio
+     */
+    private IShip shoot(IPosition pos) {
+        if (!validShot(pos)) {
             countInvalidShots++;
-        else { // valid shot!
+            lastResult = ShotResult.INVALID;
+        } else { // valid shot!
                 //tiro válido
-            if (repeatedShot(pos))
+            if (repeatedShot(pos)) {
                 countRepeatedShots++;
-            else {
+                lastResult = ShotResult.REPEATED;
+            } else {
                 shots.add(pos);
+                lastResult = ShotResult.MISS;
                 IShip s = fleet.shipAt(pos);
                 if (s != null) {
                     s.shoot(pos);
                     countHits++;
+                    lastResult = ShotResult.HIT;
                     if (!s.stillFloating()) {
                         countSinks++;
-                        return s;
+                        lastResult = ShotResult.SUNK;
                     }
+                    updateHash(pos, s);
+                    return s;
                 }
+                updateHash(pos, null);
             }
         }
         return null;
@@ -113,9 +325,166 @@ public class Game implements IGame {
      */
     @Override
     public List<IPosition> getShots() {
+        if (shots == null) {
+            shots = new ArrayList<>();
+            for (Move m = head; m != null; m = m.parent)
+                if (m.result != ShotResult.INVALID && m.result != ShotResult.REPEATED)
+                    shots.add(m.pos);
+            Collections.reverse(shots);
+        }
         return shots;
     }
 
+    /**
+     * Devolve o hash de Zobrist do tabuleiro tal como é visto pelo atacante: água, acertos e navios
+     * afundados (ver {@link Zobrist}). O hash é atualizado em cada disparo, coincide com o de
+     * {@link Observation#getHash()} para os mesmos tiros e não depende da ordem dos tiros.
+     * Tiros fora do tabuleiro não alteram o hash.
+     *
+     * @return o hash de 64 bits
+     */
+    public long getObservationHash() {
+        return hash;
+    }
+
+    /**
+     * Atualiza o hash de Zobrist (e o tabuleiro dos eventos, se existir) com o resultado de um tiro
+     * válido e não repetido.
+     *
+     * @param pos  posição alvejada
+     * @param ship navio atingido, ou {@code null} se o tiro foi na água
+     */
+    private void updateHash(IPosition pos, IShip ship) {
+        if (!Observation.isInside(pos.getRow(), pos.getColumn()))
+            return;
+        int cell = Observation.cell(pos);
+        if (board != null)
+            board.record(pos, ship != null, ship != null && !ship.stillFloating() ? ship : null);
+        if (ship == null) {
+            hash ^= Zobrist.key(cell, CellState.MISS);
+        } else if (ship.stillFloating()) {
+            hash ^= Zobrist.key(cell, CellState.HIT);
+        } else {
+            hash ^= Zobrist.key(cell, CellState.SUNK);
+            for (IPosition p : ship.getPositions())
+                if (!p.equals(pos))
+                    hash ^= Zobrist.change(Observation.cell(p), CellState.HIT, CellState.SUNK);
+        }
+    }
+
+    /**
+     * Desfaz o último disparo: repõe os contadores, o histórico de tiros e o estado do navio atingido.
+     *
+     * @return {@code true} se foi desfeito um disparo; {@code false} se não havia disparos a desfazer
+     */
+    public boolean undo() {
+        if (head == null)
+            return false;
+        sync();
+        Move m = head;
+        m.unapply();
+        switch (m.result) {
+            case INVALID:
+                countInvalidShots--;
+                break;
+            case REPEATED:
+                countRepeatedShots--;
+                break;
+            case SUNK:
+                countSinks--;
+                // fall through
+            case HIT:
+                countHits--;
+                // fall through
+            default:
+                if (shots != null)
+                    shots.remove(shots.size() - 1);
+        }
+        hash ^= m.hashChange;
+        if (board != null && m.result != ShotResult.INVALID && m.result != ShotResult.REPEATED
+                && Observation.isInside(m.pos.getRow(), m.pos.getColumn()))
+            board.unrecord(m.pos, m.result == ShotResult.SUNK ? m.ship : null);
+        head = m.parent;
+        checkout.applied = head;
+        lastResult = head == null ? null : head.result;
+        undone.push(m);
+        return true;
+    }
+
+    /**
+     * Refaz o último disparo desfeito por {@link #undo()}. Um novo disparo descarta os disparos
+     * que havia para refazer.
+     *
+     * @return {@code true} se foi refeito um disparo; {@code false} se não havia disparos a refazer
+     */
+    public boolean redo() {
+        if (undone.isEmpty())
+            return false;
+        sync();
+        Move m = undone.pop();
+        shoot(m.pos);
+        assert lastResult == m.result;
+        head = m;
+        checkout.applied = head;
+        return true;
+    }
+
+    /**
+     * Cria um ramo deste jogo: um jogo com o mesmo estado, que pode continuar de forma independente.
+     * <p>
+     * O ramo partilha a frota e o histórico com este jogo, pelo que a sua criação não copia navios
+     * nem posições. Os disparos por refazer não passam para o ramo.
+     * </p>
+     *
+     * @return o novo ramo
+     */
+    public Game fork() {
+        return new Game(this);
+    }
+
+    /**
+     * Acerta o estado dos navios da frota com o histórico deste jogo, desfazendo as jogadas de outro
+     * ramo e reaplicando as deste até ao antecessor comum.
+     */
+    private void sync() {
+        Move from = checkout.applied;
+        if (from == head)
+            return;
+        int fromDepth = from == null ? 0 : from.depth;
+        int toDepth = head == null ? 0 : head.depth;
+        Deque<Move> redoPath = new ArrayDeque<>();
+        Move to = head;
+        while (fromDepth > toDepth) {
+            from.unapply();
+            from = from.parent;
+            fromDepth--;
+        }
+        while (toDepth > fromDepth) {
+            redoPath.push(to);
+            to = to.parent;
+            toDepth--;
+        }
+        while (from != to) {
+            from.unapply();
+            from = from.parent;
+            redoPath.push(to);
+            to = to.parent;
+        }
+        while (!redoPath.isEmpty())
+            redoPath.pop().apply();
+        checkout.applied = head;
+    }
+
+    /**
+     * Devolve o resultado do último disparo efetuado.
+     *
+     * @return o resultado do último disparo, ou {@code null} se ainda não foi efetuado nenhum
+     */
+    @Override
+    public ShotResult getLastResult() {
+        return lastResult;
+    }
+
     /**
      * Devolve o número de tiros repetidos efetuados.
      *
@@ -163,6 +532,7 @@ public class Game implements IGame {
      */
     @Override
     public int getRemainingShips() {
+        sync();
         List<IShip> floatingShips = fleet.getFloatingShips();
         return floatingShips.size();
     }
@@ -174,17 +544,19 @@ public class Game implements IGame {
      * @return {@code true} se estiver dentro dos limites do tabuleiro; {@code false} caso contrário
      */
     private boolean validShot(IPosition pos) {
-        return (pos.getRow() >= 0 && pos.getRow() <= Fleet.BOARD_SIZE && pos.getColumn() >= 0
-                && pos.getColumn() <= Fleet.BOARD_SIZE);
+        return (pos.getRow() >= 0 && pos.getRow() < Fleet.BOARD_SIZE && pos.getColumn() >= 0
+                && pos.getColumn() < Fleet.BOARD_SIZE);
     }
 
     /**
      * Verifica se um tiro para a posição indicada já foi efetuado anteriormente.
+     * Garante também que a lista de tiros ({@link #shots}) está atualizada.
      *
      * @param pos posição a verificar
      * @return {@code true} se o tiro já existir no histórico; {@code false} caso contrário
      */
     private boolean repeatedShot(IPosition pos) {
+        List<IPosition> shots = getShots();
         for (int i = 0; i < shots.size(); i++)
             if (shots.get(i).equals(pos))
                 return true;
@@ -192,12 +564,49 @@ public class Game implements IGame {
     }
 
     /**
-     * Imprime uma representação do tabuleiro no output standard, marcando um conjunto de posições.
+     * Devolve o mapa de calor onde são registados os disparos deste jogo.
+     *
+     * @return o mapa, ou {@code null} se os disparos não forem registados
+     */
+    public ShotHeatmap getHeatmap() {
+        return heatmap;
+    }
+
+    /**
+     * Define o mapa de calor onde são registados os disparos feitos a partir de agora (por omissão,
+     * {@link ShotHeatmap#getDefault()}). Desfazer e refazer disparos não altera o mapa, e os ramos
+     * ({@link #fork()}) não registam os seus disparos.
+     *
+     * @param heatmap mapa, ou {@code null} para não registar os disparos
+     */
+    public void setHeatmap(ShotHeatmap heatmap) {
+        this.heatmap = heatmap;
+    }
+
+    @Override
+    public IOutputSink getOutput() {
+        return output;
+    }
+
+    @Override
+    public void setOutput(IOutputSink out) {
+        assert out != null;
+        output = out;
+    }
+
+    /**
+     * Imprime uma representação do tabuleiro no destino do jogo, marcando um conjunto de posições.
+     * <p>
+     * O tabuleiro é composto num único bloco de texto e escrito de uma só vez; se o destino não
+     * estiver ativo ({@link IOutputSink#isEnabled()}), não é composto.
+     * </p>
      *
      * @param positions posições a marcar no tabuleiro
      * @param marker carácter usado para marcar as posições fornecidas
      */
     public void printBoard(List<IPosition> positions, Character marker) {
+        if (!output.isEnabled())
+            return;
         char[][] map = new char[Fleet.BOARD_SIZE][Fleet.BOARD_SIZE];
 
         for (int r = 0; r < Fleet.BOARD_SIZE; r++)
@@ -207,24 +616,40 @@ public class Game implements IGame {
         for (IPosition pos : positions)
             map[pos.getRow()][pos.getColumn()] = marker;
 
-        for (int row = 0; row < Fleet.BOARD_SIZE; row++) {
-            for (int col = 0; col < Fleet.BOARD_SIZE; col++)
-                System.out.print(map[row][col]);
-            System.out.println();
-        }
+        printBoard(map, output);
+    }
+
+    /**
+     * Imprime um tabuleiro já preenchido, uma linha de texto por linha do tabuleiro, num único bloco.
+     *
+     * @param map símbolo de cada célula, por linha e coluna
+     * @param out destino
+     */
+    static void printBoard(char[][] map, IOutputSink out) {
+        String nl = System.lineSeparator();
+        StringBuilder board = new StringBuilder(map.length * (map.length + nl.length()));
+        for (char[] row : map)
+            board.append(row).append(nl);
+        out.print(board);
     }
 
     /**
      * Imprime o tabuleiro, mostrando os tiros válidos já efetuados.
      */
+    @Override
     public void printValidShots() {
-        printBoard(getShots(), 'X');
+        if (output.isEnabled())
+            printBoard(getShots(), 'X');
     }
 
     /**
      * Imprime o tabuleiro, mostrando todas as posições ocupadas pela frota.
      */
+    @Override
     public void printFleet() {
+        if (!output.isEnabled())
+            return;
+        sync();
         List<IPosition> shipPositions = new ArrayList<IPosition>();
 
         for (IShip s : fleet.getShips())
@@ -0,0 +1,412 @@
+package iscteiul.ista.battleship;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Armazém fora do heap para um grande número de jogos em simultâneo.
+ * <p>
+ * Um {@link Game} normal ocupa centenas de objetos (frota, navios, listas de posições e de tiros).
+ * Aqui, cada jogo ocupa uma <em>ranhura</em> de {@link #SLOT_BYTES} bytes num {@link ByteBuffer}
+ * direto, com o seguinte conteúdo:
+ * </p>
+ * <ul>
+ *   <li>plano de tiros e plano de ocupação (uma máscara de 100 bits cada);</li>
+ *   <li>para cada célula, o índice do navio que a ocupa;</li>
+ *   <li>cada navio codificado num {@code int} (forma e posição inicial) e o número de células ainda intactas;</li>
+ *   <li>os contadores do jogo (tiros inválidos, repetidos, acertos, afundamentos e resultado do último tiro).</li>
+ * </ul>
+ *
+ * <p>
+ * Os buffers são reservados em blocos de {@code 2^16} ranhuras, à medida que são necessários, pelo que o
+ * estado dos jogos não gera trabalho para o coletor de lixo. Para manter 10 milhões de jogos (cerca de 2 GB)
+ * é preciso aumentar o limite de memória direta da JVM ({@code -XX:MaxDirectMemorySize}).
+ * </p>
+ *
+ * <p>
+ * As regras são as de {@link Fleet#addShip(IShip)} e {@link Game#fire(IPosition)}: um tiro só é
+ * válido se estiver dentro do tabuleiro ({@code 0 <= linha, coluna < BOARD_SIZE}).
+ * A reserva e libertação de ranhuras é segura entre threads; as operações sobre uma ranhura não são,
+ * e cada jogo deve ser manipulado por uma só thread de cada vez (tal como um {@link Game}).
+ * </p>
+ *
+ * <p>
+ * As classes {@link ArenaGame} e {@link ArenaFleet} permitem usar uma ranhura através das interfaces
+ * {@link IGame} e {@link IFleet}.
+ * </p>
+ */
+public class GameArena {
+
+    /**
+     * Número máximo de navios por jogo (o limite de {@link Fleet#addShip(IShip)}).
+     */
+    public static final int MAX_SHIPS = Fleet.FLEET_SIZE + 1;
+
+    /**
+     * Número de bytes ocupados por cada jogo.
+     */
+    public static final int SLOT_BYTES = 200;
+
+    private static final int SHOTS = 0;
+    private static final int OCCUPIED = 16;
+    private static final int SHIP_AT = 32;
+    private static final int SHIPS = SHIP_AT + Observation.CELLS;
+    private static final int REMAINING = SHIPS + 4 * MAX_SHIPS;
+    private static final int SHIP_COUNT = REMAINING + MAX_SHIPS;
+    private static final int HITS = SHIP_COUNT + 1;
+    private static final int SUNK = HITS + 1;
+    private static final int LAST_RESULT = SUNK + 1;
+    private static final int INVALID = 192;
+    private static final int REPEATED = 196;
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    private static final ShotResult[] RESULTS = ShotResult.values();
+
+    private final int capacity;
+    private final ByteBuffer[] chunks;
+
+    /**
+     * Próxima ranhura nunca usada.
+     */
+    private int next;
+
+    /**
+     * Primeira ranhura da lista de ranhuras libertadas, ou -1. Cada ranhura libertada guarda,
+     * nos seus primeiros bytes, a seguinte da lista.
+     */
+    private int freeHead = -1;
+
+    private int live;
+
+    /**
+     * Constrói um armazém com a capacidade indicada. A memória só é reservada quando necessária.
+     *
+     * @param capacity número máximo de jogos em simultâneo
+     */
+    public GameArena(int capacity) {
+        assert capacity > 0;
+
+        this.capacity = capacity;
+        chunks = new ByteBuffer[((capacity - 1) >>> CHUNK_BITS) + 1];
+    }
+
+    /**
+     * Devolve o número máximo de jogos em simultâneo.
+     *
+     * @return a capacidade do armazém
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Devolve o número de ranhuras atualmente reservadas.
+     *
+     * @return número de jogos vivos
+     */
+    public synchronized int size() {
+        return live;
+    }
+
+    /**
+     * Reserva uma ranhura para um jogo novo, sem navios nem tiros.
+     *
+     * @return o índice da ranhura
+     * @throws IllegalStateException se o armazém estiver cheio
+     */
+    public synchronized int allocate() {
+        int slot;
+        if (freeHead >= 0) {
+            slot = freeHead;
+            freeHead = buffer(slot).getInt(base(slot));
+        } else {
+            if (next == capacity)
+                throw new IllegalStateException("Armazém de jogos cheio: " + capacity);
+            slot = next++;
+            if (chunks[slot >>> CHUNK_BITS] == null) {
+                int slots = Math.min(1 << CHUNK_BITS, capacity - (slot & ~CHUNK_MASK));
+                chunks[slot >>> CHUNK_BITS] = ByteBuffer.allocateDirect(slots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+            }
+        }
+        live++;
+        reset(slot);
+        return slot;
+    }
+
+    /**
+     * Liberta uma ranhura, que poderá ser devolvida por {@link #allocate()}.
+     *
+     * @param slot ranhura a libertar (não deve voltar a ser usada)
+     */
+    public synchronized void release(int slot) {
+        buffer(slot).putInt(base(slot), freeHead);
+        freeHead = slot;
+        live--;
+    }
+
+    /**
+     * Apaga o conteúdo de uma ranhura: sem navios, sem tiros e com os contadores a zero.
+     *
+     * @param slot ranhura
+     */
+    public void reset(int slot) {
+        ByteBuffer b = buffer(slot);
+        int base = base(slot);
+        for (int i = 0; i < SLOT_BYTES; i += 8)
+            b.putLong(base + i, 0L);
+    }
+
+    /**
+     * Reserva uma ranhura e copia para ela a disposição (sem danos) de uma frota.
+     *
+     * @param fleet frota a copiar
+     * @return o índice da ranhura
+     * @throws IllegalArgumentException se a frota não respeitar as regras de {@link Fleet#addShip(IShip)}
+     */
+    public int allocate(IFleet fleet) {
+        int slot = allocate();
+        for (IShip s : fleet.getShips())
+            if (!addShip(slot, s.getCategory().toLowerCase(), s.getBearing(), s.getPosition().getRow(),
+                    s.getPosition().getColumn())) {
+                release(slot);
+                throw new IllegalArgumentException("Frota ilegal: " + s);
+            }
+        return slot;
+    }
+
+    /**
+     * Acrescenta um navio ao jogo de uma ranhura, com as regras de {@link Fleet#addShip(IShip)}.
+     *
+     * @param slot     ranhura
+     * @param shipKind tipo de navio (ex: {@code "galeao"})
+     * @param bearing  orientação
+     * @param row      linha da posição inicial
+     * @param column   coluna da posição inicial
+     * @return {@code true} se o navio foi acrescentado; {@code false} se for rejeitado
+     */
+    public boolean addShip(int slot, String shipKind, Compass bearing, int row, int column) {
+        int kind = ShipShapes.kindIndex(shipKind);
+        if (kind < 0)
+            return false;
+        int shape = ShipShapes.shapeIndex(kind, bearing);
+        ByteBuffer b = buffer(slot);
+        int base = base(slot);
+        int count = b.get(base + SHIP_COUNT);
+        if (count >= MAX_SHIPS || !ShipShapes.fits(shape, row, column))
+            return false;
+        int sameKind = 0;
+        for (int i = 0; i < count; i++)
+            if (ShipShapes.shape(b.getInt(base + SHIPS + 4 * i)) / ShipShapes.BEARINGS.length == kind)
+                sameKind++;
+        if (sameKind >= ShipShapes.CATEGORIES[kind].getLimit())
+            return false;
+
+        int[][] offsets = ShipShapes.offsets(shape);
+        for (int[] o : offsets)
+            for (int dr = -1; dr <= 1; dr++)
+                for (int dc = -1; dc <= 1; dc++) {
+                    int r = row + o[0] + dr;
+                    int c = column + o[1] + dc;
+                    if (Observation.isInside(r, c) && b.get(base + SHIP_AT + Observation.cell(r, c)) != 0)
+                        return false;
+                }
+
+        for (int[] o : offsets) {
+            int cell = Observation.cell(row + o[0], column + o[1]);
+            b.put(base + SHIP_AT + cell, (byte) (count + 1));
+            int word = base + OCCUPIED + 8 * (cell >>> 6);
+            b.putLong(word, b.getLong(word) | 1L << cell);
+        }
+        b.putInt(base + SHIPS + 4 * count, ShipShapes.pack(shape, Observation.cell(row, column)));
+        b.put(base + REMAINING + count, (byte) offsets.length);
+        b.put(base + SHIP_COUNT, (byte) (count + 1));
+        return true;
+    }
+
+    /**
+     * Efetua um disparo no jogo de uma ranhura, com as regras de {@link Game#fire(IPosition)}.
+     *
+     * @param slot   ranhura
+     * @param row    linha do alvo
+     * @param column coluna do alvo
+     * @return o resultado do disparo
+     */
+    public ShotResult fire(int slot, int row, int column) {
+        ByteBuffer b = buffer(slot);
+        int base = base(slot);
+        ShotResult result;
+        if (!Observation.isInside(row, column)) {
+            b.putInt(base + INVALID, b.getInt(base + INVALID) + 1);
+            result = ShotResult.INVALID;
+        } else {
+            int cell = Observation.cell(row, column);
+            int word = base + SHOTS + 8 * (cell >>> 6);
+            long shots = b.getLong(word);
+            if ((shots & 1L << cell) != 0) {
+                b.putInt(base + REPEATED, b.getInt(base + REPEATED) + 1);
+                result = ShotResult.REPEATED;
+            } else {
+                b.putLong(word, shots | 1L << cell);
+                int ship = b.get(base + SHIP_AT + cell) - 1;
+                if (ship < 0) {
+                    result = ShotResult.MISS;
+                } else {
+                    b.put(base + HITS, (byte) (b.get(base + HITS) + 1));
+                    int remaining = b.get(base + REMAINING + ship) - 1;
+                    b.put(base + REMAINING + ship, (byte) remaining);
+                    if (remaining == 0) {
+                        b.put(base + SUNK, (byte) (b.get(base + SUNK) + 1));
+                        result = ShotResult.SUNK;
+                    } else {
+                        result = ShotResult.HIT;
+                    }
+                }
+            }
+        }
+        b.put(base + LAST_RESULT, (byte) (result.ordinal() + 1));
+        return result;
+    }
+
+    /**
+     * Devolve o resultado do último disparo efetuado no jogo de uma ranhura.
+     *
+     * @param slot ranhura
+     * @return o resultado, ou {@code null} se ainda não foi efetuado nenhum disparo
+     */
+    public ShotResult getLastResult(int slot) {
+        int r = buffer(slot).get(base(slot) + LAST_RESULT);
+        return r == 0 ? null : RESULTS[r - 1];
+    }
+
+    /**
+     * Devolve o número de tiros inválidos.
+     *
+     * @param slot ranhura
+     * @return número de tiros inválidos
+     */
+    public int getInvalidShots(int slot) {
+        return buffer(slot).getInt(base(slot) + INVALID);
+    }
+
+    /**
+     * Devolve o número de tiros repetidos.
+     *
+     * @param slot ranhura
+     * @return número de tiros repetidos
+     */
+    public int getRepeatedShots(int slot) {
+        return buffer(slot).getInt(base(slot) + REPEATED);
+    }
+
+    /**
+     * Devolve o número de acertos.
+     *
+     * @param slot ranhura
+     * @return número de acertos
+     */
+    public int getHits(int slot) {
+        return buffer(slot).get(base(slot) + HITS);
+    }
+
+    /**
+     * Devolve o número de navios afundados.
+     *
+     * @param slot ranhura
+     * @return número de navios afundados
+     */
+    public int getSunkShips(int slot) {
+        return buffer(slot).get(base(slot) + SUNK);
+    }
+
+    /**
+     * Devolve o número de navios do jogo.
+     *
+     * @param slot ranhura
+     * @return número de navios
+     */
+    public int getShipCount(int slot) {
+        return buffer(slot).get(base(slot) + SHIP_COUNT);
+    }
+
+    /**
+     * Devolve o número de navios ainda a flutuar.
+     *
+     * @param slot ranhura
+     * @return número de navios restantes
+     */
+    public int getRemainingShips(int slot) {
+        return getShipCount(slot) - getSunkShips(slot);
+    }
+
+    /**
+     * Indica se uma célula já foi alvo de um tiro válido.
+     *
+     * @param slot ranhura
+     * @param cell índice da célula ({@code linha * BOARD_SIZE + coluna})
+     * @return {@code true} se a célula já foi atingida por um tiro
+     */
+    public boolean isShot(int slot, int cell) {
+        return (buffer(slot).getLong(base(slot) + SHOTS + 8 * (cell >>> 6)) & 1L << cell) != 0;
+    }
+
+    /**
+     * Indica se uma célula está ocupada por um navio.
+     *
+     * @param slot ranhura
+     * @param cell índice da célula ({@code linha * BOARD_SIZE + coluna})
+     * @return {@code true} se a célula estiver ocupada
+     */
+    public boolean isOccupied(int slot, int cell) {
+        return (buffer(slot).getLong(base(slot) + OCCUPIED + 8 * (cell >>> 6)) & 1L << cell) != 0;
+    }
+
+    /**
+     * Devolve o índice do navio que ocupa uma célula.
+     *
+     * @param slot ranhura
+     * @param cell índice da célula ({@code linha * BOARD_SIZE + coluna})
+     * @return o índice do navio (pela ordem de inserção), ou -1 se a célula estiver vazia
+     */
+    public int shipIndexAt(int slot, int cell) {
+        return buffer(slot).get(base(slot) + SHIP_AT + cell) - 1;
+    }
+
+    /**
+     * Constrói um navio (objeto normal, no heap) igual ao navio indicado de uma ranhura, incluindo
+     * os tiros que já sofreu.
+     *
+     * @param slot  ranhura
+     * @param index índice do navio, pela ordem de inserção
+     * @return o navio
+     */
+    public Ship toShip(int slot, int index) {
+        Ship s = ShipShapes.toShip(buffer(slot).getInt(base(slot) + SHIPS + 4 * index));
+        for (IPosition p : s.getPositions())
+            if (isShot(slot, Observation.cell(p)))
+                s.shoot(p);
+        return s;
+    }
+
+    /**
+     * Constrói uma frota (objeto normal, no heap) com os navios de uma ranhura e os danos que sofreram.
+     *
+     * @param slot ranhura
+     * @return a frota
+     */
+    public Fleet toFleet(int slot) {
+        Fleet fleet = new Fleet();
+        for (int i = 0, n = getShipCount(slot); i < n; i++)
+            fleet.addShip(toShip(slot, i));
+        return fleet;
+    }
+
+    private ByteBuffer buffer(int slot) {
+        return chunks[slot >>> CHUNK_BITS];
+    }
+
+    private static int base(int slot) {
+        return (slot & CHUNK_MASK) * SLOT_BYTES;
+    }
+}
@@ -0,0 +1,150 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Evento publicado por um jogo ou por uma frota em construção (ver {@link GameEventPublisher}).
+ * <p>
+ * Os eventos são imutáveis e partilhados por todos os subscritores; o tabuleiro de um evento
+ * {@link Type#BOARD} também é partilhado e não deve ser alterado.
+ * </p>
+ */
+public final class GameEvent {
+
+    /**
+     * Tipo de evento.
+     * <ul>
+     * <li><strong>SHOT</strong>: tiro na água, repetido ou inválido ({@link GameEvent#getResult()})</li>
+     * <li><strong>HIT</strong>: tiro que acertou num navio sem o afundar</li>
+     * <li><strong>SUNK</strong>: tiro que afundou um navio ({@link GameEvent#getShip()})</li>
+     * <li><strong>GAME_OVER</strong>: todos os navios foram afundados</li>
+     * <li><strong>BOARD</strong>: retrato do tabuleiro, que substitui eventos descartados
+     * ({@link OverflowPolicy#LATEST})</li>
+     * <li><strong>SHIP_ADDED</strong>: navio acrescentado à frota</li>
+     * <li><strong>SHIP_REJECTED</strong>: navio rejeitado pela frota ({@link GameEvent#getReason()})</li>
+     * </ul>
+     */
+    public enum Type {
+        SHOT,
+        HIT,
+        SUNK,
+        GAME_OVER,
+        BOARD,
+        SHIP_ADDED,
+        SHIP_REJECTED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final IPosition position;
+    private final ShotResult result;
+    private final IShip ship;
+    private final RejectionReason reason;
+    private final Observation board;
+
+    GameEvent(long sequence, Type type, IPosition position, ShotResult result, IShip ship, RejectionReason reason,
+            Observation board) {
+        this.sequence = sequence;
+        this.type = type;
+        this.position = position;
+        this.result = result;
+        this.ship = ship;
+        this.reason = reason;
+        this.board = board;
+    }
+
+    /**
+     * Cria o evento de um disparo.
+     *
+     * @param sequence número de ordem do evento
+     * @param pos      posição alvejada
+     * @param result   resultado do disparo
+     * @param ship     navio afundado, ou {@code null}
+     * @return o evento
+     */
+    static GameEvent shot(long sequence, IPosition pos, ShotResult result, IShip ship) {
+        Type type = result == ShotResult.SUNK ? Type.SUNK : result == ShotResult.HIT ? Type.HIT : Type.SHOT;
+        return new GameEvent(sequence, type, pos, result, ship, null, null);
+    }
+
+    /**
+     * Devolve o número de ordem do evento na sua fonte (a partir de 1, sem falhas).
+     * Um subscritor pode detetar eventos descartados pelas falhas na numeração.
+     *
+     * @return o número de ordem
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Devolve o tipo de evento.
+     *
+     * @return o tipo
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Devolve a posição do tiro ou do navio.
+     *
+     * @return a posição, ou {@code null} nos eventos sem posição
+     */
+    public IPosition getPosition() {
+        return position;
+    }
+
+    /**
+     * Devolve o resultado do tiro.
+     *
+     * @return o resultado, ou {@code null} nos eventos que não são tiros
+     */
+    public ShotResult getResult() {
+        return result;
+    }
+
+    /**
+     * Devolve o navio afundado, acrescentado ou rejeitado.
+     *
+     * @return o navio, ou {@code null}
+     */
+    public IShip getShip() {
+        return ship;
+    }
+
+    /**
+     * Devolve o motivo da rejeição de um navio.
+     *
+     * @return o motivo, ou {@code null} se o evento não for {@link Type#SHIP_REJECTED}
+     */
+    public RejectionReason getReason() {
+        return reason;
+    }
+
+    /**
+     * Devolve o retrato do tabuleiro, tal como é visto pelo atacante.
+     *
+     * @return o tabuleiro, ou {@code null} se o evento não for {@link Type#BOARD}
+     */
+    public Observation getBoard() {
+        return board;
+    }
+
+    /**
+     * Retorna uma descrição do evento.
+     *
+     * @return uma string com o número de ordem, o tipo e os dados do evento
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("#").append(sequence).append(' ').append(type);
+        if (position != null)
+            sb.append(' ').append(position);
+        if (result != null && type == Type.SHOT)
+            sb.append(' ').append(result);
+        if (ship != null)
+            sb.append(' ').append(ship.getCategory());
+        if (reason != null)
+            sb.append(' ').append(reason.getDescription());
+        return sb.toString();
+    }
+}
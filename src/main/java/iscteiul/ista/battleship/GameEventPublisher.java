@@ -0,0 +1,376 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Publicador dos eventos de um jogo ou de uma frota para qualquer número de subscritores
+ * ({@link Flow.Publisher}).
+ * <p>
+ * Cada subscritor tem o seu próprio buffer limitado e a sua política para quando o buffer enche
+ * ({@link OverflowPolicy}). A publicação apenas coloca o evento no buffer de cada subscritor; a entrega
+ * ({@link Flow.Subscriber#onNext(Object)}) é feita por um {@link Executor}, ao ritmo pedido por cada
+ * subscritor ({@link Flow.Subscription#request(long)}). Assim, com as políticas {@code DROP} e
+ * {@code LATEST}, um subscritor lento nunca atrasa quem publica: perde eventos, o que pode detetar pelas
+ * falhas nos números de ordem ({@link GameEvent#getSequence()}).
+ * </p>
+ *
+ * <p>
+ * Os eventos de uma fonte devem ser publicados por uma thread de cada vez (a que usa o jogo ou a frota).
+ * A subscrição e o cancelamento podem ser feitos a partir de qualquer thread. A lista de subscritores
+ * é copiada apenas quando muda, pelo que a publicação não usa locks partilhados entre subscritores.
+ * </p>
+ */
+public class GameEventPublisher implements Flow.Publisher<GameEvent> {
+
+    private final Executor executor;
+    private final Supplier<Observation> board;
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private int defaultCapacity = Flow.defaultBufferSize();
+    private OverflowPolicy defaultPolicy = OverflowPolicy.DROP;
+    private long sequence;
+    private volatile boolean closed;
+
+    /**
+     * Constrói um publicador que entrega os eventos no {@link ForkJoinPool#commonPool()}.
+     *
+     * @param board fonte do retrato do tabuleiro para a política {@link OverflowPolicy#LATEST},
+     *              ou {@code null} se a fonte não tiver tabuleiro
+     */
+    public GameEventPublisher(Supplier<Observation> board) {
+        this(board, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constrói um publicador.
+     *
+     * @param board    fonte do retrato do tabuleiro para a política {@link OverflowPolicy#LATEST},
+     *                 ou {@code null} se a fonte não tiver tabuleiro
+     * @param executor executor onde os eventos são entregues aos subscritores
+     */
+    public GameEventPublisher(Supplier<Observation> board, Executor executor) {
+        this.board = board;
+        this.executor = executor;
+    }
+
+    /**
+     * Define o tamanho do buffer e a política usados por {@link #subscribe(Flow.Subscriber)}.
+     *
+     * @param capacity tamanho do buffer de cada subscritor
+     * @param policy   política para quando o buffer está cheio
+     * @return este publicador
+     */
+    public GameEventPublisher setDefaults(int capacity, OverflowPolicy policy) {
+        assert capacity > 0 && policy != null;
+        defaultCapacity = capacity;
+        defaultPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Acrescenta um subscritor, com o buffer e a política por omissão.
+     *
+     * @param subscriber subscritor
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super GameEvent> subscriber) {
+        subscribe(subscriber, defaultCapacity, defaultPolicy);
+    }
+
+    /**
+     * Acrescenta um subscritor.
+     *
+     * @param subscriber subscritor
+     * @param capacity   tamanho do buffer do subscritor
+     * @param policy     política para quando o buffer está cheio
+     * @return a subscrição (a mesma entregue em {@link Flow.Subscriber#onSubscribe(Flow.Subscription)})
+     */
+    public Flow.Subscription subscribe(Flow.Subscriber<? super GameEvent> subscriber, int capacity,
+            OverflowPolicy policy) {
+        if (capacity <= 0 || policy == null)
+            throw new IllegalArgumentException("Buffer ou política inválidos");
+        EventSubscription s = new EventSubscription(subscriber, capacity, policy);
+        subscriber.onSubscribe(s);
+        subscriptions.add(s);
+        if (closed) {
+            subscriptions.remove(s);
+            s.complete();
+        }
+        return s;
+    }
+
+    /**
+     * Indica se há subscritores. A fonte pode usar este método para não construir eventos sem destinatário.
+     *
+     * @return {@code true} se houver pelo menos um subscritor
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Devolve o número de subscritores.
+     *
+     * @return número de subscritores
+     */
+    public int getSubscribers() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Devolve o número de ordem do último evento publicado.
+     *
+     * @return o número de ordem, ou 0 se ainda não foi publicado nenhum evento
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Devolve o número de ordem do próximo evento, a usar na sua construção.
+     *
+     * @return o número de ordem
+     */
+    long nextSequence() {
+        return ++sequence;
+    }
+
+    /**
+     * Publica um evento para todos os subscritores.
+     *
+     * @param event evento, com o número de ordem dado por {@link #nextSequence()}
+     */
+    void publish(GameEvent event) {
+        GameEvent snapshot = null;
+        for (EventSubscription s : subscriptions) {
+            if (s.offer(event))
+                continue;
+            if (snapshot == null && board != null)
+                snapshot = new GameEvent(event.getSequence(), GameEvent.Type.BOARD, null, null, null, null,
+                        board.get());
+            s.coalesce(snapshot, event);
+        }
+    }
+
+    /**
+     * Indica se um evento é terminal (por exemplo, {@link GameEvent.Type#GAME_OVER}): estes eventos nunca
+     * são substituídos pelo retrato do tabuleiro nem descartados pela política {@link OverflowPolicy#LATEST}.
+     */
+    private static boolean isTerminal(GameEvent event) {
+        return event.getType() == GameEvent.Type.GAME_OVER;
+    }
+
+    /**
+     * Publica um evento sem dados além do tipo (por exemplo, {@link GameEvent.Type#GAME_OVER}).
+     *
+     * @param type tipo do evento
+     */
+    void publish(GameEvent.Type type) {
+        publish(new GameEvent(nextSequence(), type, null, null, null, null, null));
+    }
+
+    /**
+     * Termina a publicação: cada subscritor recebe os eventos pendentes e depois
+     * {@link Flow.Subscriber#onComplete()}.
+     */
+    public void close() {
+        closed = true;
+        for (EventSubscription s : subscriptions)
+            s.complete();
+        subscriptions.clear();
+    }
+
+    /**
+     * Subscrição de um subscritor, com o seu buffer. O buffer e a procura são protegidos pelo monitor
+     * da própria subscrição; a entrega é serializada por um contador de trabalho pendente.
+     */
+    private final class EventSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super GameEvent> subscriber;
+        private final int capacity;
+        private final OverflowPolicy policy;
+        private final ArrayDeque<GameEvent> buffer;
+        private final AtomicInteger pending = new AtomicInteger();
+        private long demand;
+        private long dropped;
+        private boolean cancelled;
+        private boolean completing;
+        private boolean done;
+        private Throwable error;
+
+        EventSubscription(Flow.Subscriber<? super GameEvent> subscriber, int capacity, OverflowPolicy policy) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.policy = policy;
+            buffer = new ArrayDeque<>(Math.min(capacity, 64));
+        }
+
+        /**
+         * Coloca um evento no buffer. Com a política {@link OverflowPolicy#LATEST}, os eventos terminais
+         * entram sempre, mesmo que o buffer fique acima da capacidade.
+         *
+         * @return {@code false} se o buffer estiver cheio e a política for {@link OverflowPolicy#LATEST}
+         */
+        boolean offer(GameEvent event) {
+            synchronized (this) {
+                if (cancelled)
+                    return true;
+                if (buffer.size() >= capacity && !(policy == OverflowPolicy.LATEST && isTerminal(event))) {
+                    switch (policy) {
+                        case LATEST:
+                            return false;
+                        case BLOCK:
+                            if (!awaitSpace())
+                                return true;
+                            break;
+                        default:
+                            dropped++;
+                            return true;
+                    }
+                }
+                buffer.add(event);
+            }
+            signal();
+            return true;
+        }
+
+        /**
+         * Substitui os eventos pendentes pelo retrato do tabuleiro ou, sem retrato, descarta o mais antigo.
+         * Os eventos terminais pendentes nunca são descartados.
+         */
+        void coalesce(GameEvent snapshot, GameEvent event) {
+            synchronized (this) {
+                if (cancelled)
+                    return;
+                int before = buffer.size();
+                if (snapshot != null) {
+                    buffer.removeIf(e -> !isTerminal(e));
+                    buffer.add(snapshot);
+                } else {
+                    Iterator<GameEvent> it = buffer.iterator();
+                    while (it.hasNext())
+                        if (!isTerminal(it.next())) {
+                            it.remove();
+                            break;
+                        }
+                    buffer.add(event);
+                }
+                dropped += before + 1 - buffer.size();
+            }
+            signal();
+        }
+
+        private boolean awaitSpace() {
+            while (buffer.size() >= capacity && !cancelled) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped++;
+                    return false;
+                }
+            }
+            return !cancelled;
+        }
+
+        void complete() {
+            synchronized (this) {
+                completing = true;
+            }
+            signal();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    error = new IllegalArgumentException("Pedido de " + n + " eventos");
+                    cancelled = true;
+                    buffer.clear();
+                    notifyAll();
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            if (n <= 0)
+                subscriptions.remove(this);
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+                notifyAll();
+            }
+            subscriptions.remove(this);
+        }
+
+        private void signal() {
+            if (pending.getAndIncrement() == 0)
+                executor.execute(this::drain);
+        }
+
+        /**
+         * Entrega os eventos pedidos. Só uma execução de cada vez, por causa do contador de trabalho pendente.
+         */
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                while (true) {
+                    GameEvent event;
+                    synchronized (this) {
+                        if (done)
+                            return;
+                        if (error != null) {
+                            done = true;
+                            break;
+                        }
+                        if (cancelled) {
+                            done = true;
+                            return;
+                        }
+                        if (buffer.isEmpty() && completing) {
+                            done = true;
+                            break;
+                        }
+                        if (demand == 0 || buffer.isEmpty())
+                            break;
+                        event = buffer.poll();
+                        demand--;
+                        if (policy == OverflowPolicy.BLOCK)
+                            notifyAll();
+                    }
+                    try {
+                        subscriber.onNext(event);
+                    } catch (RuntimeException e) {
+                        cancel();
+                        return;
+                    }
+                }
+                if (done) {
+                    if (error != null)
+                        subscriber.onError(error);
+                    else
+                        subscriber.onComplete();
+                    return;
+                }
+                missed = pending.addAndGet(-missed);
+                if (missed == 0)
+                    return;
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return policy + " " + buffer.size() + "/" + capacity + " pendentes, " + dropped + " descartados";
+        }
+    }
+}
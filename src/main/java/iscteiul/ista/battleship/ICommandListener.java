@@ -0,0 +1,25 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Recebe uma notificação por cada comando processado pelos ciclos de comandos de {@link Tasks}.
+ * <p>
+ * Usado, por exemplo, pelo {@link SessionRunner} para medir a latência de cada comando.
+ * As notificações são entregues na thread que executa a sessão.
+ * </p>
+ */
+public interface ICommandListener {
+
+    /**
+     * Listener que ignora todas as notificações.
+     */
+    ICommandListener NONE = (command, nanos) -> {
+    };
+
+    /**
+     * Indica que um comando foi processado.
+     *
+     * @param command comando processado (ex: {@code "nova"}, {@code "rajada"})
+     * @param nanos   tempo de processamento do comando, incluindo a leitura dos seus argumentos, em nanossegundos
+     */
+    void commandExecuted(String command, long nanos);
+}
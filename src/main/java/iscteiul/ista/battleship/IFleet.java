@@ -49,7 +49,7 @@ public interface IFleet {
      * Devolve os navios da frota cuja categoria coincide com a categoria indicada.
      *
      * @param category categoria de navio (ex.: "Galeao", "Fragata", ...)
-     * @return lista de navios que pertencem à categoria indicada
+     * @return lista (eventualmente só de leitura) de navios que pertencem à categoria indicada
      */
     List<IShip> getShipsLike(String category);
 
@@ -69,7 +69,22 @@ public interface IFleet {
     IShip shipAt(IPosition pos);
 
     /**
-     * Imprime o estado atual da frota (por exemplo, lista de navios e/ou agrupamentos).
+     * Imprime o estado atual da frota (por exemplo, lista de navios e/ou agrupamentos), no destino
+     * da frota ({@link #getOutput()}).
      */
     void printStatus();
+
+    /**
+     * Devolve o destino onde são impressos o estado e as listas de navios desta frota.
+     *
+     * @return o destino (por omissão, {@link ConsoleOutput#INSTANCE})
+     */
+    IOutputSink getOutput();
+
+    /**
+     * Define o destino onde são impressos o estado e as listas de navios desta frota.
+     *
+     * @param out destino ({@link IOutputSink#NONE} para não imprimir nada)
+     */
+    void setOutput(IOutputSink out);
 }
\ No newline at end of file
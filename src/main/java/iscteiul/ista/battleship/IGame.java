@@ -31,6 +31,13 @@ public interface IGame {
      */
     List<IPosition> getShots();
 
+    /**
+     * Devolve o resultado do último disparo efetuado.
+     *
+     * @return o resultado do último disparo, ou {@code null} se ainda não foi efetuado nenhum
+     */
+    ShotResult getLastResult();
+
     /**
      * Devolve o número de disparos repetidos.
      *
@@ -67,12 +74,26 @@ public interface IGame {
     int getRemainingShips();
 
     /**
-     * Imprime o tabuleiro com os disparos válidos registados.
+     * Imprime o tabuleiro com os disparos válidos registados, no destino do jogo ({@link #getOutput()}).
      */
     void printValidShots();
 
     /**
-     * Imprime o tabuleiro com as posições ocupadas pela frota.
+     * Imprime o tabuleiro com as posições ocupadas pela frota, no destino do jogo ({@link #getOutput()}).
      */
     void printFleet();
+
+    /**
+     * Devolve o destino onde são impressos os tabuleiros deste jogo.
+     *
+     * @return o destino (por omissão, {@link ConsoleOutput#INSTANCE})
+     */
+    IOutputSink getOutput();
+
+    /**
+     * Define o destino onde são impressos os tabuleiros deste jogo.
+     *
+     * @param out destino ({@link IOutputSink#NONE} para não imprimir nada)
+     */
+    void setOutput(IOutputSink out);
 }
\ No newline at end of file
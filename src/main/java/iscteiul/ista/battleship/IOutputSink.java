@@ -0,0 +1,83 @@
+package iscteiul.ista.battleship;
+
+import org.apache.logging.log4j.message.ParameterizedMessage;
+
+/**
+ * Destino do texto escrito pelo jogo: tabuleiros, listas de navios e mensagens das tarefas.
+ * <p>
+ * Cada {@link Game}, {@link Fleet} e sessão de {@link Tasks} escreve no seu próprio destino
+ * ({@code setOutput}), em vez de escrever diretamente no output padrão. As implementações são:
+ * </p>
+ * <ul>
+ *   <li>{@link ConsoleOutput}: output padrão e logger, como nas tarefas interativas (por omissão);</li>
+ *   <li>{@link BufferedOutput}: acumula o texto e escreve-o noutro canal em blocos;</li>
+ *   <li>{@link MemoryOutput}: guarda o texto em memória, para ser consultado (por exemplo, nos testes);</li>
+ *   <li>{@link #NONE}: descarta tudo.</li>
+ * </ul>
+ *
+ * <p>
+ * Quem escreve deve consultar {@link #isEnabled()} antes de compor texto caro (um tabuleiro, o estado
+ * de uma frota), para que as simulações sem output não paguem a formatação.
+ * </p>
+ */
+public interface IOutputSink {
+
+    /**
+     * Destino que descarta todo o texto e indica que não está ativo.
+     */
+    IOutputSink NONE = new IOutputSink() {
+        @Override
+        public void print(CharSequence text) {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void info(String pattern, Object... args) {
+        }
+    };
+
+    /**
+     * Escreve texto, sem acrescentar uma mudança de linha.
+     *
+     * @param text texto a escrever
+     */
+    void print(CharSequence text);
+
+    /**
+     * Escreve uma linha de texto.
+     *
+     * @param line texto da linha, sem a mudança de linha
+     */
+    default void println(CharSequence line) {
+        print(line + System.lineSeparator());
+    }
+
+    /**
+     * Escreve uma mensagem, com parâmetros no formato do Log4j ({@code {}}).
+     *
+     * @param pattern padrão da mensagem
+     * @param args    parâmetros
+     */
+    default void info(String pattern, Object... args) {
+        println(ParameterizedMessage.format(pattern, args));
+    }
+
+    /**
+     * Indica se o texto escrito é usado. Se não for, quem escreve pode não o compor.
+     *
+     * @return {@code true} por omissão
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Escreve no destino final o texto que esteja retido. Por omissão não faz nada.
+     */
+    default void flush() {
+    }
+}
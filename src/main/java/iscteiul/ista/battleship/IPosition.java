@@ -67,6 +67,11 @@ public interface IPosition {
      */
     void shoot();
 
+    /**
+     * Anula um disparo nesta posição, marcando-a como não atingida.
+     */
+    void repair();
+
     /**
      * Indica se a posição está ocupada por um navio.
      *
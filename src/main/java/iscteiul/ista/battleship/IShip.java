@@ -136,4 +136,15 @@ public interface IShip {
      * @param pos posição alvejada
      */
     void shoot(IPosition pos);
+
+    /**
+     * Anula um disparo anterior na posição indicada (operação inversa de {@link #shoot(IPosition)}).
+     * <p>
+     * Se a posição pertencer ao navio, deverá deixar de estar marcada como atingida.
+     * Usado para desfazer jogadas (ver {@link Game#undo()}).
+     * </p>
+     *
+     * @param pos posição cujo disparo é anulado
+     */
+    void repair(IPosition pos);
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package iscteiul.ista.battleship;
+
+import java.util.List;
+
+/**
+ * Define um atirador: a estratégia que escolhe os alvos a disparar sobre a frota adversária.
+ * <p>
+ * Um atirador escolhe uma rajada de alvos ({@link #nextSalvo(int)}), recebe o resultado de
+ * cada disparo ({@link #observe(IPosition, ShotResult, IShip)}) e volta a escolher, até a
+ * frota adversária estar afundada. Dentro de uma rajada os alvos são escolhidos sem conhecer
+ * o resultado dos anteriores, tal como nas regras do jogo.
+ * </p>
+ *
+ * <p>
+ * Cada instância joga um jogo de cada vez; para jogar vários jogos em paralelo devem ser
+ * criadas várias instâncias.
+ * </p>
+ */
+public interface IShooter {
+
+    /**
+     * Devolve o nome da estratégia, usado nas tabelas de resultados.
+     *
+     * @return o nome da estratégia
+     */
+    String getName();
+
+    /**
+     * Prepara o atirador para um novo jogo, esquecendo o jogo anterior.
+     *
+     * @param seed semente para as escolhas aleatórias do atirador, o que torna o jogo reprodutível
+     */
+    void newGame(long seed);
+
+    /**
+     * Escolhe o próximo alvo, sem repetir alvos já disparados ou já escolhidos na rajada corrente.
+     *
+     * @return a posição a alvejar, ou {@code null} se não houver mais alvos possíveis
+     */
+    IPosition nextShot();
+
+    /**
+     * Escolhe uma rajada de alvos distintos.
+     *
+     * @param size número de disparos da rajada
+     * @return lista com, no máximo, {@code size} posições a alvejar
+     */
+    List<IPosition> nextSalvo(int size);
+
+    /**
+     * Recebe o resultado de um disparo.
+     *
+     * @param target posição alvejada
+     * @param result resultado do disparo
+     * @param sunk   navio afundado pelo disparo, ou {@code null} se nenhum foi afundado
+     */
+    void observe(IPosition target, ShotResult result, IShip sunk);
+}
@@ -0,0 +1,22 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Define uma política de pontaria: a regra que escolhe o próximo alvo a partir do
+ * tabuleiro observado pelo atacante.
+ * <p>
+ * Uma política tem de ser <strong>determinística</strong> e depender apenas da
+ * {@link Observation} recebida: a mesma observação tem de produzir sempre o mesmo alvo.
+ * É esta propriedade que permite ao {@link ExpectedShotsEvaluator} avaliar a política de
+ * forma exata e memorizar as suas decisões.
+ * </p>
+ */
+public interface ITargetingPolicy {
+
+    /**
+     * Escolhe a célula a alvejar a seguir.
+     *
+     * @param view tabuleiro adversário tal como é visto pelo atacante (não deve ser alterado)
+     * @return o índice linear ({@link Observation#cell(int, int)}) de uma célula ainda desconhecida
+     */
+    int target(Observation view);
+}
@@ -0,0 +1,142 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de uma importação de frotas ({@link FleetImporter}): número de frotas aceites e rejeitadas,
+ * rejeições por motivo e as primeiras {@value #MAX_LISTED} rejeições em detalhe.
+ */
+public class ImportReport {
+
+    /**
+     * Número máximo de rejeições guardadas em detalhe.
+     */
+    public static final int MAX_LISTED = 1000;
+
+    /**
+     * Rejeição de uma frota.
+     */
+    public static final class Rejection {
+        private final long fleet;
+        private final long line;
+        private final RejectionReason reason;
+        private final String detail;
+
+        Rejection(long fleet, long line, RejectionReason reason, String detail) {
+            this.fleet = fleet;
+            this.line = line;
+            this.reason = reason;
+            this.detail = detail;
+        }
+
+        /**
+         * Devolve o número de ordem da frota no ficheiro (a partir de 1).
+         *
+         * @return o número da frota
+         */
+        public long getFleet() {
+            return fleet;
+        }
+
+        /**
+         * Devolve a linha do ficheiro onde a frota foi rejeitada (a partir de 1).
+         *
+         * @return o número da linha
+         */
+        public long getLine() {
+            return line;
+        }
+
+        /**
+         * Devolve o motivo da rejeição.
+         *
+         * @return o motivo
+         */
+        public RejectionReason getReason() {
+            return reason;
+        }
+
+        /**
+         * Retorna a rejeição no formato usado no relatório de rejeições.
+         *
+         * @return uma string {@code "frota N (linha L): motivo: detalhe"}
+         */
+        @Override
+        public String toString() {
+            return "frota " + fleet + " (linha " + line + "): " + reason.getDescription() + ": " + detail;
+        }
+    }
+
+    private long accepted;
+    private final Map<RejectionReason, Long> rejected = new EnumMap<>(RejectionReason.class);
+    private final List<Rejection> rejections = new ArrayList<>();
+
+    void accept() {
+        accepted++;
+    }
+
+    void reject(Rejection r) {
+        rejected.merge(r.getReason(), 1L, Long::sum);
+        if (rejections.size() < MAX_LISTED)
+            rejections.add(r);
+    }
+
+    /**
+     * Devolve o número de frotas aceites.
+     *
+     * @return número de frotas aceites
+     */
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Devolve o número total de frotas rejeitadas.
+     *
+     * @return número de frotas rejeitadas
+     */
+    public long getRejected() {
+        long total = 0;
+        for (long n : rejected.values())
+            total += n;
+        return total;
+    }
+
+    /**
+     * Devolve o número de frotas rejeitadas por um motivo.
+     *
+     * @param reason motivo
+     * @return número de frotas rejeitadas por esse motivo
+     */
+    public long getRejected(RejectionReason reason) {
+        return rejected.getOrDefault(reason, 0L);
+    }
+
+    /**
+     * Devolve as primeiras {@value #MAX_LISTED} rejeições, pela ordem do ficheiro.
+     *
+     * @return lista imutável de rejeições
+     */
+    public List<Rejection> getRejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+
+    /**
+     * Retorna um resumo da importação, com uma linha por motivo de rejeição.
+     *
+     * @return o resumo
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Aceites: ").append(accepted).append('\n');
+        sb.append("Rejeitadas: ").append(getRejected()).append('\n');
+        for (Map.Entry<RejectionReason, Long> e : rejected.entrySet())
+            sb.append("  ").append(e.getKey().getDescription()).append(": ").append(e.getValue()).append('\n');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,114 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Histograma de latências com baldes log-lineares.
+ * <p>
+ * Cada potência de dois é dividida em 8 baldes, pelo que os percentis são aproximados com um
+ * erro relativo inferior a 12,5%, usando uma quantidade fixa e pequena de memória. Um histograma
+ * não é seguro para uso concorrente: cada thread deve ter o seu e os histogramas devem ser
+ * juntos no fim com {@link #merge(LatencyHistogram)}.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BITS = 3;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Regista um valor.
+     *
+     * @param value valor a registar (por exemplo, uma latência em nanossegundos); valores negativos contam como 0
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts[bucket(v)]++;
+        count++;
+        sum += v;
+        max = Math.max(max, v);
+    }
+
+    /**
+     * Acrescenta a este histograma todos os valores registados noutro.
+     *
+     * @param other histograma a juntar
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] += other.counts[i];
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Devolve o número de valores registados.
+     *
+     * @return número de valores
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Devolve a média dos valores registados.
+     *
+     * @return a média, ou 0 se não houver valores
+     */
+    public double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Devolve o maior valor registado.
+     *
+     * @return o máximo, ou 0 se não houver valores
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Devolve um valor aproximado do percentil indicado (o limite superior do balde respetivo).
+     *
+     * @param p percentil, entre 0 e 1
+     * @return o valor do percentil, ou 0 se não houver valores
+     */
+    public long percentile(double p) {
+        long target = (long) Math.ceil(p * count);
+        long acc = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            acc += counts[i];
+            if (counts[i] > 0 && acc >= target)
+                return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * Índice do balde de um valor não negativo.
+     */
+    static int bucket(long v) {
+        if (v < SUB_BUCKETS)
+            return (int) v;
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) ((v >>> (msb - SUB_BITS)) & (SUB_BUCKETS - 1));
+        return SUB_BUCKETS + (msb - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Maior valor que pertence ao balde indicado.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int msb = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1L) << (msb - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,79 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gerador de carga para os ciclos de comandos de {@link Tasks}.
+ * <p>
+ * Gera guiões realistas para a Tarefa D (criação de uma frota legal aleatória, rajadas,
+ * consultas com {@code ver}, {@code estado} e {@code mapa}) e executa-os em simultâneo com um
+ * {@link SessionRunner}, apresentando no fim o débito e os percentis de latência por comando.
+ * </p>
+ *
+ * <p>
+ * Utilização: {@code LoadDriver [sessoes] [threads] [rajadas] [semente]}.
+ * </p>
+ */
+public class LoadDriver {
+
+    private LoadDriver() {
+    }
+
+    /**
+     * Gera um guião para a Tarefa D.
+     *
+     * @param rnd    gerador aleatório
+     * @param salvos número de rajadas a disparar
+     * @return o guião, terminado pelo comando de desistência
+     */
+    public static String script(Random rnd, int salvos) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("nova\n").append(FleetGenome.of(FleetGenerator.randomFleet(rnd)));
+        for (int s = 0; s < salvos; s++) {
+            sb.append("rajada");
+            for (int i = 0; i < Tasks.NUMBER_SHOTS; i++)
+                sb.append(' ').append(rnd.nextInt(Fleet.BOARD_SIZE)).append(' ').append(rnd.nextInt(Fleet.BOARD_SIZE));
+            sb.append('\n');
+            if (s % 5 == 4)
+                sb.append("ver\n");
+            if (s % 10 == 9)
+                sb.append("estado\nmapa\n");
+        }
+        sb.append("desisto\n");
+        return sb.toString();
+    }
+
+    /**
+     * Gera um conjunto reprodutível de guiões para a Tarefa D.
+     *
+     * @param sessions número de guiões
+     * @param salvos   número de rajadas por guião
+     * @param seed     semente do gerador
+     * @return lista de guiões
+     */
+    public static List<String> scripts(int sessions, int salvos, long seed) {
+        Random rnd = new Random(seed);
+        List<String> scripts = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++)
+            scripts.add(script(rnd, salvos));
+        return scripts;
+    }
+
+    /**
+     * Executa o gerador de carga.
+     *
+     * @param args número de sessões, número de threads, rajadas por sessão e semente (todos opcionais)
+     */
+    public static void main(String[] args) {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int salvos = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        List<String> scripts = scripts(sessions, salvos, seed);
+        LoadReport report = new SessionRunner(threads).run(Tasks::taskD, scripts);
+        System.out.print(report);
+    }
+}
@@ -0,0 +1,115 @@
+package iscteiul.ista.battleship;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Relatório de uma execução do {@link SessionRunner}: débito de comandos e latência de cada comando.
+ */
+public class LoadReport {
+
+    private final int sessions;
+    private final int failures;
+    private final long elapsedNanos;
+    private final Map<String, LatencyHistogram> latencies;
+    private final List<String> outputs;
+
+    /**
+     * Constrói um relatório.
+     *
+     * @param sessions     número de sessões executadas
+     * @param failures     número de sessões que terminaram com erro
+     * @param elapsedNanos duração total da execução, em nanossegundos
+     * @param latencies    histograma de latências por comando
+     * @param outputs      output de cada sessão, pela ordem dos guiões (vazio se não foi capturado)
+     */
+    LoadReport(int sessions, int failures, long elapsedNanos, Map<String, LatencyHistogram> latencies,
+            List<String> outputs) {
+        this.sessions = sessions;
+        this.failures = failures;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = new TreeMap<>(latencies);
+        this.outputs = outputs;
+    }
+
+    /**
+     * Devolve o número de sessões executadas.
+     *
+     * @return número de sessões
+     */
+    public int getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Devolve o número de sessões que terminaram com erro (por exemplo, um guião truncado).
+     *
+     * @return número de sessões falhadas
+     */
+    public int getFailures() {
+        return failures;
+    }
+
+    /**
+     * Devolve o número total de comandos processados.
+     *
+     * @return número de comandos
+     */
+    public long getCommands() {
+        long total = 0;
+        for (LatencyHistogram h : latencies.values())
+            total += h.getCount();
+        return total;
+    }
+
+    /**
+     * Devolve o débito médio da execução.
+     *
+     * @return comandos processados por segundo
+     */
+    public double getCommandsPerSecond() {
+        return getCommands() / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Devolve o histograma de latências de um comando.
+     *
+     * @param command comando (ex: {@code "rajada"})
+     * @return o histograma, ou {@code null} se o comando não foi executado
+     */
+    public LatencyHistogram getLatency(String command) {
+        return latencies.get(command);
+    }
+
+    /**
+     * Devolve o output de cada sessão, se tiver sido capturado.
+     *
+     * @return lista com o output de cada sessão, pela ordem dos guiões
+     */
+    public List<String> getOutputs() {
+        return Collections.unmodifiableList(outputs);
+    }
+
+    /**
+     * Constrói a tabela do relatório: débito global e percentis de latência (em microssegundos) por comando.
+     *
+     * @return o relatório em texto
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Sessoes: %d (falhadas: %d)  Comandos: %d  Tempo: %.2f s  Debito: %.0f comandos/s%n",
+                sessions, failures, getCommands(), elapsedNanos / 1e9, getCommandsPerSecond()));
+        sb.append(String.format("%-10s %10s %10s %10s %10s %10s %10s%n", "Comando", "N", "Media(us)", "p50(us)",
+                "p90(us)", "p99(us)", "Max(us)"));
+        for (Map.Entry<String, LatencyHistogram> e : latencies.entrySet()) {
+            LatencyHistogram h = e.getValue();
+            sb.append(String.format("%-10s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n", e.getKey(), h.getCount(),
+                    h.mean() / 1e3, h.percentile(0.5) / 1e3, h.percentile(0.9) / 1e3, h.percentile(0.99) / 1e3,
+                    h.max() / 1e3));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,197 @@
+package iscteiul.ista.battleship;
+
+import java.util.List;
+
+/**
+ * Partida entre dois jogadores, cada um com a sua frota e o seu atirador.
+ * <p>
+ * Cada jogador tem um {@link Game} sobre a sua própria frota, que regista os disparos do
+ * adversário. Os jogadores disparam à vez rajadas de, no máximo, {@value Tasks#NUMBER_SHOTS}
+ * tiros (por omissão), começando pelo jogador 0. Ganha o primeiro jogador que afundar todos
+ * os navios da frota adversária; a partida termina nesse momento, mesmo a meio de uma rajada.
+ * </p>
+ *
+ * <p>
+ * Uma partida não é segura para uso concorrente: em cada momento, só uma thread a deve fazer
+ * avançar (ver {@link MatchScheduler}).
+ * </p>
+ */
+public class Match {
+
+    /**
+     * Indicador de que a partida ainda não tem vencedor.
+     */
+    public static final int NO_WINNER = -1;
+
+    /**
+     * Número máximo de rajadas por jogador, após o qual a partida termina sem vencedor.
+     */
+    private static final int MAX_TURNS = 4 * Observation.CELLS;
+
+    /**
+     * Jogo sobre a frota de cada jogador (alvo dos disparos do adversário).
+     */
+    private final Game[] boards = new Game[2];
+
+    /**
+     * Atirador de cada jogador.
+     */
+    private final IShooter[] shooters = new IShooter[2];
+
+    private final int salvoSize;
+    private int current;
+    private int turns;
+    private int winner = NO_WINNER;
+    private boolean finished;
+
+    /**
+     * Constrói uma partida com rajadas de {@value Tasks#NUMBER_SHOTS} tiros.
+     *
+     * @param fleet0   frota do jogador 0 (é usada uma cópia sem danos)
+     * @param shooter0 atirador do jogador 0
+     * @param fleet1   frota do jogador 1 (é usada uma cópia sem danos)
+     * @param shooter1 atirador do jogador 1
+     * @param seed     semente da partida, usada para preparar os atiradores
+     */
+    public Match(IFleet fleet0, IShooter shooter0, IFleet fleet1, IShooter shooter1, long seed) {
+        this(fleet0, shooter0, fleet1, shooter1, seed, Tasks.NUMBER_SHOTS);
+    }
+
+    /**
+     * Constrói uma partida.
+     *
+     * @param fleet0    frota do jogador 0 (é usada uma cópia sem danos)
+     * @param shooter0  atirador do jogador 0
+     * @param fleet1    frota do jogador 1 (é usada uma cópia sem danos)
+     * @param shooter1  atirador do jogador 1
+     * @param seed      semente da partida, usada para preparar os atiradores
+     * @param salvoSize número máximo de disparos por rajada
+     */
+    public Match(IFleet fleet0, IShooter shooter0, IFleet fleet1, IShooter shooter1, long seed, int salvoSize) {
+        assert salvoSize > 0;
+
+        boards[0] = new Game(FleetGenerator.copyOf(fleet0));
+        boards[1] = new Game(FleetGenerator.copyOf(fleet1));
+        shooters[0] = shooter0;
+        shooters[1] = shooter1;
+        this.salvoSize = salvoSize;
+        shooter0.newGame(Tournament.gameSeed(seed, 0));
+        shooter1.newGame(Tournament.gameSeed(seed, 1));
+    }
+
+    /**
+     * Joga a vez do jogador corrente: pede uma rajada ao seu atirador e dispara-a.
+     *
+     * @return {@code true} se a partida terminou
+     * @throws IllegalArgumentException se o atirador devolver uma rajada com disparos a mais
+     */
+    public boolean playTurn() {
+        if (finished)
+            return true;
+        fireSalvo(current, shooters[current].nextSalvo(salvoSize));
+        return finished;
+    }
+
+    /**
+     * Joga a partida até ao fim.
+     *
+     * @return o vencedor (0 ou 1), ou {@link #NO_WINNER} se a partida terminou sem vencedor
+     */
+    public int play() {
+        while (!playTurn())
+            ;
+        return winner;
+    }
+
+    /**
+     * Dispara uma rajada do jogador indicado sobre a frota do adversário e passa a vez.
+     *
+     * @param player jogador que dispara
+     * @param salvo  posições a alvejar
+     * @throws IllegalStateException    se a partida já terminou ou não for a vez do jogador
+     * @throws IllegalArgumentException se a rajada tiver mais disparos do que o permitido
+     */
+    public void fireSalvo(int player, List<IPosition> salvo) {
+        if (finished)
+            throw new IllegalStateException("A partida ja terminou");
+        if (player != current)
+            throw new IllegalStateException("Nao e a vez do jogador " + player);
+        if (salvo.size() > salvoSize)
+            throw new IllegalArgumentException("Rajada com " + salvo.size() + " tiros (maximo " + salvoSize + ")");
+
+        Game target = boards[1 - player];
+        FlightEvents.Salvo flight = new FlightEvents.Salvo();
+        flight.begin();
+        int hits = target.getHits();
+        int sunkBefore = target.getSunkShips();
+        try {
+            for (IPosition pos : salvo) {
+                IShip sunk = target.fire(pos);
+                shooters[player].observe(pos, target.getLastResult(), sunk);
+                if (sunk != null && target.getRemainingShips() == 0) {
+                    winner = player;
+                    finished = true;
+                    return;
+                }
+            }
+        } finally {
+            if (flight.shouldCommit()) {
+                flight.shots = salvo.size();
+                flight.hits = target.getHits() - hits;
+                flight.sunk = target.getSunkShips() - sunkBefore;
+                flight.commit();
+            }
+        }
+        if (player == 1)
+            turns++;
+        if (salvo.isEmpty() || turns >= MAX_TURNS)
+            finished = true;
+        current = 1 - player;
+    }
+
+    /**
+     * Indica se a partida terminou.
+     *
+     * @return {@code true} se a partida terminou
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Devolve o vencedor da partida.
+     *
+     * @return o vencedor (0 ou 1), ou {@link #NO_WINNER} se ainda não houver vencedor
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * Devolve o jogador que tem a vez.
+     *
+     * @return 0 ou 1
+     */
+    public int getCurrentPlayer() {
+        return current;
+    }
+
+    /**
+     * Devolve o número de rondas completas (uma rajada de cada jogador).
+     *
+     * @return número de rondas jogadas
+     */
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * Devolve o jogo sobre a frota de um jogador, onde estão registados os disparos do adversário.
+     *
+     * @param player jogador (0 ou 1)
+     * @return o jogo sobre a frota desse jogador
+     */
+    public IGame getBoard(int player) {
+        return boards[player];
+    }
+}
@@ -0,0 +1,175 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escalonador que faz avançar muitas partidas ({@link Match}) em simultâneo sobre um pequeno
+ * conjunto de threads.
+ * <p>
+ * As partidas submetidas ficam numa fila de execução partilhada. Cada thread retira uma partida,
+ * joga um número fixo de vezes ({@code quantum}) e, se a partida não tiver terminado, volta a
+ * colocá-la no fim da fila. Deste modo, milhares de partidas progridem de forma equitativa sem
+ * ser necessária uma thread por partida, e cada partida é avançada por uma só thread de cada vez.
+ * </p>
+ *
+ * <p>
+ * O resultado de cada partida é entregue através de um {@link CompletableFuture}, completado
+ * quando a partida termina (ou excecionalmente, se um atirador falhar).
+ * </p>
+ */
+public class MatchScheduler implements AutoCloseable {
+
+    /**
+     * Entrada da fila de execução: uma partida e o futuro a completar quando terminar.
+     */
+    private static class Entry {
+        final Match match;
+        final CompletableFuture<Match> result = new CompletableFuture<>();
+
+        Entry(Match match) {
+            this.match = match;
+        }
+    }
+
+    /**
+     * Entrada especial usada para terminar as threads.
+     */
+    private static final Entry POISON = new Entry(null);
+
+    private final BlockingQueue<Entry> runQueue = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final int quantum;
+    private final AtomicLong turnsPlayed = new AtomicLong();
+
+    /**
+     * Protege {@link #closed}: a verificação e a inserção na fila de {@link #submit(Match)} são
+     * atómicas em relação a {@link #close()}, pelo que nenhuma partida entra na fila depois das
+     * entradas de terminação.
+     */
+    private final Object lock = new Object();
+    private boolean closed;
+
+    /**
+     * Constrói um escalonador com uma vez por partida em cada passagem pela fila.
+     *
+     * @param threads número de threads de trabalho
+     */
+    public MatchScheduler(int threads) {
+        this(threads, 1);
+    }
+
+    /**
+     * Constrói um escalonador.
+     *
+     * @param threads número de threads de trabalho
+     * @param quantum número de vezes jogadas de cada vez que uma partida é retirada da fila
+     */
+    public MatchScheduler(int threads, int quantum) {
+        assert threads > 0;
+        assert quantum > 0;
+
+        this.quantum = quantum;
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(this::work, "match-worker-" + i);
+            t.setDaemon(true);
+            workers.add(t);
+            t.start();
+        }
+    }
+
+    /**
+     * Submete uma partida para ser jogada até ao fim.
+     *
+     * @param match partida a jogar (não deve ser avançada por mais ninguém)
+     * @return um futuro completado com a partida quando esta terminar
+     * @throws IllegalStateException se o escalonador já tiver sido fechado
+     */
+    public CompletableFuture<Match> submit(Match match) {
+        Entry e = new Entry(match);
+        synchronized (lock) {
+            if (closed)
+                throw new IllegalStateException("Escalonador fechado");
+            runQueue.add(e);
+        }
+        return e.result;
+    }
+
+    /**
+     * Devolve o número de partidas à espera na fila de execução.
+     *
+     * @return número de partidas na fila
+     */
+    public int getQueuedMatches() {
+        return runQueue.size();
+    }
+
+    /**
+     * Devolve o número total de vezes (rajadas) jogadas por este escalonador.
+     *
+     * @return número de vezes jogadas
+     */
+    public long getTurnsPlayed() {
+        return turnsPlayed.get();
+    }
+
+    /**
+     * Ciclo de cada thread de trabalho: retira uma partida, joga o seu quantum e volta a enfileirá-la.
+     */
+    private void work() {
+        try {
+            while (true) {
+                Entry e = runQueue.take();
+                if (e == POISON)
+                    return;
+                try {
+                    boolean done = false;
+                    for (int i = 0; i < quantum && !done; i++) {
+                        done = e.match.playTurn();
+                        turnsPlayed.incrementAndGet();
+                    }
+                    if (done)
+                        e.result.complete(e.match);
+                    else
+                        runQueue.add(e);
+                } catch (Throwable ex) {
+                    // inclui erros (ex: StackOverflowError num atirador), para que join() não fique à espera
+                    e.result.completeExceptionally(ex);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fecha o escalonador: deixa de aceitar partidas e termina as threads logo que possível.
+     * As partidas ainda por terminar são completadas excecionalmente.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed)
+                return;
+            closed = true;
+            for (int i = 0; i < workers.size(); i++)
+                runQueue.add(POISON);
+        }
+        for (Thread t : workers) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        Entry e;
+        while ((e = runQueue.poll()) != null)
+            if (e != POISON)
+                e.result.completeExceptionally(new IllegalStateException("Escalonador fechado"));
+    }
+}
@@ -0,0 +1,453 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Atirador baseado em pesquisa em árvore de Monte Carlo (MCTS), com tempo de decisão limitado.
+ * <p>
+ * Em cada rajada, o atirador repete até esgotar o tempo:
+ * </p>
+ * <ol>
+ *   <li>sorteia uma frota coerente com o que já observou ({@link FleetSampler});</li>
+ *   <li>desce a árvore de pesquisa, escolhendo em cada nó o alvo com melhor compromisso entre o
+ *   valor médio e a probabilidade de acerto estimada pelas frotas sorteadas (regra PUCT), e
+ *   obtendo o resultado de cada tiro a partir da frota sorteada;</li>
+ *   <li>acrescenta um nó à árvore e termina o jogo simulado com uma política de caça e alvo;</li>
+ *   <li>propaga pelo caminho o valor da simulação, que é tanto maior quanto menos tiros forem precisos
+ *   para afundar a frota.</li>
+ * </ol>
+ *
+ * <p>
+ * A rajada é formada pelos alvos mais visitados na raiz. A pesquisa corre em paralelo, com uma
+ * árvore independente por thread, e as visitas são somadas no fim. Depois de cada rajada, cada
+ * árvore desce pelos resultados observados e a sub-árvore correspondente é reaproveitada na rajada
+ * seguinte. O atirador devolve sempre uma rajada quando o prazo termina, pelo que a sua força
+ * cresce com o tempo que lhe é dado.
+ * </p>
+ *
+ * <p>
+ * Os resultados dos tiros simulados seguem as regras de {@link Game#fire(IPosition)}.
+ * </p>
+ */
+public class MctsShooter extends AbstractShooter {
+
+    /**
+     * Peso da exploração na regra PUCT.
+     */
+    private static final double EXPLORATION = 0.3;
+
+    /**
+     * Número máximo de falhas seguidas da amostragem de frotas antes de se desistir da pesquisa.
+     */
+    private static final int MAX_SAMPLE_FAILURES = 200;
+
+    private static final byte UNKNOWN = (byte) CellState.UNKNOWN.ordinal();
+    private static final byte MISS = (byte) CellState.MISS.ordinal();
+    private static final byte HIT = (byte) CellState.HIT.ordinal();
+    private static final byte SUNK = (byte) CellState.SUNK.ordinal();
+
+    private static final int[][] NEIGHBOURS = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
+
+    /**
+     * Nó da árvore: um estado do jogo simulado, atingido por uma sequência de alvos e resultados.
+     */
+    private static final class Node {
+        int visits;
+        double total;
+        Edge[] edges;
+
+        Edge edge(int cell) {
+            if (edges == null)
+                edges = new Edge[Observation.CELLS];
+            if (edges[cell] == null)
+                edges[cell] = new Edge();
+            return edges[cell];
+        }
+    }
+
+    /**
+     * Ramo da árvore: um alvo escolhido num nó, com um nó filho por resultado (água, acerto, afundado).
+     */
+    private static final class Edge {
+        int visits;
+        double total;
+        final Node[] children = new Node[3];
+    }
+
+    /**
+     * Pesquisa de uma thread: árvore própria, gerador aleatório próprio e estimativa da probabilidade
+     * de cada célula estar ocupada.
+     */
+    private static final class Worker {
+        final Random rnd;
+        Node root;
+        final double[] heat = new double[Observation.CELLS];
+        int samples;
+        long iterations;
+
+        Worker(long seed) {
+            rnd = new Random(seed);
+        }
+
+        /**
+         * Desce a raiz pelo resultado de um tiro observado, reaproveitando a sub-árvore.
+         */
+        void advance(int cell, int outcome) {
+            if (root == null || root.edges == null || root.edges[cell] == null)
+                root = null;
+            else
+                root = root.edges[cell].children[outcome];
+        }
+    }
+
+    /**
+     * Jogo simulado sobre uma frota sorteada.
+     */
+    private static final class Simulation {
+        final byte[] state;
+        final int[] shipAt = new int[Observation.CELLS];
+        final int[][] ships;
+        final int[] remaining;
+        int afloat;
+        int shots;
+
+        Simulation(byte[] rootState, int[][] ships) {
+            state = rootState.clone();
+            this.ships = ships;
+            remaining = new int[ships.length];
+            afloat = ships.length;
+            Arrays.fill(shipAt, -1);
+            for (int k = 0; k < ships.length; k++)
+                for (int cell : ships[k]) {
+                    shipAt[cell] = k;
+                    if (state[cell] != HIT)
+                        remaining[k]++;
+                }
+        }
+
+        /**
+         * Dispara sobre uma célula desconhecida.
+         *
+         * @return 0 se for água, 1 se for acerto, 2 se afundar um navio
+         */
+        int fire(int cell) {
+            shots++;
+            int k = shipAt[cell];
+            if (k < 0) {
+                state[cell] = MISS;
+                return 0;
+            }
+            if (--remaining[k] > 0) {
+                state[cell] = HIT;
+                return 1;
+            }
+            for (int c : ships[k])
+                state[c] = SUNK;
+            afloat--;
+            return 2;
+        }
+    }
+
+    private final long budgetNanos;
+    private final int threads;
+    private long maxIterations = Long.MAX_VALUE;
+
+    private List<IShip> sunkShips;
+    private Deque<Integer> planned;
+    private Worker[] workers;
+    private long gameSeed;
+    private long lastIterations;
+
+    /**
+     * Constrói um atirador que usa todos os processadores disponíveis.
+     *
+     * @param millisPerSalvo tempo de decisão de cada rajada, em milissegundos
+     */
+    public MctsShooter(long millisPerSalvo) {
+        this(millisPerSalvo, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constrói um atirador.
+     *
+     * @param millisPerSalvo tempo de decisão de cada rajada, em milissegundos
+     * @param threads        número de pesquisas em paralelo
+     */
+    public MctsShooter(long millisPerSalvo, int threads) {
+        super("MCTS");
+        assert millisPerSalvo >= 0;
+        assert threads > 0;
+
+        budgetNanos = millisPerSalvo * 1_000_000L;
+        this.threads = threads;
+    }
+
+    /**
+     * Limita o número de simulações de cada thread por rajada, além do tempo. Com um limite e tempo
+     * suficiente, as decisões deixam de depender da velocidade da máquina e o jogo torna-se reprodutível.
+     *
+     * @param maxIterations número máximo de simulações por thread e por rajada
+     */
+    public void setMaxIterations(long maxIterations) {
+        assert maxIterations > 0;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Devolve o número total de simulações feitas para decidir a última rajada, somadas em todas as threads.
+     *
+     * @return número de simulações
+     */
+    public long getLastIterations() {
+        return lastIterations;
+    }
+
+    @Override
+    public void newGame(long seed) {
+        super.newGame(seed);
+        sunkShips = new ArrayList<>();
+        planned = new ArrayDeque<>();
+        workers = null;
+        gameSeed = seed;
+    }
+
+    /**
+     * Escolhe uma rajada: pesquisa até ao prazo e devolve os alvos mais visitados.
+     *
+     * @param size número de disparos da rajada
+     * @return lista com, no máximo, {@code size} posições a alvejar
+     */
+    @Override
+    public List<IPosition> nextSalvo(int size) {
+        planned.clear();
+        plan(size);
+        return super.nextSalvo(size);
+    }
+
+    @Override
+    public void observe(IPosition target, ShotResult result, IShip sunk) {
+        super.observe(target, result, sunk);
+        if (!Observation.isInside(target.getRow(), target.getColumn()) || (!result.isHit() && result != ShotResult.MISS))
+            return;
+        if (sunk != null)
+            sunkShips.add(sunk);
+        int outcome = result == ShotResult.MISS ? 0 : result == ShotResult.HIT ? 1 : 2;
+        if (workers != null)
+            for (Worker w : workers)
+                w.advance(Observation.cell(target), outcome);
+    }
+
+    /**
+     * Devolve o próximo alvo planeado; se não houver, planeia uma rajada de {@value Tasks#NUMBER_SHOTS}
+     * disparos, o tamanho previsto nas regras.
+     *
+     * @return o índice linear da célula escolhida, ou -1 se não houver células disponíveis
+     */
+    @Override
+    protected int choose() {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            while (!planned.isEmpty()) {
+                int cell = planned.poll();
+                if (isAvailable(cell))
+                    return cell;
+            }
+            if (attempt == 0)
+                plan(Tasks.NUMBER_SHOTS);
+        }
+        return randomAvailable();
+    }
+
+    /**
+     * Pesquisa até ao prazo e acrescenta aos alvos planeados as {@code size} células disponíveis mais
+     * visitadas na raiz (em caso de empate, as de maior probabilidade de acerto).
+     *
+     * @param size número de alvos a planear
+     */
+    private void plan(int size) {
+        long deadline = System.nanoTime() + budgetNanos;
+        if (workers == null) {
+            workers = new Worker[threads];
+            for (int i = 0; i < threads; i++)
+                workers[i] = new Worker(Tournament.gameSeed(gameSeed, i));
+        }
+
+        byte[] rootState = new byte[Observation.CELLS];
+        List<Integer> pendingCells = new ArrayList<>();
+        for (int c = 0; c < Observation.CELLS; c++) {
+            rootState[c] = (byte) view.get(c).ordinal();
+            if (view.isUnknown(c) && !isAvailable(c))
+                pendingCells.add(c);
+        }
+        FleetSampler sampler = new FleetSampler(view, sunkShips);
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int i = 1; i < workers.length; i++) {
+            Worker w = workers[i];
+            tasks.add(CompletableFuture.runAsync(() -> search(w, sampler, rootState, pendingCells, deadline)));
+        }
+        search(workers[0], sampler, rootState, pendingCells, deadline);
+        for (CompletableFuture<Void> t : tasks)
+            t.join();
+
+        double[] score = new double[Observation.CELLS];
+        lastIterations = 0;
+        for (Worker w : workers) {
+            lastIterations += w.iterations;
+            for (int c = 0; c < Observation.CELLS; c++) {
+                Edge e = w.root.edges == null ? null : w.root.edges[c];
+                score[c] += (e == null ? 0 : e.visits) + (w.samples == 0 ? 0 : w.heat[c] / w.samples);
+            }
+        }
+        boolean[] chosen = new boolean[Observation.CELLS];
+        for (int n = 0; n < size; n++) {
+            int best = -1;
+            for (int c = 0; c < Observation.CELLS; c++)
+                if (!chosen[c] && isAvailable(c) && view.couldHoldShip(c) && (best < 0 || score[c] > score[best]))
+                    best = c;
+            if (best < 0)
+                break;
+            chosen[best] = true;
+            planned.add(best);
+        }
+    }
+
+    /**
+     * Ciclo de pesquisa de uma thread.
+     */
+    private void search(Worker w, FleetSampler sampler, byte[] rootState, List<Integer> pendingCells, long deadline) {
+        if (w.root == null)
+            w.root = new Node();
+        Arrays.fill(w.heat, 0);
+        w.samples = 0;
+        w.iterations = 0;
+        int failures = 0;
+        List<Edge> path = new ArrayList<>();
+        List<Node> nodes = new ArrayList<>();
+        while (w.iterations < maxIterations && (w.iterations == 0 || System.nanoTime() < deadline)) {
+            int[][] ships = sampler.sample(w.rnd);
+            if (ships == null) {
+                if (++failures > MAX_SAMPLE_FAILURES)
+                    break;
+                continue;
+            }
+            failures = 0;
+            w.iterations++;
+
+            Simulation sim = new Simulation(rootState, ships);
+            w.samples++;
+            for (int c = 0; c < Observation.CELLS; c++)
+                if (rootState[c] == UNKNOWN && sim.shipAt[c] >= 0)
+                    w.heat[c]++;
+            for (int c : pendingCells)
+                sim.fire(c);
+            int rootShots = sim.shots;
+
+            path.clear();
+            nodes.clear();
+            Node node = w.root;
+            nodes.add(node);
+            while (sim.afloat > 0) {
+                int cell = select(w, node, sim.state);
+                if (cell < 0)
+                    break;
+                Edge e = node.edge(cell);
+                int outcome = sim.fire(cell);
+                path.add(e);
+                boolean expand = e.visits == 0;
+                if (e.children[outcome] == null)
+                    e.children[outcome] = new Node();
+                node = e.children[outcome];
+                nodes.add(node);
+                if (expand)
+                    break;
+            }
+            rollout(sim, w.rnd);
+
+            double value = 1.0 - (double) (sim.shots - rootShots) / Observation.CELLS;
+            for (Edge e : path) {
+                e.visits++;
+                e.total += value;
+            }
+            for (Node n : nodes) {
+                n.visits++;
+                n.total += value;
+            }
+        }
+    }
+
+    /**
+     * Escolhe o alvo de um nó pela regra PUCT, usando como probabilidade a priori a frequência com que
+     * cada célula está ocupada nas frotas sorteadas.
+     *
+     * @return o índice da célula, ou -1 se não houver alvos possíveis
+     */
+    private static int select(Worker w, Node node, byte[] state) {
+        double firstPlay = node.visits == 0 ? 0.5 : node.total / node.visits;
+        double explore = EXPLORATION * Math.sqrt(node.visits + 1);
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < Observation.CELLS; c++) {
+            if (!isCandidate(state, c))
+                continue;
+            Edge e = node.edges == null ? null : node.edges[c];
+            int n = e == null ? 0 : e.visits;
+            double q = n == 0 ? firstPlay : e.total / n;
+            double prior = (w.heat[c] + 1) / (w.samples + 2);
+            double score = q + explore * prior / (1 + n);
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Termina o jogo simulado com uma política de caça e alvo: vizinhas de acertos por afundar ou,
+     * se não houver, uma célula ao acaso que ainda possa conter um navio.
+     */
+    private static void rollout(Simulation sim, Random rnd) {
+        int[] candidates = new int[NEIGHBOURS.length * Observation.CELLS];
+        while (sim.afloat > 0) {
+            int count = 0;
+            for (int c = 0; c < Observation.CELLS; c++) {
+                if (sim.state[c] != HIT)
+                    continue;
+                for (int[] d : NEIGHBOURS) {
+                    int r = c / Fleet.BOARD_SIZE + d[0];
+                    int col = c % Fleet.BOARD_SIZE + d[1];
+                    if (Observation.isInside(r, col) && sim.state[Observation.cell(r, col)] == UNKNOWN)
+                        candidates[count++] = Observation.cell(r, col);
+                }
+            }
+            if (count == 0)
+                for (int c = 0; c < Observation.CELLS; c++)
+                    if (isCandidate(sim.state, c))
+                        candidates[count++] = c;
+            if (count == 0)
+                return;
+            sim.fire(candidates[rnd.nextInt(count)]);
+        }
+    }
+
+    /**
+     * Indica se uma célula pode conter um navio: desconhecida e sem vizinhos afundados.
+     */
+    private static boolean isCandidate(byte[] state, int cell) {
+        if (state[cell] != UNKNOWN)
+            return false;
+        int row = cell / Fleet.BOARD_SIZE;
+        int column = cell % Fleet.BOARD_SIZE;
+        for (int dr = -1; dr <= 1; dr++)
+            for (int dc = -1; dc <= 1; dc++)
+                if (Observation.isInside(row + dr, column + dc) && state[Observation.cell(row + dr, column + dc)] == SUNK)
+                    return false;
+        return true;
+    }
+}
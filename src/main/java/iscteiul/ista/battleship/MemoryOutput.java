@@ -0,0 +1,47 @@
+package iscteiul.ista.battleship;
+
+import java.util.List;
+
+/**
+ * Destino que guarda todo o texto em memória, para ser consultado depois (por exemplo, nos testes
+ * ou para devolver o output de uma sessão). Não é seguro entre threads.
+ */
+public class MemoryOutput implements IOutputSink {
+
+    private final StringBuilder text = new StringBuilder();
+
+    @Override
+    public void print(CharSequence text) {
+        this.text.append(text);
+    }
+
+    @Override
+    public void println(CharSequence line) {
+        text.append(line).append(System.lineSeparator());
+    }
+
+    /**
+     * Devolve todo o texto escrito.
+     *
+     * @return o texto
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Devolve as linhas escritas.
+     *
+     * @return lista das linhas, sem as mudanças de linha
+     */
+    public List<String> getLines() {
+        return text.toString().lines().toList();
+    }
+
+    /**
+     * Esquece todo o texto escrito.
+     */
+    public void clear() {
+        text.setLength(0);
+    }
+}
@@ -0,0 +1,297 @@
+package iscteiul.ista.battleship;
+
+import java.util.Arrays;
+
+/**
+ * Representa o tabuleiro adversário tal como é visto pelo atacante.
+ * <p>
+ * Cada célula guarda um {@link CellState}: desconhecida, água, acerto ou navio afundado.
+ * As células são identificadas por um índice linear {@code linha * BOARD_SIZE + coluna}
+ * (ver {@link #cell(int, int)}), o que permite usar a observação como chave de tabelas
+ * e comparar observações entre si.
+ * </p>
+ *
+ * <p>
+ * Duas observações são iguais se todas as suas células tiverem o mesmo estado,
+ * independentemente da ordem pela qual os tiros foram efetuados.
+ * </p>
+ */
+public class Observation {
+
+    /**
+     * Número de células do tabuleiro.
+     */
+    public static final int CELLS = Fleet.BOARD_SIZE * Fleet.BOARD_SIZE;
+
+    private static final CellState[] STATES = CellState.values();
+
+    /**
+     * Estado de cada célula, indexado pelo índice linear da célula.
+     */
+    private final byte[] cells;
+
+    /**
+     * Número de células já alvejadas (que não estão no estado {@link CellState#UNKNOWN}).
+     */
+    private int shots;
+
+    /**
+     * Número de navios já afundados.
+     */
+    private int sunkShips;
+
+    /**
+     * Hash de Zobrist das células, atualizado em cada alteração (ver {@link Zobrist}).
+     */
+    private long hash;
+
+    /**
+     * Constrói uma observação vazia, com todas as células desconhecidas.
+     */
+    public Observation() {
+        cells = new byte[CELLS];
+    }
+
+    /**
+     * Constrói uma cópia independente da observação indicada.
+     *
+     * @param other observação a copiar
+     */
+    public Observation(Observation other) {
+        cells = other.cells.clone();
+        shots = other.shots;
+        sunkShips = other.sunkShips;
+        hash = other.hash;
+    }
+
+    /**
+     * Converte uma linha e uma coluna no índice linear da célula.
+     *
+     * @param row    linha da célula
+     * @param column coluna da célula
+     * @return o índice linear da célula
+     */
+    public static int cell(int row, int column) {
+        return row * Fleet.BOARD_SIZE + column;
+    }
+
+    /**
+     * Converte uma posição no índice linear da célula.
+     *
+     * @param pos posição a converter
+     * @return o índice linear da célula
+     */
+    public static int cell(IPosition pos) {
+        return cell(pos.getRow(), pos.getColumn());
+    }
+
+    /**
+     * Verifica se uma posição pertence ao tabuleiro.
+     *
+     * @param row    linha a testar
+     * @param column coluna a testar
+     * @return {@code true} se a posição estiver dentro do tabuleiro; {@code false} caso contrário
+     */
+    public static boolean isInside(int row, int column) {
+        return row >= 0 && row < Fleet.BOARD_SIZE && column >= 0 && column < Fleet.BOARD_SIZE;
+    }
+
+    /**
+     * Constrói a posição correspondente a um índice linear de célula.
+     *
+     * @param cell índice linear da célula
+     * @return a posição correspondente
+     */
+    public static Position toPosition(int cell) {
+        return new Position(cell / Fleet.BOARD_SIZE, cell % Fleet.BOARD_SIZE);
+    }
+
+    /**
+     * Obtém o estado de uma célula.
+     *
+     * @param cell índice linear da célula
+     * @return o estado observado da célula
+     */
+    public CellState get(int cell) {
+        return STATES[cells[cell]];
+    }
+
+    /**
+     * Obtém o estado de uma célula.
+     *
+     * @param row    linha da célula
+     * @param column coluna da célula
+     * @return o estado observado da célula
+     */
+    public CellState get(int row, int column) {
+        return get(cell(row, column));
+    }
+
+    /**
+     * Verifica se uma célula ainda não foi alvejada.
+     *
+     * @param cell índice linear da célula
+     * @return {@code true} se a célula for desconhecida; {@code false} caso contrário
+     */
+    public boolean isUnknown(int cell) {
+        return cells[cell] == 0;
+    }
+
+    /**
+     * Verifica se uma célula desconhecida ainda pode conter um navio.
+     * <p>
+     * Como os navios não podem estar adjacentes entre si, uma célula vizinha (incluindo as
+     * diagonais) de um navio afundado está necessariamente vazia.
+     * </p>
+     *
+     * @param cell índice linear da célula
+     * @return {@code true} se a célula for desconhecida e não for vizinha de um navio afundado
+     */
+    public boolean couldHoldShip(int cell) {
+        if (!isUnknown(cell))
+            return false;
+        int row = cell / Fleet.BOARD_SIZE;
+        int column = cell % Fleet.BOARD_SIZE;
+        for (int dr = -1; dr <= 1; dr++)
+            for (int dc = -1; dc <= 1; dc++)
+                if (isInside(row + dr, column + dc) && get(row + dr, column + dc) == CellState.SUNK)
+                    return false;
+        return true;
+    }
+
+    /**
+     * Devolve o número de células já alvejadas.
+     *
+     * @return número de células cujo estado é conhecido
+     */
+    public int getShots() {
+        return shots;
+    }
+
+    /**
+     * Devolve o número de navios já afundados.
+     *
+     * @return número de navios afundados
+     */
+    public int getSunkShips() {
+        return sunkShips;
+    }
+
+    /**
+     * Devolve o hash de Zobrist da observação (ver {@link Zobrist}). Observações iguais têm o mesmo hash,
+     * e o hash coincide com o de {@link Game#getObservationHash()} para o mesmo conjunto de tiros.
+     *
+     * @return o hash de 64 bits
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Regista o resultado de um tiro.
+     * <p>
+     * Se o tiro afundar um navio, todas as posições desse navio passam ao estado
+     * {@link CellState#SUNK}; caso contrário a célula alvo fica marcada como acerto ou água.
+     * </p>
+     *
+     * @param target posição alvo do tiro
+     * @param hit    {@code true} se o tiro acertou num navio
+     * @param sunk   navio afundado pelo tiro, ou {@code null} se nenhum foi afundado
+     */
+    public void record(IPosition target, boolean hit, IShip sunk) {
+        if (sunk != null) {
+            set(cell(target), CellState.HIT);
+            for (IPosition p : sunk.getPositions())
+                set(cell(p), CellState.SUNK);
+            sunkShips++;
+        } else {
+            set(cell(target), hit ? CellState.HIT : CellState.MISS);
+        }
+    }
+
+    /**
+     * Anula o registo de um tiro (operação inversa de {@link #record(IPosition, boolean, IShip)}).
+     *
+     * @param target posição alvo do tiro
+     * @param sunk   navio afundado pelo tiro, ou {@code null} se nenhum foi afundado
+     */
+    void unrecord(IPosition target, IShip sunk) {
+        if (sunk != null) {
+            for (IPosition p : sunk.getPositions())
+                set(cell(p), CellState.HIT);
+            sunkShips--;
+        }
+        set(cell(target), CellState.UNKNOWN);
+    }
+
+    /**
+     * Altera o estado de uma célula, atualizando o número de células alvejadas.
+     *
+     * @param cell  índice linear da célula
+     * @param state novo estado da célula
+     */
+    void set(int cell, CellState state) {
+        if (cells[cell] == 0 && state != CellState.UNKNOWN)
+            shots++;
+        else if (cells[cell] != 0 && state == CellState.UNKNOWN)
+            shots--;
+        hash ^= Zobrist.change(cell, STATES[cells[cell]], state);
+        cells[cell] = (byte) state.ordinal();
+    }
+
+    /**
+     * Marca um navio como afundado, contabilizando-o no número de navios afundados.
+     *
+     * @param shipCells índices lineares das células do navio
+     */
+    void markSunk(int[] shipCells) {
+        for (int c : shipCells)
+            set(c, CellState.SUNK);
+        sunkShips++;
+    }
+
+    /**
+     * Gera um código de hash baseado no estado de todas as células (a partir do hash de Zobrist).
+     *
+     * @return o código hash gerado
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    /**
+     * Compara esta observação com outro objeto.
+     * <p>
+     * Duas observações são iguais se todas as células tiverem o mesmo estado.
+     * </p>
+     *
+     * @param other o objeto a ser comparado
+     * @return {@code true} se as observações forem iguais, {@code false} caso contrário
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof Observation))
+            return false;
+        Observation o = (Observation) other;
+        return hash == o.hash && Arrays.equals(cells, o.cells);
+    }
+
+    /**
+     * Retorna o tabuleiro observado, uma linha de texto por linha do tabuleiro.
+     *
+     * @return a representação textual da observação
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < Fleet.BOARD_SIZE; row++) {
+            for (int col = 0; col < Fleet.BOARD_SIZE; col++)
+                sb.append(get(row, col).getMarker());
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
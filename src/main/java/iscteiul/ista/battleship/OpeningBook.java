@@ -0,0 +1,453 @@
+package iscteiul.ista.battleship;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Livro de aberturas: as rajadas a disparar nos estados mais frequentes do início de um jogo,
+ * calculadas de antemão e servidas a partir de um ficheiro mapeado em memória.
+ * <p>
+ * No início de um jogo o tabuleiro está quase vazio e restam quase todas as disposições possíveis da
+ * frota, pelo que é aí que a pesquisa de um atirador probabilístico é mais cara. O {@link Builder}
+ * percorre, rajada a rajada, os estados a que se chega a partir do tabuleiro vazio contra muitas
+ * frotas aleatórias, e para cada estado suficientemente frequente escolhe as células com maior
+ * probabilidade de estarem ocupadas (estimada com {@link FleetSampler}). Em jogo, o estado corrente
+ * é procurado pelo seu hash de Zobrist ({@link Observation#getHash()}) com um único acesso à tabela,
+ * sem pesquisa nem reserva de memória além da rajada devolvida; fora do livro, o atirador volta a
+ * pesquisar ({@link OpeningBookShooter}).
+ * </p>
+ *
+ * <p>
+ * O ficheiro tem um cabeçalho de {@value #HEADER_BYTES} bytes seguido de uma tabela de entradas de
+ * {@value #ENTRY_BYTES} bytes. A tabela é também o índice: a entrada de um estado está na primeira
+ * posição livre ou com o seu hash, a partir da posição dada pelo próprio hash (endereçamento aberto
+ * com sondagem linear). Cada entrada tem o hash ({@code long}), o número de alvos e até
+ * {@value #MAX_SALVO} células. O ficheiro é só de leitura e pode ser partilhado por vários processos.
+ * </p>
+ */
+public class OpeningBook implements Closeable {
+
+    /**
+     * Número mágico no início do ficheiro ({@code "BSOB0001"}).
+     */
+    public static final long MAGIC = 0x42534F4230303031L;
+
+    /**
+     * Tamanho do cabeçalho, em bytes.
+     */
+    public static final int HEADER_BYTES = 32;
+
+    /**
+     * Tamanho de cada entrada, em bytes.
+     */
+    public static final int ENTRY_BYTES = 16;
+
+    /**
+     * Número máximo de alvos de uma rajada do livro.
+     */
+    public static final int MAX_SALVO = ENTRY_BYTES - 9;
+
+    /**
+     * Capacidade máxima (limitada pelo tamanho de um mapeamento).
+     */
+    public static final int MAX_CAPACITY = 1 << 26;
+
+    private static final int MAGIC_AT = 0;
+    private static final int CAPACITY_AT = 8;
+    private static final int ENTRIES_AT = 12;
+    private static final int SALVO_AT = 16;
+    private static final int DEPTH_AT = 20;
+
+    private static final int HASH = 0;
+    private static final int COUNT = 8;
+    private static final int CELLS = 9;
+
+    /**
+     * Construtor do livro, a usar fora do jogo (pode demorar minutos).
+     * <p>
+     * Os estados são expandidos por níveis: o nível 0 é o tabuleiro vazio, e o nível {@code d + 1}
+     * contém os estados a que se chega disparando as rajadas do livro nos {@code d + 1} primeiros
+     * turnos contra cada uma das frotas aleatórias. Só os estados alcançados por, pelo menos,
+     * {@link #setMinCount(int)} frotas entram no livro. O resultado depende apenas dos parâmetros e
+     * da semente.
+     * </p>
+     */
+    public static final class Builder {
+        private final int salvoSize;
+        private final int depth;
+        private int games = 10_000;
+        private int minCount = 50;
+        private int samples = 1_000;
+        private long seed = 1;
+
+        /**
+         * Estado do jogo num nível da construção, com o número de frotas que o alcançaram.
+         */
+        private static final class State {
+            final Observation view;
+            final List<IShip> sunk;
+            int count;
+
+            State(Observation view, List<IShip> sunk) {
+                this.view = view;
+                this.sunk = sunk;
+            }
+        }
+
+        /**
+         * Constrói um construtor de livros.
+         *
+         * @param salvoSize número de disparos por rajada
+         * @param depth     número de rajadas (turnos) cobertas pelo livro
+         */
+        public Builder(int salvoSize, int depth) {
+            if (salvoSize <= 0 || salvoSize > MAX_SALVO)
+                throw new IllegalArgumentException("Tamanho de rajada inválido: " + salvoSize);
+            if (depth <= 0)
+                throw new IllegalArgumentException("Profundidade inválida: " + depth);
+            this.salvoSize = salvoSize;
+            this.depth = depth;
+        }
+
+        /**
+         * Define o número de frotas aleatórias contra as quais os estados são explorados.
+         *
+         * @param games número de frotas
+         */
+        public void setGames(int games) {
+            assert games > 0;
+            this.games = games;
+        }
+
+        /**
+         * Define o número mínimo de frotas que têm de alcançar um estado para ele entrar no livro.
+         *
+         * @param minCount número mínimo de frotas
+         */
+        public void setMinCount(int minCount) {
+            assert minCount > 0;
+            this.minCount = minCount;
+        }
+
+        /**
+         * Define o número de frotas coerentes sorteadas para estimar as probabilidades de cada estado.
+         *
+         * @param samples número de frotas sorteadas por estado
+         */
+        public void setSamples(int samples) {
+            assert samples > 0;
+            this.samples = samples;
+        }
+
+        /**
+         * Define a semente das frotas aleatórias e das amostragens.
+         *
+         * @param seed semente
+         */
+        public void setSeed(long seed) {
+            this.seed = seed;
+        }
+
+        /**
+         * Calcula as rajadas do livro.
+         *
+         * @return as rajadas (células a alvejar), indexadas pelo hash do estado, por ordem de nível
+         */
+        public Map<Long, int[]> build() {
+            List<IFleet> fleets = new ArrayList<>(games);
+            for (int g = 0; g < games; g++)
+                fleets.add(FleetGenerator.randomFleet(new Random(Tournament.gameSeed(seed, g))));
+
+            Map<Long, int[]> book = new LinkedHashMap<>();
+            Map<Long, State> level = new LinkedHashMap<>();
+            State empty = new State(new Observation(), new ArrayList<>());
+            empty.count = games;
+            level.put(empty.view.getHash(), empty);
+            for (int d = 0; d < depth && !level.isEmpty(); d++) {
+                for (Map.Entry<Long, State> e : level.entrySet())
+                    if (e.getValue().count >= minCount) {
+                        int[] salvo = bestSalvo(e.getValue(), new Random(Tournament.gameSeed(seed, e.getKey())));
+                        if (salvo != null)
+                            book.put(e.getKey(), salvo);
+                    }
+                if (d + 1 < depth)
+                    level = nextLevel(fleets, book, d + 1);
+            }
+            return book;
+        }
+
+        /**
+         * Calcula o livro e escreve-o num ficheiro, substituindo-o se existir.
+         *
+         * @param file ficheiro do livro
+         * @return o número de estados do livro
+         * @throws IOException se o ficheiro não puder ser escrito
+         */
+        public int write(Path file) throws IOException {
+            Map<Long, int[]> book = build();
+            OpeningBook.write(file, book, salvoSize, depth);
+            return book.size();
+        }
+
+        /**
+         * Joga as rajadas do livro durante {@code turns} turnos contra cada frota e conta os estados
+         * alcançados. Os jogos que saem do livro ou terminam antes não contam.
+         */
+        private static Map<Long, State> nextLevel(List<IFleet> fleets, Map<Long, int[]> book, int turns) {
+            Map<Long, State> level = new LinkedHashMap<>();
+            for (IFleet layout : fleets) {
+                Game game = new Game(FleetGenerator.copyOf(layout));
+                Observation view = new Observation();
+                List<IShip> sunk = new ArrayList<>();
+                int turn = 0;
+                for (; turn < turns && game.getRemainingShips() > 0; turn++) {
+                    int[] salvo = book.get(view.getHash());
+                    if (salvo == null)
+                        break;
+                    for (int cell : salvo) {
+                        IPosition target = Observation.toPosition(cell);
+                        IShip s = game.fire(target);
+                        view.record(target, game.getLastResult().isHit(), s);
+                        if (s != null)
+                            sunk.add(s);
+                    }
+                }
+                if (turn < turns || game.getRemainingShips() == 0)
+                    continue;
+                State state = level.computeIfAbsent(view.getHash(), h -> new State(view, sunk));
+                state.count++;
+            }
+            return level;
+        }
+
+        /**
+         * Escolhe as células desconhecidas mais vezes ocupadas nas frotas coerentes sorteadas (em caso
+         * de empate, a de menor índice).
+         *
+         * @return as células, ou {@code null} se não for possível sortear frotas coerentes
+         */
+        private int[] bestSalvo(State state, Random rnd) {
+            FleetSampler sampler = new FleetSampler(state.view, state.sunk);
+            int[] heat = new int[Observation.CELLS];
+            int drawn = 0;
+            for (int attempt = 0; attempt < 4 * samples && drawn < samples; attempt++) {
+                int[][] ships = sampler.sample(rnd);
+                if (ships == null)
+                    continue;
+                drawn++;
+                for (int[] ship : ships)
+                    for (int cell : ship)
+                        heat[cell]++;
+            }
+            if (drawn == 0)
+                return null;
+
+            boolean[] chosen = new boolean[Observation.CELLS];
+            int[] salvo = new int[salvoSize];
+            int n = 0;
+            for (; n < salvoSize; n++) {
+                int best = -1;
+                for (int c = 0; c < Observation.CELLS; c++)
+                    if (!chosen[c] && state.view.isUnknown(c) && (best < 0 || heat[c] > heat[best]))
+                        best = c;
+                if (best < 0)
+                    break;
+                chosen[best] = true;
+                salvo[n] = best;
+            }
+            return n == salvoSize ? salvo : Arrays.copyOf(salvo, n);
+        }
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int capacity;
+    private final int mask;
+
+    private OpeningBook(FileChannel channel, MappedByteBuffer map, int capacity) {
+        this.channel = channel;
+        this.map = map;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Escreve um livro num ficheiro temporário, força-o para o disco e substitui o ficheiro indicado.
+     *
+     * @param file      ficheiro do livro
+     * @param book      rajadas indexadas pelo hash do estado
+     * @param salvoSize número de disparos por rajada
+     * @param depth     número de rajadas cobertas pelo livro
+     * @throws IOException se o ficheiro não puder ser escrito
+     */
+    static void write(Path file, Map<Long, int[]> book, int salvoSize, int depth) throws IOException {
+        if (book.size() > MAX_CAPACITY / 2)
+            throw new IllegalArgumentException("Demasiados estados: " + book.size());
+        int slots = Math.max(1, Integer.highestOneBit(Math.max(1, 2 * book.size() - 1)) << 1);
+        int mask = slots - 1;
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + slots * ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        out.putLong(MAGIC_AT, MAGIC);
+        out.putInt(CAPACITY_AT, slots);
+        out.putInt(ENTRIES_AT, book.size());
+        out.putInt(SALVO_AT, salvoSize);
+        out.putInt(DEPTH_AT, depth);
+        for (Map.Entry<Long, int[]> e : book.entrySet()) {
+            int[] salvo = e.getValue();
+            if (salvo.length == 0 || salvo.length > MAX_SALVO)
+                throw new IllegalArgumentException("Rajada inválida para o estado " + e.getKey());
+            int slot = (int) mix(e.getKey()) & mask;
+            while (out.get(HEADER_BYTES + slot * ENTRY_BYTES + COUNT) != 0)
+                slot = (slot + 1) & mask;
+            int base = HEADER_BYTES + slot * ENTRY_BYTES;
+            out.putLong(base + HASH, e.getKey());
+            out.put(base + COUNT, (byte) salvo.length);
+            for (int i = 0; i < salvo.length; i++)
+                out.put(base + CELLS + i, (byte) salvo[i]);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining())
+                channel.write(out);
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Abre um livro, mapeando o ficheiro em memória (só de leitura).
+     *
+     * @param file ficheiro do livro
+     * @return o livro aberto
+     * @throws IOException se o ficheiro não puder ser aberto ou não for um livro válido
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_BYTES)
+                throw new IOException("Livro de aberturas inválido: " + file);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            int slots = map.getInt(CAPACITY_AT);
+            if (map.getLong(MAGIC_AT) != MAGIC || Integer.bitCount(slots) != 1 || slots > MAX_CAPACITY
+                    || channel.size() != HEADER_BYTES + (long) slots * ENTRY_BYTES)
+                throw new IOException("Livro de aberturas inválido: " + file);
+            return new OpeningBook(channel, map, slots);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Devolve o número de estados do livro.
+     *
+     * @return número de estados
+     */
+    public int size() {
+        return map.getInt(ENTRIES_AT);
+    }
+
+    /**
+     * Devolve o número de disparos por rajada para o qual o livro foi construído.
+     *
+     * @return o tamanho das rajadas
+     */
+    public int getSalvoSize() {
+        return map.getInt(SALVO_AT);
+    }
+
+    /**
+     * Devolve o número de rajadas (turnos) cobertas pelo livro.
+     *
+     * @return a profundidade do livro
+     */
+    public int getDepth() {
+        return map.getInt(DEPTH_AT);
+    }
+
+    /**
+     * Procura a rajada de um estado.
+     *
+     * @param hash hash de Zobrist do estado ({@link Observation#getHash()}, {@link Game#getObservationHash()})
+     * @return as células a alvejar, ou {@code null} se o estado não estiver no livro
+     */
+    public int[] lookup(long hash) {
+        int slot = (int) mix(hash) & mask;
+        for (int probes = 0; probes < capacity; probes++) {
+            int base = HEADER_BYTES + slot * ENTRY_BYTES;
+            int count = map.get(base + COUNT);
+            if (count == 0)
+                return null;
+            if (map.getLong(base + HASH) == hash) {
+                int[] salvo = new int[count];
+                for (int i = 0; i < count; i++)
+                    salvo[i] = map.get(base + CELLS + i);
+                return salvo;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Procura a rajada de um estado.
+     *
+     * @param view tabuleiro observado
+     * @return as células a alvejar, ou {@code null} se o estado não estiver no livro
+     */
+    public int[] lookup(Observation view) {
+        return lookup(view.getHash());
+    }
+
+    /**
+     * Fecha o ficheiro do livro. O mapeamento é libertado quando deixar de ser usado.
+     *
+     * @throws IOException se o ficheiro não puder ser fechado
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Constrói um livro de aberturas.
+     *
+     * @param args ficheiro, tamanho das rajadas, profundidade, número de frotas, mínimo de frotas por
+     *             estado e semente (todos opcionais)
+     * @throws IOException se o ficheiro não puder ser escrito
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args.length > 0 ? args[0] : "aberturas.book");
+        Builder builder = new Builder(args.length > 1 ? Integer.parseInt(args[1]) : Tasks.NUMBER_SHOTS,
+                args.length > 2 ? Integer.parseInt(args[2]) : 3);
+        if (args.length > 3)
+            builder.setGames(Integer.parseInt(args[3]));
+        if (args.length > 4)
+            builder.setMinCount(Integer.parseInt(args[4]));
+        if (args.length > 5)
+            builder.setSeed(Long.parseLong(args[5]));
+        int entries = builder.write(file);
+        System.out.println(file + ": " + entries + " estados");
+    }
+}
@@ -0,0 +1,94 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Atirador que joga as rajadas de um {@link OpeningBook} enquanto o estado do jogo estiver no livro,
+ * e passa a usar outro atirador a partir da primeira rajada que não esteja.
+ * <p>
+ * O outro atirador recebe o resultado de todos os disparos, incluindo os do livro, pelo que
+ * continua o jogo com o tabuleiro completo. O livro só é consultado para rajadas do tamanho para o
+ * qual foi construído; uma vez fora do livro, o jogo não volta a ele.
+ * </p>
+ */
+public class OpeningBookShooter implements IShooter {
+
+    private final OpeningBook book;
+    private final IShooter fallback;
+    private Observation view;
+    private boolean inBook;
+    private int bookSalvos;
+
+    /**
+     * Constrói um atirador com livro de aberturas.
+     *
+     * @param book     livro de aberturas
+     * @param fallback atirador a usar fora do livro
+     */
+    public OpeningBookShooter(OpeningBook book, IShooter fallback) {
+        this.book = book;
+        this.fallback = fallback;
+        newGame(0);
+    }
+
+    @Override
+    public String getName() {
+        return fallback.getName() + "+livro";
+    }
+
+    /**
+     * Devolve o número de rajadas do jogo corrente tiradas do livro.
+     *
+     * @return número de rajadas do livro
+     */
+    public int getBookSalvos() {
+        return bookSalvos;
+    }
+
+    @Override
+    public void newGame(long seed) {
+        fallback.newGame(seed);
+        view = new Observation();
+        inBook = true;
+        bookSalvos = 0;
+    }
+
+    @Override
+    public IPosition nextShot() {
+        inBook = false;
+        return fallback.nextShot();
+    }
+
+    @Override
+    public List<IPosition> nextSalvo(int size) {
+        if (inBook && size == book.getSalvoSize()) {
+            int[] cells = book.lookup(view);
+            if (cells != null && cells.length == size) {
+                List<IPosition> salvo = new ArrayList<>(size);
+                for (int cell : cells)
+                    if (view.isUnknown(cell))
+                        salvo.add(Observation.toPosition(cell));
+                if (salvo.size() == size) {
+                    bookSalvos++;
+                    return salvo;
+                }
+            }
+        }
+        inBook = false;
+        return fallback.nextSalvo(size);
+    }
+
+    @Override
+    public void observe(IPosition target, ShotResult result, IShip sunk) {
+        fallback.observe(target, result, sunk);
+        if (Observation.isInside(target.getRow(), target.getColumn()) && result != ShotResult.INVALID
+                && result != ShotResult.REPEATED)
+            view.record(target, result.isHit(), sunk);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
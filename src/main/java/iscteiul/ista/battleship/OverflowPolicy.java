@@ -0,0 +1,20 @@
+package iscteiul.ista.battleship;
+
+/**
+ * O que fazer com um evento quando o buffer de um subscritor de {@link GameEventPublisher} está cheio.
+ * <ul>
+ * <li><strong>DROP</strong>: o evento é descartado para esse subscritor (e contado)</li>
+ * <li><strong>LATEST</strong>: os eventos pendentes são substituídos por um retrato do tabuleiro
+ * atual ({@link GameEvent.Type#BOARD}), ou, se a fonte não tiver tabuleiro, o evento mais antigo
+ * é descartado para dar lugar ao novo; os eventos terminais ({@link GameEvent.Type#GAME_OVER}) nunca
+ * são substituídos nem descartados</li>
+ * <li><strong>BLOCK</strong>: quem publica espera que o subscritor liberte espaço; só deve ser usado
+ * por consumidores que não podem perder eventos (por exemplo, gravações), nunca por espectadores,
+ * porque atrasa o jogo</li>
+ * </ul>
+ */
+public enum OverflowPolicy {
+    DROP,
+    LATEST,
+    BLOCK
+}
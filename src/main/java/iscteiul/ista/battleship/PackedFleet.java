@@ -0,0 +1,323 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Frota compacta, guardada em arrays de tipos primitivos.
+ * <p>
+ * Uma {@link Fleet} normal ocupa dezenas de objetos por navio (o navio, a lista de posições e cada
+ * {@link Position} com a sua marca de atingida). Aqui, cada navio é um {@code int} com o tipo, a
+ * orientação e a posição inicial ({@link ShipShapes#pack(int, int)}) e um {@code byte} com a máscara
+ * das suas células atingidas: o bit {@code i} corresponde à célula {@code i} da forma
+ * ({@link ShipShapes#offsets(int)}). Um terceiro array indica, para cada célula do tabuleiro, o navio
+ * que a ocupa. A frota inteira ocupa cerca de 250 bytes e as verificações de afundamento percorrem
+ * apenas os dois primeiros arrays, sem seguir referências.
+ * </p>
+ *
+ * <p>
+ * As regras de {@link #addShip(IShip)} são as de {@link Fleet#addShip(IShip)}. Os navios devolvidos
+ * pelos métodos de {@link IFleet} são vistas {@link PackedShip} construídas a pedido: disparar sobre
+ * elas altera esta frota, pelo que um {@link Game} pode jogar diretamente sobre uma frota compacta.
+ * A frota não é segura entre threads.
+ * </p>
+ */
+public class PackedFleet implements IFleet {
+
+    /**
+     * Número máximo de navios (o limite de {@link Fleet#addShip(IShip)}).
+     */
+    public static final int MAX_SHIPS = GameArena.MAX_SHIPS;
+
+    private final int[] ships = new int[MAX_SHIPS];
+    private final byte[] hits = new byte[MAX_SHIPS];
+
+    /**
+     * Para cada célula, o índice (mais um) do navio que a ocupa, ou 0 se estiver vazia.
+     */
+    private final byte[] shipAt = new byte[Observation.CELLS];
+
+    private int count;
+    private IOutputSink output = ConsoleOutput.INSTANCE;
+
+    /**
+     * Constrói uma frota compacta vazia.
+     */
+    public PackedFleet() {
+    }
+
+    /**
+     * Constrói uma frota compacta com os navios de outra frota, incluindo os tiros que já sofreram.
+     *
+     * @param fleet frota a copiar
+     * @return a frota compacta
+     * @throws IllegalArgumentException se a frota não respeitar as regras de {@link Fleet#addShip(IShip)}
+     */
+    public static PackedFleet of(IFleet fleet) {
+        PackedFleet packed = new PackedFleet();
+        for (IShip s : fleet.getShips())
+            if (!packed.addShip(s))
+                throw new IllegalArgumentException("Frota ilegal: " + s);
+        return packed;
+    }
+
+    /**
+     * Devolve o número de células de um navio codificado.
+     *
+     * @param packed navio codificado
+     * @return o tamanho do navio
+     */
+    static int size(int packed) {
+        return ShipShapes.offsets(ShipShapes.shape(packed)).length;
+    }
+
+    /**
+     * Devolve a célula {@code i} de um navio codificado.
+     *
+     * @param packed navio codificado
+     * @param i      índice da célula na forma do navio
+     * @return o índice linear da célula no tabuleiro
+     */
+    static int cell(int packed, int i) {
+        int[] o = ShipShapes.offsets(ShipShapes.shape(packed))[i];
+        int anchor = ShipShapes.anchor(packed);
+        return Observation.cell(anchor / Fleet.BOARD_SIZE + o[0], anchor % Fleet.BOARD_SIZE + o[1]);
+    }
+
+    /**
+     * Devolve o número de navios.
+     *
+     * @return número de navios
+     */
+    public int getShipCount() {
+        return count;
+    }
+
+    /**
+     * Devolve um navio codificado (ver {@link ShipShapes#pack(int, int)}).
+     *
+     * @param index índice do navio, pela ordem de inserção
+     * @return o navio codificado
+     */
+    public int getPacked(int index) {
+        return ships[index];
+    }
+
+    /**
+     * Devolve a máscara das células atingidas de um navio.
+     *
+     * @param index índice do navio, pela ordem de inserção
+     * @return a máscara: o bit {@code i} indica se a célula {@code i} da forma foi atingida
+     */
+    public int getHitMask(int index) {
+        return hits[index];
+    }
+
+    /**
+     * Indica se um navio foi afundado (todas as células atingidas).
+     *
+     * @param index índice do navio, pela ordem de inserção
+     * @return {@code true} se o navio estiver afundado
+     */
+    public boolean isSunk(int index) {
+        return hits[index] == (1 << size(ships[index])) - 1;
+    }
+
+    /**
+     * Devolve o número de navios ainda a flutuar.
+     *
+     * @return número de navios não afundados
+     */
+    public int getFloatingCount() {
+        int floating = 0;
+        for (int i = 0; i < count; i++)
+            if (!isSunk(i))
+                floating++;
+        return floating;
+    }
+
+    /**
+     * Devolve o índice do navio que ocupa uma célula.
+     *
+     * @param cell índice da célula ({@code linha * BOARD_SIZE + coluna})
+     * @return o índice do navio, ou -1 se a célula estiver vazia
+     */
+    public int shipIndexAt(int cell) {
+        return shipAt[cell] - 1;
+    }
+
+    /**
+     * Acrescenta um navio codificado, com as regras de {@link Fleet#addShip(IShip)}.
+     *
+     * @param packed navio codificado (ver {@link ShipShapes#pack(int, int)})
+     * @return {@code true} se o navio foi acrescentado; {@code false} se for rejeitado
+     */
+    boolean addShip(int packed) {
+        int shape = ShipShapes.shape(packed);
+        int anchor = ShipShapes.anchor(packed);
+        if (count >= MAX_SHIPS || shape >= ShipShapes.SHAPES || anchor >= Observation.CELLS
+                || !ShipShapes.fits(shape, anchor / Fleet.BOARD_SIZE, anchor % Fleet.BOARD_SIZE))
+            return false;
+        int kind = shape / ShipShapes.BEARINGS.length;
+        int sameKind = 0;
+        for (int i = 0; i < count; i++)
+            if (ShipShapes.shape(ships[i]) / ShipShapes.BEARINGS.length == kind)
+                sameKind++;
+        if (sameKind >= ShipShapes.CATEGORIES[kind].getLimit())
+            return false;
+
+        int size = size(packed);
+        for (int i = 0; i < size; i++) {
+            int cell = cell(packed, i);
+            int row = cell / Fleet.BOARD_SIZE;
+            int column = cell % Fleet.BOARD_SIZE;
+            for (int dr = -1; dr <= 1; dr++)
+                for (int dc = -1; dc <= 1; dc++)
+                    if (Observation.isInside(row + dr, column + dc)
+                            && shipAt[Observation.cell(row + dr, column + dc)] != 0)
+                        return false;
+        }
+
+        for (int i = 0; i < size; i++)
+            shipAt[cell(packed, i)] = (byte) (count + 1);
+        ships[count] = packed;
+        hits[count] = 0;
+        count++;
+        return true;
+    }
+
+    /**
+     * Regista um tiro numa célula.
+     *
+     * @param cell índice da célula ({@code linha * BOARD_SIZE + coluna})
+     * @return o índice do navio atingido, ou -1 se a célula estiver vazia
+     */
+    public int shoot(int cell) {
+        int index = shipAt[cell] - 1;
+        if (index >= 0)
+            hits[index] |= bit(index, cell);
+        return index;
+    }
+
+    /**
+     * Anula um tiro numa célula (operação inversa de {@link #shoot(int)}).
+     *
+     * @param cell índice da célula ({@code linha * BOARD_SIZE + coluna})
+     * @return o índice do navio reparado, ou -1 se a célula estiver vazia
+     */
+    public int repair(int cell) {
+        int index = shipAt[cell] - 1;
+        if (index >= 0)
+            hits[index] &= ~bit(index, cell);
+        return index;
+    }
+
+    /**
+     * Constrói uma frota normal (objetos no heap) igual a esta, incluindo os tiros sofridos.
+     *
+     * @return a frota
+     */
+    public Fleet toFleet() {
+        Fleet fleet = new Fleet();
+        for (int i = 0; i < count; i++) {
+            Ship s = ShipShapes.toShip(ships[i]);
+            for (int j = 0; j < s.getSize(); j++)
+                if ((hits[i] & 1 << j) != 0)
+                    s.getPositions().get(j).shoot();
+            fleet.addShip(s);
+        }
+        return fleet;
+    }
+
+    /**
+     * Devolve a máscara de um navio com a célula indicada.
+     */
+    private int bit(int index, int cell) {
+        int packed = ships[index];
+        for (int i = 0, n = size(packed); i < n; i++)
+            if (cell(packed, i) == cell)
+                return 1 << i;
+        throw new IllegalStateException("Célula " + cell + " não pertence ao navio " + index);
+    }
+
+    // -----------------------------------------------------
+
+    /**
+     * Devolve vistas sobre os navios da frota.
+     *
+     * @return lista nova com os navios
+     */
+    @Override
+    public List<IShip> getShips() {
+        List<IShip> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            list.add(new PackedShip(this, i));
+        return list;
+    }
+
+    /**
+     * Acrescenta uma cópia compacta de um navio, com os tiros que já sofreu.
+     *
+     * @param s navio a acrescentar
+     * @return {@code true} se o navio foi acrescentado; {@code false} se for rejeitado
+     */
+    @Override
+    public boolean addShip(IShip s) {
+        int kind = ShipShapes.kindIndex(s.getCategory().toLowerCase());
+        if (kind < 0 || !Observation.isInside(s.getPosition().getRow(), s.getPosition().getColumn()))
+            return false;
+        if (!addShip(ShipShapes.pack(s)))
+            return false;
+        for (IPosition p : s.getPositions())
+            if (p.isHit())
+                shoot(Observation.cell(p));
+        return true;
+    }
+
+    @Override
+    public List<IShip> getShipsLike(String category) {
+        List<IShip> shipsLike = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            if (ShipShapes.CATEGORIES[ShipShapes.shape(ships[i]) / ShipShapes.BEARINGS.length].getName()
+                    .equals(category))
+                shipsLike.add(new PackedShip(this, i));
+        return shipsLike;
+    }
+
+    @Override
+    public List<IShip> getFloatingShips() {
+        List<IShip> floatingShips = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            if (!isSunk(i))
+                floatingShips.add(new PackedShip(this, i));
+        return floatingShips;
+    }
+
+    @Override
+    public IShip shipAt(IPosition pos) {
+        if (!Observation.isInside(pos.getRow(), pos.getColumn()))
+            return null;
+        int index = shipIndexAt(Observation.cell(pos));
+        return index < 0 ? null : new PackedShip(this, index);
+    }
+
+    @Override
+    public void printStatus() {
+        if (!output.isEnabled())
+            return;
+        Fleet copy = toFleet();
+        copy.setOutput(output);
+        copy.printStatus();
+    }
+
+    @Override
+    public IOutputSink getOutput() {
+        return output;
+    }
+
+    @Override
+    public void setOutput(IOutputSink out) {
+        assert out != null;
+        output = out;
+    }
+}
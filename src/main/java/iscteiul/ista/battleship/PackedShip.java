@@ -0,0 +1,170 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vista {@link IShip} sobre um navio de uma {@link PackedFleet}.
+ * <p>
+ * A vista não guarda estado próprio além da frota e do índice do navio: {@link #shoot(IPosition)} e
+ * {@link #repair(IPosition)} alteram a máscara de células atingidas da frota, e as restantes operações
+ * são calculadas a partir do navio codificado. {@link #getPositions()} devolve posições novas, com a
+ * marca de atingida copiada da máscara.
+ * </p>
+ */
+public class PackedShip implements IShip {
+
+    private final PackedFleet fleet;
+    private final int index;
+
+    /**
+     * Constrói uma vista sobre um navio de uma frota compacta.
+     *
+     * @param fleet frota compacta
+     * @param index índice do navio, pela ordem de inserção
+     */
+    public PackedShip(PackedFleet fleet, int index) {
+        this.fleet = fleet;
+        this.index = index;
+    }
+
+    private int packed() {
+        return fleet.getPacked(index);
+    }
+
+    private Category category() {
+        return ShipShapes.CATEGORIES[ShipShapes.shape(packed()) / ShipShapes.BEARINGS.length];
+    }
+
+    @Override
+    public String getCategory() {
+        return category().getName();
+    }
+
+    @Override
+    public Integer getSize() {
+        return PackedFleet.size(packed());
+    }
+
+    @Override
+    public List<IPosition> getPositions() {
+        int packed = packed();
+        int hits = fleet.getHitMask(index);
+        int size = PackedFleet.size(packed);
+        List<IPosition> positions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Position p = Observation.toPosition(PackedFleet.cell(packed, i));
+            if ((hits & 1 << i) != 0)
+                p.shoot();
+            positions.add(p);
+        }
+        return positions;
+    }
+
+    @Override
+    public IPosition getPosition() {
+        return Observation.toPosition(ShipShapes.anchor(packed()));
+    }
+
+    @Override
+    public Compass getBearing() {
+        return ShipShapes.BEARINGS[ShipShapes.shape(packed()) % ShipShapes.BEARINGS.length];
+    }
+
+    @Override
+    public boolean stillFloating() {
+        return !fleet.isSunk(index);
+    }
+
+    @Override
+    public int getTopMostPos() {
+        int top = Integer.MAX_VALUE;
+        for (int i = 0, n = getSize(); i < n; i++)
+            top = Math.min(top, PackedFleet.cell(packed(), i) / Fleet.BOARD_SIZE);
+        return top;
+    }
+
+    @Override
+    public int getBottomMostPos() {
+        int bottom = Integer.MIN_VALUE;
+        for (int i = 0, n = getSize(); i < n; i++)
+            bottom = Math.max(bottom, PackedFleet.cell(packed(), i) / Fleet.BOARD_SIZE);
+        return bottom;
+    }
+
+    @Override
+    public int getLeftMostPos() {
+        int left = Integer.MAX_VALUE;
+        for (int i = 0, n = getSize(); i < n; i++)
+            left = Math.min(left, PackedFleet.cell(packed(), i) % Fleet.BOARD_SIZE);
+        return left;
+    }
+
+    @Override
+    public int getRightMostPos() {
+        int right = Integer.MIN_VALUE;
+        for (int i = 0, n = getSize(); i < n; i++)
+            right = Math.max(right, PackedFleet.cell(packed(), i) % Fleet.BOARD_SIZE);
+        return right;
+    }
+
+    @Override
+    public boolean occupies(IPosition pos) {
+        assert pos != null;
+        return Observation.isInside(pos.getRow(), pos.getColumn())
+                && fleet.shipIndexAt(Observation.cell(pos)) == index;
+    }
+
+    @Override
+    public boolean tooCloseTo(IShip other) {
+        assert other != null;
+        for (IPosition p : other.getPositions())
+            if (tooCloseTo(p))
+                return true;
+        return false;
+    }
+
+    @Override
+    public boolean tooCloseTo(IPosition pos) {
+        for (int i = 0, n = getSize(); i < n; i++) {
+            int cell = PackedFleet.cell(packed(), i);
+            if (Math.abs(cell / Fleet.BOARD_SIZE - pos.getRow()) <= 1
+                    && Math.abs(cell % Fleet.BOARD_SIZE - pos.getColumn()) <= 1)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void shoot(IPosition pos) {
+        assert pos != null;
+        if (occupies(pos))
+            fleet.shoot(Observation.cell(pos));
+    }
+
+    @Override
+    public void repair(IPosition pos) {
+        assert pos != null;
+        if (occupies(pos))
+            fleet.repair(Observation.cell(pos));
+    }
+
+    /**
+     * Duas vistas são iguais se mostrarem o mesmo navio da mesma frota.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PackedShip && ((PackedShip) other).fleet == fleet
+                && ((PackedShip) other).index == index;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(fleet) * 31 + index;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getCategory() + " " + getBearing() + " " + getPosition() + "]";
+    }
+}
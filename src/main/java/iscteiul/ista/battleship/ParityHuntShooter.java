@@ -0,0 +1,65 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Atirador de referência do tipo "caça e alvo" com paridade.
+ * <p>
+ * Enquanto não houver navios atingidos por afundar (modo caça), dispara ao acaso sobre as
+ * células de uma das cores de um tabuleiro de xadrez, que cobrem qualquer navio com mais de
+ * uma célula; as células vizinhas de navios afundados são ignoradas, porque as regras não
+ * permitem navios adjacentes. Quando há acertos por afundar (modo alvo), dispara sobre as
+ * células vizinhas desses acertos, dando prioridade às que prolongam uma linha de acertos.
+ * </p>
+ */
+public class ParityHuntShooter extends AbstractShooter {
+
+    private static final int[][] NEIGHBOURS = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
+
+    /**
+     * Constrói um atirador de caça e alvo com paridade.
+     */
+    public ParityHuntShooter() {
+        super("Paridade");
+    }
+
+    /**
+     * Escolhe uma vizinha de um acerto por afundar, se existir; caso contrário uma célula da
+     * paridade escolhida ao acaso.
+     *
+     * @return o índice linear da célula escolhida, ou -1 se não houver células disponíveis
+     */
+    @Override
+    protected int choose() {
+        int fallback = -1;
+        for (int c = 0; c < Observation.CELLS; c++) {
+            if (view.get(c) != CellState.HIT)
+                continue;
+            int row = c / Fleet.BOARD_SIZE;
+            int column = c % Fleet.BOARD_SIZE;
+            for (int[] d : NEIGHBOURS) {
+                int r = row + d[0];
+                int col = column + d[1];
+                if (!Observation.isInside(r, col) || !isAvailable(Observation.cell(r, col)))
+                    continue;
+                // prolonga uma linha de acertos: o vizinho do lado oposto também foi atingido
+                int br = row - d[0];
+                int bc = column - d[1];
+                if (Observation.isInside(br, bc) && view.get(br, bc) == CellState.HIT)
+                    return Observation.cell(r, col);
+                if (fallback < 0)
+                    fallback = Observation.cell(r, col);
+            }
+        }
+        return fallback >= 0 ? fallback : randomAvailable();
+    }
+
+    /**
+     * Uma célula é promissora no modo caça se pertencer à paridade e puder conter um navio.
+     *
+     * @param cell índice linear da célula
+     * @return {@code true} se a célula for promissora
+     */
+    @Override
+    protected boolean isPromising(int cell) {
+        return (cell / Fleet.BOARD_SIZE + cell % Fleet.BOARD_SIZE) % 2 == 0 && view.couldHoldShip(cell);
+    }
+}
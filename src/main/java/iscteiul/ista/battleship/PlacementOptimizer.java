@@ -0,0 +1,229 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Otimizador genético de disposições de frota difíceis de encontrar.
+ * <p>
+ * Evolui uma população de {@link FleetGenome} de forma a maximizar o número médio de disparos
+ * de que uma estratégia de tiro ({@link IShooter}) precisa para afundar a frota. Em cada geração:
+ * </p>
+ * <ol>
+ *   <li>cada genoma é avaliado jogando {@code gamesPerEvaluation} jogos contra a estratégia,
+ *   em paralelo;</li>
+ *   <li>os melhores genomas ({@code elite}) passam diretamente à geração seguinte;</li>
+ *   <li>os restantes são obtidos por seleção em torneio, cruzamento e mutação.</li>
+ * </ol>
+ *
+ * <p>
+ * Todos os genomas de uma geração são avaliados com as mesmas sementes de jogo, o que reduz o
+ * ruído da comparação. Para a mesma semente, o resultado não depende do número de threads.
+ * </p>
+ */
+public class PlacementOptimizer {
+
+    private final Supplier<? extends IShooter> opponent;
+    private final List<String> kinds;
+
+    private int populationSize = 64;
+    private int gamesPerEvaluation = 32;
+    private int elite = 2;
+    private int tournamentSize = 3;
+    private double mutationRate = 0.15;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Melhor aptidão de cada geração já avaliada.
+     */
+    private final List<Double> history = new ArrayList<>();
+
+    /**
+     * Constrói um otimizador de frotas com a composição regulamentar.
+     *
+     * @param opponent fábrica da estratégia de tiro a que as frotas devem resistir
+     */
+    public PlacementOptimizer(Supplier<? extends IShooter> opponent) {
+        this(opponent, FleetGenerator.COMPOSITION);
+    }
+
+    /**
+     * Constrói um otimizador de frotas com os navios indicados.
+     *
+     * @param opponent fábrica da estratégia de tiro a que as frotas devem resistir
+     * @param kinds    tipos de navio da frota
+     */
+    public PlacementOptimizer(Supplier<? extends IShooter> opponent, List<String> kinds) {
+        this.opponent = opponent;
+        this.kinds = List.copyOf(kinds);
+    }
+
+    /**
+     * Define o tamanho da população.
+     *
+     * @param populationSize número de genomas por geração (maior do que a elite)
+     */
+    public void setPopulationSize(int populationSize) {
+        assert populationSize > elite;
+        this.populationSize = populationSize;
+    }
+
+    /**
+     * Define o número de jogos usados para avaliar cada genoma.
+     *
+     * @param gamesPerEvaluation número de jogos por avaliação (pelo menos 1)
+     */
+    public void setGamesPerEvaluation(int gamesPerEvaluation) {
+        assert gamesPerEvaluation > 0;
+        this.gamesPerEvaluation = gamesPerEvaluation;
+    }
+
+    /**
+     * Define a probabilidade de mutação de cada gene.
+     *
+     * @param mutationRate probabilidade entre 0 e 1
+     */
+    public void setMutationRate(double mutationRate) {
+        this.mutationRate = mutationRate;
+    }
+
+    /**
+     * Define o número de threads usadas para avaliar os genomas.
+     *
+     * @param threads número de threads (pelo menos 1)
+     */
+    public void setThreads(int threads) {
+        assert threads > 0;
+        this.threads = threads;
+    }
+
+    /**
+     * Devolve a melhor aptidão (média de disparos) de cada geração da última otimização.
+     *
+     * @return lista com uma entrada por geração
+     */
+    public List<Double> getHistory() {
+        return new ArrayList<>(history);
+    }
+
+    /**
+     * Executa o algoritmo genético.
+     *
+     * @param generations número de gerações
+     * @param seed        semente do algoritmo
+     * @return o melhor genoma encontrado
+     * @throws IllegalStateException se a avaliação for interrompida ou falhar
+     */
+    public FleetGenome optimize(int generations, long seed) {
+        Random rnd = new Random(seed);
+        history.clear();
+        FleetGenome[] population = new FleetGenome[populationSize];
+        for (int i = 0; i < populationSize; i++)
+            population[i] = FleetGenome.random(kinds, rnd);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            FleetGenome best = null;
+            double bestFitness = Double.NEGATIVE_INFINITY;
+            for (int gen = 0; gen < generations; gen++) {
+                double[] fitness = evaluate(population, rnd.nextLong(), executor);
+                Integer[] order = rank(fitness);
+                if (fitness[order[0]] > bestFitness) {
+                    bestFitness = fitness[order[0]];
+                    best = population[order[0]];
+                }
+                history.add(fitness[order[0]]);
+                population = breed(population, fitness, order, rnd);
+            }
+            return best;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Avalia todos os genomas de uma geração em paralelo.
+     *
+     * @param population genomas a avaliar
+     * @param seed       semente dos jogos desta geração
+     * @param executor   executor onde correm as avaliações
+     * @return a aptidão (média de disparos) de cada genoma
+     */
+    private double[] evaluate(FleetGenome[] population, long seed, ExecutorService executor) {
+        List<Future<Double>> futures = new ArrayList<>(population.length);
+        for (FleetGenome genome : population)
+            futures.add(executor.submit(() -> fitness(genome, seed)));
+        double[] fitness = new double[population.length];
+        try {
+            for (int i = 0; i < fitness.length; i++)
+                fitness[i] = futures.get(i).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Otimizacao interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha na avaliacao de um genoma", e.getCause());
+        }
+        return fitness;
+    }
+
+    /**
+     * Calcula a aptidão de um genoma: a média de disparos da estratégia adversária.
+     *
+     * @param genome genoma a avaliar
+     * @param seed   semente dos jogos
+     * @return a média de disparos necessários para afundar a frota
+     */
+    double fitness(FleetGenome genome, long seed) {
+        Fleet layout = genome.toFleet();
+        assert layout != null;
+        IShooter shooter = opponent.get();
+        long total = 0;
+        for (int g = 0; g < gamesPerEvaluation; g++)
+            total += Tournament.play(shooter, layout, Tournament.gameSeed(seed, g), Tasks.NUMBER_SHOTS);
+        return (double) total / gamesPerEvaluation;
+    }
+
+    private Integer[] rank(double[] fitness) {
+        Integer[] order = new Integer[fitness.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> fitness[i]).reversed());
+        return order;
+    }
+
+    /**
+     * Produz a geração seguinte: elite, seguida de filhos obtidos por cruzamento e mutação.
+     */
+    private FleetGenome[] breed(FleetGenome[] population, double[] fitness, Integer[] order, Random rnd) {
+        FleetGenome[] next = new FleetGenome[population.length];
+        for (int i = 0; i < elite; i++)
+            next[i] = population[order[i]];
+        for (int i = elite; i < next.length; i++) {
+            FleetGenome a = select(population, fitness, rnd);
+            FleetGenome b = select(population, fitness, rnd);
+            next[i] = a.crossover(b, rnd).mutate(mutationRate, rnd);
+        }
+        return next;
+    }
+
+    /**
+     * Seleção em torneio: o melhor de {@code tournamentSize} genomas escolhidos ao acaso.
+     */
+    private FleetGenome select(FleetGenome[] population, double[] fitness, Random rnd) {
+        int best = rnd.nextInt(population.length);
+        for (int i = 1; i < tournamentSize; i++) {
+            int other = rnd.nextInt(population.length);
+            if (fitness[other] > fitness[best])
+                best = other;
+        }
+        return population[best];
+    }
+}
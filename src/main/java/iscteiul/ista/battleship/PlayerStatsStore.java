@@ -0,0 +1,371 @@
+package iscteiul.ista.battleship;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Estatísticas acumuladas de cada jogador, guardadas num ficheiro mapeado em memória.
+ * <p>
+ * O ficheiro tem um cabeçalho de {@value #HEADER_BYTES} bytes seguido de uma tabela de registos de
+ * {@value #RECORD_BYTES} bytes, um por jogador. A tabela é também o índice: o registo de um jogador
+ * está na primeira posição livre ou com o seu identificador, a partir da posição dada pelo hash do
+ * identificador (endereçamento aberto com sondagem linear). A capacidade é fixada na criação do ficheiro.
+ * </p>
+ *
+ * <p>
+ * Todas as atualizações são feitas no próprio registo, com incrementos atómicos sobre a memória
+ * mapeada ({@link VarHandle}), pelo que o armazém pode ser atualizado por várias threads sem locks.
+ * Como as páginas mapeadas pertencem ao sistema operativo, as atualizações sobrevivem à terminação
+ * abrupta do processo; {@link #flush()} força a escrita em disco, para sobreviverem também a uma falha
+ * do sistema. O cabeçalho tem uma marca de utilização, ativa enquanto o armazém está aberto: se estiver
+ * ativa ao abrir ({@link #wasClosedCleanly()}), o ficheiro não foi fechado corretamente e as
+ * atualizações feitas depois do último {@link #flush()} podem ter-se perdido.
+ * </p>
+ */
+public class PlayerStatsStore implements Closeable {
+
+    /**
+     * Número mágico no início do ficheiro ({@code "BSPS0001"}).
+     */
+    public static final long MAGIC = 0x4253505330303031L;
+
+    /**
+     * Tamanho do cabeçalho, em bytes.
+     */
+    public static final int HEADER_BYTES = 64;
+
+    /**
+     * Tamanho de cada registo, em bytes.
+     */
+    public static final int RECORD_BYTES = 128;
+
+    /**
+     * Capacidade máxima: a maior potência de dois cujo ficheiro (cabeçalho e registos) cabe num só
+     * mapeamento, de no máximo {@link Integer#MAX_VALUE} bytes.
+     */
+    public static final int MAX_CAPACITY = Integer.highestOneBit(
+            (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES);
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private static final int MAGIC_AT = 0;
+    private static final int CAPACITY_AT = 8;
+    private static final int IN_USE_AT = 16;
+    private static final int PLAYERS_AT = 24;
+
+    /**
+     * Campos de um registo, pela ordem no registo (depois do identificador).
+     */
+    private static final int KEY = 0;
+    private static final int GAMES = 8;
+    private static final int WINS = 16;
+    private static final int SHOTS = 24;
+    private static final int HITS = 32;
+    private static final int REPEATED = 40;
+    private static final int INVALID = 48;
+    private static final int SUNK = 56;
+
+    /**
+     * Estatísticas de um jogador num dado momento.
+     */
+    public static final class PlayerStats {
+        private final long player;
+        private final long[] values;
+
+        private PlayerStats(long player, long[] values) {
+            this.player = player;
+            this.values = values;
+        }
+
+        /**
+         * Devolve o identificador do jogador.
+         *
+         * @return o identificador
+         */
+        public long getPlayer() {
+            return player;
+        }
+
+        /**
+         * Devolve o número de jogos.
+         *
+         * @return número de jogos
+         */
+        public long getGames() {
+            return values[GAMES / 8];
+        }
+
+        /**
+         * Devolve o número de vitórias.
+         *
+         * @return número de vitórias
+         */
+        public long getWins() {
+            return values[WINS / 8];
+        }
+
+        /**
+         * Devolve o número de tiros válidos não repetidos.
+         *
+         * @return número de tiros
+         */
+        public long getShots() {
+            return values[SHOTS / 8];
+        }
+
+        /**
+         * Devolve o número de acertos.
+         *
+         * @return número de acertos
+         */
+        public long getHits() {
+            return values[HITS / 8];
+        }
+
+        /**
+         * Devolve o número de tiros repetidos.
+         *
+         * @return número de tiros repetidos
+         */
+        public long getRepeatedShots() {
+            return values[REPEATED / 8];
+        }
+
+        /**
+         * Devolve o número de tiros inválidos.
+         *
+         * @return número de tiros inválidos
+         */
+        public long getInvalidShots() {
+            return values[INVALID / 8];
+        }
+
+        /**
+         * Devolve o número de navios afundados de uma categoria.
+         *
+         * @param category categoria
+         * @return número de navios afundados dessa categoria
+         */
+        public long getSunk(Category category) {
+            return values[SUNK / 8 + category.ordinal()];
+        }
+
+        /**
+         * Retorna as estatísticas numa linha.
+         *
+         * @return uma string com o jogador e os contadores
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("jogador ").append(player).append(": jogos=").append(getGames())
+                    .append(" vitorias=").append(getWins()).append(" tiros=").append(getShots())
+                    .append(" acertos=").append(getHits()).append(" repetidos=").append(getRepeatedShots())
+                    .append(" invalidos=").append(getInvalidShots());
+            for (Category c : Category.values())
+                sb.append(' ').append(c.getKind()).append('=').append(getSunk(c));
+            return sb.toString();
+        }
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int capacity;
+    private final int mask;
+    private final boolean closedCleanly;
+
+    private PlayerStatsStore(FileChannel channel, MappedByteBuffer map, int capacity, boolean closedCleanly) {
+        this.channel = channel;
+        this.map = map;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.closedCleanly = closedCleanly;
+    }
+
+    /**
+     * Abre o armazém de um ficheiro, criando-o se não existir.
+     *
+     * @param file     ficheiro do armazém
+     * @param capacity número máximo de jogadores de um ficheiro novo (arredondado para uma potência de
+     *                 dois); ignorado se o ficheiro já existir
+     * @return o armazém aberto
+     * @throws IOException se o ficheiro não puder ser aberto ou não for um armazém válido
+     */
+    public static PlayerStatsStore open(Path file, int capacity) throws IOException {
+        if (capacity <= 0 || capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("Capacidade inválida: " + capacity);
+        boolean exists = Files.exists(file) && Files.size(file) > 0;
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            int slots;
+            if (exists) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                long stored = header.getLong(CAPACITY_AT);
+                if (header.getLong(MAGIC_AT) != MAGIC || Long.bitCount(stored) != 1 || stored > MAX_CAPACITY
+                        || channel.size() != HEADER_BYTES + stored * RECORD_BYTES)
+                    throw new IOException("Ficheiro de estatísticas inválido: " + file);
+                slots = (int) stored;
+            } else {
+                slots = Math.max(1, Integer.highestOneBit(capacity - 1) << 1);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) slots * RECORD_BYTES);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (!exists) {
+                map.putLong(CAPACITY_AT, slots);
+                map.putLong(MAGIC_AT, MAGIC);
+            }
+            boolean clean = (long) LONGS.getAndSet(map, IN_USE_AT, 1L) == 0;
+            map.force();
+            return new PlayerStatsStore(channel, map, slots, clean);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Indica se, ao abrir, o ficheiro tinha sido fechado corretamente (ou era novo).
+     *
+     * @return {@code false} se o processo que o usou antes terminou sem chamar {@link #close()}
+     */
+    public boolean wasClosedCleanly() {
+        return closedCleanly;
+    }
+
+    /**
+     * Devolve o número máximo de jogadores.
+     *
+     * @return a capacidade
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Devolve o número de jogadores registados.
+     *
+     * @return número de jogadores
+     */
+    public long size() {
+        return (long) LONGS.getVolatile(map, PLAYERS_AT);
+    }
+
+    /**
+     * Regista o resultado de um jogo terminado: um jogo (e uma vitória, se for o caso), os tiros, acertos,
+     * tiros repetidos e inválidos, e os navios afundados de cada categoria.
+     *
+     * @param player identificador do jogador (não negativo)
+     * @param game   jogo em que o jogador foi o atacante
+     * @param fleet  frota atacada nesse jogo
+     * @param won    {@code true} se o jogador ganhou
+     */
+    public void record(long player, IGame game, IFleet fleet, boolean won) {
+        int base = locate(player, true);
+        add(base + GAMES, 1);
+        if (won)
+            add(base + WINS, 1);
+        add(base + SHOTS, game.getShots().size());
+        add(base + HITS, game.getHits());
+        add(base + REPEATED, game.getRepeatedShots());
+        add(base + INVALID, game.getInvalidShots());
+        for (IShip s : fleet.getShips()) {
+            Category c = Category.of(s);
+            if (c != null && !s.stillFloating())
+                add(base + SUNK + 8 * c.ordinal(), 1);
+        }
+    }
+
+    /**
+     * Obtém as estatísticas de um jogador.
+     *
+     * @param player identificador do jogador
+     * @return as estatísticas, ou {@code null} se o jogador não estiver registado
+     */
+    public PlayerStats get(long player) {
+        int base = locate(player, false);
+        if (base < 0)
+            return null;
+        long[] values = new long[SUNK / 8 + Category.values().length];
+        for (int i = 1; i < values.length; i++)
+            values[i] = (long) LONGS.getVolatile(map, base + 8 * i);
+        return new PlayerStats(player, values);
+    }
+
+    /**
+     * Força a escrita em disco de todas as atualizações feitas até ao momento.
+     */
+    public void flush() {
+        map.force();
+    }
+
+    /**
+     * Fecha o armazém, escrevendo em disco as atualizações e desativando a marca de utilização.
+     *
+     * @throws IOException se o ficheiro não puder ser fechado
+     */
+    @Override
+    public void close() throws IOException {
+        map.force();
+        LONGS.setVolatile(map, IN_USE_AT, 0L);
+        map.force();
+        channel.close();
+    }
+
+    private void add(int offset, long delta) {
+        if (delta != 0)
+            LONGS.getAndAdd(map, offset, delta);
+    }
+
+    /**
+     * Encontra o registo de um jogador.
+     *
+     * @param player identificador do jogador
+     * @param create se o registo deve ser criado quando não existe
+     * @return a posição do registo no ficheiro, ou -1 se não existir e não for criado
+     * @throws IllegalStateException se for preciso criar o registo e o armazém estiver cheio
+     */
+    private int locate(long player, boolean create) {
+        if (player < 0)
+            throw new IllegalArgumentException("Identificador de jogador negativo: " + player);
+        long key = player + 1;
+        int slot = (int) mix(player) & mask;
+        for (int probes = 0; probes < capacity; probes++) {
+            int base = HEADER_BYTES + slot * RECORD_BYTES;
+            long current = (long) LONGS.getVolatile(map, base + KEY);
+            if (current == key)
+                return base;
+            if (current == 0) {
+                if (!create)
+                    return -1;
+                long witness = (long) LONGS.compareAndExchange(map, base + KEY, 0L, key);
+                if (witness == 0) {
+                    LONGS.getAndAdd(map, PLAYERS_AT, 1L);
+                    return base;
+                }
+                if (witness == key)
+                    return base;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (create)
+            throw new IllegalStateException("Armazém de estatísticas cheio (" + capacity + " jogadores)");
+        return -1;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
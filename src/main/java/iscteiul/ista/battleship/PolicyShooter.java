@@ -0,0 +1,37 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Adaptador que transforma uma {@link ITargetingPolicy} num {@link IShooter}.
+ * <p>
+ * A política só conhece o tabuleiro observado; se, numa rajada, escolher uma célula já
+ * pendente, o atirador recorre a uma célula disponível escolhida ao acaso.
+ * </p>
+ */
+public class PolicyShooter extends AbstractShooter {
+
+    private final ITargetingPolicy policy;
+
+    /**
+     * Constrói um atirador que segue a política indicada.
+     *
+     * @param name   nome da estratégia
+     * @param policy política de pontaria a seguir
+     */
+    public PolicyShooter(String name, ITargetingPolicy policy) {
+        super(name);
+        this.policy = policy;
+    }
+
+    /**
+     * Escolhe a célula indicada pela política, se estiver disponível.
+     *
+     * @return o índice linear da célula escolhida, ou -1 se não houver células disponíveis
+     */
+    @Override
+    protected int choose() {
+        int cell = policy.target(view);
+        if (cell >= 0 && cell < Observation.CELLS && isAvailable(cell))
+            return cell;
+        return randomAvailable();
+    }
+}
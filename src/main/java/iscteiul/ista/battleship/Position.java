@@ -113,6 +113,14 @@ public class Position implements IPosition {
         isHit = true;
     }
 
+    /**
+     * Anula um disparo nesta posição, marcando-a como não atingida.
+     */
+    @Override
+    public void repair() {
+        isHit = false;
+    }
+
     /**
      * Verifica se a posição está ocupada por um navio.
      *
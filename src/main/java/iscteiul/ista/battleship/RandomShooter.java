@@ -0,0 +1,24 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Atirador de referência que dispara sempre sobre uma célula desconhecida escolhida ao acaso.
+ */
+public class RandomShooter extends AbstractShooter {
+
+    /**
+     * Constrói um atirador aleatório.
+     */
+    public RandomShooter() {
+        super("Aleatorio");
+    }
+
+    /**
+     * Escolhe uma célula disponível ao acaso.
+     *
+     * @return o índice linear da célula escolhida, ou -1 se não houver células disponíveis
+     */
+    @Override
+    protected int choose() {
+        return randomAvailable();
+    }
+}
@@ -0,0 +1,47 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Motivo pelo qual um navio ou uma frota é rejeitado.
+ * <ul>
+ * <li><strong>MALFORMED_LINE</strong>: a linha não segue o formato {@code tipo linha coluna orientação}</li>
+ * <li><strong>UNKNOWN_SHIP</strong>: o tipo de navio não existe</li>
+ * <li><strong>INVALID_BEARING</strong>: a orientação não é válida para o tipo de navio</li>
+ * <li><strong>FLEET_FULL</strong>: a frota já tem o número máximo de navios</li>
+ * <li><strong>CATEGORY_FULL</strong>: a frota já tem o número máximo de navios da categoria</li>
+ * <li><strong>OUTSIDE_BOARD</strong>: o navio não cabe no tabuleiro</li>
+ * <li><strong>TOO_CLOSE</strong>: o navio toca (ou sobrepõe) um navio já colocado</li>
+ * <li><strong>INCOMPLETE_FLEET</strong>: a frota tem menos navios do que o regulamento exige</li>
+ * </ul>
+ * Os motivos {@code FLEET_FULL}, {@code CATEGORY_FULL}, {@code OUTSIDE_BOARD} e {@code TOO_CLOSE} correspondem às regras de
+ * {@link Fleet#addShip(IShip)} (ver {@link Fleet#rejectionReason(IShip)}).
+ */
+public enum RejectionReason {
+    MALFORMED_LINE("linha mal formada"),
+    UNKNOWN_SHIP("navio desconhecido"),
+    INVALID_BEARING("orientação inválida"),
+    FLEET_FULL("frota completa"),
+    CATEGORY_FULL("categoria completa"),
+    OUTSIDE_BOARD("fora do tabuleiro"),
+    TOO_CLOSE("demasiado perto de outro navio"),
+    INCOMPLETE_FLEET("frota incompleta");
+
+    private final String description;
+
+    /**
+     * Construtor do motivo.
+     *
+     * @param description descrição do motivo, para relatórios
+     */
+    RejectionReason(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Obtém a descrição do motivo.
+     *
+     * @return a descrição, para relatórios
+     */
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,476 @@
+package iscteiul.ista.battleship;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Perfil de regras do jogo, carregado de um ficheiro de propriedades e compilado em tabelas.
+ * <p>
+ * Um perfil define as dimensões do tabuleiro, o número de tiros de cada rajada, os tipos de navio
+ * (com a forma de cada um em cada orientação e o número de navios de cada tipo numa frota) e se os
+ * navios se podem tocar. O formato está descrito no perfil clássico, {@code /rulesets/classic.properties},
+ * que reproduz as regras de {@link Fleet}, {@link Ship} e {@link Tasks}.
+ * </p>
+ *
+ * <p>
+ * O perfil é compilado uma única vez, na construção: para cada forma (tipo e orientação) e cada posição
+ * inicial são pré-calculadas as células ocupadas e a máscara da zona de exclusão do navio (as células
+ * ocupadas e, se os navios não se puderem tocar, as adjacentes, incluindo diagonais). Os jogos com o
+ * perfil ({@link RulesetGame}) usam estas tabelas diretamente, sem interpretar as regras em cada
+ * colocação ou tiro. As instâncias são imutáveis e podem ser partilhadas entre threads e jogos.
+ * </p>
+ */
+public final class Ruleset {
+
+    /**
+     * Dimensão máxima (linhas ou colunas) do tabuleiro.
+     */
+    public static final int MAX_DIMENSION = 32;
+
+    /**
+     * Orientações, pela ordem dos índices de orientação.
+     */
+    private static final Compass[] BEARINGS = Compass.values();
+
+    private static final String CLASSIC = "/rulesets/classic.properties";
+
+    private final String name;
+    private final int rows;
+    private final int columns;
+    private final int salvoSize;
+    private final boolean touching;
+    private final List<String> kinds;
+    private final String[] categories;
+    private final int[] limits;
+    private final int[] sizes;
+    private final int fleetSize;
+
+    /**
+     * Número de palavras de 64 bits de uma máscara de células do tabuleiro.
+     */
+    private final int words;
+
+    /**
+     * Deslocamentos {linha, coluna} das células de cada forma, ou {@code null} se a orientação não for
+     * válida para o tipo.
+     */
+    private final int[][][] offsets;
+
+    /**
+     * Células ocupadas por cada forma em cada posição inicial, ou {@code null} se não couber no tabuleiro.
+     */
+    private final int[][][] cells;
+
+    /**
+     * Zona de exclusão de cada forma em cada posição inicial, ou {@code null} se não couber no tabuleiro.
+     */
+    private final long[][][] zones;
+
+    /**
+     * Compila um perfil de regras.
+     *
+     * @param p propriedades do perfil
+     * @throws IllegalArgumentException se o perfil estiver incompleto ou for inválido
+     */
+    private Ruleset(Properties p) {
+        name = p.getProperty("name", "");
+        rows = intProperty(p, "board.rows", 1, MAX_DIMENSION);
+        columns = intProperty(p, "board.columns", 1, MAX_DIMENSION);
+        salvoSize = intProperty(p, "salvo.size", 1, rows * columns);
+        touching = Boolean.parseBoolean(required(p, "ships.touching"));
+        words = (rows * columns + 63) >>> 6;
+
+        List<String> k = new ArrayList<>();
+        for (String kind : required(p, "ships").split(",")) {
+            kind = kind.trim();
+            if (kind.isEmpty() || k.contains(kind))
+                throw invalid("ships", "tipo vazio ou repetido");
+            k.add(kind);
+        }
+        kinds = Collections.unmodifiableList(k);
+
+        int n = kinds.size();
+        categories = new String[n];
+        limits = new int[n];
+        sizes = new int[n];
+        offsets = new int[n * BEARINGS.length][][];
+        cells = new int[offsets.length][][];
+        zones = new long[offsets.length][][];
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            String prefix = "ship." + kinds.get(i) + ".";
+            categories[i] = p.getProperty(prefix + "name", kinds.get(i)).trim();
+            limits[i] = intProperty(p, prefix + "count", 0, rows * columns);
+            total += limits[i];
+            String all = p.getProperty(prefix + "cells");
+            for (Compass bearing : BEARINGS) {
+                String shape = p.getProperty(prefix + bearing, all);
+                if (shape == null)
+                    continue;
+                int s = shapeIndex(i, bearing);
+                offsets[s] = parseShape(prefix + bearing, shape);
+                if (sizes[i] == 0)
+                    sizes[i] = offsets[s].length;
+                else if (sizes[i] != offsets[s].length)
+                    throw invalid(prefix + bearing, "número de células diferente das outras orientações");
+                compile(s);
+            }
+            if (sizes[i] == 0)
+                throw invalid(prefix + "cells", "o tipo não tem nenhuma forma");
+        }
+        fleetSize = total;
+    }
+
+    /**
+     * Pré-calcula as células e a zona de exclusão de uma forma em todas as posições iniciais.
+     *
+     * @param shape índice da forma
+     */
+    private void compile(int shape) {
+        int[][] o = offsets[shape];
+        cells[shape] = new int[rows * columns][];
+        zones[shape] = new long[rows * columns][];
+        for (int anchor = 0; anchor < rows * columns; anchor++) {
+            int row = anchor / columns;
+            int column = anchor % columns;
+            int[] placed = new int[o.length];
+            long[] zone = new long[words];
+            boolean fits = true;
+            for (int i = 0; i < o.length && fits; i++) {
+                int r = row + o[i][0];
+                int c = column + o[i][1];
+                fits = r >= 0 && r < rows && c >= 0 && c < columns;
+                placed[i] = r * columns + c;
+                int reach = touching ? 0 : 1;
+                for (int dr = -reach; dr <= reach && fits; dr++)
+                    for (int dc = -reach; dc <= reach; dc++)
+                        if (r + dr >= 0 && r + dr < rows && c + dc >= 0 && c + dc < columns) {
+                            int cell = (r + dr) * columns + c + dc;
+                            zone[cell >>> 6] |= 1L << cell;
+                        }
+            }
+            if (fits) {
+                cells[shape][anchor] = placed;
+                zones[shape][anchor] = zone;
+            }
+        }
+    }
+
+    /**
+     * Lê uma forma no formato {@code "linha,coluna linha,coluna ..."}.
+     *
+     * @param key   chave da propriedade, para mensagens de erro
+     * @param value valor da propriedade
+     * @return os deslocamentos {linha, coluna} das células
+     */
+    private int[][] parseShape(String key, String value) {
+        String[] pairs = value.trim().split("\\s+");
+        int[][] shape = new int[pairs.length][];
+        for (int i = 0; i < pairs.length; i++) {
+            String[] rc = pairs[i].split(",");
+            try {
+                if (rc.length != 2)
+                    throw new NumberFormatException(pairs[i]);
+                shape[i] = new int[] { Integer.parseInt(rc[0].trim()), Integer.parseInt(rc[1].trim()) };
+            } catch (NumberFormatException e) {
+                throw invalid(key, "célula mal formada '" + pairs[i] + "'");
+            }
+            for (int j = 0; j < i; j++)
+                if (shape[j][0] == shape[i][0] && shape[j][1] == shape[i][1])
+                    throw invalid(key, "célula repetida '" + pairs[i] + "'");
+        }
+        return shape;
+    }
+
+    private static String required(Properties p, String key) {
+        String value = p.getProperty(key);
+        if (value == null || value.isBlank())
+            throw invalid(key, "propriedade em falta");
+        return value.trim();
+    }
+
+    private static int intProperty(Properties p, String key, int min, int max) {
+        int value;
+        try {
+            value = Integer.parseInt(required(p, key));
+        } catch (NumberFormatException e) {
+            throw invalid(key, "não é um número inteiro");
+        }
+        if (value < min || value > max)
+            throw invalid(key, "fora do intervalo [" + min + ", " + max + "]");
+        return value;
+    }
+
+    private static IllegalArgumentException invalid(String key, String problem) {
+        return new IllegalArgumentException("Perfil de regras inválido: " + key + ": " + problem);
+    }
+
+    // -----------------------------------------------------
+
+    /**
+     * Compila um perfil de regras a partir das suas propriedades.
+     *
+     * @param properties propriedades do perfil
+     * @return o perfil compilado
+     * @throws IllegalArgumentException se o perfil estiver incompleto ou for inválido
+     */
+    public static Ruleset fromProperties(Properties properties) {
+        return new Ruleset(properties);
+    }
+
+    /**
+     * Carrega e compila um perfil de regras de um canal de texto.
+     *
+     * @param in texto do perfil, no formato de {@link Properties#load(Reader)}
+     * @return o perfil compilado
+     * @throws IOException              se a leitura falhar
+     * @throws IllegalArgumentException se o perfil estiver incompleto ou for inválido
+     */
+    public static Ruleset load(Reader in) throws IOException {
+        Properties p = new Properties();
+        p.load(in);
+        return new Ruleset(p);
+    }
+
+    /**
+     * Carrega e compila um perfil de regras de um ficheiro (em UTF-8).
+     *
+     * @param file ficheiro do perfil
+     * @return o perfil compilado
+     * @throws IOException              se a leitura falhar
+     * @throws IllegalArgumentException se o perfil estiver incompleto ou for inválido
+     */
+    public static Ruleset load(Path file) throws IOException {
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return load(in);
+        }
+    }
+
+    /**
+     * Devolve o perfil com as regras clássicas do jogo.
+     *
+     * @return o perfil clássico
+     */
+    public static Ruleset classic() {
+        return Classic.RULES;
+    }
+
+    /**
+     * Perfil clássico, carregado apenas quando é usado pela primeira vez.
+     */
+    private static final class Classic {
+        static final Ruleset RULES;
+
+        static {
+            try (InputStream in = Ruleset.class.getResourceAsStream(CLASSIC)) {
+                if (in == null)
+                    throw new IllegalStateException("Falta o recurso " + CLASSIC);
+                RULES = load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new IllegalStateException("Falha na leitura de " + CLASSIC, e);
+            }
+        }
+    }
+
+    // -----------------------------------------------------
+
+    /**
+     * Devolve o nome do perfil.
+     *
+     * @return o nome (vazio se não tiver sido indicado)
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Devolve o número de linhas do tabuleiro.
+     *
+     * @return número de linhas
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Devolve o número de colunas do tabuleiro.
+     *
+     * @return número de colunas
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Devolve o número de células do tabuleiro.
+     *
+     * @return número de células
+     */
+    public int getCells() {
+        return rows * columns;
+    }
+
+    /**
+     * Devolve o número de tiros de cada rajada.
+     *
+     * @return número de tiros por rajada
+     */
+    public int getSalvoSize() {
+        return salvoSize;
+    }
+
+    /**
+     * Indica se os navios se podem tocar.
+     *
+     * @return {@code true} se só for proibida a sobreposição de navios
+     */
+    public boolean isTouchingAllowed() {
+        return touching;
+    }
+
+    /**
+     * Devolve o número de navios de uma frota completa.
+     *
+     * @return número de navios
+     */
+    public int getFleetSize() {
+        return fleetSize;
+    }
+
+    /**
+     * Devolve os tipos de navio, pela ordem dos índices de tipo.
+     *
+     * @return lista imutável de tipos (ex: {@code "galeao"})
+     */
+    public List<String> getKinds() {
+        return kinds;
+    }
+
+    /**
+     * Devolve o índice de um tipo de navio.
+     *
+     * @param kind tipo de navio
+     * @return o índice do tipo, ou -1 se o tipo for desconhecido
+     */
+    public int kindIndex(String kind) {
+        return kinds.indexOf(kind);
+    }
+
+    /**
+     * Devolve a categoria de um tipo de navio (ex: {@code "Galeao"}).
+     *
+     * @param kind índice do tipo
+     * @return o nome da categoria
+     */
+    public String getCategory(int kind) {
+        return categories[kind];
+    }
+
+    /**
+     * Devolve o número de navios de um tipo numa frota completa.
+     *
+     * @param kind índice do tipo
+     * @return número de navios do tipo
+     */
+    public int getLimit(int kind) {
+        return limits[kind];
+    }
+
+    /**
+     * Devolve o número de células de um navio de um tipo.
+     *
+     * @param kind índice do tipo
+     * @return número de células
+     */
+    public int getSize(int kind) {
+        return sizes[kind];
+    }
+
+    /**
+     * Indica se um tipo de navio pode ser colocado com uma orientação.
+     *
+     * @param kind    índice do tipo
+     * @param bearing orientação
+     * @return {@code true} se o perfil define a forma do tipo nessa orientação
+     */
+    public boolean isValid(int kind, Compass bearing) {
+        return offsets[shapeIndex(kind, bearing)] != null;
+    }
+
+    /**
+     * Devolve o índice de forma de um tipo de navio numa orientação.
+     *
+     * @param kind    índice do tipo
+     * @param bearing orientação
+     * @return o índice da forma
+     */
+    int shapeIndex(int kind, Compass bearing) {
+        return kind * BEARINGS.length + bearing.ordinal();
+    }
+
+    /**
+     * Devolve o índice do tipo de uma forma.
+     *
+     * @param shape índice da forma
+     * @return o índice do tipo
+     */
+    int kindOf(int shape) {
+        return shape / BEARINGS.length;
+    }
+
+    /**
+     * Devolve o número de palavras de 64 bits das máscaras de células.
+     *
+     * @return número de palavras
+     */
+    int words() {
+        return words;
+    }
+
+    /**
+     * Devolve as células (índice {@code linha * colunas + coluna}) ocupadas por uma forma numa
+     * posição inicial. O array devolvido é interno e não deve ser alterado.
+     *
+     * @param shape  índice da forma
+     * @param anchor célula da posição inicial
+     * @return as células, ou {@code null} se a forma não existir ou não couber no tabuleiro
+     */
+    int[] cells(int shape, int anchor) {
+        return cells[shape] == null ? null : cells[shape][anchor];
+    }
+
+    /**
+     * Devolve a zona de exclusão de uma forma numa posição inicial: as células onde um navio colocado
+     * depois não pode ter nenhuma célula. O array devolvido é interno e não deve ser alterado.
+     *
+     * @param shape  índice da forma
+     * @param anchor célula da posição inicial
+     * @return a máscara da zona, ou {@code null} se a forma não existir ou não couber no tabuleiro
+     */
+    long[] zone(int shape, int anchor) {
+        return zones[shape] == null ? null : zones[shape][anchor];
+    }
+
+    /**
+     * Retorna o nome e o resumo do perfil.
+     *
+     * @return uma string com o nome, as dimensões do tabuleiro e a composição da frota
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(name).append(' ').append(rows).append('x').append(columns);
+        sb.append(" rajada=").append(salvoSize).append(touching ? " encostados" : " afastados");
+        for (int i = 0; i < kinds.size(); i++)
+            sb.append(' ').append(limits[i]).append('x').append(kinds.get(i));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,380 @@
+package iscteiul.ista.battleship;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Jogo com as regras de um perfil ({@link Ruleset}): colocação da frota e disparos.
+ * <p>
+ * O estado do jogo é guardado em arrays primitivos e todas as verificações usam as tabelas
+ * pré-calculadas do perfil: uma colocação é legal se nenhuma das células da forma estiver na
+ * zona de exclusão dos navios já colocados, e um tiro consulta diretamente o navio da célula.
+ * Os resultados dos tiros são os de {@link Game#fire(IPosition)}: um tiro só é válido se estiver
+ * dentro do tabuleiro. As instâncias não são seguras entre threads.
+ * </p>
+ */
+public class RulesetGame {
+
+    private final Ruleset rules;
+
+    /**
+     * Zonas de exclusão dos navios colocados.
+     */
+    private final long[] blocked;
+
+    private final long[] shots;
+
+    /**
+     * Índice (mais um) do navio que ocupa cada célula.
+     */
+    private final short[] shipAt;
+
+    /**
+     * Forma e célula da posição inicial de cada navio.
+     */
+    private final int[] shapes;
+    private final int[] anchors;
+
+    /**
+     * Células ainda intactas de cada navio.
+     */
+    private final int[] remaining;
+
+    /**
+     * Número de navios colocados de cada tipo.
+     */
+    private final int[] counts;
+
+    private int ships;
+    private int hits;
+    private int sunk;
+    private int invalid;
+    private int repeated;
+
+    /**
+     * Constrói um jogo sem navios.
+     *
+     * @param rules perfil de regras
+     */
+    public RulesetGame(Ruleset rules) {
+        this.rules = rules;
+        blocked = new long[rules.words()];
+        shots = new long[rules.words()];
+        shipAt = new short[rules.getCells()];
+        shapes = new int[rules.getFleetSize()];
+        anchors = new int[rules.getFleetSize()];
+        remaining = new int[rules.getFleetSize()];
+        counts = new int[rules.getKinds().size()];
+    }
+
+    /**
+     * Devolve o perfil de regras do jogo.
+     *
+     * @return o perfil
+     */
+    public Ruleset getRules() {
+        return rules;
+    }
+
+    /**
+     * Indica se um navio pode ser colocado e, se não, porquê.
+     *
+     * @param kind    tipo de navio (ex: {@code "galeao"})
+     * @param bearing orientação
+     * @param row     linha da posição inicial
+     * @param column  coluna da posição inicial
+     * @return o motivo da rejeição, ou {@code null} se o navio pode ser colocado
+     */
+    public RejectionReason rejectionReason(String kind, Compass bearing, int row, int column) {
+        int k = rules.kindIndex(kind);
+        if (k < 0)
+            return RejectionReason.UNKNOWN_SHIP;
+        if (!rules.isValid(k, bearing))
+            return RejectionReason.INVALID_BEARING;
+        if (ships >= rules.getFleetSize())
+            return RejectionReason.FLEET_FULL;
+        if (counts[k] >= rules.getLimit(k))
+            return RejectionReason.CATEGORY_FULL;
+        if (row < 0 || row >= rules.getRows() || column < 0 || column >= rules.getColumns())
+            return RejectionReason.OUTSIDE_BOARD;
+        int[] cells = rules.cells(rules.shapeIndex(k, bearing), row * rules.getColumns() + column);
+        if (cells == null)
+            return RejectionReason.OUTSIDE_BOARD;
+        for (int cell : cells)
+            if ((blocked[cell >>> 6] & 1L << cell) != 0)
+                return RejectionReason.TOO_CLOSE;
+        return null;
+    }
+
+    /**
+     * Coloca um navio, se as regras o permitirem.
+     *
+     * @param kind    tipo de navio (ex: {@code "galeao"})
+     * @param bearing orientação
+     * @param row     linha da posição inicial
+     * @param column  coluna da posição inicial
+     * @return {@code true} se o navio foi colocado; {@code false} se for rejeitado
+     */
+    public boolean place(String kind, Compass bearing, int row, int column) {
+        if (rejectionReason(kind, bearing, row, column) != null)
+            return false;
+        int k = rules.kindIndex(kind);
+        place(rules.shapeIndex(k, bearing), row * rules.getColumns() + column);
+        return true;
+    }
+
+    /**
+     * Coloca um navio numa posição já verificada.
+     *
+     * @param shape  índice da forma
+     * @param anchor célula da posição inicial
+     */
+    private void place(int shape, int anchor) {
+        int[] cells = rules.cells(shape, anchor);
+        long[] zone = rules.zone(shape, anchor);
+        for (int w = 0; w < blocked.length; w++)
+            blocked[w] |= zone[w];
+        for (int cell : cells)
+            shipAt[cell] = (short) (ships + 1);
+        shapes[ships] = shape;
+        anchors[ships] = anchor;
+        remaining[ships] = cells.length;
+        counts[rules.kindOf(shape)]++;
+        ships++;
+    }
+
+    /**
+     * Completa a frota com os navios em falta, em colocações legais escolhidas ao acaso. Se algum
+     * navio deixar de ter colocações legais, são retirados os navios colocados por este método e a
+     * colocação é recomeçada.
+     *
+     * @param rnd gerador aleatório
+     * @throws IllegalStateException se o jogo já tiver tiros, ou se a frota não couber no tabuleiro
+     *                               depois de várias tentativas
+     */
+    public void placeRandomFleet(Random rnd) {
+        if (getShots() + invalid + repeated > 0)
+            throw new IllegalStateException("O jogo já começou");
+        int fixed = ships;
+        int[] candidates = new int[rules.getCells() * Compass.values().length];
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            if (fillRandomly(rnd, candidates))
+                return;
+            clearFrom(fixed);
+        }
+        throw new IllegalStateException("A frota não cabe no tabuleiro: " + rules);
+    }
+
+    private boolean fillRandomly(Random rnd, int[] candidates) {
+        for (int k = 0; k < counts.length; k++)
+            while (counts[k] < rules.getLimit(k)) {
+                int n = 0;
+                for (Compass bearing : Compass.values()) {
+                    if (!rules.isValid(k, bearing) || bearing == Compass.UNKNOWN && hasCardinalBearing(k))
+                        continue;
+                    int shape = rules.shapeIndex(k, bearing);
+                    for (int anchor = 0; anchor < rules.getCells(); anchor++)
+                        if (isFree(shape, anchor))
+                            candidates[n++] = shape * rules.getCells() + anchor;
+                }
+                if (n == 0)
+                    return false;
+                int chosen = candidates[rnd.nextInt(n)];
+                place(chosen / rules.getCells(), chosen % rules.getCells());
+            }
+        return true;
+    }
+
+    private boolean hasCardinalBearing(int kind) {
+        for (Compass bearing : FleetGenerator.BEARINGS)
+            if (rules.isValid(kind, bearing))
+                return true;
+        return false;
+    }
+
+    private boolean isFree(int shape, int anchor) {
+        int[] cells = rules.cells(shape, anchor);
+        if (cells == null)
+            return false;
+        for (int cell : cells)
+            if ((blocked[cell >>> 6] & 1L << cell) != 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Retira os navios colocados a partir do indicado, recalculando as zonas de exclusão.
+     *
+     * @param first índice do primeiro navio a retirar
+     */
+    private void clearFrom(int first) {
+        Arrays.fill(blocked, 0L);
+        Arrays.fill(shipAt, (short) 0);
+        Arrays.fill(counts, 0);
+        ships = 0;
+        for (int i = 0; i < first; i++)
+            place(shapes[i], anchors[i]);
+    }
+
+    /**
+     * Efetua um tiro.
+     *
+     * @param row    linha do alvo
+     * @param column coluna do alvo
+     * @return o resultado do tiro
+     */
+    public ShotResult fire(int row, int column) {
+        if (row < 0 || row >= rules.getRows() || column < 0 || column >= rules.getColumns()) {
+            invalid++;
+            return ShotResult.INVALID;
+        }
+        int cell = row * rules.getColumns() + column;
+        if ((shots[cell >>> 6] & 1L << cell) != 0) {
+            repeated++;
+            return ShotResult.REPEATED;
+        }
+        shots[cell >>> 6] |= 1L << cell;
+        int ship = shipAt[cell] - 1;
+        if (ship < 0)
+            return ShotResult.MISS;
+        hits++;
+        if (--remaining[ship] > 0)
+            return ShotResult.HIT;
+        sunk++;
+        return ShotResult.SUNK;
+    }
+
+    /**
+     * Efetua uma rajada com o número de tiros do perfil ({@link Ruleset#getSalvoSize()}).
+     *
+     * @param rows    linha de cada tiro
+     * @param columns coluna de cada tiro
+     * @return o resultado de cada tiro
+     * @throws IllegalArgumentException se o número de tiros não for o do perfil
+     */
+    public ShotResult[] fireSalvo(int[] rows, int[] columns) {
+        if (rows.length != rules.getSalvoSize() || columns.length != rules.getSalvoSize())
+            throw new IllegalArgumentException("Uma rajada tem " + rules.getSalvoSize() + " tiros");
+        ShotResult[] results = new ShotResult[rows.length];
+        for (int i = 0; i < rows.length; i++)
+            results[i] = fire(rows[i], columns[i]);
+        return results;
+    }
+
+    /**
+     * Indica se todos os navios da frota completa foram colocados.
+     *
+     * @return {@code true} se a frota estiver completa
+     */
+    public boolean isFleetComplete() {
+        return ships == rules.getFleetSize();
+    }
+
+    /**
+     * Indica se todos os navios colocados já foram afundados.
+     *
+     * @return {@code true} se o jogo terminou
+     */
+    public boolean isFinished() {
+        return sunk == ships;
+    }
+
+    /**
+     * Indica se uma célula já foi alvo de um tiro válido.
+     *
+     * @param row    linha
+     * @param column coluna
+     * @return {@code true} se a célula já foi atingida por um tiro
+     */
+    public boolean isShot(int row, int column) {
+        int cell = row * rules.getColumns() + column;
+        return (shots[cell >>> 6] & 1L << cell) != 0;
+    }
+
+    /**
+     * Indica se uma célula está ocupada por um navio.
+     *
+     * @param row    linha
+     * @param column coluna
+     * @return {@code true} se algum navio ocupa a célula
+     */
+    public boolean isOccupied(int row, int column) {
+        return shipAt[row * rules.getColumns() + column] != 0;
+    }
+
+    /**
+     * Devolve o número de navios colocados.
+     *
+     * @return número de navios
+     */
+    public int getShips() {
+        return ships;
+    }
+
+    /**
+     * Devolve o número de navios colocados de um tipo.
+     *
+     * @param kind índice do tipo ({@link Ruleset#kindIndex(String)})
+     * @return número de navios do tipo
+     */
+    public int getShips(int kind) {
+        return counts[kind];
+    }
+
+    /**
+     * Devolve o número de tiros válidos não repetidos.
+     *
+     * @return número de tiros registados
+     */
+    public int getShots() {
+        int n = 0;
+        for (long w : shots)
+            n += Long.bitCount(w);
+        return n;
+    }
+
+    /**
+     * Devolve o número de acertos.
+     *
+     * @return número de acertos
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Devolve o número de navios afundados.
+     *
+     * @return número de navios afundados
+     */
+    public int getSunkShips() {
+        return sunk;
+    }
+
+    /**
+     * Devolve o número de navios ainda a flutuar.
+     *
+     * @return número de navios restantes
+     */
+    public int getRemainingShips() {
+        return ships - sunk;
+    }
+
+    /**
+     * Devolve o número de tiros inválidos.
+     *
+     * @return número de tiros inválidos
+     */
+    public int getInvalidShots() {
+        return invalid;
+    }
+
+    /**
+     * Devolve o número de tiros repetidos.
+     *
+     * @return número de tiros repetidos
+     */
+    public int getRepeatedShots() {
+        return repeated;
+    }
+}
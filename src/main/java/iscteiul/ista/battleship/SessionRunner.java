@@ -0,0 +1,136 @@
+package iscteiul.ista.battleship;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Executa em simultâneo, na mesma JVM, muitas sessões guionadas dos ciclos de comandos de {@link Tasks}.
+ * <p>
+ * Cada guião é o texto que um utilizador escreveria no input padrão (por exemplo
+ * {@code "nova ... rajada 1 1 2 2 3 3 ver desisto"}). Cada sessão lê o seu guião e escreve o seu
+ * output num destino próprio ({@link IOutputSink}), pelo que as sessões são independentes entre si. A latência de cada
+ * comando é medida e agregada num {@link LoadReport}.
+ * </p>
+ *
+ * <p>
+ * As sessões correm num conjunto fixo de threads: como os guiões estão em memória, as sessões
+ * nunca ficam bloqueadas à espera de input e não há vantagem em ter mais threads do que núcleos.
+ * </p>
+ */
+public class SessionRunner {
+
+    /**
+     * Logger onde são registadas as sessões que terminam com erro, com a respetiva causa.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(SessionRunner.class);
+
+    /**
+     * Um ciclo de comandos sobre canais arbitrários, como {@link Tasks#taskD(InputStream, IOutputSink, ICommandListener)}.
+     */
+    public interface Task {
+        /**
+         * Executa o ciclo de comandos.
+         *
+         * @param in       canal de onde são lidos os comandos
+         * @param out      destino do output
+         * @param listener notificado após cada comando
+         */
+        void run(InputStream in, IOutputSink out, ICommandListener listener);
+    }
+
+    private final int threads;
+    private boolean captureOutput;
+
+    /**
+     * Constrói um executor de sessões.
+     *
+     * @param threads número de threads usadas para executar as sessões
+     */
+    public SessionRunner(int threads) {
+        assert threads > 0;
+        this.threads = threads;
+    }
+
+    /**
+     * Define se o output de cada sessão deve ser guardado no relatório. Por omissão é descartado
+     * ({@link IOutputSink#NONE}), sem sequer ser composto.
+     *
+     * @param captureOutput {@code true} para guardar o output das sessões
+     */
+    public void setCaptureOutput(boolean captureOutput) {
+        this.captureOutput = captureOutput;
+    }
+
+    /**
+     * Executa uma sessão por guião e espera que todas terminem.
+     *
+     * @param task    ciclo de comandos a executar (ex: {@code Tasks::taskD})
+     * @param scripts guiões das sessões
+     * @return o relatório da execução (as sessões que terminam com erro são contadas no relatório e
+     *         registadas no logger, com a causa)
+     * @throws IllegalStateException se a execução for interrompida
+     */
+    public LoadReport run(Task task, List<String> scripts) {
+        Map<String, LatencyHistogram> latencies = new HashMap<>();
+        String[] outputs = new String[scripts.size()];
+        int failures = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<Map<String, LatencyHistogram>>> futures = new ArrayList<>(scripts.size());
+            for (int i = 0; i < scripts.size(); i++) {
+                final int session = i;
+                futures.add(executor.submit(() -> runSession(task, scripts.get(session), outputs, session)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    for (Map.Entry<String, LatencyHistogram> e : futures.get(i).get().entrySet())
+                        latencies.computeIfAbsent(e.getKey(), k -> new LatencyHistogram()).merge(e.getValue());
+                } catch (ExecutionException e) {
+                    failures++;
+                    LOGGER.error("Sessao " + i + " terminou com erro", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Execucao interrompida", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        return new LoadReport(scripts.size(), failures, elapsed, latencies,
+                captureOutput ? Arrays.asList(outputs) : List.of());
+    }
+
+    /**
+     * Executa uma sessão, medindo a latência de cada comando.
+     *
+     * @return histograma de latências por comando desta sessão
+     */
+    private Map<String, LatencyHistogram> runSession(Task task, String script, String[] outputs, int session) {
+        Map<String, LatencyHistogram> latencies = new HashMap<>();
+        InputStream in = new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8));
+        MemoryOutput buffer = captureOutput ? new MemoryOutput() : null;
+        try {
+            task.run(in, buffer != null ? buffer : IOutputSink.NONE,
+                    (command, nanos) -> latencies.computeIfAbsent(command, k -> new LatencyHistogram()).record(nanos));
+        } finally {
+            if (buffer != null)
+                outputs[session] = buffer.getText();
+        }
+        return latencies;
+    }
+}
@@ -0,0 +1,227 @@
+package iscteiul.ista.battleship;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Jogo partilhado, em que muitos jogadores disparam ao mesmo tempo sobre a mesma frota.
+ * <p>
+ * Ao contrário de {@link Game}, todas as operações são seguras entre threads e nenhuma usa locks:
+ * </p>
+ * <ul>
+ *   <li>cada célula é reclamada com um <em>compare-and-set</em> sobre o seu bit no plano de tiros,
+ *   pelo que, entre vários tiros simultâneos na mesma célula, exatamente um é contado como tiro novo
+ *   (os restantes são repetidos);</li>
+ *   <li>as células intactas de cada navio são decrementadas atomicamente e só o tiro que leva o
+ *   contador a zero afunda o navio, pelo que cada navio é afundado exatamente uma vez;</li>
+ *   <li>os contadores de acertos, tiros na água, inválidos e repetidos são distribuídos
+ *   ({@link LongAdder}), para não serem um ponto de contenção.</li>
+ * </ul>
+ *
+ * <p>
+ * A disposição da frota é fixada na construção e não muda. Os resultados são os de
+ * {@link Game#fire(IPosition)}: um tiro só é válido se estiver dentro do tabuleiro. Os contadores
+ * lidos durante o jogo são um retrato aproximado; depois de todos os tiros terminarem são exatos.
+ * </p>
+ */
+public class SharedBoardGame {
+
+    private static final int CELLS = Observation.CELLS;
+
+    /**
+     * Plano de tiros: um bit por célula.
+     */
+    private final AtomicLongArray shots = new AtomicLongArray(ShipShapes.WORDS);
+
+    /**
+     * Índice (mais um) do navio que ocupa cada célula. Só é escrito na construção.
+     */
+    private final byte[] shipAt = new byte[CELLS];
+
+    /**
+     * Células ainda intactas de cada navio.
+     */
+    private final AtomicIntegerArray remaining;
+
+    private final List<IShip> ships;
+
+    private final AtomicInteger floating;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder repeated = new LongAdder();
+
+    /**
+     * Constrói um jogo partilhado sobre a disposição de uma frota.
+     *
+     * @param layout frota a atacar (só a disposição é usada; a frota não é alterada)
+     */
+    public SharedBoardGame(IFleet layout) {
+        ships = List.copyOf(layout.getShips());
+        assert ships.size() < Byte.MAX_VALUE;
+
+        remaining = new AtomicIntegerArray(ships.size());
+        for (int k = 0; k < ships.size(); k++) {
+            IShip s = ships.get(k);
+            remaining.set(k, s.getSize());
+            for (IPosition p : s.getPositions())
+                shipAt[Observation.cell(p)] = (byte) (k + 1);
+        }
+        floating = new AtomicInteger(ships.size());
+    }
+
+    /**
+     * Efetua um tiro. Pode ser chamado por qualquer número de threads em simultâneo.
+     *
+     * @param row    linha do alvo
+     * @param column coluna do alvo
+     * @return o resultado do tiro; {@link ShotResult#SUNK} é devolvido a um único tiro por navio
+     */
+    public ShotResult fire(int row, int column) {
+        if (!Observation.isInside(row, column)) {
+            invalid.increment();
+            return ShotResult.INVALID;
+        }
+        int cell = Observation.cell(row, column);
+        if (!claim(cell)) {
+            repeated.increment();
+            return ShotResult.REPEATED;
+        }
+        int ship = shipAt[cell] - 1;
+        if (ship < 0) {
+            misses.increment();
+            return ShotResult.MISS;
+        }
+        hits.increment();
+        if (remaining.decrementAndGet(ship) > 0)
+            return ShotResult.HIT;
+        floating.decrementAndGet();
+        return ShotResult.SUNK;
+    }
+
+    /**
+     * Reclama uma célula, ativando o seu bit no plano de tiros.
+     *
+     * @param cell índice da célula
+     * @return {@code true} se esta chamada ativou o bit; {@code false} se já estava ativo
+     */
+    private boolean claim(int cell) {
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        long old = shots.get(word);
+        while ((old & bit) == 0) {
+            long witness = shots.compareAndExchange(word, old, old | bit);
+            if (witness == old)
+                return true;
+            old = witness;
+        }
+        return false;
+    }
+
+    /**
+     * Devolve os navios do jogo (a disposição; os navios devolvidos não registam os tiros).
+     *
+     * @return lista imutável de navios
+     */
+    public List<IShip> getShips() {
+        return ships;
+    }
+
+    /**
+     * Indica se uma célula já foi alvo de um tiro válido.
+     *
+     * @param cell índice da célula ({@code linha * BOARD_SIZE + coluna})
+     * @return {@code true} se a célula já foi reclamada
+     */
+    public boolean isShot(int cell) {
+        return (shots.get(cell >>> 6) & 1L << cell) != 0;
+    }
+
+    /**
+     * Devolve o número de células ainda intactas de um navio.
+     *
+     * @param ship índice do navio em {@link #getShips()}
+     * @return número de células intactas
+     */
+    public int getRemainingCells(int ship) {
+        return remaining.get(ship);
+    }
+
+    /**
+     * Indica se todos os navios já foram afundados.
+     *
+     * @return {@code true} se o jogo terminou
+     */
+    public boolean isFinished() {
+        return floating.get() == 0;
+    }
+
+    /**
+     * Devolve o número de navios ainda a flutuar.
+     *
+     * @return número de navios restantes
+     */
+    public int getRemainingShips() {
+        return floating.get();
+    }
+
+    /**
+     * Devolve o número de navios afundados.
+     *
+     * @return número de navios afundados
+     */
+    public int getSunkShips() {
+        return ships.size() - floating.get();
+    }
+
+    /**
+     * Devolve o número de tiros válidos não repetidos.
+     *
+     * @return número de células reclamadas
+     */
+    public int getShots() {
+        int n = 0;
+        for (int w = 0; w < shots.length(); w++)
+            n += Long.bitCount(shots.get(w));
+        return n;
+    }
+
+    /**
+     * Devolve o número de acertos.
+     *
+     * @return número de acertos
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Devolve o número de tiros na água.
+     *
+     * @return número de tiros na água
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Devolve o número de tiros inválidos.
+     *
+     * @return número de tiros inválidos
+     */
+    public long getInvalidShots() {
+        return invalid.sum();
+    }
+
+    /**
+     * Devolve o número de tiros repetidos (incluindo os que perderam a corrida por uma célula).
+     *
+     * @return número de tiros repetidos
+     */
+    public long getRepeatedShots() {
+        return repeated.sum();
+    }
+}
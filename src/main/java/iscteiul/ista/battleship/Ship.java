@@ -245,6 +245,21 @@ public abstract class Ship implements IShip {
         }
     }
 
+    /**
+     * Anula um tiro registado numa posição pertencente ao navio.
+     *
+     * @param pos a posição cujo tiro é anulado
+     */
+    @Override
+    public void repair(IPosition pos) {
+        assert pos != null;
+
+        for (IPosition position : getPositions()) {
+            if (position.equals(pos))
+                position.repair();
+        }
+    }
+
     /**
      * Retorna uma representação descritiva do navio.
      *
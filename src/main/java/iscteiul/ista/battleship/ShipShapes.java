@@ -0,0 +1,194 @@
+package iscteiul.ista.battleship;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tabelas pré-calculadas com a forma de cada tipo de navio em cada orientação.
+ * <p>
+ * A forma de um navio é a lista de deslocamentos (linha, coluna) das suas células em relação
+ * à posição inicial. As formas são obtidas uma única vez a partir das próprias classes de navios
+ * (através de {@link Ship#buildShip(String, Compass, Position)}), pelo que são sempre coerentes
+ * com elas. Cada par (tipo, orientação) é identificado por um índice de forma
+ * ({@link #shapeIndex(int, Compass)}).
+ * </p>
+ */
+final class ShipShapes {
+
+    /**
+     * Categorias de navio, pela ordem dos índices de tipo.
+     */
+    static final Category[] CATEGORIES = Category.values();
+
+    /**
+     * Tipos de navio conhecidos ({@link Category#getKind()}), pela ordem dos índices de tipo.
+     */
+    static final List<String> KINDS = Arrays.stream(CATEGORIES).map(Category::getKind).toList();
+
+    /**
+     * Orientações, pela ordem dos índices de orientação.
+     */
+    static final Compass[] BEARINGS = Compass.values();
+
+    /**
+     * Número de formas (pares tipo, orientação).
+     */
+    static final int SHAPES = KINDS.size() * BEARINGS.length;
+
+    /**
+     * Número de palavras de 64 bits de uma máscara de células do tabuleiro.
+     */
+    static final int WORDS = (Observation.CELLS + 63) >>> 6;
+
+    /**
+     * Deslocamentos {linha, coluna} das células de cada forma, ou {@code null} se a orientação
+     * não for válida para o tipo.
+     */
+    private static final int[][][] OFFSETS = new int[SHAPES][][];
+
+    /**
+     * Para cada forma, máscara das posições iniciais em que o navio fica dentro do tabuleiro.
+     */
+    private static final long[][] IN_BOARD = new long[SHAPES][WORDS];
+
+    static {
+        Position origin = new Position(0, 0);
+        for (int k = 0; k < KINDS.size(); k++) {
+            for (Compass bearing : BEARINGS) {
+                int shape = shapeIndex(k, bearing);
+                Ship s;
+                try {
+                    s = Ship.buildShip(KINDS.get(k), bearing, origin);
+                } catch (IllegalArgumentException e) {
+                    continue; // orientação inválida para este tipo
+                }
+                List<IPosition> positions = s.getPositions();
+                OFFSETS[shape] = new int[positions.size()][];
+                for (int i = 0; i < positions.size(); i++)
+                    OFFSETS[shape][i] = new int[] { positions.get(i).getRow(), positions.get(i).getColumn() };
+
+                for (int cell = 0; cell < Observation.CELLS; cell++)
+                    if (fits(shape, cell / Fleet.BOARD_SIZE, cell % Fleet.BOARD_SIZE))
+                        IN_BOARD[shape][cell >>> 6] |= 1L << cell;
+            }
+        }
+    }
+
+    private ShipShapes() {
+    }
+
+    /**
+     * Devolve o índice de um tipo de navio.
+     *
+     * @param kind tipo de navio (ex: {@code "galeao"})
+     * @return o índice do tipo, ou -1 se o tipo for desconhecido
+     */
+    static int kindIndex(String kind) {
+        return KINDS.indexOf(kind);
+    }
+
+    /**
+     * Devolve o índice de forma de um tipo de navio numa orientação.
+     *
+     * @param kind    índice do tipo de navio
+     * @param bearing orientação
+     * @return o índice da forma
+     */
+    static int shapeIndex(int kind, Compass bearing) {
+        return kind * BEARINGS.length + bearing.ordinal();
+    }
+
+    /**
+     * Devolve os deslocamentos das células de uma forma.
+     *
+     * @param shape índice da forma
+     * @return os deslocamentos {linha, coluna}, ou {@code null} se a forma não existir
+     */
+    static int[][] offsets(int shape) {
+        return OFFSETS[shape];
+    }
+
+    /**
+     * Verifica se um navio com a forma indicada, colocado na posição indicada, fica dentro do tabuleiro.
+     *
+     * @param shape  índice da forma
+     * @param row    linha da posição inicial
+     * @param column coluna da posição inicial
+     * @return {@code true} se todas as células ficarem dentro do tabuleiro
+     */
+    static boolean fits(int shape, int row, int column) {
+        if (OFFSETS[shape] == null)
+            return false;
+        for (int[] o : OFFSETS[shape])
+            if (!Observation.isInside(row + o[0], column + o[1]))
+                return false;
+        return true;
+    }
+
+    /**
+     * Codifica um navio num {@code int}: índice da forma nos bits 8 e seguintes e célula da posição
+     * inicial nos 8 bits menos significativos.
+     *
+     * @param shape  índice da forma
+     * @param anchor índice linear da célula da posição inicial
+     * @return o navio codificado
+     */
+    static int pack(int shape, int anchor) {
+        return shape << 8 | anchor;
+    }
+
+    /**
+     * Codifica um navio num {@code int} (ver {@link #pack(int, int)}).
+     *
+     * @param s navio a codificar, de um tipo conhecido e com a posição inicial dentro do tabuleiro
+     * @return o navio codificado
+     */
+    static int pack(IShip s) {
+        int shape = shapeIndex(kindIndex(s.getCategory().toLowerCase()), s.getBearing());
+        return pack(shape, Observation.cell(s.getPosition()));
+    }
+
+    /**
+     * Devolve o índice da forma de um navio codificado.
+     *
+     * @param packed navio codificado
+     * @return o índice da forma
+     */
+    static int shape(int packed) {
+        return packed >>> 8;
+    }
+
+    /**
+     * Devolve a célula da posição inicial de um navio codificado.
+     *
+     * @param packed navio codificado
+     * @return o índice linear da célula
+     */
+    static int anchor(int packed) {
+        return packed & 0xFF;
+    }
+
+    /**
+     * Constrói o navio (sem danos) descrito por um navio codificado.
+     *
+     * @param packed navio codificado
+     * @return o navio
+     */
+    static Ship toShip(int packed) {
+        int shape = shape(packed);
+        return Ship.buildShip(KINDS.get(shape / BEARINGS.length), BEARINGS[shape % BEARINGS.length],
+                Observation.toPosition(anchor(packed)));
+    }
+
+    /**
+     * Devolve uma cópia das máscaras de posições iniciais dentro do tabuleiro, uma por forma.
+     *
+     * @return array {@code [SHAPES][WORDS]} com as máscaras
+     */
+    static long[][] inBoardMasks() {
+        long[][] masks = new long[SHAPES][];
+        for (int i = 0; i < SHAPES; i++)
+            masks[i] = IN_BOARD[i].clone();
+        return masks;
+    }
+}
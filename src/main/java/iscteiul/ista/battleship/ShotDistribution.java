@@ -0,0 +1,226 @@
+package iscteiul.ista.battleship;
+
+import java.util.Arrays;
+
+/**
+ * Distribuição (pesada) do número de tiros necessários para afundar uma frota.
+ * <p>
+ * Guarda, para cada número de tiros {@code n}, o peso total dos cenários que terminaram
+ * com exatamente {@code n} tiros. Os pesos são guardados apenas no intervalo
+ * {@code [offset, offset + weights.length)}, o que mantém as distribuições parciais pequenas.
+ * </p>
+ *
+ * <p>
+ * Instâncias desta classe são imutáveis.
+ * </p>
+ */
+public class ShotDistribution {
+
+    /**
+     * Distribuição vazia (peso total nulo).
+     */
+    public static final ShotDistribution EMPTY = new ShotDistribution(0, new double[0]);
+
+    /**
+     * Menor número de tiros representado em {@link #weights}.
+     */
+    private final int offset;
+
+    /**
+     * Peso de cada número de tiros, a partir de {@link #offset}.
+     */
+    private final double[] weights;
+
+    private ShotDistribution(int offset, double[] weights) {
+        this.offset = offset;
+        this.weights = weights;
+    }
+
+    /**
+     * Constrói uma distribuição concentrada num único número de tiros.
+     *
+     * @param shots  número de tiros
+     * @param weight peso associado
+     * @return a distribuição pontual
+     */
+    public static ShotDistribution point(int shots, double weight) {
+        return new ShotDistribution(shots, new double[] { weight });
+    }
+
+    /**
+     * Devolve a distribuição deslocada de um número fixo de tiros.
+     *
+     * @param shots número de tiros a acrescentar a todos os cenários
+     * @return a distribuição deslocada
+     */
+    public ShotDistribution shift(int shots) {
+        return new ShotDistribution(offset + shots, weights);
+    }
+
+    /**
+     * Soma duas distribuições (união de cenários disjuntos).
+     *
+     * @param other distribuição a somar
+     * @return uma nova distribuição com os pesos somados
+     */
+    public ShotDistribution plus(ShotDistribution other) {
+        if (other.weights.length == 0)
+            return this;
+        if (weights.length == 0)
+            return other;
+        int lo = Math.min(offset, other.offset);
+        int hi = Math.max(offset + weights.length, other.offset + other.weights.length);
+        double[] sum = new double[hi - lo];
+        for (int i = 0; i < weights.length; i++)
+            sum[offset - lo + i] += weights[i];
+        for (int i = 0; i < other.weights.length; i++)
+            sum[other.offset - lo + i] += other.weights[i];
+        return new ShotDistribution(lo, sum);
+    }
+
+    /**
+     * Devolve o peso total da distribuição.
+     *
+     * @return a soma de todos os pesos
+     */
+    public double getTotalWeight() {
+        double total = 0;
+        for (double w : weights)
+            total += w;
+        return total;
+    }
+
+    /**
+     * Devolve a probabilidade de serem necessários exatamente {@code shots} tiros.
+     *
+     * @param shots número de tiros
+     * @return a probabilidade (peso normalizado) desse número de tiros
+     */
+    public double probability(int shots) {
+        if (shots < offset || shots >= offset + weights.length)
+            return 0;
+        return weights[shots - offset] / getTotalWeight();
+    }
+
+    /**
+     * Devolve o número esperado de tiros.
+     *
+     * @return a média pesada do número de tiros, ou {@code NaN} se a distribuição for vazia
+     */
+    public double mean() {
+        double total = 0;
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            sum += weights[i] * (offset + i);
+        }
+        return sum / total;
+    }
+
+    /**
+     * Devolve o desvio padrão do número de tiros.
+     *
+     * @return o desvio padrão pesado, ou {@code NaN} se a distribuição for vazia
+     */
+    public double standardDeviation() {
+        double mean = mean();
+        double total = 0;
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            double d = offset + i - mean;
+            total += weights[i];
+            sum += weights[i] * d * d;
+        }
+        return Math.sqrt(sum / total);
+    }
+
+    /**
+     * Devolve o menor número de tiros {@code n} tal que a probabilidade acumulada até {@code n}
+     * seja pelo menos {@code p}.
+     *
+     * @param p probabilidade acumulada pretendida, entre 0 e 1
+     * @return o percentil correspondente, ou -1 se a distribuição for vazia
+     */
+    public int percentile(double p) {
+        double target = p * getTotalWeight();
+        double acc = 0;
+        for (int i = 0; i < weights.length; i++) {
+            acc += weights[i];
+            if (weights[i] > 0 && acc >= target)
+                return offset + i;
+        }
+        return weights.length == 0 ? -1 : offset + weights.length - 1;
+    }
+
+    /**
+     * Devolve o menor número de tiros com peso não nulo.
+     *
+     * @return o mínimo da distribuição, ou -1 se for vazia
+     */
+    public int min() {
+        for (int i = 0; i < weights.length; i++)
+            if (weights[i] > 0)
+                return offset + i;
+        return -1;
+    }
+
+    /**
+     * Devolve o maior número de tiros com peso não nulo.
+     *
+     * @return o máximo da distribuição, ou -1 se for vazia
+     */
+    public int max() {
+        for (int i = weights.length - 1; i >= 0; i--)
+            if (weights[i] > 0)
+                return offset + i;
+        return -1;
+    }
+
+    /**
+     * Devolve os pesos normalizados, indexados pelo número de tiros.
+     *
+     * @return um array em que a posição {@code n} contém a probabilidade de serem necessários {@code n} tiros
+     */
+    public double[] toProbabilities() {
+        double total = getTotalWeight();
+        double[] p = new double[offset + weights.length];
+        for (int i = 0; i < weights.length; i++)
+            p[offset + i] = weights[i] / total;
+        return p;
+    }
+
+    /**
+     * Retorna um resumo da distribuição.
+     *
+     * @return uma string com média, desvio padrão, mínimo, mediana, percentil 90 e máximo
+     */
+    @Override
+    public String toString() {
+        return String.format("media=%.3f dp=%.3f min=%d p50=%d p90=%d max=%d", mean(), standardDeviation(), min(),
+                percentile(0.5), percentile(0.9), max());
+    }
+
+    /**
+     * Compara esta distribuição com outro objeto.
+     *
+     * @param other o objeto a ser comparado
+     * @return {@code true} se as distribuições tiverem os mesmos pesos, {@code false} caso contrário
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ShotDistribution))
+            return false;
+        ShotDistribution d = (ShotDistribution) other;
+        return offset == d.offset && Arrays.equals(weights, d.weights);
+    }
+
+    /**
+     * Gera um código de hash baseado nos pesos.
+     *
+     * @return o código hash gerado
+     */
+    @Override
+    public int hashCode() {
+        return 31 * offset + Arrays.hashCode(weights);
+    }
+}
@@ -0,0 +1,245 @@
+package iscteiul.ista.battleship;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mapa de calor dos tiros: para cada célula do tabuleiro, quantas vezes foi alvejada, quantas vezes
+ * foi um acerto e quantas vezes foi o tiro que afundou um navio, acumulado ao longo de muitos jogos.
+ * <p>
+ * Cada contador é distribuído ({@link LongAdder}): threads diferentes que registam tiros em simultâneo
+ * incrementam parcelas diferentes, somadas apenas na leitura. Assim, um mapa partilhado por todos os
+ * jogos de um processo não cria um ponto de contenção em {@link Game#fire(IPosition)}. As leituras
+ * feitas durante os jogos são um retrato aproximado; depois de todos os tiros terminarem são exatas.
+ * </p>
+ *
+ * <p>
+ * Os jogos registam os seus tiros no mapa indicado por {@link Game#setHeatmap(ShotHeatmap)}; os jogos
+ * criados depois de {@link #setDefault(ShotHeatmap)} usam o mapa por omissão, o que permite recolher
+ * os tiros de todos os jogos de um processo. Sem mapa, os jogos não pagam nada.
+ * </p>
+ *
+ * <p>
+ * O mapa pode ser guardado num ficheiro binário ({@link #write(Path)}, {@link #read(Path)}) e impresso
+ * como um tabuleiro ({@link #print(Layer, IOutputSink)}).
+ * </p>
+ */
+public class ShotHeatmap {
+
+    /**
+     * Camadas do mapa.
+     */
+    public enum Layer {
+        /**
+         * Tiros válidos e não repetidos na célula.
+         */
+        SHOTS,
+        /**
+         * Tiros na célula que atingiram um navio (incluindo os que o afundaram).
+         */
+        HITS,
+        /**
+         * Tiros na célula que afundaram um navio.
+         */
+        SINKS
+    }
+
+    /**
+     * Número mágico no início de cada ficheiro ({@code "BSH1"}).
+     */
+    public static final int MAGIC = 0x42534831;
+
+    /**
+     * Símbolos da impressão, do menos para o mais frequente ({@code '.'} é uma célula sem registos).
+     */
+    private static final String SHADES = ".123456789";
+
+    private static final int CELLS = Observation.CELLS;
+    private static final Layer[] LAYERS = Layer.values();
+
+    private static volatile ShotHeatmap defaultHeatmap;
+
+    private final LongAdder[] counters = new LongAdder[LAYERS.length * CELLS];
+
+    /**
+     * Constrói um mapa vazio.
+     */
+    public ShotHeatmap() {
+        for (int i = 0; i < counters.length; i++)
+            counters[i] = new LongAdder();
+    }
+
+    /**
+     * Devolve o mapa usado pelos jogos criados a partir de agora.
+     *
+     * @return o mapa por omissão, ou {@code null} se os jogos não registarem os tiros
+     */
+    public static ShotHeatmap getDefault() {
+        return defaultHeatmap;
+    }
+
+    /**
+     * Define o mapa usado pelos jogos criados a partir de agora (os jogos já criados não mudam).
+     *
+     * @param heatmap mapa por omissão, ou {@code null} para os jogos não registarem os tiros
+     */
+    public static void setDefault(ShotHeatmap heatmap) {
+        defaultHeatmap = heatmap;
+    }
+
+    /**
+     * Regista um tiro. Tiros inválidos, repetidos ou fora do tabuleiro são ignorados.
+     *
+     * @param pos    posição alvejada
+     * @param result resultado do tiro
+     */
+    public void record(IPosition pos, ShotResult result) {
+        if (Observation.isInside(pos.getRow(), pos.getColumn()))
+            record(Observation.cell(pos), result);
+    }
+
+    /**
+     * Regista um tiro numa célula. Tiros inválidos ou repetidos são ignorados.
+     *
+     * @param cell   índice da célula ({@code linha * BOARD_SIZE + coluna})
+     * @param result resultado do tiro
+     */
+    public void record(int cell, ShotResult result) {
+        switch (result) {
+            case SUNK:
+                counters[Layer.SINKS.ordinal() * CELLS + cell].increment();
+                // fall through
+            case HIT:
+                counters[Layer.HITS.ordinal() * CELLS + cell].increment();
+                // fall through
+            case MISS:
+                counters[Layer.SHOTS.ordinal() * CELLS + cell].increment();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Devolve o contador de uma célula.
+     *
+     * @param layer camada
+     * @param cell  índice da célula
+     * @return o número de registos
+     */
+    public long get(Layer layer, int cell) {
+        return counters[layer.ordinal() * CELLS + cell].sum();
+    }
+
+    /**
+     * Devolve os contadores de todas as células de uma camada.
+     *
+     * @param layer camada
+     * @return um novo array com {@value Observation#CELLS} contadores, indexado pela célula
+     */
+    public long[] snapshot(Layer layer) {
+        long[] values = new long[CELLS];
+        for (int cell = 0; cell < CELLS; cell++)
+            values[cell] = get(layer, cell);
+        return values;
+    }
+
+    /**
+     * Devolve o total de uma camada.
+     *
+     * @param layer camada
+     * @return a soma dos contadores de todas as células
+     */
+    public long total(Layer layer) {
+        long total = 0;
+        for (int cell = 0; cell < CELLS; cell++)
+            total += get(layer, cell);
+        return total;
+    }
+
+    /**
+     * Acrescenta a este mapa os contadores de outro.
+     *
+     * @param other mapa a somar
+     */
+    public void merge(ShotHeatmap other) {
+        for (int i = 0; i < counters.length; i++)
+            counters[i].add(other.counters[i].sum());
+    }
+
+    /**
+     * Põe todos os contadores a zero. Os tiros registados em simultâneo podem ou não ser contados.
+     */
+    public void reset() {
+        for (LongAdder c : counters)
+            c.reset();
+    }
+
+    /**
+     * Imprime uma camada como um tabuleiro: cada célula mostra a sua frequência relativa à da célula
+     * mais frequente, de {@code '1'} a {@code '9'}, ou {@code '.'} se não tiver registos.
+     *
+     * @param layer camada a imprimir
+     * @param out   destino
+     */
+    public void print(Layer layer, IOutputSink out) {
+        if (!out.isEnabled())
+            return;
+        long[] values = snapshot(layer);
+        long max = 1;
+        for (long v : values)
+            max = Math.max(max, v);
+        char[][] map = new char[Fleet.BOARD_SIZE][Fleet.BOARD_SIZE];
+        for (int cell = 0; cell < CELLS; cell++) {
+            long v = values[cell];
+            int shade = v == 0 ? 0 : (int) Math.max(1, (v * (SHADES.length() - 1) + max - 1) / max);
+            map[cell / Fleet.BOARD_SIZE][cell % Fleet.BOARD_SIZE] = SHADES.charAt(shade);
+        }
+        Game.printBoard(map, out);
+    }
+
+    /**
+     * Guarda o mapa num ficheiro: o número mágico {@link #MAGIC}, o número de células e, para cada
+     * camada e cada célula, o contador como {@code long} (2406 bytes num tabuleiro de 10x10).
+     *
+     * @param file ficheiro a escrever
+     * @throws IOException se a escrita falhar
+     */
+    public void write(Path file) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file))) {
+            DataOutputStream out = new DataOutputStream(os);
+            out.writeInt(MAGIC);
+            out.writeShort(CELLS);
+            for (LongAdder c : counters)
+                out.writeLong(c.sum());
+            out.flush();
+        }
+    }
+
+    /**
+     * Lê um mapa guardado por {@link #write(Path)}.
+     *
+     * @param file ficheiro a ler
+     * @return um novo mapa com os contadores do ficheiro
+     * @throws IOException se a leitura falhar ou o ficheiro não tiver o formato esperado
+     */
+    public static ShotHeatmap read(Path file) throws IOException {
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(file))) {
+            DataInputStream in = new DataInputStream(is);
+            if (in.readInt() != MAGIC || in.readUnsignedShort() != CELLS)
+                throw new IOException("Não é um mapa de calor: " + file);
+            ShotHeatmap heatmap = new ShotHeatmap();
+            for (LongAdder c : heatmap.counters)
+                c.add(in.readLong());
+            return heatmap;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package iscteiul.ista.battleship;
+
+/**
+ * Enumeração que representa o resultado de um disparo, do ponto de vista do atacante.
+ * <ul>
+ * <li><strong>INVALID</strong>: tiro fora do tabuleiro</li>
+ * <li><strong>REPEATED</strong>: tiro numa posição já alvejada</li>
+ * <li><strong>MISS</strong>: tiro na água</li>
+ * <li><strong>HIT</strong>: tiro que acertou num navio sem o afundar</li>
+ * <li><strong>SUNK</strong>: tiro que afundou um navio</li>
+ * </ul>
+ */
+public enum ShotResult {
+    INVALID,
+    REPEATED,
+    MISS,
+    HIT,
+    SUNK;
+
+    /**
+     * Indica se o disparo acertou num navio.
+     *
+     * @return {@code true} para {@link #HIT} e {@link #SUNK}; {@code false} caso contrário
+     */
+    public boolean isHit() {
+        return this == HIT || this == SUNK;
+    }
+}
@@ -1,8 +1,7 @@
 package iscteiul.ista.battleship;
 
+import java.io.InputStream;
 import java.util.Scanner;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
 /**
  * Classe utilitária que agrega um conjunto de tarefas de teste/execução
@@ -21,18 +20,23 @@ import org.apache.logging.log4j.Logger;
  * </p>
  *
  * <p>
- * As mensagens de saída são registadas através de um {@link Logger} (Log4j).
+ * As mensagens de saída são registadas através do logger (Log4j) e os tabuleiros escritos no
+ * output padrão ({@link ConsoleOutput}).
+ * </p>
+ *
+ * <p>
+ * Cada tarefa tem também uma variante que lê os comandos de um {@link InputStream} e escreve
+ * todas as mensagens e tabuleiros num {@link IOutputSink}, sem usar o input/output padrão nem
+ * o logger global: as frotas e jogos criados na sessão escrevem no mesmo destino. Estas variantes
+ * permitem correr várias sessões em simultâneo na mesma JVM (ver {@link SessionRunner}) ou sem
+ * qualquer output ({@link IOutputSink#NONE}).
  * </p>
  */
 public class Tasks {
-    /**
-     * Logger usado para apresentar mensagens ao utilizador.
-     */
-    private static final Logger LOGGER = LogManager.getLogger();
     /**
      * Número de disparos por ronda (rajada).
      */
-    private static final int NUMBER_SHOTS = 3;
+    static final int NUMBER_SHOTS = 3;
     /**
      * Mensagem apresentada ao terminar a execução das tarefas.
      */
@@ -61,7 +65,14 @@ public class Tasks {
      * Comando para apresentar o estado atual da frota.
      */
     private static final String STATUS = "estado";
-
+    /**
+     * Comando para desfazer o último disparo (no contexto do jogo).
+     */
+    private static final String DESFAZER = "desfazer";
+    /**
+     * Comando para refazer o último disparo desfeito (no contexto do jogo).
+     */
+    private static final String REFAZER = "refazer";
 
     /////////////////////////////////////////////////////////////////////////////
     // A partir daqui encontram-se métodos que podem ser convertidos em testes
@@ -82,14 +93,30 @@ public class Tasks {
      * </p>
      */
     public static void taskA() {
-        Scanner in = new Scanner(System.in);
+        taskA(new Scanner(System.in), ConsoleOutput.INSTANCE, ICommandListener.NONE);
+    }
+
+    /**
+     * Tarefa A sobre canais de entrada e saída arbitrários.
+     *
+     * @param in       canal de onde são lidos os dados
+     * @param out      destino das mensagens
+     * @param listener notificado após cada navio processado (comando {@code "navio"})
+     */
+    public static void taskA(InputStream in, IOutputSink out, ICommandListener listener) {
+        taskA(new Scanner(in), out, listener);
+    }
+
+    private static void taskA(Scanner in, IOutputSink out, ICommandListener listener) {
         while (in.hasNext()) {
+            long start = System.nanoTime();
             Ship s = readShip(in);
             if (s != null)
                 for (int i = 0; i < NUMBER_SHOTS; i++) {
                     Position p = readPosition(in);
-                    LOGGER.info("{} {}", p, s.occupies(p));
+                    out.info("{} {}", p, s.occupies(p));
                 }
+            listener.commandExecuted("navio", System.nanoTime() - start);
         }
     }
 
@@ -103,25 +130,41 @@ public class Tasks {
      * </p>
      */
     public static void taskB() {
-        Scanner in = new Scanner(System.in);
+        taskB(new Scanner(System.in), ConsoleOutput.INSTANCE, ICommandListener.NONE);
+    }
+
+    /**
+     * Tarefa B sobre canais de entrada e saída arbitrários.
+     *
+     * @param in       canal de onde são lidos os comandos
+     * @param out      destino das mensagens e do estado da frota
+     * @param listener notificado após cada comando processado
+     */
+    public static void taskB(InputStream in, IOutputSink out, ICommandListener listener) {
+        taskB(new Scanner(in), out, listener);
+    }
+
+    private static void taskB(Scanner in, IOutputSink out, ICommandListener listener) {
         IFleet fleet = null;
         String command = in.next();
         while (!command.equals(DESISTIR)) {
+            long start = System.nanoTime();
             switch (command) {
                 case NOVAFROTA:
-                    fleet = buildFleet(in);
+                    fleet = buildFleet(in, out);
                     break;
                 case STATUS:
                     if (fleet != null)
                         fleet.printStatus();
                     break;
                 default:
-                    LOGGER.info("Que comando é esse??? Repete lá ...");
+                    out.info("Que comando é esse??? Repete lá ...");
             }
+            listener.commandExecuted(command, System.nanoTime() - start);
             // The other commands are unknown in this task
             command = in.next();
         }
-        LOGGER.info(GOODBYE_MESSAGE);
+        out.info(GOODBYE_MESSAGE);
     }
 
     /**
@@ -134,28 +177,44 @@ public class Tasks {
      * </p>
      */
     public static void taskC() {
-        Scanner in = new Scanner(System.in);
+        taskC(new Scanner(System.in), ConsoleOutput.INSTANCE, ICommandListener.NONE);
+    }
+
+    /**
+     * Tarefa C sobre canais de entrada e saída arbitrários.
+     *
+     * @param in       canal de onde são lidos os comandos
+     * @param out      destino das mensagens e do estado da frota
+     * @param listener notificado após cada comando processado
+     */
+    public static void taskC(InputStream in, IOutputSink out, ICommandListener listener) {
+        taskC(new Scanner(in), out, listener);
+    }
+
+    private static void taskC(Scanner in, IOutputSink out, ICommandListener listener) {
         IFleet fleet = null;
         String command = in.next();
         while (!command.equals(DESISTIR)) {
+            long start = System.nanoTime();
             switch (command) {
                 case NOVAFROTA:
-                    fleet = buildFleet(in);
+                    fleet = buildFleet(in, out);
                     break;
                 case STATUS:
                     if (fleet != null)
                         fleet.printStatus();
                     break;
                 case BATOTA:
-                    LOGGER.info(fleet);
+                    out.info("{}", fleet);
                     break;
                 default:
-                    LOGGER.info("Que comando é esse??? Repete lá ...");
+                    out.info("Que comando é esse??? Repete lá ...");
             }
+            listener.commandExecuted(command, System.nanoTime() - start);
             // The other commands are unknown in this task
             command = in.next();
         }
-        LOGGER.info(GOODBYE_MESSAGE);
+        out.info(GOODBYE_MESSAGE);
     }
 
     /**
@@ -164,8 +223,9 @@ public class Tasks {
      * <p>
      * Permite criar uma frota (comando {@value #NOVAFROTA}), consultar o estado
      * ({@value #STATUS}), visualizar a frota no jogo (batota: {@value #BATOTA}),
-     * executar uma rajada de disparos ({@value #RAJADA}) e listar tiros válidos
-     * ({@value #VERTIROS}).
+     * executar uma rajada de disparos ({@value #RAJADA}), listar tiros válidos
+     * ({@value #VERTIROS}) e desfazer ou refazer o último disparo ({@value #DESFAZER},
+     * {@value #REFAZER}).
      * </p>
      *
      * <p>
@@ -175,16 +235,31 @@ public class Tasks {
      * </p>
      */
     public static void taskD() {
+        taskD(new Scanner(System.in), ConsoleOutput.INSTANCE, ICommandListener.NONE);
+    }
+
+    /**
+     * Tarefa D sobre canais de entrada e saída arbitrários.
+     *
+     * @param in       canal de onde são lidos os comandos
+     * @param out      destino das mensagens e dos tabuleiros
+     * @param listener notificado após cada comando processado
+     */
+    public static void taskD(InputStream in, IOutputSink out, ICommandListener listener) {
+        taskD(new Scanner(in), out, listener);
+    }
 
-        Scanner in = new Scanner(System.in);
+    private static void taskD(Scanner in, IOutputSink out, ICommandListener listener) {
         IFleet fleet = null;
-        IGame game = null;
+        Game game = null;
         String command = in.next();
         while (!command.equals(DESISTIR)) {
+            long start = System.nanoTime();
             switch (command) {
                 case NOVAFROTA:
-                    fleet = buildFleet(in);
+                    fleet = buildFleet(in, out);
                     game = new Game(fleet);
+                    game.setOutput(out);
                     break;
                 case STATUS:
                     if (fleet != null)
@@ -196,12 +271,23 @@ public class Tasks {
                     break;
                 case RAJADA:
                     if (game != null) {
-                        firingRound(in, game);
+                        firingRound(in, game, out);
 
-                        LOGGER.info("Hits: {} Inv: {} Rep: {} Restam {} navios.", game.getHits(), game.getInvalidShots(),
+                        out.info("Hits: {} Inv: {} Rep: {} Restam {} navios.", game.getHits(), game.getInvalidShots(),
                                 game.getRepeatedShots(), game.getRemainingShips());
                         if (game.getRemainingShips() == 0)
-                            LOGGER.info("Maldito sejas, Java Sparrow, eu voltarei, glub glub glub...");
+                            out.info("Maldito sejas, Java Sparrow, eu voltarei, glub glub glub...");
+                    }
+                    break;
+                case DESFAZER:
+                case REFAZER:
+                    if (game != null) {
+                        boolean done = command.equals(DESFAZER) ? game.undo() : game.redo();
+                        if (done)
+                            out.info("Hits: {} Inv: {} Rep: {} Restam {} navios.", game.getHits(),
+                                    game.getInvalidShots(), game.getRepeatedShots(), game.getRemainingShips());
+                        else
+                            out.info("Nada para {}!", command);
                     }
                     break;
                 case VERTIROS:
@@ -209,11 +295,12 @@ public class Tasks {
                         game.printValidShots();
                     break;
                 default:
-                    LOGGER.info("Que comando é esse??? Repete ...");
+                    out.info("Que comando é esse??? Repete ...");
             }
+            listener.commandExecuted(command, System.nanoTime() - start);
             command = in.next();
         }
-        LOGGER.info(GOODBYE_MESSAGE);
+        out.info(GOODBYE_MESSAGE);
     }
 
     /**
@@ -230,24 +317,46 @@ public class Tasks {
      * @throws AssertionError se {@code in} for {@code null} e as asserções estiverem ativas
      */
     static Fleet buildFleet(Scanner in) {
+        return buildFleet(in, ConsoleOutput.INSTANCE);
+    }
+
+    /**
+     * Constrói uma frota com base nos dados lidos, escrevendo as mensagens na saída indicada.
+     *
+     * @param in  scanner a partir do qual são lidos os dados dos navios
+     * @param out destino das mensagens
+     * @return a frota construída
+     */
+    static Fleet buildFleet(Scanner in, IOutputSink out) {
         assert in != null;
 
+        FlightEvents.FleetBuild flight = new FlightEvents.FleetBuild();
+        flight.begin();
         Fleet fleet = new Fleet();
+        fleet.setOutput(out);
         int i = 0; // i represents the total of successfully created ships
+        int attempts = 0;
 
         while (i <= Fleet.FLEET_SIZE) {
             IShip s = readShip(in);
+            attempts++;
             if (s != null) {
                 boolean success = fleet.addShip(s);
                 if (success)
                     i++;
                 else
-                    LOGGER.info("Falha na criacao de {} {} {}", s.getCategory(), s.getBearing(), s.getPosition());
+                    out.info("Falha na criacao de {} {} {}", s.getCategory(), s.getBearing(), s.getPosition());
             } else {
-                LOGGER.info("Navio desconhecido!");
+                out.info("Navio desconhecido!");
             }
         }
-        LOGGER.info("{} navios adicionados com sucesso!", i);
+        out.info("{} navios adicionados com sucesso!", i);
+        if (flight.shouldCommit()) {
+            flight.source = "tarefa";
+            flight.ships = i;
+            flight.attempts = attempts;
+            flight.commit();
+        }
         return fleet;
     }
 
@@ -301,11 +410,32 @@ public class Tasks {
      * @param game instância do jogo que gere o estado da frota e dos disparos
      */
     static void firingRound(Scanner in, IGame game) {
+        firingRound(in, game, ConsoleOutput.INSTANCE);
+    }
+
+    /**
+     * Executa uma ronda de disparos, escrevendo as mensagens na saída indicada.
+     *
+     * @param in   scanner a partir do qual são lidas as posições dos disparos
+     * @param game instância do jogo que gere o estado da frota e dos disparos
+     * @param out  destino das mensagens
+     */
+    static void firingRound(Scanner in, IGame game, IOutputSink out) {
+        FlightEvents.Salvo flight = new FlightEvents.Salvo();
+        flight.begin();
+        int hits = game.getHits();
+        int sunk = game.getSunkShips();
         for (int i = 0; i < NUMBER_SHOTS; i++) {
             IPosition pos = readPosition(in);
             IShip sh = game.fire(pos);
             if (sh != null)
-                LOGGER.info("Mas... mas... {}s nao sao a prova de bala? :-(", sh.getCategory());
+                out.info("Mas... mas... {}s nao sao a prova de bala? :-(", sh.getCategory());
+        }
+        if (flight.shouldCommit()) {
+            flight.shots = NUMBER_SHOTS;
+            flight.hits = game.getHits() - hits;
+            flight.sunk = game.getSunkShips() - sunk;
+            flight.commit();
         }
 
     }
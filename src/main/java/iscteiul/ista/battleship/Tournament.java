@@ -0,0 +1,178 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Torneio entre estratégias de tiro ({@link IShooter}) sobre um conjunto comum de frotas.
+ * <p>
+ * Cada estratégia joga um jogo contra cada uma das frotas do corpus, disparando rajadas de
+ * {@value Tasks#NUMBER_SHOTS} tiros (por omissão) até afundar a frota. Os jogos são distribuídos
+ * por um conjunto de threads, mas os resultados são reprodutíveis: a semente de cada jogo
+ * depende apenas da semente do torneio e do índice da frota, pelo que todas as estratégias
+ * enfrentam exatamente as mesmas frotas nas mesmas condições, independentemente do número de
+ * threads ou da ordem de execução.
+ * </p>
+ */
+public class Tournament {
+
+    /**
+     * Número de frotas jogadas de seguida por cada tarefa.
+     */
+    private static final int CHUNK = 64;
+
+    /**
+     * Frotas contra as quais todas as estratégias jogam.
+     */
+    private final List<IFleet> corpus;
+
+    /**
+     * Fábricas das estratégias em competição.
+     */
+    private final List<Supplier<? extends IShooter>> strategies = new ArrayList<>();
+
+    /**
+     * Número de disparos por rajada.
+     */
+    private int salvoSize = Tasks.NUMBER_SHOTS;
+
+    /**
+     * Número de threads usadas para jogar.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constrói um torneio sobre o corpus de frotas indicado.
+     *
+     * @param corpus frotas a usar em todos os jogos (não são alteradas)
+     */
+    public Tournament(List<? extends IFleet> corpus) {
+        this.corpus = new ArrayList<>(corpus);
+    }
+
+    /**
+     * Acrescenta uma estratégia ao torneio.
+     * <p>
+     * A fábrica é chamada uma vez por cada tarefa, pelo que cada instância de atirador só é
+     * usada por uma thread de cada vez.
+     * </p>
+     *
+     * @param factory fábrica de atiradores da estratégia
+     * @return este torneio
+     */
+    public Tournament addStrategy(Supplier<? extends IShooter> factory) {
+        strategies.add(factory);
+        return this;
+    }
+
+    /**
+     * Define o número de disparos por rajada.
+     *
+     * @param salvoSize número de disparos por rajada (pelo menos 1)
+     */
+    public void setSalvoSize(int salvoSize) {
+        assert salvoSize > 0;
+        this.salvoSize = salvoSize;
+    }
+
+    /**
+     * Define o número de threads usadas para jogar.
+     *
+     * @param threads número de threads (pelo menos 1)
+     */
+    public void setThreads(int threads) {
+        assert threads > 0;
+        this.threads = threads;
+    }
+
+    /**
+     * Joga todos os jogos do torneio.
+     *
+     * @param seed semente do torneio
+     * @return os resultados de cada estratégia
+     * @throws IllegalStateException se algum jogo falhar
+     */
+    public TournamentResult run(long seed) {
+        int[][] shots = new int[strategies.size()][corpus.size()];
+        String[] names = new String[strategies.size()];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int s = 0; s < strategies.size(); s++) {
+                names[s] = strategies.get(s).get().getName();
+                for (int from = 0; from < corpus.size(); from += CHUNK) {
+                    final int strategy = s;
+                    final int first = from;
+                    final int last = Math.min(from + CHUNK, corpus.size());
+                    futures.add(executor.submit(() -> {
+                        IShooter shooter = strategies.get(strategy).get();
+                        for (int i = first; i < last; i++)
+                            shots[strategy][i] = play(shooter, corpus.get(i), gameSeed(seed, i), salvoSize);
+                    }));
+                }
+            }
+            for (Future<?> f : futures)
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Torneio interrompido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha num jogo do torneio", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return new TournamentResult(names, shots);
+    }
+
+    /**
+     * Joga um jogo completo de um atirador contra uma frota, por rajadas.
+     * <p>
+     * O jogo decorre sobre uma cópia sem danos da frota e termina quando todos os navios estão
+     * afundados (mesmo a meio de uma rajada) ou quando o atirador não tem mais alvos.
+     * </p>
+     *
+     * @param shooter   atirador
+     * @param layout    frota a afundar (não é alterada)
+     * @param seed      semente do jogo, passada ao atirador
+     * @param salvoSize número de disparos por rajada
+     * @return o número de disparos efetuados
+     */
+    public static int play(IShooter shooter, IFleet layout, long seed, int salvoSize) {
+        IGame game = new Game(FleetGenerator.copyOf(layout));
+        shooter.newGame(seed);
+        int shots = 0;
+        while (game.getRemainingShips() > 0) {
+            List<IPosition> salvo = shooter.nextSalvo(salvoSize);
+            if (salvo.isEmpty())
+                break;
+            for (IPosition target : salvo) {
+                IShip sunk = game.fire(target);
+                shots++;
+                shooter.observe(target, game.getLastResult(), sunk);
+                if (sunk != null && game.getRemainingShips() == 0)
+                    break;
+            }
+        }
+        return shots;
+    }
+
+    /**
+     * Deriva a semente de um jogo a partir da semente do torneio e do índice da frota
+     * (função de mistura do SplitMix64).
+     *
+     * @param seed  semente do torneio
+     * @param index índice da frota no corpus
+     * @return a semente do jogo
+     */
+    static long gameSeed(long seed, long index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
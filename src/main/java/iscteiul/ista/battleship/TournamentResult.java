@@ -0,0 +1,102 @@
+package iscteiul.ista.battleship;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Resultados de um {@link Tournament}: o número de disparos que cada estratégia precisou para
+ * afundar cada frota do corpus.
+ */
+public class TournamentResult {
+
+    private final String[] names;
+
+    /**
+     * Número de disparos por estratégia (primeiro índice) e por frota (segundo índice).
+     */
+    private final int[][] shots;
+
+    /**
+     * Constrói os resultados de um torneio.
+     *
+     * @param names nome de cada estratégia
+     * @param shots número de disparos por estratégia e por frota
+     */
+    TournamentResult(String[] names, int[][] shots) {
+        this.names = names;
+        this.shots = shots;
+    }
+
+    /**
+     * Devolve o número de estratégias.
+     *
+     * @return número de estratégias em competição
+     */
+    public int getStrategies() {
+        return names.length;
+    }
+
+    /**
+     * Devolve o nome de uma estratégia.
+     *
+     * @param strategy índice da estratégia (pela ordem em que foi acrescentada)
+     * @return o nome da estratégia
+     */
+    public String getName(int strategy) {
+        return names[strategy];
+    }
+
+    /**
+     * Devolve o número de disparos de uma estratégia contra cada frota.
+     *
+     * @param strategy índice da estratégia
+     * @return array com o número de disparos, indexado pela frota do corpus
+     */
+    public int[] getShots(int strategy) {
+        return shots[strategy].clone();
+    }
+
+    /**
+     * Devolve a distribuição do número de disparos de uma estratégia.
+     *
+     * @param strategy índice da estratégia
+     * @return a distribuição (cada frota com peso 1)
+     */
+    public ShotDistribution distribution(int strategy) {
+        ShotDistribution d = ShotDistribution.EMPTY;
+        for (int n : shots[strategy])
+            d = d.plus(ShotDistribution.point(n, 1));
+        return d;
+    }
+
+    /**
+     * Constrói a tabela de resultados, ordenada pela média de disparos (melhor primeiro).
+     *
+     * @return a tabela em texto, uma linha por estratégia
+     */
+    public String toTable() {
+        List<Integer> order = new ArrayList<>();
+        List<ShotDistribution> dists = new ArrayList<>();
+        for (int s = 0; s < names.length; s++) {
+            order.add(s);
+            dists.add(distribution(s));
+        }
+        order.sort(Comparator.comparingDouble(s -> dists.get(s).mean()));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-20s %7s %8s %5s %5s %5s %5s %5s%n", "Estrategia", "Jogos", "Media", "Min", "p50",
+                "p90", "p99", "Max"));
+        for (int s : order) {
+            ShotDistribution d = dists.get(s);
+            sb.append(String.format("%-20s %7d %8.2f %5d %5d %5d %5d %5d%n", names[s], shots[s].length, d.mean(),
+                    d.min(), d.percentile(0.5), d.percentile(0.9), d.percentile(0.99), d.max()));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toTable();
+    }
+}
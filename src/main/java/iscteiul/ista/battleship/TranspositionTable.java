@@ -0,0 +1,175 @@
+package iscteiul.ista.battleship;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tabela de transposição de tamanho fixo, partilhável entre threads sem locks.
+ * <p>
+ * Guarda, para estados do tabuleiro identificados pelo seu hash de Zobrist
+ * ({@link Game#getObservationHash()}, {@link Observation#getHash()}), uma avaliação, o melhor alvo
+ * e a profundidade da pesquisa que os produziu. Cada entrada ocupa duas posições de um
+ * {@link AtomicLongArray}: os dados empacotados num {@code long} e o ou-exclusivo desses dados com
+ * o hash. Uma leitura só é aceite se o ou-exclusivo das duas palavras devolver o hash procurado,
+ * o que deteta entradas escritas a meio por outra thread sem ser preciso sincronizar.
+ * </p>
+ *
+ * <p>
+ * As entradas estão agrupadas em baldes de {@value #BUCKET} posições. Ao guardar um estado que não
+ * está no balde, é substituída a entrada menos valiosa: primeiro as de gerações anteriores
+ * ({@link #newGeneration()}), depois as de menor profundidade.
+ * </p>
+ */
+public class TranspositionTable {
+
+    /**
+     * Valor devolvido por {@link #probe(long)} quando o estado não está na tabela.
+     */
+    public static final long NOT_FOUND = 0L;
+
+    /**
+     * Melhor alvo de uma entrada sem alvo.
+     */
+    public static final int NO_MOVE = 0xFF;
+
+    /**
+     * Número de entradas por balde.
+     */
+    private static final int BUCKET = 4;
+
+    private static final long VALID = 1L << 63;
+
+    private final AtomicLongArray table;
+    private final int mask;
+    private volatile int generation;
+
+    /**
+     * Constrói uma tabela com, pelo menos, o número de entradas indicado (arredondado para uma potência de dois).
+     *
+     * @param entries número mínimo de entradas
+     */
+    public TranspositionTable(int entries) {
+        assert entries > 0 && entries <= 1 << 29;
+
+        int size = Math.max(BUCKET, Integer.highestOneBit(entries - 1) << 1);
+        table = new AtomicLongArray(2 * size);
+        mask = (size - 1) & ~(BUCKET - 1);
+    }
+
+    /**
+     * Devolve o número de entradas da tabela.
+     *
+     * @return capacidade da tabela
+     */
+    public int capacity() {
+        return table.length() / 2;
+    }
+
+    /**
+     * Inicia uma nova geração (por exemplo, uma nova jogada): as entradas das gerações anteriores
+     * continuam disponíveis, mas passam a ser as primeiras a ser substituídas.
+     */
+    public synchronized void newGeneration() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Procura um estado na tabela.
+     *
+     * @param hash hash de Zobrist do estado
+     * @return os dados guardados (ver {@link #score(long)}, {@link #bestMove(long)}, {@link #depth(long)}),
+     *         ou {@link #NOT_FOUND}
+     */
+    public long probe(long hash) {
+        int first = index(hash);
+        for (int i = first; i < first + BUCKET; i++) {
+            long data = table.get(2 * i);
+            if ((data & VALID) != 0 && (table.get(2 * i + 1) ^ data) == hash)
+                return data;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Guarda a avaliação de um estado. Se o estado já estiver na tabela com uma profundidade maior
+     * na geração corrente, a entrada existente é mantida.
+     *
+     * @param hash     hash de Zobrist do estado
+     * @param score    avaliação do estado
+     * @param bestMove melhor alvo (índice linear da célula), ou {@link #NO_MOVE}
+     * @param depth    profundidade da pesquisa (0 a 255)
+     * @return {@code true} se a entrada foi escrita
+     */
+    public boolean store(long hash, int score, int bestMove, int depth) {
+        assert bestMove >= 0 && bestMove <= NO_MOVE;
+        assert depth >= 0 && depth <= 0xFF;
+
+        int gen = generation;
+        long data = VALID | (long) gen << 48 | (long) depth << 40 | (long) bestMove << 32 | (score & 0xFFFFFFFFL);
+        int first = index(hash);
+        int victim = -1;
+        int victimRank = Integer.MAX_VALUE;
+        for (int i = first; i < first + BUCKET; i++) {
+            long old = table.get(2 * i);
+            if ((old & VALID) == 0) {
+                if (victimRank > -1) {
+                    victim = i;
+                    victimRank = -1;
+                }
+                continue;
+            }
+            if ((table.get(2 * i + 1) ^ old) == hash) {
+                if (generation(old) == gen && depth(old) > depth)
+                    return false;
+                victim = i;
+                break;
+            }
+            int rank = (generation(old) == gen ? 0x100 : 0) + depth(old);
+            if (rank < victimRank) {
+                victim = i;
+                victimRank = rank;
+            }
+        }
+        table.set(2 * victim, data);
+        table.set(2 * victim + 1, hash ^ data);
+        return true;
+    }
+
+    /**
+     * Extrai a avaliação dos dados devolvidos por {@link #probe(long)}.
+     *
+     * @param data dados de uma entrada
+     * @return a avaliação
+     */
+    public static int score(long data) {
+        return (int) data;
+    }
+
+    /**
+     * Extrai o melhor alvo dos dados devolvidos por {@link #probe(long)}.
+     *
+     * @param data dados de uma entrada
+     * @return o índice linear da célula, ou {@link #NO_MOVE}
+     */
+    public static int bestMove(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    /**
+     * Extrai a profundidade dos dados devolvidos por {@link #probe(long)}.
+     *
+     * @param data dados de uma entrada
+     * @return a profundidade
+     */
+    public static int depth(long data) {
+        return (int) (data >>> 40) & 0xFF;
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> 48) & 0xFF;
+    }
+
+    private int index(long hash) {
+        long h = hash ^ (hash >>> 32);
+        return (int) h & mask;
+    }
+}
@@ -0,0 +1,57 @@
+package iscteiul.ista.battleship;
+
+import java.util.SplittableRandom;
+
+/**
+ * Chaves de Zobrist para o tabuleiro observado pelo atacante.
+ * <p>
+ * A cada par (célula, estado) corresponde uma chave aleatória de 64 bits; o hash de uma observação é
+ * o ou-exclusivo das chaves dos estados de todas as células. O estado {@link CellState#UNKNOWN} tem
+ * chave zero, pelo que o tabuleiro vazio tem hash zero e cada tiro altera o hash com um ou-exclusivo
+ * de poucas chaves, independentemente da ordem dos tiros.
+ * </p>
+ *
+ * <p>
+ * As chaves são geradas a partir de uma semente fixa e são, por isso, as mesmas em todas as
+ * execuções: os hashes podem ser guardados em ficheiro.
+ * </p>
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x5EA_BA771E_5A11L;
+
+    private static final long[][] KEYS = new long[Observation.CELLS][CellState.values().length];
+
+    static {
+        SplittableRandom rnd = new SplittableRandom(SEED);
+        for (long[] cell : KEYS)
+            for (int s = 1; s < cell.length; s++)
+                cell[s] = rnd.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Devolve a chave de um estado de uma célula.
+     *
+     * @param cell  índice linear da célula
+     * @param state estado da célula
+     * @return a chave (zero para {@link CellState#UNKNOWN})
+     */
+    public static long key(int cell, CellState state) {
+        return KEYS[cell][state.ordinal()];
+    }
+
+    /**
+     * Devolve a variação do hash quando uma célula muda de estado.
+     *
+     * @param cell índice linear da célula
+     * @param from estado anterior
+     * @param to   estado novo
+     * @return o valor a combinar (ou-exclusivo) com o hash
+     */
+    public static long change(int cell, CellState from, CellState to) {
+        return KEYS[cell][from.ordinal()] ^ KEYS[cell][to.ordinal()];
+    }
+}
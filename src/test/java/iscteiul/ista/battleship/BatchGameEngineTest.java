@@ -0,0 +1,50 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do motor de jogos em lote.
+ */
+public class BatchGameEngineTest {
+
+    @Test
+    public void stepsMatchGameFire() {
+        List<IFleet> layouts = FleetGenerator.sample(200, 21);
+        List<Game> games = new ArrayList<>();
+        for (IFleet layout : layouts)
+            games.add(new Game(FleetGenerator.copyOf(layout)));
+        BatchGameEngine engine = new BatchGameEngine(layouts);
+
+        Random rnd = new Random(8);
+        int[] rows = new int[layouts.size()];
+        int[] columns = new int[layouts.size()];
+        byte[] results = new byte[layouts.size()];
+        while (engine.getFinishedGames() < engine.size()) {
+            for (int g = 0; g < rows.length; g++) {
+                // inclui tiros inválidos nas duas margens (-1 e BOARD_SIZE)
+                rows[g] = rnd.nextInt(Fleet.BOARD_SIZE + 2) - 1;
+                columns[g] = rnd.nextInt(Fleet.BOARD_SIZE + 2) - 1;
+            }
+            engine.step(rows, columns, results);
+            for (int g = 0; g < rows.length; g++) {
+                Game game = games.get(g);
+                game.fire(new Position(rows[g], columns[g]));
+                assertEquals(game.getLastResult(), BatchGameEngine.result(results[g]));
+                if (!Observation.isInside(rows[g], columns[g]))
+                    assertEquals(ShotResult.INVALID, game.getLastResult());
+                assertEquals(game.getHits(), engine.getHits(g));
+                assertEquals(game.getSunkShips(), engine.getSunkShips(g));
+                assertEquals(game.getRemainingShips(), engine.getRemainingShips(g));
+                assertEquals(game.getInvalidShots(), engine.getInvalidShots(g));
+                assertEquals(game.getRepeatedShots(), engine.getRepeatedShots(g));
+                assertEquals(game.getShots().size(), engine.getShots(g));
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testes das campanhas de simulação.
+ */
+public class CampaignTest {
+
+    @TempDir
+    Path dir;
+
+    private static Campaign campaign(long seed, int threads) {
+        Campaign c = new Campaign(ParityHuntShooter::new, seed, 12, 5);
+        c.setThreads(threads);
+        return c;
+    }
+
+    @Test
+    public void resultsDoNotDependOnThreads() throws Exception {
+        Campaign.Result one = campaign(7, 1).run();
+        Campaign.Result many = campaign(7, 4).run();
+
+        assertTrue(one.isFinished());
+        assertEquals(60, one.getGames());
+        assertArrayEquals(one.getHistogram(), many.getHistogram());
+        assertEquals(one.mean(), one.distribution().mean(), 1e-9);
+    }
+
+    @Test
+    public void resumesFromCheckpoint() throws Exception {
+        Path file = dir.resolve("campanha.ckpt");
+        Campaign first = campaign(7, 3);
+        first.setCheckpoint(file, 0);
+        Campaign.Result partial = first.run(5);
+        assertEquals(5, partial.getCompletedUnits());
+        assertFalse(partial.isFinished());
+        assertTrue(Files.exists(file));
+
+        Campaign second = campaign(7, 2);
+        second.setCheckpoint(file, 60_000);
+        Campaign.Result resumed = second.run();
+        assertTrue(resumed.isFinished());
+        assertArrayEquals(campaign(7, 1).run().getHistogram(), resumed.getHistogram());
+
+        Campaign other = campaign(8, 1);
+        other.setCheckpoint(file, 0);
+        assertThrows(IOException.class, other::run);
+    }
+}
@@ -0,0 +1,76 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testes do lançador com arquivo de classes partilhadas.
+ */
+public class CdsLauncherTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void foldersAreReplacedByTheArchiveJar() {
+        Path archive = dir.resolve("jogo.jsa");
+        String classPath = String.join(File.pathSeparator, dir.toString(), "lib/log4j-api.jar", "",
+                "lib/log4j-core.jar");
+        String expected = String.join(File.pathSeparator, dir.resolve("jogo.jsa.classes.jar").toString(),
+                "lib/log4j-api.jar", "lib/log4j-core.jar");
+        assertEquals(expected, CdsLauncher.archivedClassPath(archive, classPath));
+        assertEquals(CdsLauncher.jarFor(archive).toString(), CdsLauncher.archivedClassPath(archive, dir.toString()));
+    }
+
+    @Test
+    public void trainingRunWritesTheArchiveAtExit() {
+        // modo criar
+        Path archive = dir.resolve("jogo.jsa");
+        String classPath = CdsLauncher.archivedClassPath(archive, System.getProperty("java.class.path"));
+        List<String> command = CdsLauncher.trainingCommand(archive, classPath);
+        assertTrue(command.get(0).endsWith("java"));
+        assertEquals(List.of("-XX:ArchiveClassesAtExit=" + archive, "-cp", classPath, "iscteiul.ista.App", "d"),
+                command.subList(1, command.size()));
+    }
+
+    @Test
+    public void launchUsesTheArchiveOnlyWithItsJar() throws Exception {
+        // modo arrancar
+        Path archive = dir.resolve("jogo.jsa");
+        String classPath = System.getProperty("java.class.path");
+        List<String> plain = List.of("-cp", classPath, "iscteiul.ista.App", "d");
+        List<String> command = CdsLauncher.command(archive, "d");
+        assertEquals(plain, command.subList(1, command.size()));
+
+        Files.createFile(archive);
+        command = CdsLauncher.command(archive, "d");
+        assertEquals(plain, command.subList(1, command.size()));
+
+        Files.createFile(CdsLauncher.jarFor(archive));
+        command = CdsLauncher.command(archive, "d");
+        assertEquals(List.of("-XX:SharedArchiveFile=" + archive, "-cp",
+                CdsLauncher.archivedClassPath(archive, classPath), "iscteiul.ista.App", "d"),
+                command.subList(1, command.size()));
+
+        command = CdsLauncher.command(null);
+        assertEquals(List.of("-cp", classPath, "iscteiul.ista.App"), command.subList(1, command.size()));
+    }
+
+    @Test
+    public void unknownModesAreRejected() throws Exception {
+        Path archive = dir.resolve("jogo.jsa");
+        assertEquals(2, CdsLauncher.run(new String[] { "apagar", archive.toString() }));
+        assertEquals(2, CdsLauncher.run(new String[] { "criar" }));
+        assertFalse(Files.exists(archive));
+        assertFalse(Files.exists(CdsLauncher.jarFor(archive)));
+    }
+}
@@ -0,0 +1,94 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do avaliador exato do número de tiros.
+ */
+public class ExpectedShotsEvaluatorTest {
+
+    /**
+     * Política simples: primeira célula desconhecida, por ordem de leitura.
+     */
+    private static final ITargetingPolicy FIRST_UNKNOWN = view -> {
+        for (int c = 0; c < Observation.CELLS; c++)
+            if (view.isUnknown(c))
+                return c;
+        return -1;
+    };
+
+    /**
+     * Política um pouco menos trivial: célula desconhecida vizinha de um acerto, ou a primeira livre.
+     */
+    private static final ITargetingPolicy HUNT_TARGET = view -> {
+        for (int c = 0; c < Observation.CELLS; c++)
+            if (view.get(c) == CellState.HIT) {
+                int r = c / Fleet.BOARD_SIZE;
+                int col = c % Fleet.BOARD_SIZE;
+                int[][] deltas = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
+                for (int[] d : deltas)
+                    if (Observation.isInside(r + d[0], col + d[1])
+                            && view.isUnknown(Observation.cell(r + d[0], col + d[1])))
+                        return Observation.cell(r + d[0], col + d[1]);
+            }
+        return FIRST_UNKNOWN.target(view);
+    };
+
+    @Test
+    public void distributionMatchesGamesPlayedWithFire() {
+        List<IFleet> layouts = FleetGenerator.sample(200, 42);
+        for (ITargetingPolicy policy : List.of(FIRST_UNKNOWN, HUNT_TARGET)) {
+            ExpectedShotsEvaluator evaluator = new ExpectedShotsEvaluator(policy);
+            ShotDistribution exact = evaluator.evaluate(layouts);
+
+            ShotDistribution played = ShotDistribution.EMPTY;
+            for (IFleet layout : layouts)
+                played = played.plus(ShotDistribution.point(evaluator.play(layout), 1));
+
+            assertEquals(played, exact);
+            assertEquals(200.0, exact.getTotalWeight(), 1e-9);
+        }
+    }
+
+    @Test
+    public void decisionCacheIsBounded() {
+        List<IFleet> layouts = FleetGenerator.sample(100, 7);
+        ExpectedShotsEvaluator unbounded = new ExpectedShotsEvaluator(HUNT_TARGET);
+        ShotDistribution expected = unbounded.evaluate(layouts);
+        assertTrue(unbounded.getCachedDecisions() > 50);
+
+        ExpectedShotsEvaluator bounded = new ExpectedShotsEvaluator(HUNT_TARGET, ForkJoinPool.commonPool(), 50);
+        assertEquals(expected, bounded.evaluate(layouts));
+        assertEquals(expected, bounded.evaluate(layouts));
+        assertTrue(bounded.getCachedDecisions() <= 50 + ForkJoinPool.commonPool().getParallelism());
+    }
+
+    @Test
+    public void enumerationCoversAllDistinctLayouts() {
+        // duas barcas indistinguíveis num tabuleiro 10x10: pares de células não adjacentes
+        List<IFleet> layouts = FleetGenerator.enumerate(List.of("barca", "barca"), Integer.MAX_VALUE);
+        int expected = 0;
+        for (int a = 0; a < Observation.CELLS; a++)
+            for (int b = a + 1; b < Observation.CELLS; b++)
+                if (!Observation.toPosition(a).isAdjacentTo(Observation.toPosition(b)))
+                    expected++;
+        assertEquals(expected, layouts.size());
+
+        ShotDistribution d = new ExpectedShotsEvaluator(FIRST_UNKNOWN).evaluate(layouts);
+        assertTrue(d.mean() > 2 && d.mean() < Observation.CELLS);
+        assertEquals(1.0, sum(d.toProbabilities()), 1e-9);
+    }
+
+    private static double sum(double[] values) {
+        double total = 0;
+        for (double v : values)
+            total += v;
+        return total;
+    }
+}
@@ -0,0 +1,92 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testes da importação em massa de frotas.
+ */
+public class FleetImporterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void importsValidFleetsAndReportsRejections() throws IOException {
+        Random rnd = new Random(11);
+        List<IFleet> valid = new ArrayList<>();
+        StringBuilder text = new StringBuilder("# frotas de teste\n");
+        for (int i = 0; i < 300; i++) {
+            Fleet fleet = FleetGenerator.randomFleet(rnd);
+            if (i % 10 == 0) {
+                // linhas de frotas com erros, intercaladas com as válidas
+                text.append("galeao 0 0 n\nnavio 1 1 n\n\n");
+                text.append("fragata 0 0\n\n");
+                text.append("caravela 0 0 x\n\n");
+                text.append("barca 0 0 n\nbarca 0 1 n\n\n");
+                text.append("barca 0 0 n\n\n");
+            }
+            valid.add(fleet);
+            text.append(FleetGenome.of(fleet)).append('\n');
+        }
+        Path input = dir.resolve("frotas.txt");
+        Path store = dir.resolve("frotas.bin");
+        Path rejections = dir.resolve("rejeitadas.txt");
+        Files.writeString(input, text, StandardCharsets.UTF_8);
+
+        ImportReport report = new FleetImporter().setThreads(3).setBatchSize(7)
+                .importFleets(input, store, rejections);
+
+        assertEquals(300, report.getAccepted());
+        assertEquals(150, report.getRejected());
+        for (RejectionReason r : new RejectionReason[] { RejectionReason.UNKNOWN_SHIP,
+                RejectionReason.MALFORMED_LINE, RejectionReason.INVALID_BEARING, RejectionReason.TOO_CLOSE,
+                RejectionReason.INCOMPLETE_FLEET })
+            assertEquals(30, report.getRejected(r), r.name());
+        assertEquals(150, Files.readAllLines(rejections).size());
+        ImportReport.Rejection first = report.getRejections().get(0);
+        assertEquals(1, first.getFleet());
+        assertEquals(3, first.getLine());
+
+        List<IFleet> stored = FleetStore.readAll(store);
+        assertEquals(valid.size(), stored.size());
+        for (int i = 0; i < valid.size(); i++)
+            assertEquals(FleetGenome.of(valid.get(i)).toString(), FleetGenome.of(stored.get(i)).toString());
+    }
+
+    @Test
+    public void rejectionsReportTheFileLineAcrossComments() throws IOException {
+        String text = "# frotas com comentários dentro dos blocos\n"
+                + "galeao 0 0 n\n"
+                + "# comentário no meio da frota\n"
+                + "navio 1 1 n\n"
+                + "\n"
+                + "barca 0 0 n\n"
+                + "# outro comentário\n"
+                + "barca 5 5 n\n"
+                + "# e mais um\n";
+        Path input = dir.resolve("frotas.txt");
+        Files.writeString(input, text, StandardCharsets.UTF_8);
+
+        ImportReport report = new FleetImporter().setThreads(1)
+                .importFleets(input, dir.resolve("frotas.bin"), dir.resolve("rejeitadas.txt"));
+
+        assertEquals(2, report.getRejected());
+        ImportReport.Rejection unknown = report.getRejections().get(0);
+        assertEquals(RejectionReason.UNKNOWN_SHIP, unknown.getReason());
+        assertEquals(4, unknown.getLine());
+        ImportReport.Rejection incomplete = report.getRejections().get(1);
+        assertEquals(RejectionReason.INCOMPLETE_FLEET, incomplete.getReason());
+        assertEquals(8, incomplete.getLine());
+    }
+}
@@ -0,0 +1,96 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes das colocações legais mantidas pela frota.
+ */
+public class FleetTest {
+
+    /**
+     * Confirma que a máscara de posições legais coincide com a decisão de {@link Fleet#addShip(IShip)}
+     * para todos os tipos, orientações e posições iniciais.
+     */
+    private static void assertOracleAgrees(Fleet fleet) {
+        for (String kind : ShipShapes.KINDS)
+            for (Compass bearing : FleetGenerator.BEARINGS) {
+                BitSet legal = fleet.getLegalAnchors(kind, bearing);
+                for (int cell = 0; cell < Observation.CELLS; cell++) {
+                    IPosition p = Observation.toPosition(cell);
+                    Fleet copy = FleetGenerator.copyOf(fleet);
+                    boolean accepted = copy.addShip(Ship.buildShip(kind, bearing, (Position) p));
+                    String where = kind + " " + bearing + " " + p;
+                    assertEquals(accepted, legal.get(cell), where);
+                    assertEquals(accepted, fleet.isLegalPlacement(kind, bearing, p.getRow(), p.getColumn()), where);
+                }
+            }
+    }
+
+    @Test
+    public void legalAnchorsMatchAddShip() {
+        Random rnd = new Random(11);
+        Fleet fleet = new Fleet();
+        assertOracleAgrees(fleet);
+        for (String kind : FleetGenerator.COMPOSITION) {
+            assertTrue(FleetGenerator.placeRandomly(fleet, kind, rnd));
+            assertOracleAgrees(fleet);
+        }
+        assertTrue(fleet.getLegalAnchors("barca", Compass.NORTH).isEmpty());
+    }
+
+    @Test
+    public void compositionLimitsAndCategoryIndex() {
+        Fleet fleet = FleetGenerator.randomFleet(new Random(5));
+        for (Category c : Category.values()) {
+            assertEquals(c.getLimit(), fleet.count(c));
+            assertTrue(fleet.isFull(c));
+            assertEquals(c.getLimit(), fleet.getShipsLike(c.getName()).size());
+            for (IShip s : fleet.getShipsLike(c))
+                assertEquals(c.getName(), s.getCategory());
+        }
+        assertTrue(fleet.getShipsLike("Jangada").isEmpty());
+
+        Fleet partial = new Fleet();
+        BitSet legal = partial.getLegalAnchors("galeao", Compass.NORTH);
+        Ship first = Ship.buildShip("galeao", Compass.NORTH, (Position) Observation.toPosition(legal.nextSetBit(0)));
+        Ship second = Ship.buildShip("galeao", Compass.NORTH,
+                (Position) Observation.toPosition(legal.previousSetBit(Observation.CELLS - 1)));
+        assertTrue(partial.addShip(first));
+        assertEquals(RejectionReason.CATEGORY_FULL, partial.rejectionReason(second));
+        assertFalse(partial.addShip(second));
+        assertTrue(partial.getLegalAnchors("galeao", Compass.NORTH).isEmpty());
+        assertNull(partial.rejectionReason(Ship.buildShip("barca", Compass.NORTH, (Position) second.getPosition())));
+        assertOracleAgrees(partial);
+    }
+
+    @Test
+    public void statusListsShipsThenFloatingThenByCategory() {
+        Fleet fleet = FleetGenerator.randomFleet(new Random(6));
+        fleet.getShips().get(3).getPositions().forEach(IPosition::shoot);
+
+        StringBuilder expected = new StringBuilder();
+        String nl = System.lineSeparator();
+        for (IShip s : fleet.getShips())
+            expected.append(s).append(nl);
+        for (IShip s : fleet.getShips())
+            if (s.stillFloating())
+                expected.append(s).append(nl);
+        for (String category : new String[] { "Galeao", "Fragata", "Nau", "Caravela", "Barca" })
+            for (IShip s : fleet.getShips())
+                if (s.getCategory().equals(category))
+                    expected.append(s).append(nl);
+
+        MemoryOutput out = new MemoryOutput();
+        fleet.setOutput(out);
+        fleet.printStatus();
+        assertEquals(expected.toString(), out.getText());
+    }
+}
@@ -0,0 +1,77 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testes dos eventos do JDK Flight Recorder.
+ */
+public class FlightEventsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void gameEventsAreRecorded() throws Exception {
+        Path file = dir.resolve("jogo.jfr");
+        Game game;
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] { "Fire", "AddShip", "FleetBuild", "GameOver" })
+                recording.enable("iscteiul.battleship." + name).withoutThreshold();
+            recording.start();
+            game = new Game(FleetGenerator.randomFleet(new Random(3)));
+            for (int cell = 0; cell < Observation.CELLS; cell++)
+                game.fire(Observation.toPosition(cell));
+            game.fire(new Position(-1, 0));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Map<String, Long> counts = events.stream()
+                .collect(Collectors.groupingBy(e -> e.getEventType().getName(), Collectors.counting()));
+        assertEquals(Observation.CELLS + 1, counts.get("iscteiul.battleship.Fire"));
+        assertEquals(1, counts.get("iscteiul.battleship.FleetBuild"));
+        assertEquals(1, counts.get("iscteiul.battleship.GameOver"));
+        assertTrue(counts.get("iscteiul.battleship.AddShip") >= FleetGenerator.COMPOSITION.size());
+
+        RecordedEvent over = events.stream()
+                .filter(e -> e.getEventType().getName().equals("iscteiul.battleship.GameOver")).findFirst().get();
+        assertEquals(game.getHits(), over.getInt("hits"));
+        RecordedEvent invalid = events.stream()
+                .filter(e -> e.getEventType().getName().equals("iscteiul.battleship.Fire"))
+                .filter(e -> e.getInt("row") == -1).findFirst().get();
+        assertEquals("INVALID", invalid.getString("result"));
+    }
+
+    @Test
+    public void profileEnablesTheGameEvents() throws Exception {
+        try (Reader in = new InputStreamReader(FlightEvents.class.getResourceAsStream("/jfr/battleship.jfc"),
+                StandardCharsets.UTF_8)) {
+            Configuration profile = Configuration.create(in);
+            Map<String, String> settings = profile.getSettings();
+            for (String name : new String[] { "Fire", "AddShip", "FleetBuild", "Salvo", "GameOver" })
+                assertEquals("true", settings.get("iscteiul.battleship." + name + "#enabled"), name);
+            assertFalse(settings.get("iscteiul.battleship.Fire#threshold").startsWith("0"));
+            for (String name : new String[] { "Fire", "AddShip", "FleetBuild", "Salvo", "GameOver" })
+                assertEquals("false", settings.get("iscteiul.battleship." + name + "#stackTrace"), name);
+        }
+    }
+}
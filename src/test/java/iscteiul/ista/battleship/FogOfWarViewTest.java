@@ -0,0 +1,76 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes da vista do tabuleiro para clientes remotos.
+ */
+public class FogOfWarViewTest {
+
+    private static void assertSameView(Observation expected, FogOfWarView view) {
+        for (int cell = 0; cell < Observation.CELLS; cell++)
+            assertEquals(expected.get(cell), view.get(cell), "célula " + cell);
+    }
+
+    @Test
+    public void clientsFollowTheGameWithDeltas() {
+        Game game = new Game(FleetGenerator.randomFleet(new Random(11)));
+        FogOfWarView server = new FogOfWarView();
+        FogOfWarView player = new FogOfWarView();
+        FogOfWarView spectator = new FogOfWarView();
+        long playerAck = -1;
+        long spectatorAck = -1;
+
+        Random rnd = new Random(2);
+        for (int turn = 0; turn < 40; turn++) {
+            for (int i = 0; i < Tasks.NUMBER_SHOTS; i++)
+                game.fire(Observation.toPosition(rnd.nextInt(Observation.CELLS)));
+            if (turn == 20)
+                game.undo();
+            server.update(game.getObservation());
+
+            byte[] message = server.encodeSince(playerAck);
+            assertTrue(message.length <= server.encodeFull().length);
+            playerAck = player.apply(message);
+            assertEquals(server.getSequence(), playerAck);
+            assertSameView(game.getObservation(), player);
+
+            if (turn % 7 == 6)
+                spectatorAck = spectator.apply(server.encodeSince(spectatorAck));
+        }
+        spectator.apply(server.encodeSince(spectatorAck));
+        assertSameView(game.getObservation(), spectator);
+
+        FogOfWarView relayed = new FogOfWarView();
+        relayed.apply(player.encodeFull());
+        assertSameView(game.getObservation(), relayed);
+        assertEquals(36, server.encodeFull().length);
+    }
+
+    @Test
+    public void gapsAndMalformedMessagesAreRejected() {
+        FogOfWarView server = new FogOfWarView();
+        Observation board = new Observation();
+        board.record(new Position(0, 0), false, null);
+        server.update(board);
+        board.record(new Position(1, 1), true, null);
+        server.update(board);
+        assertEquals(0, server.update(board));
+        assertEquals(2, server.getSequence());
+
+        FogOfWarView client = new FogOfWarView();
+        assertThrows(IllegalStateException.class, () -> client.apply(server.encodeDelta(1)));
+        assertEquals(2, client.apply(server.encodeDelta(0)));
+        assertEquals(CellState.HIT, client.get(Observation.cell(1, 1)));
+
+        assertThrows(IllegalArgumentException.class, () -> server.encodeDelta(3));
+        assertThrows(IllegalArgumentException.class, () -> client.apply(new byte[] { FogOfWarView.DELTA, 0 }));
+        assertThrows(IllegalArgumentException.class, () -> new FogOfWarView(64).apply(server.encodeFull()));
+    }
+}
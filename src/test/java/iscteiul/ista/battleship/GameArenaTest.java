@@ -0,0 +1,57 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do armazém de jogos fora do heap.
+ */
+public class GameArenaTest {
+
+    @Test
+    public void arenaGamesMatchGame() {
+        List<IFleet> layouts = FleetGenerator.sample(50, 9);
+        GameArena arena = new GameArena(layouts.size());
+        Random rnd = new Random(4);
+        for (IFleet layout : layouts) {
+            Game game = new Game(FleetGenerator.copyOf(layout));
+            ArenaGame view = new ArenaGame(arena, arena.allocate(layout));
+            while (game.getRemainingShips() > 0) {
+                Position target = new Position(rnd.nextInt(Fleet.BOARD_SIZE), rnd.nextInt(Fleet.BOARD_SIZE));
+                IShip expected = game.fire(target);
+                IShip actual = view.fire(target);
+                assertEquals(game.getLastResult(), view.getLastResult());
+                assertEquals(expected == null, actual == null);
+                if (expected != null)
+                    assertEquals(expected.getPosition(), actual.getPosition());
+                assertEquals(game.getHits(), view.getHits());
+                assertEquals(game.getSunkShips(), view.getSunkShips());
+                assertEquals(game.getRemainingShips(), view.getRemainingShips());
+                assertEquals(game.getRepeatedShots(), view.getRepeatedShots());
+            }
+            assertEquals(game.getShots().size(), view.getShots().size());
+            assertEquals(0, view.getFleet().getFloatingShips().size());
+        }
+    }
+
+    @Test
+    public void releasedSlotsAreReusedAndCleared() {
+        GameArena arena = new GameArena(2);
+        int a = arena.allocate(FleetGenerator.randomFleet(new Random(1)));
+        int b = arena.allocate();
+        assertThrows(IllegalStateException.class, arena::allocate);
+        arena.fire(a, 0, 0);
+        arena.release(a);
+        int c = arena.allocate();
+        assertEquals(a, c);
+        assertEquals(0, arena.getShipCount(c));
+        assertEquals(0, arena.getShipCount(b));
+        assertEquals(null, arena.getLastResult(c));
+        assertEquals(2, arena.size());
+    }
+}
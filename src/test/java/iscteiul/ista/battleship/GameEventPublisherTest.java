@@ -0,0 +1,169 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes da publicação de eventos de jogos e frotas.
+ */
+public class GameEventPublisherTest {
+
+    /**
+     * Subscritor que guarda os eventos recebidos.
+     */
+    private static final class Recorder implements Flow.Subscriber<GameEvent> {
+        final List<GameEvent> events = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch completed = new CountDownLatch(1);
+        final long initial;
+        final boolean oneByOne;
+        volatile Flow.Subscription subscription;
+
+        Recorder(long initial, boolean oneByOne) {
+            this.initial = initial;
+            this.oneByOne = oneByOne;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            if (initial > 0)
+                s.request(initial);
+        }
+
+        @Override
+        public void onNext(GameEvent event) {
+            events.add(event);
+            if (oneByOne)
+                subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        List<GameEvent> await() throws InterruptedException {
+            assertTrue(completed.await(10, TimeUnit.SECONDS));
+            return events;
+        }
+    }
+
+    private static Game playAll(Game game) {
+        for (int c = 0; c < Observation.CELLS; c++)
+            game.fire(Observation.toPosition(c));
+        game.fire(new Position(-1, 0));
+        return game;
+    }
+
+    @Test
+    public void everySubscriberPolicyGetsAConsistentStream() throws InterruptedException {
+        IFleet layout = FleetGenerator.randomFleet(new Random(9));
+        Game game = new Game(FleetGenerator.copyOf(layout));
+        GameEventPublisher events = game.getEvents();
+        Recorder all = new Recorder(Long.MAX_VALUE, false);
+        Recorder blocking = new Recorder(1, true);
+        Recorder dropping = new Recorder(0, false);
+        Recorder latest = new Recorder(0, false);
+        events.subscribe(all);
+        events.subscribe(blocking, 2, OverflowPolicy.BLOCK);
+        events.subscribe(dropping, 4, OverflowPolicy.DROP);
+        events.subscribe(latest, 4, OverflowPolicy.LATEST);
+
+        playAll(game);
+        assertEquals(Observation.CELLS + 2, events.getSequence());
+        dropping.subscription.request(Long.MAX_VALUE);
+        latest.subscription.request(Long.MAX_VALUE);
+        events.close();
+
+        for (Recorder r : List.of(all, blocking)) {
+            List<GameEvent> received = r.await();
+            assertEquals(Observation.CELLS + 2, received.size());
+            for (int i = 0; i < received.size(); i++)
+                assertEquals(i + 1, received.get(i).getSequence());
+            assertEquals(layout.getShips().size(),
+                    received.stream().filter(e -> e.getType() == GameEvent.Type.SUNK).count());
+            assertEquals(1, received.stream().filter(e -> e.getType() == GameEvent.Type.GAME_OVER).count());
+            assertEquals(ShotResult.INVALID, received.get(received.size() - 1).getResult());
+        }
+
+        List<GameEvent> dropped = dropping.await();
+        assertEquals(4, dropped.size());
+        assertEquals(4, dropped.get(3).getSequence());
+
+        assertCoalesced(game, latest.await(), 4);
+    }
+
+    /**
+     * Verifica o fluxo de um subscritor {@link OverflowPolicy#LATEST}: números de ordem crescentes, um só
+     * {@link GameEvent.Type#GAME_OVER} e o último retrato, com os tiros seguintes, igual ao tabuleiro final.
+     */
+    private static void assertCoalesced(Game game, List<GameEvent> coalesced, int capacity) {
+        assertTrue(coalesced.size() <= capacity + 1);
+        for (int i = 1; i < coalesced.size(); i++)
+            assertTrue(coalesced.get(i - 1).getSequence() < coalesced.get(i).getSequence());
+        assertEquals(1, coalesced.stream().filter(e -> e.getType() == GameEvent.Type.GAME_OVER).count());
+        int last = coalesced.size() - 1;
+        while (coalesced.get(last).getType() != GameEvent.Type.BOARD)
+            last--;
+        Observation view = new Observation(coalesced.get(last).getBoard());
+        for (GameEvent e : coalesced.subList(last + 1, coalesced.size()))
+            if (e.getResult() != null && e.getResult() != ShotResult.INVALID && e.getResult() != ShotResult.REPEATED)
+                view.record(e.getPosition(), e.getResult().isHit(), e.getShip());
+        assertEquals(game.getObservationHash(), view.getHash());
+    }
+
+    @Test
+    public void latestKeepsGameOverAndSnapshotsFollowUndo() throws InterruptedException {
+        Game game = new Game(FleetGenerator.randomFleet(new Random(4)));
+        for (int c = 0; c < 30; c++)
+            game.fire(Observation.toPosition(c));
+        Recorder latest = new Recorder(0, false);
+        game.getEvents().subscribe(latest, 2, OverflowPolicy.LATEST);
+
+        for (int c = 30; c < 60; c++)
+            game.fire(Observation.toPosition(c));
+        for (int i = 0; i < 35; i++)
+            game.undo();
+        game.redo();
+        playAll(game);
+        for (int c = 0; c < 5; c++)
+            game.fire(Observation.toPosition(c));
+        latest.subscription.request(Long.MAX_VALUE);
+        game.getEvents().close();
+
+        List<GameEvent> coalesced = latest.await();
+        assertCoalesced(game, coalesced, 2);
+        assertEquals(game.getObservation(), coalesced.get(coalesced.size() - 1).getBoard());
+    }
+
+    @Test
+    public void fleetPublishesAcceptedAndRejectedShips() throws InterruptedException {
+        Fleet fleet = new Fleet();
+        Recorder r = new Recorder(Long.MAX_VALUE, false);
+        fleet.getEvents().subscribe(r);
+        assertTrue(fleet.addShip(Ship.buildShip("barca", Compass.NORTH, new Position(0, 0))));
+        fleet.addShip(Ship.buildShip("barca", Compass.NORTH, new Position(0, 1)));
+        fleet.getEvents().close();
+
+        List<GameEvent> received = r.await();
+        assertEquals(2, received.size());
+        assertEquals(GameEvent.Type.SHIP_ADDED, received.get(0).getType());
+        assertEquals(GameEvent.Type.SHIP_REJECTED, received.get(1).getType());
+        assertEquals(RejectionReason.TOO_CLOSE, received.get(1).getReason());
+    }
+}
@@ -0,0 +1,146 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do histórico de jogadas do jogo (desfazer, refazer e ramos) e do destino dos tabuleiros.
+ */
+public class GameTest {
+
+    private static Position randomTarget(Random rnd) {
+        return new Position(rnd.nextInt(Fleet.BOARD_SIZE + 1) - 1, rnd.nextInt(Fleet.BOARD_SIZE));
+    }
+
+    /**
+     * Compara um jogo com um jogo novo sobre a mesma disposição em que foram feitos os mesmos disparos.
+     */
+    private static void assertSameAsReplay(IFleet layout, List<Position> targets, Game game) {
+        Game replay = new Game(FleetGenerator.copyOf(layout));
+        for (Position p : targets)
+            replay.fire(p);
+        assertEquals(replay.getShots(), game.getShots());
+        assertEquals(replay.getHits(), game.getHits());
+        assertEquals(replay.getSunkShips(), game.getSunkShips());
+        assertEquals(replay.getInvalidShots(), game.getInvalidShots());
+        assertEquals(replay.getRepeatedShots(), game.getRepeatedShots());
+        assertEquals(replay.getRemainingShips(), game.getRemainingShips());
+        assertEquals(replay.getLastResult(), game.getLastResult());
+    }
+
+    @Test
+    public void undoAndRedoRestoreState() {
+        IFleet layout = FleetGenerator.randomFleet(new Random(2));
+        Game game = new Game(FleetGenerator.copyOf(layout));
+        Random rnd = new Random(6);
+        List<Position> targets = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            targets.add(randomTarget(rnd));
+            game.fire(targets.get(i));
+        }
+        for (int i = 0; i < 60; i++)
+            assertTrue(game.undo());
+        assertSameAsReplay(layout, targets.subList(0, 90), game);
+        for (int i = 0; i < 20; i++)
+            assertTrue(game.redo());
+        assertSameAsReplay(layout, targets.subList(0, 110), game);
+
+        while (game.undo())
+            ;
+        assertSameAsReplay(layout, List.of(), game);
+        assertTrue(game.redo());
+        assertSameAsReplay(layout, targets.subList(0, 1), game);
+        game.fire(targets.get(0));
+        assertFalse(game.redo());
+    }
+
+    @Test
+    public void forksAreIndependent() {
+        IFleet layout = FleetGenerator.randomFleet(new Random(3));
+        Game main = new Game(FleetGenerator.copyOf(layout));
+        Random rnd = new Random(5);
+        List<Position> mainTargets = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            mainTargets.add(randomTarget(rnd));
+            main.fire(mainTargets.get(i));
+        }
+
+        Game branch = main.fork();
+        List<Position> branchTargets = new ArrayList<>(mainTargets);
+        for (int i = 0; i < 30; i++) {
+            Position p = randomTarget(rnd);
+            mainTargets.add(p);
+            main.fire(p);
+            Position q = randomTarget(rnd);
+            branchTargets.add(q);
+            branch.fire(q);
+        }
+        branch.undo();
+        branchTargets.remove(branchTargets.size() - 1);
+
+        assertSameAsReplay(layout, mainTargets, main);
+        assertSameAsReplay(layout, branchTargets, branch);
+        assertSameAsReplay(layout, mainTargets, main);
+    }
+
+    @Test
+    public void boardsAreWrittenToTheGameOutput() {
+        IFleet fleet = FleetGenerator.randomFleet(new Random(5));
+        Game game = new Game(fleet);
+        game.fire(new Position(0, 0));
+        game.fire(new Position(9, 9));
+
+        MemoryOutput memory = new MemoryOutput();
+        game.setOutput(memory);
+        game.printValidShots();
+        List<String> lines = memory.getLines();
+        assertEquals(Fleet.BOARD_SIZE, lines.size());
+        assertEquals("X.........", lines.get(0));
+        assertEquals(".........X", lines.get(9));
+
+        StringWriter target = new StringWriter();
+        BufferedOutput buffered = new BufferedOutput(target, 1 << 16);
+        game.setOutput(buffered);
+        game.printValidShots();
+        game.printFleet();
+        assertEquals("", target.toString());
+        buffered.flush();
+        memory.clear();
+        game.setOutput(memory);
+        game.printValidShots();
+        game.printFleet();
+        assertEquals(memory.getText(), target.toString());
+
+        fleet.setOutput(memory);
+        fleet.printStatus();
+        assertTrue(memory.getText().length() > target.toString().length());
+
+        // destino desligado que conta o texto que lhe chega: nada deve ser composto nem escrito
+        int[] written = new int[1];
+        IOutputSink disabled = new IOutputSink() {
+            @Override
+            public void print(CharSequence text) {
+                written[0]++;
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+        };
+        game.setOutput(disabled);
+        fleet.setOutput(disabled);
+        game.printValidShots();
+        game.printFleet();
+        fleet.printStatus();
+        assertEquals(0, written[0]);
+    }
+}
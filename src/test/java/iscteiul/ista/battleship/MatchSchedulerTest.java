@@ -0,0 +1,75 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes das partidas entre dois jogadores e do seu escalonador.
+ */
+public class MatchSchedulerTest {
+
+    @Test
+    public void turnOrderAndSalvoSizeAreEnforced() {
+        List<IFleet> fleets = FleetGenerator.sample(2, 1);
+        Match m = new Match(fleets.get(0), new RandomShooter(), fleets.get(1), new RandomShooter(), 1);
+        List<IPosition> salvo = List.of(new Position(0, 0));
+        assertThrows(IllegalStateException.class, () -> m.fireSalvo(1, salvo));
+        assertThrows(IllegalArgumentException.class, () -> m.fireSalvo(0,
+                List.of(new Position(0, 0), new Position(0, 1), new Position(0, 2), new Position(0, 3))));
+        m.fireSalvo(0, salvo);
+        assertEquals(1, m.getCurrentPlayer());
+        assertEquals(1, m.getBoard(1).getShots().size());
+    }
+
+    @Test
+    public void schedulerFinishesEveryMatchWithAWinner() throws Exception {
+        List<IFleet> fleets = FleetGenerator.sample(400, 2);
+        List<CompletableFuture<Match>> results = new ArrayList<>();
+        try (MatchScheduler scheduler = new MatchScheduler(3)) {
+            for (int i = 0; i < fleets.size(); i += 2)
+                results.add(scheduler.submit(new Match(fleets.get(i), new ParityHuntShooter(), fleets.get(i + 1),
+                        new RandomShooter(), i)));
+            int parityWins = 0;
+            for (CompletableFuture<Match> f : results) {
+                Match m = f.get();
+                assertTrue(m.isFinished());
+                assertEquals(0, m.getBoard(1 - m.getWinner()).getRemainingShips());
+                if (m.getWinner() == 0)
+                    parityWins++;
+            }
+            assertTrue(parityWins > results.size() / 2);
+        }
+    }
+
+    @Test
+    public void shooterErrorsCompleteTheMatchExceptionally() {
+        List<IFleet> fleets = FleetGenerator.sample(2, 3);
+        IShooter broken = new RandomShooter() {
+            @Override
+            public List<IPosition> nextSalvo(int size) {
+                throw new StackOverflowError("atirador avariado");
+            }
+        };
+        MatchScheduler scheduler = new MatchScheduler(1);
+        CompletableFuture<Match> failed = scheduler.submit(new Match(fleets.get(0), broken, fleets.get(1),
+                new RandomShooter(), 1));
+        CompletionException e = assertThrows(CompletionException.class, failed::join);
+        assertTrue(e.getCause() instanceof StackOverflowError);
+
+        CompletableFuture<Match> next = scheduler.submit(new Match(fleets.get(0), new RandomShooter(),
+                fleets.get(1), new RandomShooter(), 2));
+        assertTrue(next.join().isFinished());
+        scheduler.close();
+        scheduler.close();
+        assertThrows(IllegalStateException.class, () -> scheduler.submit(new Match(fleets.get(0),
+                new RandomShooter(), fleets.get(1), new RandomShooter(), 3)));
+    }
+}
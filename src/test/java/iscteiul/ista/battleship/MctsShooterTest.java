@@ -0,0 +1,75 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do atirador MCTS e da amostragem de frotas coerentes.
+ */
+public class MctsShooterTest {
+
+    @Test
+    public void sampledFleetsAreConsistentWithObservation() {
+        IFleet layout = FleetGenerator.randomFleet(new Random(1));
+        Game game = new Game(FleetGenerator.copyOf(layout));
+        Observation view = new Observation();
+        List<IShip> sunk = new ArrayList<>();
+        Random rnd = new Random(2);
+        for (int i = 0; i < 45; i++) {
+            Position target = Observation.toPosition(rnd.nextInt(Observation.CELLS));
+            IShip s = game.fire(target);
+            if (game.getLastResult() == ShotResult.REPEATED)
+                continue;
+            view.record(target, game.getLastResult().isHit(), s);
+            if (s != null)
+                sunk.add(s);
+        }
+
+        FleetSampler sampler = new FleetSampler(view, sunk);
+        int samples = 0;
+        for (int attempt = 0; attempt < 500 && samples < 50; attempt++) {
+            int[][] ships = sampler.sample(rnd);
+            if (ships == null)
+                continue;
+            samples++;
+            assertEquals(FleetGenerator.COMPOSITION.size() - sunk.size(), ships.length);
+            boolean[] occupied = new boolean[Observation.CELLS];
+            for (int[] ship : ships) {
+                int hits = 0;
+                for (int c : ship) {
+                    occupied[c] = true;
+                    assertNotEquals(CellState.MISS, view.get(c));
+                    assertNotEquals(CellState.SUNK, view.get(c));
+                    if (view.get(c) == CellState.HIT)
+                        hits++;
+                }
+                assertTrue(hits < ship.length);
+            }
+            for (int c = 0; c < Observation.CELLS; c++)
+                if (view.get(c) == CellState.HIT)
+                    assertTrue(occupied[c]);
+        }
+        assertTrue(samples > 0);
+    }
+
+    @Test
+    public void mctsBeatsRandom() {
+        List<IFleet> corpus = FleetGenerator.sample(6, 13);
+        int mcts = 0;
+        int random = 0;
+        for (int i = 0; i < corpus.size(); i++) {
+            MctsShooter shooter = new MctsShooter(10_000, 2);
+            shooter.setMaxIterations(40);
+            mcts += Tournament.play(shooter, corpus.get(i), i, Tasks.NUMBER_SHOTS);
+            random += Tournament.play(new RandomShooter(), corpus.get(i), i, Tasks.NUMBER_SHOTS);
+        }
+        assertTrue(mcts < random, mcts + " vs " + random);
+    }
+}
@@ -0,0 +1,75 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testes do livro de aberturas.
+ */
+public class OpeningBookTest {
+
+    @TempDir
+    Path dir;
+
+    private static OpeningBook.Builder builder() {
+        OpeningBook.Builder builder = new OpeningBook.Builder(Tasks.NUMBER_SHOTS, 2);
+        builder.setGames(300);
+        builder.setMinCount(15);
+        builder.setSamples(200);
+        builder.setSeed(5);
+        return builder;
+    }
+
+    @Test
+    public void bookIsServedFromTheMappedFile() throws Exception {
+        Map<Long, int[]> expected = builder().build();
+        assertTrue(expected.size() > 1);
+        assertEquals(expected.keySet(), builder().build().keySet());
+
+        Path file = dir.resolve("aberturas.book");
+        assertEquals(expected.size(), builder().write(file));
+        try (OpeningBook book = OpeningBook.open(file)) {
+            assertEquals(expected.size(), book.size());
+            assertEquals(Tasks.NUMBER_SHOTS, book.getSalvoSize());
+            assertEquals(2, book.getDepth());
+            for (Map.Entry<Long, int[]> e : expected.entrySet())
+                assertArrayEquals(e.getValue(), book.lookup(e.getKey()));
+            assertArrayEquals(expected.get(new Observation().getHash()), book.lookup(new Observation()));
+            assertNull(book.lookup(0x1234_5678_9ABCL));
+        }
+
+        Files.write(file, new byte[OpeningBook.HEADER_BYTES]);
+        assertThrows(IOException.class, () -> OpeningBook.open(file));
+    }
+
+    @Test
+    public void shooterLeavesTheBookAndFallsBack() throws Exception {
+        Path file = dir.resolve("aberturas.book");
+        builder().write(file);
+        try (OpeningBook book = OpeningBook.open(file)) {
+            OpeningBookShooter shooter = new OpeningBookShooter(book, new ParityHuntShooter());
+            Random rnd = new Random(1);
+            for (int g = 0; g < 20; g++) {
+                int shots = Tournament.play(shooter, FleetGenerator.randomFleet(rnd), g, Tasks.NUMBER_SHOTS);
+                assertTrue(shooter.getBookSalvos() >= 1);
+                assertTrue(shooter.getBookSalvos() <= book.getDepth());
+                assertTrue(shots <= Observation.CELLS);
+            }
+
+            Tournament.play(shooter, FleetGenerator.randomFleet(rnd), 0, Tasks.NUMBER_SHOTS + 1);
+            assertEquals(0, shooter.getBookSalvos());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes da frota compacta.
+ */
+public class PackedFleetTest {
+
+    @Test
+    public void gamesOnPackedFleetsMatchGame() {
+        List<IFleet> layouts = FleetGenerator.sample(30, 5);
+        Random rnd = new Random(8);
+        for (IFleet layout : layouts) {
+            Game game = new Game(FleetGenerator.copyOf(layout));
+            PackedFleet packed = PackedFleet.of(layout);
+            Game packedGame = new Game(packed);
+            assertEquals(layout.getShips().size(), packed.getShipCount());
+            for (int turn = 0; game.getRemainingShips() > 0; turn++) {
+                Position target = new Position(rnd.nextInt(Fleet.BOARD_SIZE), rnd.nextInt(Fleet.BOARD_SIZE));
+                IShip expected = game.fire(target);
+                IShip actual = packedGame.fire(target);
+                assertEquals(String.valueOf(expected), String.valueOf(actual));
+                if (turn % 9 == 8) {
+                    game.undo();
+                    packedGame.undo();
+                }
+                assertEquals(game.getLastResult(), packedGame.getLastResult());
+                assertEquals(game.getRemainingShips(), packed.getFloatingCount());
+                assertEquals(game.getObservationHash(), packedGame.getObservationHash());
+            }
+            assertEquals(0, packed.getFloatingShips().size());
+            assertEquals(packed.getShips().toString(), packed.toFleet().getShips().toString());
+        }
+    }
+
+    @Test
+    public void addShipFollowsFleetRules() {
+        PackedFleet packed = new PackedFleet();
+        Fleet fleet = new Fleet();
+        Random rnd = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            String kind = ShipShapes.KINDS.get(rnd.nextInt(ShipShapes.KINDS.size()));
+            Compass bearing = ShipShapes.BEARINGS[rnd.nextInt(ShipShapes.BEARINGS.length)];
+            Position anchor = new Position(rnd.nextInt(Fleet.BOARD_SIZE), rnd.nextInt(Fleet.BOARD_SIZE));
+            Ship s;
+            try {
+                s = Ship.buildShip(kind, bearing, anchor);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            assertEquals(fleet.addShip(s), packed.addShip(s), s.toString());
+        }
+        assertEquals(fleet.getShips().toString(), packed.getShips().toString());
+        assertEquals(fleet.getShipsLike("Nau").size(), packed.getShipsLike("Nau").size());
+    }
+
+    @Test
+    public void shipViewsShareTheHitMask() {
+        Fleet fleet = FleetGenerator.randomFleet(new Random(6));
+        IShip original = fleet.getShips().get(0);
+        IPosition first = original.getPositions().get(0);
+        original.shoot(first);
+
+        PackedFleet packed = PackedFleet.of(fleet);
+        assertEquals(1, packed.getHitMask(0));
+        IShip view = packed.shipAt(first);
+        assertEquals(packed.getShips().get(0), view);
+        assertTrue(view.getPositions().get(0).isHit());
+        for (IPosition p : view.getPositions())
+            view.shoot(p);
+        assertFalse(packed.getShips().get(0).stillFloating());
+        assertTrue(packed.isSunk(0));
+        view.repair(first);
+        assertTrue(view.stillFloating());
+        assertEquals(original.getLeftMostPos(), view.getLeftMostPos());
+        assertEquals(original.getBottomMostPos(), view.getBottomMostPos());
+        assertNull(packed.shipAt(new Position(Fleet.BOARD_SIZE, 0)));
+
+        assertFalse(packed.addShip(original));
+        assertEquals(fleet.getShips().size(), packed.getShipCount());
+
+        // frota ilegal construída de propósito, sem passar por addShip: o mesmo navio duas vezes
+        List<IShip> twice = List.of(original, original);
+        Fleet illegal = new Fleet() {
+            @Override
+            public List<IShip> getShips() {
+                return twice;
+            }
+        };
+        assertThrows(IllegalArgumentException.class, () -> PackedFleet.of(illegal));
+    }
+}
@@ -0,0 +1,87 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do genoma de frotas e do otimizador genético.
+ */
+public class PlacementOptimizerTest {
+
+    private static void assertLegal(FleetGenome g) {
+        assertEquals(FleetGenerator.COMPOSITION.size(), g.size());
+        Fleet fleet = g.toFleet();
+        assertNotNull(fleet, g.toString());
+        boolean[] occupied = new boolean[Observation.CELLS];
+        for (IShip s : fleet.getShips())
+            for (IPosition p : s.getPositions()) {
+                int cell = Observation.cell(p);
+                assertFalse(occupied[cell], g.toString());
+                occupied[cell] = true;
+            }
+    }
+
+    @Test
+    public void mutationAndCrossoverKeepGenomesLegal() {
+        Random rnd = new Random(17);
+        FleetGenome a = FleetGenome.random(FleetGenerator.COMPOSITION, rnd);
+        FleetGenome b = FleetGenome.random(FleetGenerator.COMPOSITION, rnd);
+        for (int i = 0; i < 300; i++) {
+            FleetGenome child = a.crossover(b, rnd);
+            assertLegal(child);
+            FleetGenome mutant = child.mutate(i % 3 == 0 ? 1.0 : 0.3, rnd);
+            assertLegal(mutant);
+            a = b;
+            b = mutant;
+        }
+    }
+
+    @Test
+    public void repairRelocatesGenesThatCannotBePlaced() {
+        // genoma ilegal construído de propósito: duas barcas na mesma célula
+        Ship first = Ship.buildShip("barca", Compass.NORTH, new Position(0, 0));
+        Ship second = Ship.buildShip("barca", Compass.NORTH, new Position(0, 0));
+        FleetGenome illegal = FleetGenome.of(List.of(first, second));
+        assertNull(illegal.toFleet());
+
+        Random rnd = new Random(2);
+        for (int i = 0; i < 50; i++) {
+            FleetGenome repaired = illegal.mutate(0.0, rnd);
+            Fleet fleet = repaired.toFleet();
+            assertNotNull(fleet, repaired.toString());
+            assertEquals(first.getPosition(), repaired.ship(0).getPosition());
+            assertNotEquals(first.getPosition(), repaired.ship(1).getPosition());
+            assertFalse(repaired.ship(1).tooCloseTo(first));
+        }
+    }
+
+    @Test
+    public void optimizerDoesNotDependOnThreads() {
+        String one = null;
+        List<Double> history = null;
+        for (int threads : new int[] { 1, 3 }) {
+            PlacementOptimizer optimizer = new PlacementOptimizer(ParityHuntShooter::new);
+            optimizer.setPopulationSize(6);
+            optimizer.setGamesPerEvaluation(3);
+            optimizer.setThreads(threads);
+            FleetGenome best = optimizer.optimize(3, 42);
+            assertLegal(best);
+            assertEquals(3, optimizer.getHistory().size());
+            if (one == null) {
+                one = best.toString();
+                history = optimizer.getHistory();
+            } else {
+                assertEquals(one, best.toString());
+                assertEquals(history, optimizer.getHistory());
+            }
+        }
+    }
+}
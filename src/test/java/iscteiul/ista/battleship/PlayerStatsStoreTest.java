@@ -0,0 +1,108 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testes do armazém de estatísticas de jogadores.
+ */
+public class PlayerStatsStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void concurrentUpdatesArePersisted() throws Exception {
+        Path file = dir.resolve("jogadores.bin");
+        IFleet layout = FleetGenerator.randomFleet(new Random(12));
+        Game game = new Game(FleetGenerator.copyOf(layout));
+        for (int c = 0; c < Observation.CELLS; c += 2)
+            game.fire(Observation.toPosition(c));
+        game.fire(Observation.toPosition(0));
+        game.fire(new Position(-1, 0));
+        IFleet attacked = FleetGenerator.copyOf(layout);
+        Game replay = new Game(attacked);
+        for (IPosition p : game.getShots())
+            replay.fire(p);
+
+        int threads = 4;
+        int gamesPerThread = 500;
+        int players = 50;
+        try (PlayerStatsStore store = PlayerStatsStore.open(file, 100)) {
+            assertTrue(store.wasClosedCleanly());
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread w = new Thread(() -> {
+                    for (int i = 0; i < gamesPerThread; i++)
+                        store.record(i % players, game, attacked, i % 2 == 0);
+                });
+                workers.add(w);
+                w.start();
+            }
+            for (Thread w : workers)
+                w.join();
+            assertEquals(players, store.size());
+            assertNull(store.get(players));
+        }
+
+        try (PlayerStatsStore store = PlayerStatsStore.open(file, 1)) {
+            assertTrue(store.wasClosedCleanly());
+            assertEquals(128, store.capacity());
+            long games = threads * gamesPerThread / players;
+            PlayerStatsStore.PlayerStats s = store.get(7);
+            assertEquals(games, s.getGames());
+            assertEquals(0, s.getWins());
+            assertEquals(games, store.get(8).getWins());
+            assertEquals(games * game.getShots().size(), s.getShots());
+            assertEquals(games * game.getHits(), s.getHits());
+            assertEquals(games, s.getRepeatedShots());
+            assertEquals(games, s.getInvalidShots());
+            for (Category c : Category.values()) {
+                long sunk = attacked.getShipsLike(c.getName()).stream().filter(x -> !x.stillFloating()).count();
+                assertEquals(games * sunk, s.getSunk(c));
+            }
+        }
+
+        PlayerStatsStore crashed = PlayerStatsStore.open(file, 1);
+        crashed.flush(); // sem close: a marca de utilização fica ativa
+        try (PlayerStatsStore store = PlayerStatsStore.open(file, 1)) {
+            assertFalse(store.wasClosedCleanly());
+            assertEquals(players, store.size());
+        }
+        crashed.close();
+
+        try (PlayerStatsStore small = PlayerStatsStore.open(dir.resolve("pequeno.bin"), 2)) {
+            small.record(1, game, attacked, true);
+            small.record(2, game, attacked, true);
+            assertThrows(IllegalStateException.class, () -> small.record(3, game, attacked, true));
+        }
+    }
+
+    @Test
+    public void maximumCapacityCanBeMapped() throws Exception {
+        assertEquals(1 << 23, PlayerStatsStore.MAX_CAPACITY);
+        assertThrows(IllegalArgumentException.class,
+                () -> PlayerStatsStore.open(dir.resolve("demasiado.bin"), PlayerStatsStore.MAX_CAPACITY + 1));
+
+        Path file = dir.resolve("maximo.bin");
+        try (PlayerStatsStore store = PlayerStatsStore.open(file, PlayerStatsStore.MAX_CAPACITY)) {
+            assertEquals(PlayerStatsStore.MAX_CAPACITY, store.capacity());
+            store.record(Long.MAX_VALUE - 1, new Game(new Fleet()), new Fleet(), true);
+        }
+        try (PlayerStatsStore store = PlayerStatsStore.open(file, 1)) {
+            assertEquals(PlayerStatsStore.MAX_CAPACITY, store.capacity());
+            assertEquals(1, store.get(Long.MAX_VALUE - 1).getWins());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes dos perfis de regras e dos jogos que os usam.
+ */
+public class RulesetTest {
+
+    private static final String VARIANT = String.join("\n",
+            "name = variante",
+            "board.rows = 8",
+            "board.columns = 12",
+            "salvo.size = 2",
+            "ships.touching = true",
+            "ships = ele, boia",
+            "ship.ele.count = 2",
+            "ship.ele.n = 0,0 1,0 1,1",
+            "ship.ele.e = 0,0 0,1 1,0",
+            "ship.boia.name = Boia",
+            "ship.boia.count = 3",
+            "ship.boia.cells = 0,0");
+
+    /**
+     * O perfil clássico aceita as frotas de {@link FleetGenerator} e dá os mesmos resultados
+     * de tiro que {@link GameArena}.
+     */
+    @Test
+    public void classicProfileMatchesBuiltInRules() {
+        Ruleset classic = Ruleset.classic();
+        assertEquals(Fleet.BOARD_SIZE, classic.getRows());
+        assertEquals(Tasks.NUMBER_SHOTS, classic.getSalvoSize());
+        assertEquals(Fleet.FLEET_SIZE + 1, classic.getFleetSize());
+        for (Category c : Category.values()) {
+            int kind = classic.kindIndex(c.getKind());
+            assertEquals(c.getName(), classic.getCategory(kind));
+            assertEquals(c.getLimit(), classic.getLimit(kind));
+            assertEquals(c.getSize(), classic.getSize(kind));
+        }
+
+        Random rnd = new Random(3);
+        GameArena arena = new GameArena(1);
+        for (int i = 0; i < 20; i++) {
+            Fleet fleet = FleetGenerator.randomFleet(rnd);
+            RulesetGame game = new RulesetGame(classic);
+            for (IShip s : fleet.getShips())
+                assertTrue(game.place(s.getCategory().toLowerCase(), s.getBearing(), s.getPosition().getRow(),
+                        s.getPosition().getColumn()));
+            assertTrue(game.isFleetComplete());
+            assertEquals(RejectionReason.FLEET_FULL, game.rejectionReason("barca", Compass.NORTH, 0, 0));
+
+            int slot = arena.allocate(fleet);
+            for (int shot = 0; shot < 150; shot++) {
+                int row = rnd.nextInt(Fleet.BOARD_SIZE + 2) - 1;
+                int column = rnd.nextInt(Fleet.BOARD_SIZE + 2) - 1;
+                assertEquals(arena.fire(slot, row, column), game.fire(row, column));
+            }
+            assertEquals(arena.getRemainingShips(slot), game.getRemainingShips());
+            arena.release(slot);
+        }
+    }
+
+    @Test
+    public void customProfileIsCompiledAndEnforced() throws IOException {
+        Ruleset rules = Ruleset.load(new StringReader(VARIANT));
+        assertEquals(5, rules.getFleetSize());
+        assertTrue(rules.isTouchingAllowed());
+        assertFalse(rules.isValid(rules.kindIndex("ele"), Compass.SOUTH));
+
+        RulesetGame game = new RulesetGame(rules);
+        assertEquals(RejectionReason.UNKNOWN_SHIP, game.rejectionReason("galeao", Compass.NORTH, 0, 0));
+        assertEquals(RejectionReason.INVALID_BEARING, game.rejectionReason("ele", Compass.SOUTH, 0, 0));
+        assertEquals(RejectionReason.OUTSIDE_BOARD, game.rejectionReason("ele", Compass.NORTH, 7, 0));
+        assertTrue(game.place("ele", Compass.NORTH, 0, 0));
+        assertEquals(RejectionReason.TOO_CLOSE, game.rejectionReason("boia", Compass.NORTH, 1, 1));
+        assertNull(game.rejectionReason("boia", Compass.NORTH, 0, 1)); // encostada
+        assertTrue(game.place("ele", Compass.EAST, 0, 10));
+        assertEquals(RejectionReason.CATEGORY_FULL, game.rejectionReason("ele", Compass.EAST, 5, 5));
+
+        game.placeRandomFleet(new Random(1));
+        assertTrue(game.isFleetComplete());
+        assertEquals(3, game.getShips(rules.kindIndex("boia")));
+
+        assertThrows(IllegalArgumentException.class, () -> game.fireSalvo(new int[3], new int[3]));
+        assertArrayEquals(new ShotResult[] { ShotResult.HIT, ShotResult.INVALID },
+                game.fireSalvo(new int[] { 0, 8 }, new int[] { 0, 0 }));
+        for (int row = 0; row < rules.getRows(); row++)
+            for (int column = 0; column < rules.getColumns(); column++)
+                game.fire(row, column);
+        assertTrue(game.isFinished());
+        assertEquals(3 * 2 + 3, game.getHits());
+    }
+
+    @Test
+    public void invalidProfilesAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> Ruleset.load(new StringReader(VARIANT.replace("board.rows = 8", "board.rows = 99"))));
+        assertThrows(IllegalArgumentException.class,
+                () -> Ruleset.load(new StringReader(VARIANT.replace("0,0 1,0 1,1", "0,0 1;0 1,1"))));
+        assertThrows(IllegalArgumentException.class,
+                () -> Ruleset.load(new StringReader(VARIANT.replace("ship.ele.e = 0,0 0,1 1,0", "ship.ele.e = 0,0"))));
+        assertThrows(IllegalArgumentException.class,
+                () -> Ruleset.load(new StringReader(VARIANT.replace("salvo.size = 2\n", ""))));
+    }
+}
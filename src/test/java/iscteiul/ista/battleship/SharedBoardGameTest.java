@@ -0,0 +1,69 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do jogo partilhado com disparos concorrentes.
+ */
+public class SharedBoardGameTest {
+
+    @Test
+    public void eachCellAndEachSinkIsWonExactlyOnce() throws Exception {
+        int players = 8;
+        IFleet layout = FleetGenerator.randomFleet(new Random(8));
+        int occupied = 0;
+        for (IShip s : layout.getShips())
+            occupied += s.getSize();
+
+        for (int round = 0; round < 20; round++) {
+            SharedBoardGame game = new SharedBoardGame(layout);
+            ExecutorService pool = Executors.newFixedThreadPool(players);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<int[]>> futures = new ArrayList<>();
+            for (int p = 0; p < players; p++) {
+                Random rnd = new Random(round * players + p);
+                futures.add(pool.submit(() -> {
+                    List<Integer> cells = new ArrayList<>();
+                    for (int c = 0; c < Observation.CELLS; c++)
+                        cells.add(c);
+                    Collections.shuffle(cells, rnd);
+                    int[] won = new int[ShotResult.values().length];
+                    start.await();
+                    for (int c : cells)
+                        won[game.fire(c / Fleet.BOARD_SIZE, c % Fleet.BOARD_SIZE).ordinal()]++;
+                    won[game.fire(-1, 0).ordinal()]++;
+                    return won;
+                }));
+            }
+            start.countDown();
+            int[] total = new int[ShotResult.values().length];
+            for (Future<int[]> f : futures) {
+                int[] won = f.get();
+                for (int i = 0; i < total.length; i++)
+                    total[i] += won[i];
+            }
+            pool.shutdown();
+
+            assertEquals(layout.getShips().size(), total[ShotResult.SUNK.ordinal()]);
+            assertEquals(occupied, total[ShotResult.HIT.ordinal()] + total[ShotResult.SUNK.ordinal()]);
+            assertEquals(Observation.CELLS - occupied, total[ShotResult.MISS.ordinal()]);
+            assertEquals((players - 1) * Observation.CELLS, total[ShotResult.REPEATED.ordinal()]);
+            assertEquals(players, game.getInvalidShots());
+            assertEquals(occupied, game.getHits());
+            assertEquals(Observation.CELLS, game.getShots());
+            assertTrue(game.isFinished());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testes do mapa de calor dos tiros.
+ */
+public class ShotHeatmapTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void gamesOnManyThreadsShareTheDefaultHeatmap() throws Exception {
+        ShotHeatmap heatmap = new ShotHeatmap();
+        AtomicLong shots = new AtomicLong();
+        AtomicLong hits = new AtomicLong();
+        AtomicLong sinks = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ShotHeatmap.setDefault(heatmap);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int seed = t;
+                futures.add(executor.submit(() -> {
+                    Random rnd = new Random(seed);
+                    for (int g = 0; g < 25; g++) {
+                        Game game = new Game(FleetGenerator.randomFleet(rnd));
+                        assertSame(heatmap, game.getHeatmap());
+                        for (int i = 0; i < 60; i++)
+                            game.fire(new Position(rnd.nextInt(Fleet.BOARD_SIZE + 1) - 1,
+                                    rnd.nextInt(Fleet.BOARD_SIZE)));
+                        Game branch = game.fork();
+                        branch.fire(new Position(5, 5));
+                        shots.addAndGet(game.getShots().size());
+                        hits.addAndGet(game.getHits());
+                        sinks.addAndGet(game.getSunkShips());
+                    }
+                }));
+            }
+            for (Future<?> f : futures)
+                f.get();
+        } finally {
+            ShotHeatmap.setDefault(null);
+            executor.shutdown();
+        }
+        assertNull(new Game(new Fleet()).getHeatmap());
+
+        assertEquals(shots.get(), heatmap.total(ShotHeatmap.Layer.SHOTS));
+        assertEquals(hits.get(), heatmap.total(ShotHeatmap.Layer.HITS));
+        assertEquals(sinks.get(), heatmap.total(ShotHeatmap.Layer.SINKS));
+    }
+
+    @Test
+    public void exportAndRendering() throws Exception {
+        ShotHeatmap heatmap = new ShotHeatmap();
+        for (int i = 0; i < 9; i++)
+            heatmap.record(new Position(0, 0), ShotResult.HIT);
+        heatmap.record(new Position(0, 1), ShotResult.MISS);
+        heatmap.record(new Position(9, 9), ShotResult.SUNK);
+        heatmap.record(new Position(9, 9), ShotResult.REPEATED);
+        heatmap.record(new Position(10, 0), ShotResult.MISS);
+
+        Path file = dir.resolve("calor.bin");
+        heatmap.write(file);
+        ShotHeatmap copy = ShotHeatmap.read(file);
+        for (ShotHeatmap.Layer layer : ShotHeatmap.Layer.values())
+            assertArrayEquals(heatmap.snapshot(layer), copy.snapshot(layer));
+        copy.merge(heatmap);
+        assertEquals(22, copy.total(ShotHeatmap.Layer.SHOTS));
+
+        MemoryOutput out = new MemoryOutput();
+        heatmap.print(ShotHeatmap.Layer.SHOTS, out);
+        List<String> lines = out.getLines();
+        assertEquals(Fleet.BOARD_SIZE, lines.size());
+        assertEquals("91........", lines.get(0));
+        assertEquals(".........1", lines.get(9));
+    }
+}
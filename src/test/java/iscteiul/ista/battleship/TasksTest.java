@@ -0,0 +1,57 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes dos ciclos de comandos sobre canais arbitrários.
+ */
+public class TasksTest {
+
+    private static String runTaskD(String script) {
+        MemoryOutput out = new MemoryOutput();
+        Tasks.taskD(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)), out, ICommandListener.NONE);
+        return out.getText();
+    }
+
+    @Test
+    public void taskDWritesToTheGivenStream() {
+        String script = "nova\n" + FleetGenome.of(FleetGenerator.randomFleet(new Random(1)))
+                + "rajada 0 0 0 1 0 2\nver\ndesfazer\nrefazer\nrefazer\nfoo\ndesisto\n";
+        String output = runTaskD(script);
+        assertTrue(output.contains("11 navios adicionados com sucesso!"), output);
+        assertTrue(output.contains("Hits: "), output);
+        assertTrue(output.contains("Nada para refazer!"), output);
+        assertTrue(output.contains("Que comando é esse??? Repete ..."), output);
+        assertTrue(output.endsWith("Bons ventos!" + System.lineSeparator()), output);
+    }
+
+    @Test
+    public void concurrentSessionsAreIsolated() {
+        List<String> scripts = LoadDriver.scripts(200, 10, 3);
+        SessionRunner runner = new SessionRunner(4);
+        runner.setCaptureOutput(true);
+        LoadReport report = runner.run(Tasks::taskD, scripts);
+
+        assertEquals(0, report.getFailures());
+        assertEquals(200 * 10, report.getLatency("rajada").getCount());
+        for (int i = 0; i < scripts.size(); i += 37)
+            assertEquals(runTaskD(scripts.get(i)), report.getOutputs().get(i));
+    }
+
+    @Test
+    public void failedSessionsAreCounted() {
+        SessionRunner runner = new SessionRunner(2);
+        LoadReport report = runner.run((in, out, listener) -> {
+            throw new IllegalStateException("sessão avariada");
+        }, List.of("desisto\n", "desisto\n"));
+        assertEquals(2, report.getFailures());
+    }
+}
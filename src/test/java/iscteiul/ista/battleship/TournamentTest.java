@@ -0,0 +1,38 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do torneio entre estratégias de tiro.
+ */
+public class TournamentTest {
+
+    private static TournamentResult run(List<IFleet> corpus, int threads) {
+        Tournament t = new Tournament(corpus);
+        t.setThreads(threads);
+        t.addStrategy(RandomShooter::new).addStrategy(ParityHuntShooter::new);
+        return t.run(7);
+    }
+
+    @Test
+    public void resultsDoNotDependOnThreadCount() {
+        List<IFleet> corpus = FleetGenerator.sample(150, 3);
+        TournamentResult single = run(corpus, 1);
+        TournamentResult parallel = run(corpus, 4);
+        for (int s = 0; s < single.getStrategies(); s++)
+            assertArrayEquals(single.getShots(s), parallel.getShots(s));
+    }
+
+    @Test
+    public void parityHuntBeatsRandom() {
+        TournamentResult r = run(FleetGenerator.sample(150, 5), 2);
+        assertTrue(r.distribution(1).mean() < r.distribution(0).mean(), r.toTable());
+        for (int n : r.getShots(0))
+            assertTrue(n <= Observation.CELLS);
+    }
+}
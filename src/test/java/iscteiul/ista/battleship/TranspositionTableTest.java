@@ -0,0 +1,90 @@
+package iscteiul.ista.battleship;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testes do hash de Zobrist das observações e da tabela de transposição.
+ */
+public class TranspositionTableTest {
+
+    @Test
+    public void gameHashMatchesObservationAndIgnoresShotOrder() {
+        IFleet layout = FleetGenerator.randomFleet(new Random(4));
+        List<Position> targets = new ArrayList<>();
+        for (int c = 0; c < Observation.CELLS; c += 3)
+            targets.add(Observation.toPosition(c));
+
+        Game game = new Game(FleetGenerator.copyOf(layout));
+        Observation view = new Observation();
+        for (Position p : targets) {
+            IShip sunk = game.fire(p);
+            view.record(p, game.getLastResult().isHit(), sunk);
+            assertEquals(view.getHash(), game.getObservationHash());
+        }
+
+        Collections.shuffle(targets, new Random(1));
+        Game shuffled = new Game(FleetGenerator.copyOf(layout));
+        for (Position p : targets)
+            shuffled.fire(p);
+        assertEquals(game.getObservationHash(), shuffled.getObservationHash());
+
+        while (game.undo())
+            ;
+        assertEquals(0L, game.getObservationHash());
+    }
+
+    @Test
+    public void deeperEntriesSurviveAndStaleOnesAreReplaced() {
+        TranspositionTable tt = new TranspositionTable(4);
+        long[] keys = { 1L << 40, 2L << 40, 3L << 40, 4L << 40, 5L << 40 }; // todos no mesmo balde
+        for (int i = 0; i < 4; i++)
+            assertTrue(tt.store(keys[i], -i, i, 10 + i));
+        assertFalse(tt.store(keys[3], 7, 1, 2));
+        assertEquals(-3, TranspositionTable.score(tt.probe(keys[3])));
+
+        tt.store(keys[4], 99, 42, 1); // substitui a entrada menos profunda
+        assertEquals(TranspositionTable.NOT_FOUND, tt.probe(keys[0]));
+        assertEquals(42, TranspositionTable.bestMove(tt.probe(keys[4])));
+
+        tt.newGeneration();
+        tt.store(keys[0], 5, 0, 0);
+        tt.store(keys[4], 6, 0, 0); // entradas antigas são substituídas primeiro, mesmo as profundas
+        assertEquals(TranspositionTable.NOT_FOUND, tt.probe(keys[1]));
+        assertEquals(5, TranspositionTable.score(tt.probe(keys[0])));
+        assertEquals(6, TranspositionTable.score(tt.probe(keys[4])));
+    }
+
+    @Test
+    public void concurrentAccessNeverReturnsForeignEntries() {
+        TranspositionTable tt = new TranspositionTable(1 << 10);
+        AtomicInteger found = new AtomicInteger();
+        IntStream.range(0, 8).parallel().forEach(t -> {
+            Random rnd = new Random(t);
+            for (int i = 0; i < 200_000; i++) {
+                long hash = rnd.nextInt(1 << 14) * 0x9E3779B97F4A7C15L;
+                if (rnd.nextBoolean()) {
+                    tt.store(hash, (int) hash, (int) (hash >>> 40) & 0x7F, rnd.nextInt(256));
+                } else {
+                    long data = tt.probe(hash);
+                    if (data != TranspositionTable.NOT_FOUND) {
+                        assertEquals((int) hash, TranspositionTable.score(data));
+                        assertEquals((int) (hash >>> 40) & 0x7F, TranspositionTable.bestMove(data));
+                        found.incrementAndGet();
+                    }
+                }
+            }
+        });
+        assertTrue(found.get() > 0);
+    }
+}